@@ -1,5 +1,9 @@
 package org.twig4j.core;
 
+import org.twig4j.core.cache.BytecodeCache;
+import org.twig4j.core.cache.ResolvedTemplate;
+import org.twig4j.core.cache.TemplateCache;
+import org.twig4j.core.compiler.BytecodeCompiler;
 import org.twig4j.core.compiler.ClassCompiler;
 import org.twig4j.core.compiler.RuntimeTemplateCompiler;
 import org.twig4j.core.exception.LoaderException;
@@ -9,6 +13,7 @@ import org.twig4j.core.extension.Core;
 import org.twig4j.core.extension.Extension;
 import org.twig4j.core.filter.Filter;
 import org.twig4j.core.loader.Loader;
+import org.twig4j.core.nodevisitor.NodeVisitor;
 import org.twig4j.core.syntax.Lexer;
 import org.twig4j.core.syntax.TokenStream;
 import org.twig4j.core.syntax.operator.Operator;
@@ -16,13 +21,21 @@ import org.twig4j.core.syntax.parser.Parser;
 import org.twig4j.core.syntax.parser.node.Module;
 import org.twig4j.core.syntax.parser.tokenparser.AbstractTokenParser;
 import org.twig4j.core.template.Context;
+import org.twig4j.core.template.InterpretedTemplate;
 import org.twig4j.core.template.Template;
+import org.twig4j.core.util.StringBuilderPool;
 
 import javax.xml.bind.DatatypeConverter;
 import java.io.UnsupportedEncodingException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Environment {
     private String templatePackage = "org.twig4j.core.template";
@@ -30,18 +43,34 @@ public class Environment {
     private String templateBaseClass = "org.twig4j.core.template.Template";
     private boolean strictVariables = false;
     private boolean debug = false;
+    private boolean autoReload = true;
+    private boolean bytecodeBackend = false;
+    private boolean tieredCompilation = false;
+    private boolean attributeLinking = false;
+    private Map<String, Class<?>> declaredTypes = new HashMap<>();
+    private int promotionThreshold = 2;
+    private volatile Executor promotionExecutor;
 
     private LinkedHashMap<String, Operator> binaryOperators = new LinkedHashMap<>();
     private LinkedHashMap<String, Operator> unaryOperators = new LinkedHashMap<>();
     private Map<String, AbstractTokenParser> tokenParsers = new HashMap<>();
-    private boolean hasInitedExtensions = false;
+    private List<NodeVisitor> nodeVisitors = new ArrayList<>();
+    private Set<Class<? extends NodeVisitor>> disabledNodeVisitors = new HashSet<>();
+    private volatile boolean hasInitedExtensions = false;
 
     private Loader loader;
     private Lexer lexer = new Lexer(this);
     private Parser parser = new Parser(this);
     private ClassCompiler classCompiler = new ClassCompiler(this);
     private RuntimeTemplateCompiler runtimeTemplateCompiler = new RuntimeTemplateCompiler(this);
-    private HashMap<String, Template> loadedTemplates = new HashMap<>();
+    private TemplateCache templateCache = new TemplateCache();
+    private BytecodeCache bytecodeCache;
+    private StringBuilderPool outputBufferPool = new StringBuilderPool();
+    // Template name => already resolved template, so the source doesn't have to be read and hashed on every load
+    private ConcurrentHashMap<String, ResolvedTemplate> resolvedTemplates = new ConcurrentHashMap<>();
+    private AtomicLong resolutionGeneration = new AtomicLong();
+    // The lexer, parser and class compiler are stateful, so only one template source can be compiled at a time
+    private final Object compileLock = new Object();
 
     private List<Extension> extensions = new ArrayList<>();
     private Map<String, Filter> filters = new HashMap<>();
@@ -105,7 +134,8 @@ public class Environment {
      *
      */
     public Template resolveTemplate(String templateName) throws Twig4jException {
-        return resolveTemplate(Arrays.asList(templateName));
+        // Same as resolving a list with only one template, but without creating a list for every include
+        return loadTemplate(templateName);
     }
 
     /**
@@ -172,14 +202,127 @@ public class Environment {
             initExtensions();
         }
 
+        // Fast path: the name has already been resolved (and is still fresh if auto reload is enabled)
+        String resolvedTemplateKey = index == 0 ? name : name + "\u0000" + index;
+        ResolvedTemplate resolvedTemplate = resolvedTemplates.get(resolvedTemplateKey);
+        String freshnessToken = null;
+
+        if (resolvedTemplate != null) {
+            if (autoReload) {
+                freshnessToken = getLoader().getFreshnessToken(name);
+            }
+
+            if (!autoReload || resolvedTemplate.isFresh(freshnessToken)) {
+                // The template may have been evicted from the cache since it was resolved
+                Template template = templateCache.getIfPresent(resolvedTemplate.getClassName());
+
+                if (template != null && (!autoReload || areInlinedTemplatesFresh(template))) {
+                    return template;
+                }
+            }
+        } else if (autoReload) {
+            // Get the token before the cache key so a template changing in between is picked up on the next load
+            freshnessToken = getLoader().getFreshnessToken(name);
+        }
+
         String className = getTemplateClass(name);
         String fullTemplateClassName = templatePackage + "." + className;
 
-        // Return already compiled template
-        if (loadedTemplates.containsKey(className)) {
-            return loadedTemplates.get(className);
+        // Only one thread compiles a given template, the others wait for it to finish
+        Template template = templateCache.get(className, () -> createTemplate(name, fullTemplateClassName));
+
+        // The template itself is fresh, but the templates compiled into it might have changed
+        if (autoReload && !areInlinedTemplatesFresh(template)) {
+            templateCache.invalidate(className);
+            template = templateCache.get(className, () -> createTemplate(name, fullTemplateClassName));
         }
 
+        resolvedTemplates.put(resolvedTemplateKey, new ResolvedTemplate(className, freshnessToken));
+
+        return template;
+    }
+
+    /**
+     * Forget all resolved template names, so the next load of every template asks the loader for its cache key again.
+     * Already loaded templates stay in the template cache.
+     *
+     * @return this
+     */
+    public Environment clearResolvedTemplates() {
+        resolvedTemplates.clear();
+        resolutionGeneration.incrementAndGet();
+
+        return this;
+    }
+
+    /**
+     * Whether a template loaded with {@link #loadTemplate(String, Integer)} can be used again without loading it again,
+     * as long as {@link #getResolutionGeneration()} and the removal count of the template cache haven't changed. Not
+     * with auto reload, which checks templates for changes every time they're loaded, or a bounded template cache,
+     * which needs to see the templates being used to know which ones to keep.
+     *
+     * @return Whether loaded templates can be reused
+     */
+    public boolean canReuseLoadedTemplates() {
+        return !autoReload && !templateCache.isBounded();
+    }
+
+    /**
+     * Get the number of times the resolved template names have been forgotten (see {@link #clearResolvedTemplates()})
+     *
+     * @return The generation of the resolved names
+     */
+    public long getResolutionGeneration() {
+        return resolutionGeneration.get();
+    }
+
+    /**
+     * Whether the templates compiled into a template (see {@link org.twig4j.core.nodevisitor.IncludeInliningNodeVisitor})
+     * are still the ones the loader would load. With auto reload, the loader is asked whether they've changed.
+     *
+     * @param template The template
+     *
+     * @return Whether the template can be used as it is
+     */
+    public boolean areInlinedTemplatesFresh(Template template) {
+        for (Map.Entry<String, String> inlinedTemplate : template.getInlinedTemplates().entrySet()) {
+            try {
+                if (!inlinedTemplate.getValue().equals(getCurrentTemplateClass(inlinedTemplate.getKey()))) {
+                    return false;
+                }
+            } catch (LoaderException e) {
+                // Compiled again, so including the missing template fails like it does without inlining
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the class name of a template, from the resolved names if it's there and (with auto reload) still fresh
+     */
+    private String getCurrentTemplateClass(String name) throws LoaderException {
+        ResolvedTemplate resolvedTemplate = resolvedTemplates.get(name);
+
+        if (resolvedTemplate != null && (!autoReload || resolvedTemplate.isFresh(getLoader().getFreshnessToken(name)))) {
+            return resolvedTemplate.getClassName();
+        }
+
+        return getTemplateClass(name);
+    }
+
+    /**
+     * Instantiates a precompiled template class if there is one on the class path, otherwise compiles the template
+     *
+     * @param name The name of the template
+     * @param fullTemplateClassName The template class name including package
+     *
+     * @return The template instance
+     *
+     * @throws Twig4jException On any errors
+     */
+    protected Template createTemplate(String name, String fullTemplateClassName) throws Twig4jException {
         try {
             // First try to load template with Environment constructor, if that doesn't work load it with default constructor
             try {
@@ -193,17 +336,142 @@ public class Environment {
                 return template;
             }
         } catch (ClassNotFoundException e) {
-            String javaSourceCode = compileSource(getLoader().getSource(name), name);
-            Template template = this.runtimeTemplateCompiler.compile(javaSourceCode, fullTemplateClassName);
-
-            this.loadedTemplates.put(className, template);
-
-            return template;
+            return compileTemplate(name, fullTemplateClassName);
         } catch (Exception e) {
             throw new Twig4jException(e.getMessage(), name, -1, e);
         }
     }
 
+    /**
+     * Compiles a template at runtime, or loads its class files from the bytecode cache if it's been compiled before.
+     * With tiered compilation enabled, templates that aren't in the bytecode cache are interpreted until they've been
+     * rendered often enough to be worth compiling.
+     *
+     * @param name The name of the template
+     * @param fullTemplateClassName The template class name including package
+     *
+     * @return The template instance
+     *
+     * @throws Twig4jException On any errors
+     */
+    protected Template compileTemplate(String name, String fullTemplateClassName) throws Twig4jException {
+        String templateSourceCode = getLoader().getSource(name);
+        // The class name only depends on the cache key, so the source is checked too in case the template changed
+        String sourceHash = null;
+
+        if (bytecodeCache != null) {
+            sourceHash = hashText(templateSourceCode);
+            Map<String, byte[]> classFiles = bytecodeCache.load(getBytecodeCacheKey(fullTemplateClassName), sourceHash);
+
+            if (classFiles != null) {
+                Template template = runtimeTemplateCompiler.instantiate(classFiles, fullTemplateClassName);
+
+                // Only the source of the template itself is checked by the bytecode cache
+                if (areInlinedTemplatesFresh(template)) {
+                    return template;
+                }
+            }
+        }
+
+        Module module = parse(templateSourceCode, name);
+        String cachedSourceHash = sourceHash;
+
+        if (tieredCompilation && module.isInterpretable(this)) {
+            String className = fullTemplateClassName.substring(fullTemplateClassName.lastIndexOf('.') + 1);
+
+            // Compiling writes to the node tree, so the promotion compiles a tree of its own while the interpreted
+            // template keeps rendering with this one
+            return new InterpretedTemplate(this, module, className, () -> compileTemplate(parse(templateSourceCode, name), name, fullTemplateClassName, cachedSourceHash));
+        }
+
+        return compileTemplate(module, name, fullTemplateClassName, sourceHash);
+    }
+
+    /**
+     * Compiles a parsed template and writes the class files to the bytecode cache (if there is one)
+     *
+     * @param module The parsed template
+     * @param name The name of the template
+     * @param fullTemplateClassName The template class name including package
+     * @param sourceHash The hash of the template source code (null if there's no bytecode cache)
+     *
+     * @return The template instance
+     *
+     * @throws Twig4jException On any errors
+     */
+    private Template compileTemplate(Module module, String name, String fullTemplateClassName, String sourceHash) throws Twig4jException {
+        Map<String, byte[]> classFiles = compileClasses(module, name, fullTemplateClassName);
+        templateCache.recordCompilation();
+
+        if (bytecodeCache != null && sourceHash != null) {
+            String bytecodeCacheKey = getBytecodeCacheKey(fullTemplateClassName);
+
+            try {
+                bytecodeCache.write(bytecodeCacheKey, sourceHash, classFiles);
+            } catch (Twig4jRuntimeException e) {
+                // The template compiled fine, it's just compiled again the next time
+            }
+        }
+
+        return runtimeTemplateCompiler.instantiate(classFiles, fullTemplateClassName);
+    }
+
+    /**
+     * Get the key of a template in the bytecode cache
+     *
+     * @param fullTemplateClassName The template class name including package
+     *
+     * @return The key
+     *
+     * @throws Twig4jRuntimeException If any of the extensions errors during initialization
+     */
+    private String getBytecodeCacheKey(String fullTemplateClassName) throws Twig4jRuntimeException {
+        return hashText(fullTemplateClassName + "\u0000" + getCodegenFingerprint());
+    }
+
+    /**
+     * Get a fingerprint of everything in the environment that affects the generated code, ie. the code generator
+     * version, the template package and base class, the java version and the extensions with their operators and tags
+     *
+     * @return The fingerprint
+     *
+     * @throws Twig4jRuntimeException If any of the extensions errors during initialization
+     */
+    public String getCodegenFingerprint() throws Twig4jRuntimeException {
+        if (!hasInitedExtensions) {
+            initExtensions();
+        }
+
+        StringBuilder fingerprint = new StringBuilder()
+                .append(ClassCompiler.CODEGEN_VERSION).append('\n')
+                .append(System.getProperty("java.specification.version")).append('\n')
+                .append(templatePackage).append('\n')
+                .append(templateBaseClass).append('\n')
+                .append(attributeLinking).append('\n');
+
+        for (String name : new TreeSet<>(declaredTypes.keySet())) {
+            fingerprint.append(name).append(':').append(declaredTypes.get(name).getName()).append('\n');
+        }
+
+        for (Extension extension : extensions) {
+            fingerprint.append(extension.getName()).append('=').append(extension.getClass().getName()).append('\n');
+        }
+        for (Map.Entry<String, Operator> operator : binaryOperators.entrySet()) {
+            fingerprint.append(operator.getKey()).append('=').append(operator.getValue().getNodeClass().getName()).append('/').append(operator.getValue().getPrecedence()).append('\n');
+        }
+        for (Map.Entry<String, Operator> operator : unaryOperators.entrySet()) {
+            fingerprint.append(operator.getKey()).append('=').append(operator.getValue().getNodeClass().getName()).append('/').append(operator.getValue().getPrecedence()).append('\n');
+        }
+        for (String tag : new TreeSet<>(tokenParsers.keySet())) {
+            fingerprint.append(tag).append('=').append(tokenParsers.get(tag).getClass().getName()).append('\n');
+        }
+        for (NodeVisitor nodeVisitor : getEnabledNodeVisitors()) {
+            fingerprint.append(nodeVisitor.getClass().getName()).append('/').append(nodeVisitor.getPriority()).append('\n');
+        }
+
+        return hashText(fingerprint.toString());
+    }
+
     /**
      * Compile a template source code into java code
      *
@@ -216,17 +484,103 @@ public class Environment {
      * @throws Twig4jException on syntax or loader errors
      */
     public String compileSource(String templateSourceCode, String name) throws Twig4jException {
+        return compileModule(parse(templateSourceCode, name), name);
+    }
+
+    /**
+     * Compile a template source code into class files, directly to bytecode if the bytecode backend is enabled and
+     * supports all nodes in the template, otherwise to java code that is compiled with javac
+     *
+     * @param templateSourceCode The source code to compile
+     * @param name The name of the template file
+     * @param fullTemplateClassName The template class name including package
+     *
+     * @return The class files indexed by class name
+     *
+     * @throws Twig4jException On syntax, loader or compile errors
+     */
+    public Map<String, byte[]> compileClasses(String templateSourceCode, String name, String fullTemplateClassName) throws Twig4jException {
+        return compileClasses(parse(templateSourceCode, name), name, fullTemplateClassName);
+    }
+
+    /**
+     * Compile a parsed template into class files
+     * @see #compileClasses(String, String, String)
+     *
+     * @param module The parsed template
+     * @param name The name of the template file
+     * @param fullTemplateClassName The template class name including package
+     *
+     * @return The class files indexed by class name
+     *
+     * @throws Twig4jException On loader or compile errors
+     */
+    public Map<String, byte[]> compileClasses(Module module, String name, String fullTemplateClassName) throws Twig4jException {
+        // The debug output is the generated java code, so debug mode always uses javac
+        if (bytecodeBackend && !debug) {
+            try {
+                Map<String, byte[]> classFiles = new BytecodeCompiler(this).compile(module, fullTemplateClassName);
+
+                if (classFiles != null) {
+                    return classFiles;
+                }
+            } catch (Twig4jException e) {
+                e.setTemplateName(name);
+
+                throw e;
+            }
+        }
+
+        if (module.getClassName() == null) {
+            module.setClassName(fullTemplateClassName.substring(fullTemplateClassName.lastIndexOf('.') + 1));
+        }
+
+        return runtimeTemplateCompiler.compileClasses(compileModule(module, name), fullTemplateClassName);
+    }
+
+    /**
+     * Parse a template source code into a module (the node tree of the template)
+     *
+     * @param templateSourceCode The source code to parse
+     * @param name The name of the template file
+     *
+     * @return The module
+     *
+     * @throws Twig4jException On syntax errors
+     */
+    public Module parse(String templateSourceCode, String name) throws Twig4jException {
         if (!hasInitedExtensions) {
             initExtensions();
         }
 
         try {
-            TokenStream tokenStream = lexer.tokenize(templateSourceCode, name);
-            Module module = parser.parse(tokenStream);
+            synchronized (compileLock) {
+                TokenStream tokenStream = lexer.tokenize(templateSourceCode, name);
+
+                return parser.parse(tokenStream);
+            }
+        } catch (Twig4jException e) {
+            e.setTemplateName(name);
 
-            String compiledClassSourceCode = classCompiler.compile(module).getSourceCode();
+            throw e;
+        }
+    }
 
-            return compiledClassSourceCode;
+    /**
+     * Compile a module into java code
+     *
+     * @param module The module to compile
+     * @param name The name of the template file
+     *
+     * @return Compiled java code
+     *
+     * @throws Twig4jException On loader or compile errors
+     */
+    protected String compileModule(Module module, String name) throws Twig4jException {
+        try {
+            synchronized (compileLock) {
+                return classCompiler.compile(module).getSourceCode();
+            }
         } catch (Twig4jException e) {
             e.setTemplateName(name);
 
@@ -298,17 +652,18 @@ public class Environment {
      *
      * @throws Twig4jRuntimeException If any of the extensions errors during initialization
      */
-    protected Environment initExtensions() throws Twig4jRuntimeException {
+    protected synchronized Environment initExtensions() throws Twig4jRuntimeException {
         if (hasInitedExtensions) {
             return this;
         }
 
-        hasInitedExtensions = true;
-
         for (Extension extension : extensions) {
             initExtension(extension);
         }
 
+        // Flag the extensions as inited when they're done so other threads never see half initialized operators
+        hasInitedExtensions = true;
+
         return this;
     }
 
@@ -330,6 +685,9 @@ public class Environment {
         for (AbstractTokenParser tokenParser : extension.getTokenParsers()) {
             this.tokenParsers.put(tokenParser.getTag(), tokenParser);
         }
+
+        // Node visitors
+        this.nodeVisitors.addAll(extension.getNodeVisitors());
     }
 
     /**
@@ -350,6 +708,9 @@ public class Environment {
      */
     public Environment setLoader(Loader loader) {
         this.loader = loader;
+        // Names resolved by the previous loader might mean something else to this one
+        resolvedTemplates.clear();
+        resolutionGeneration.incrementAndGet();
 
         return this;
     }
@@ -478,6 +839,242 @@ public class Environment {
         return this;
     }
 
+    /**
+     * Whether templates are checked for changes (with the loader's freshness token) every time they're loaded.
+     * Enabled by default.
+     *
+     * @return Whether auto reload is enabled
+     */
+    public boolean isAutoReload() {
+        return autoReload;
+    }
+
+    /**
+     * Check templates for changes every time they're loaded
+     *
+     * @return this
+     */
+    public Environment enableAutoReload() {
+        autoReload = true;
+
+        return this;
+    }
+
+    /**
+     * Never check already loaded templates for changes, which makes loading an already loaded template a single map
+     * lookup. Recommended for production.
+     *
+     * @return this
+     */
+    public Environment disableAutoReload() {
+        autoReload = false;
+
+        return this;
+    }
+
+    /**
+     * Whether templates are compiled directly to bytecode when possible (instead of to java code and with javac)
+     *
+     * @return Whether the bytecode backend is enabled
+     */
+    public boolean isBytecodeBackend() {
+        return bytecodeBackend;
+    }
+
+    /**
+     * Compile templates directly to bytecode when possible, which is a lot faster than compiling them with javac.
+     *
+     * So far only templates printing text, variables, attributes and arithmetic are compiled to bytecode, templates
+     * with anything else (ie. if, for, set, filters, includes or blocks) are still compiled with javac.
+     *
+     * @return this
+     */
+    public Environment enableBytecodeBackend() {
+        bytecodeBackend = true;
+
+        return this;
+    }
+
+    /**
+     * Always compile templates to java code and compile them with javac (default)
+     *
+     * @return this
+     */
+    public Environment disableBytecodeBackend() {
+        bytecodeBackend = false;
+
+        return this;
+    }
+
+    /**
+     * Whether templates are interpreted until they've been rendered often enough to be compiled. Disabled by default.
+     *
+     * @return Whether tiered compilation is enabled
+     */
+    public boolean isTieredCompilation() {
+        return tieredCompilation;
+    }
+
+    /**
+     * Interpret templates at first and only compile the ones that are rendered at least as many times as the
+     * promotion threshold (in the background). Saves compiling templates that are only rendered once or twice, like
+     * emails or reports. Templates using anything the interpreter doesn't support are compiled right away.
+     *
+     * @return this
+     */
+    public Environment enableTieredCompilation() {
+        tieredCompilation = true;
+
+        return this;
+    }
+
+    /**
+     * Always compile templates when they're loaded
+     *
+     * @return this
+     */
+    public Environment disableTieredCompilation() {
+        tieredCompilation = false;
+
+        return this;
+    }
+
+    /**
+     * Whether attributes without arguments (ie. `user.name`) are read through linked method handle call sites.
+     * Disabled by default.
+     *
+     * @return Whether attribute linking is enabled
+     */
+    public boolean isAttributeLinking() {
+        return attributeLinking;
+    }
+
+    /**
+     * Read attributes without arguments through method handle call sites (invokedynamic with the bytecode backend),
+     * which are linked to read the getter or field of the classes they see directly, so the JIT can inline the read.
+     * The call sites call {@link org.twig4j.core.template.Template#getAttribute(Object, Object, List, String)} for
+     * everything else, but not overrides of it in another template base class. Hits and misses of the call sites
+     * aren't counted in debug mode.
+     *
+     * @return this
+     */
+    public Environment enableAttributeLinking() {
+        attributeLinking = true;
+
+        return this;
+    }
+
+    /**
+     * Read attributes through the inline caches of the templates (default)
+     *
+     * @return this
+     */
+    public Environment disableAttributeLinking() {
+        attributeLinking = false;
+
+        return this;
+    }
+
+    /**
+     * Declare the java type of a variable passed to the templates, so reading attributes without arguments of it (ie.
+     * `user.name`) compiles to calling the getter (or reading the field) directly instead of looking it up on every
+     * render. Values of any other class (including subclasses) are read like before.
+     *
+     * Only public classes that can be loaded by the template classes are used, and attributes are compiled with the
+     * java compiler even if the bytecode backend is enabled.
+     *
+     * @param name The variable name
+     * @param type The class of the values
+     *
+     * @return this
+     */
+    public Environment declareType(String name, Class<?> type) {
+        declaredTypes.put(name, type);
+
+        return this;
+    }
+
+    /**
+     * Get the declared java type of a variable (see {@link #declareType(String, Class)})
+     *
+     * @param name The variable name
+     *
+     * @return The class or null if the type isn't declared
+     */
+    public Class<?> getDeclaredType(String name) {
+        return declaredTypes.get(name);
+    }
+
+    /**
+     * Get the declared java types of the variables
+     *
+     * @return The classes by variable name
+     */
+    public Map<String, Class<?>> getDeclaredTypes() {
+        return declaredTypes;
+    }
+
+    /**
+     * Get the number of renders after which an interpreted template is compiled
+     *
+     * @return The promotion threshold
+     */
+    public int getPromotionThreshold() {
+        return promotionThreshold;
+    }
+
+    /**
+     * Set the number of renders (including includes and renders as a parent template) after which an interpreted
+     * template is compiled. Default 2, 0 to never compile interpreted templates.
+     *
+     * @param promotionThreshold The promotion threshold
+     *
+     * @return this
+     */
+    public Environment setPromotionThreshold(int promotionThreshold) {
+        this.promotionThreshold = promotionThreshold;
+
+        return this;
+    }
+
+    /**
+     * Get the executor interpreted templates are compiled on. Defaults to a single daemon thread.
+     *
+     * @return The executor
+     */
+    public Executor getPromotionExecutor() {
+        if (promotionExecutor == null) {
+            synchronized (this) {
+                if (promotionExecutor == null) {
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                        Thread thread = new Thread(runnable, "twig4j-template-compiler");
+                        thread.setDaemon(true);
+
+                        return thread;
+                    });
+                    executor.allowCoreThreadTimeOut(true);
+
+                    promotionExecutor = executor;
+                }
+            }
+        }
+
+        return promotionExecutor;
+    }
+
+    /**
+     * Set the executor interpreted templates are compiled on
+     *
+     * @param promotionExecutor The executor
+     *
+     * @return this
+     */
+    public Environment setPromotionExecutor(Executor promotionExecutor) {
+        this.promotionExecutor = promotionExecutor;
+
+        return this;
+    }
+
     /**
      * Get all registered binary operators
      *
@@ -593,6 +1190,15 @@ public class Environment {
         return this;
     }
 
+    /**
+     * Get the runtime template compiler
+     *
+     * @return The runtime template compiler
+     */
+    public RuntimeTemplateCompiler getRuntimeTemplateCompiler() {
+        return runtimeTemplateCompiler;
+    }
+
     /**
      * Set the runtime template compiler
      *
@@ -607,27 +1213,191 @@ public class Environment {
     }
 
     /**
-     * Get loaded templates
+     * Get a snapshot of the loaded templates, changing it doesn't change the loaded templates
      *
-     * @return The loaded templates
+     * @return The loaded templates indexed by class name
+     *
+     * @deprecated Use {@link #getTemplateCache()} instead
      */
+    @Deprecated
     public HashMap<String, Template> getLoadedTemplates() {
-        return loadedTemplates;
+        return new HashMap<>(templateCache.asMap());
     }
 
     /**
-     * Set all loaded templates
+     * Set all loaded templates, replacing the ones in the template cache
      *
-     * @param loadedTemplates The templates
+     * @param loadedTemplates The templates indexed by class name
      *
      * @return this
+     *
+     * @deprecated Use {@link #getTemplateCache()} or {@link #setTemplateCache(TemplateCache)} instead
      */
+    @Deprecated
     public Environment setLoadedTemplates(HashMap<String, Template> loadedTemplates) {
-        this.loadedTemplates = loadedTemplates;
+        templateCache.invalidateAll();
+        for (Map.Entry<String, Template> loadedTemplate : loadedTemplates.entrySet()) {
+            templateCache.put(loadedTemplate.getKey(), loadedTemplate.getValue());
+        }
+        resolvedTemplates.clear();
+        resolutionGeneration.incrementAndGet();
+
+        return this;
+    }
+
+    /**
+     * Get the cache holding all loaded templates (and its hit/miss/compile statistics)
+     *
+     * @return The template cache
+     */
+    public TemplateCache getTemplateCache() {
+        return templateCache;
+    }
+
+    /**
+     * Set the cache holding all loaded templates
+     *
+     * @param templateCache The template cache
+     *
+     * @return this
+     */
+    public Environment setTemplateCache(TemplateCache templateCache) {
+        this.templateCache = templateCache;
+        resolvedTemplates.clear();
+        resolutionGeneration.incrementAndGet();
+
+        return this;
+    }
+
+    /**
+     * Get the persistent cache for the class files of compiled templates
+     *
+     * @return The bytecode cache or null if there is none
+     */
+    public BytecodeCache getBytecodeCache() {
+        return bytecodeCache;
+    }
+
+    /**
+     * Set a persistent cache for the class files of compiled templates, so templates don't have to be compiled again
+     * when the JVM is restarted
+     *
+     * @param bytecodeCache The bytecode cache (null to disable)
+     *
+     * @return this
+     */
+    public Environment setBytecodeCache(BytecodeCache bytecodeCache) {
+        this.bytecodeCache = bytecodeCache;
+
+        return this;
+    }
+
+    /**
+     * Get the pool of buffers templates are rendered to when rendering to strings
+     *
+     * @return The pool or null if buffers aren't reused
+     */
+    public StringBuilderPool getOutputBufferPool() {
+        return outputBufferPool;
+    }
+
+    /**
+     * Set the pool of buffers templates are rendered to when rendering to strings
+     *
+     * @param outputBufferPool The pool (null to allocate a new buffer for every render)
+     *
+     * @return this
+     */
+    public Environment setOutputBufferPool(StringBuilderPool outputBufferPool) {
+        this.outputBufferPool = outputBufferPool;
+
+        return this;
+    }
+
+    /**
+     * Get all registered node visitors (including disabled ones)
+     *
+     * @return The node visitors
+     *
+     * @throws Twig4jRuntimeException If any of the extensions fails to initialize
+     */
+    public List<NodeVisitor> getNodeVisitors() throws Twig4jRuntimeException {
+        if (!hasInitedExtensions) {
+            initExtensions();
+        }
+
+        return nodeVisitors;
+    }
+
+    /**
+     * Get the node visitors that run over parsed templates
+     *
+     * @return The enabled node visitors
+     *
+     * @throws Twig4jRuntimeException If any of the extensions fails to initialize
+     */
+    public List<NodeVisitor> getEnabledNodeVisitors() throws Twig4jRuntimeException {
+        List<NodeVisitor> enabledNodeVisitors = new ArrayList<>();
+
+        for (NodeVisitor nodeVisitor : getNodeVisitors()) {
+            if (isNodeVisitorEnabled(nodeVisitor.getClass())) {
+                enabledNodeVisitors.add(nodeVisitor);
+            }
+        }
+
+        return enabledNodeVisitors;
+    }
+
+    /**
+     * Add a node visitor that runs over all parsed templates before they're compiled
+     *
+     * @param nodeVisitor The node visitor
+     *
+     * @return this
+     */
+    public Environment addNodeVisitor(NodeVisitor nodeVisitor) {
+        nodeVisitors.add(nodeVisitor);
+
+        return this;
+    }
+
+    /**
+     * Enable node visitors of a class (they are all enabled by default)
+     *
+     * @param nodeVisitorClass The node visitor class
+     *
+     * @return this
+     */
+    public Environment enableNodeVisitor(Class<? extends NodeVisitor> nodeVisitorClass) {
+        disabledNodeVisitors.remove(nodeVisitorClass);
+
+        return this;
+    }
+
+    /**
+     * Disable node visitors of a class, ie. to turn off one of the optimizer passes
+     *
+     * @param nodeVisitorClass The node visitor class
+     *
+     * @return this
+     */
+    public Environment disableNodeVisitor(Class<? extends NodeVisitor> nodeVisitorClass) {
+        disabledNodeVisitors.add(nodeVisitorClass);
 
         return this;
     }
 
+    /**
+     * Check if node visitors of a class are enabled
+     *
+     * @param nodeVisitorClass The node visitor class
+     *
+     * @return Whether they're enabled
+     */
+    public boolean isNodeVisitorEnabled(Class<? extends NodeVisitor> nodeVisitorClass) {
+        return !disabledNodeVisitors.contains(nodeVisitorClass);
+    }
+
     /**
      * Add a new twig4j extension
      *
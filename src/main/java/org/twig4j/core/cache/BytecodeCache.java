@@ -0,0 +1,33 @@
+package org.twig4j.core.cache;
+
+import org.twig4j.core.exception.Twig4jRuntimeException;
+
+import java.util.Map;
+
+/**
+ * Persistent storage for the class files of compiled templates, so templates don't have to be compiled again after
+ * the JVM is restarted.
+ */
+public interface BytecodeCache {
+    /**
+     * Load the class files of a compiled template
+     *
+     * @param key The key of the compiled template (includes the template class and the environment fingerprint)
+     * @param sourceHash A hash of the template source the class files must be compiled from
+     *
+     * @return The class files indexed by class name, or null if they aren't cached, are stale or corrupt
+     */
+    Map<String, byte[]> load(String key, String sourceHash);
+
+    /**
+     * Store the class files of a compiled template. Storing is best-effort, the compiled template is used even if its
+     * class files can't be stored.
+     *
+     * @param key The key of the compiled template
+     * @param sourceHash A hash of the template source the class files were compiled from
+     * @param classFiles The class files indexed by class name
+     *
+     * @throws Twig4jRuntimeException If the class files can't be stored
+     */
+    void write(String key, String sourceHash, Map<String, byte[]> classFiles) throws Twig4jRuntimeException;
+}
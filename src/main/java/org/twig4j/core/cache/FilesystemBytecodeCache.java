@@ -0,0 +1,169 @@
+package org.twig4j.core.cache;
+
+import java.io.*;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stores the class files of compiled templates in a directory, like the filesystem cache of Twig for PHP.
+ *
+ * Several JVMs can share the same directory: entries are written to a temporary file that is atomically moved into
+ * place, and every entry ends with a checksum so a corrupt (or foreign) file is treated as a cache miss. Writing is
+ * best-effort: when the directory can't be written (ie. it's read-only or the disk is full) the entry is skipped and
+ * the template is compiled again the next time.
+ */
+public class FilesystemBytecodeCache implements BytecodeCache {
+    private static final int MAGIC = 0x54344a42; // "T4JB"
+    private static final int FORMAT_VERSION = 1;
+    private static final int CHECKSUM_LENGTH = 32;
+
+    private Path directory;
+
+    /**
+     * @param directory The directory to store the class files in (created if it doesn't exist)
+     */
+    public FilesystemBytecodeCache(String directory) {
+        this(Paths.get(directory));
+    }
+
+    /**
+     * @param directory The directory to store the class files in (created if it doesn't exist)
+     */
+    public FilesystemBytecodeCache(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public Map<String, byte[]> load(String key, String sourceHash) {
+        Path file = getFile(key);
+        byte[] content;
+
+        try {
+            content = Files.readAllBytes(file);
+        } catch (IOException e) {
+            // Not cached (or not readable), either way the template has to be compiled
+            return null;
+        }
+
+        if (content.length < CHECKSUM_LENGTH || !Arrays.equals(checksum(content, content.length - CHECKSUM_LENGTH), Arrays.copyOfRange(content, content.length - CHECKSUM_LENGTH, content.length))) {
+            return null;
+        }
+
+        try {
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(content, 0, content.length - CHECKSUM_LENGTH));
+
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION || !input.readUTF().equals(sourceHash)) {
+                return null;
+            }
+
+            Map<String, byte[]> classFiles = new LinkedHashMap<>();
+            int numberOfClasses = input.readInt();
+            for (int i = 0; i < numberOfClasses; i++) {
+                String className = input.readUTF();
+                byte[] classFile = new byte[input.readInt()];
+                input.readFully(classFile);
+
+                classFiles.put(className, classFile);
+            }
+
+            return classFiles;
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void write(String key, String sourceHash, Map<String, byte[]> classFiles) {
+        Path file = getFile(key);
+        Path temporaryFile = null;
+
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(content);
+
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeUTF(sourceHash);
+            output.writeInt(classFiles.size());
+            for (Map.Entry<String, byte[]> classFile : classFiles.entrySet()) {
+                output.writeUTF(classFile.getKey());
+                output.writeInt(classFile.getValue().length);
+                output.write(classFile.getValue());
+            }
+            output.flush();
+            output.write(checksum(content.toByteArray(), content.size()));
+
+            Files.createDirectories(file.getParent());
+
+            // Write to a temporary file in the same directory and move it in place, so other JVMs never see a half
+            // written entry
+            temporaryFile = Files.createTempFile(file.getParent(), key, ".tmp");
+            Files.write(temporaryFile, content.toByteArray());
+
+            try {
+                Files.move(temporaryFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            // Not cached, the template is compiled again the next time
+        } finally {
+            if (temporaryFile != null) {
+                try {
+                    Files.deleteIfExists(temporaryFile);
+                } catch (IOException e) {
+                    // Nothing more to do about it
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the file an entry is stored in (entries are spread over sub directories like in Twig for PHP)
+     *
+     * @param key The key of the entry
+     *
+     * @return The file
+     */
+    protected Path getFile(String key) {
+        return directory.resolve(key.substring(0, Math.min(2, key.length()))).resolve(key + ".class.bin");
+    }
+
+    /**
+     * Get the cache directory
+     *
+     * @return The directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Set the cache directory
+     *
+     * @param directory The directory
+     *
+     * @return this
+     */
+    public FilesystemBytecodeCache setDirectory(Path directory) {
+        this.directory = directory;
+
+        return this;
+    }
+
+    private static byte[] checksum(byte[] content, int length) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(content, 0, length);
+
+            return md.digest();
+        } catch (NoSuchAlgorithmException e) {
+            // This'll never happen
+            throw new RuntimeException("Something impossible just happened", e);
+        }
+    }
+}
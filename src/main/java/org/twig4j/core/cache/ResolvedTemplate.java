@@ -0,0 +1,46 @@
+package org.twig4j.core.cache;
+
+/**
+ * A template name that has already been resolved to a template class, so the next lookup of the same name doesn't
+ * have to read the template source to find out the class name.
+ *
+ * Only the class name is kept (not the template), so a template evicted from the template cache can be unloaded.
+ */
+public class ResolvedTemplate {
+    private final String className;
+    private final String freshnessToken;
+
+    /**
+     * @param className The template class name
+     * @param freshnessToken The loader's freshness token at the time the name was resolved (null if not checked)
+     */
+    public ResolvedTemplate(String className, String freshnessToken) {
+        this.className = className;
+        this.freshnessToken = freshnessToken;
+    }
+
+    /**
+     * Whether the template is still the same as when it was resolved
+     *
+     * @param currentFreshnessToken The loader's current freshness token for the template
+     *
+     * @return Whether the resolved template is fresh
+     */
+    public boolean isFresh(String currentFreshnessToken) {
+        return freshnessToken != null && freshnessToken.equals(currentFreshnessToken);
+    }
+
+    /**
+     * @return The template class name
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * @return The freshness token
+     */
+    public String getFreshnessToken() {
+        return freshnessToken;
+    }
+}
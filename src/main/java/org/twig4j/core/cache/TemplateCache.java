@@ -0,0 +1,586 @@
+package org.twig4j.core.cache;
+
+import org.twig4j.core.compiler.TemplateClassLoader;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.template.Template;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe registry of loaded templates, indexed by their class name.
+ *
+ * Loading is "single-flight": when several threads miss the cache for the same class name at the same time only one
+ * of them runs the (expensive) factory, the others wait for its result.
+ *
+ * The cache is unbounded by default. With a maximum size and/or weight set, templates are evicted with the CLOCK
+ * (second chance) algorithm: a template that has been used since the clock hand last passed it gets to stay another
+ * round. Runtime compiled templates live in their own class loader, so an evicted template's class can be unloaded
+ * by the garbage collector once nothing references it anymore.
+ */
+public class TemplateCache {
+    private final ConcurrentHashMap<String, Entry> templates = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> clock = new ConcurrentLinkedQueue<>();
+    private final Object evictionLock = new Object();
+
+    private volatile long maximumSize = -1;
+    private volatile long maximumWeight = -1;
+    private Weigher weigher = TemplateCache::getClassFileSize;
+    private final AtomicLong totalWeight = new AtomicLong();
+    // The number of loaded templates, the ones still loading don't count towards the maximum size
+    private final AtomicLong loadedCount = new AtomicLong();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong compileCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+    private final AtomicLong removalCount = new AtomicLong();
+
+    /**
+     * Create an unbounded template cache
+     */
+    public TemplateCache() {
+    }
+
+    /**
+     * Create a template cache holding at most maximumSize templates
+     *
+     * @param maximumSize The maximum number of templates
+     */
+    public TemplateCache(long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Get a template from the cache or create it with the factory if it isn't loaded yet
+     *
+     * @param className The template class name
+     * @param factory Creates the template if it isn't in the cache
+     *
+     * @return The template
+     *
+     * @throws Twig4jException If the factory fails to create the template
+     */
+    public Template get(String className, TemplateFactory factory) throws Twig4jException {
+        Entry entry = templates.get(className);
+
+        if (entry == null) {
+            Entry newEntry = new Entry(className, new CompletableFuture<>());
+            entry = templates.putIfAbsent(className, newEntry);
+
+            // We won the race, it's up to this thread to load the template
+            if (entry == null) {
+                missCount.incrementAndGet();
+
+                return load(newEntry, factory);
+            }
+        }
+
+        hitCount.incrementAndGet();
+        entry.markReferenced();
+
+        return await(className, entry.future);
+    }
+
+    /**
+     * Get a loaded template without creating it
+     *
+     * @param className The template class name
+     *
+     * @return The template or null if it's not loaded (or still loading)
+     */
+    public Template getIfPresent(String className) {
+        Entry entry = templates.get(className);
+
+        if (entry == null || !entry.isLoaded()) {
+            return null;
+        }
+
+        entry.markReferenced();
+
+        return entry.future.join();
+    }
+
+    /**
+     * Put an already created template in the cache, replacing any existing one
+     *
+     * @param className The template class name
+     * @param template The template
+     */
+    public void put(String className, Template template) {
+        Entry entry = new Entry(className, CompletableFuture.completedFuture(template));
+        Entry previous = templates.put(className, entry);
+
+        if (previous != null) {
+            removed(previous);
+        }
+
+        added(entry, template);
+    }
+
+    /**
+     * Replace a loaded template, but only if it hasn't been replaced, invalidated or evicted in the meantime
+     *
+     * @param className The template class name
+     * @param oldTemplate The template expected to be in the cache
+     * @param newTemplate The template to replace it with
+     *
+     * @return Whether the template was replaced
+     */
+    public boolean replace(String className, Template oldTemplate, Template newTemplate) {
+        Entry entry = templates.get(className);
+
+        if (entry == null || !entry.isLoaded() || entry.future.join() != oldTemplate) {
+            return false;
+        }
+
+        Entry newEntry = new Entry(className, CompletableFuture.completedFuture(newTemplate));
+        newEntry.referenced = entry.referenced;
+
+        if (!templates.replace(className, entry, newEntry)) {
+            return false;
+        }
+
+        removed(entry);
+        added(newEntry, newTemplate);
+
+        return true;
+    }
+
+    /**
+     * Remove a template from the cache
+     *
+     * @param className The template class name
+     */
+    public void invalidate(String className) {
+        Entry entry = templates.remove(className);
+
+        if (entry != null) {
+            removed(entry);
+        }
+    }
+
+    /**
+     * Remove all templates from the cache
+     */
+    public void invalidateAll() {
+        for (String className : templates.keySet()) {
+            invalidate(className);
+        }
+    }
+
+    /**
+     * Whether a template is loaded (or currently loading)
+     *
+     * @param className The template class name
+     *
+     * @return Whether it's in the cache
+     */
+    public boolean contains(String className) {
+        return templates.containsKey(className);
+    }
+
+    /**
+     * Get the number of templates in the cache (including the ones currently loading)
+     *
+     * @return The size
+     */
+    public int size() {
+        return templates.size();
+    }
+
+    /**
+     * Get a snapshot of all fully loaded templates
+     *
+     * @return The loaded templates indexed by class name
+     */
+    public Map<String, Template> asMap() {
+        Map<String, Template> loadedTemplates = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Entry> entry : templates.entrySet()) {
+            if (entry.getValue().isLoaded()) {
+                loadedTemplates.put(entry.getKey(), entry.getValue().future.join());
+            }
+        }
+
+        return loadedTemplates;
+    }
+
+    /**
+     * Get the number of templates that have been removed from the cache, whether they were invalidated, evicted or
+     * replaced. Doesn't change as long as every template that has been loaded is still the one in the cache.
+     *
+     * @return The number of removals
+     */
+    public long getRemovalCount() {
+        return removalCount.get();
+    }
+
+    /**
+     * Whether templates are evicted when the cache is full
+     *
+     * @return Whether a maximum size or weight is set
+     */
+    public boolean isBounded() {
+        return maximumSize >= 0 || maximumWeight >= 0;
+    }
+
+    /**
+     * Count a template that actually had to be compiled (as opposed to found on the class path)
+     */
+    public void recordCompilation() {
+        compileCount.incrementAndGet();
+    }
+
+    /**
+     * Get the number of lookups that found the template already loaded (or being loaded by another thread)
+     *
+     * @return The number of hits
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Get the number of lookups that had to load the template
+     *
+     * @return The number of misses
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Get the number of templates compiled by this cache's environment
+     *
+     * @return The number of compilations
+     */
+    public long getCompileCount() {
+        return compileCount.get();
+    }
+
+    /**
+     * Get the number of templates evicted because the cache was full
+     *
+     * @return The number of evictions
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * Get the total weight of the templates in the cache
+     *
+     * @return The weight
+     */
+    public long getTotalWeight() {
+        return totalWeight.get();
+    }
+
+    /**
+     * Get a (rough) estimate of the metaspace used by the templates in the cache, ie. the size of the class files of
+     * the runtime compiled templates. Precompiled templates are loaded by the application's class loader and are
+     * never unloaded, so they're not included.
+     *
+     * @return The estimated size in bytes
+     */
+    public long getEstimatedMetaspaceSize() {
+        long size = 0;
+
+        for (Entry entry : templates.values()) {
+            if (entry.isLoaded()) {
+                size += getClassFileSize(entry.future.join());
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Reset the hit/miss/compile/eviction counters
+     */
+    public void resetStatistics() {
+        hitCount.set(0);
+        missCount.set(0);
+        compileCount.set(0);
+        evictionCount.set(0);
+    }
+
+    /**
+     * Get the maximum number of templates
+     *
+     * @return The maximum size or -1 if unbounded
+     */
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Set the maximum number of templates, the least recently used templates are evicted when there are more
+     *
+     * @param maximumSize The maximum size or -1 for unbounded
+     *
+     * @return this
+     */
+    public TemplateCache setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+        evictIfNeeded();
+
+        return this;
+    }
+
+    /**
+     * Get the maximum total weight of the templates
+     *
+     * @return The maximum weight or -1 if unbounded
+     */
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Set the maximum total weight of the templates (by default the weight is the class file size in bytes)
+     *
+     * @param maximumWeight The maximum weight or -1 for unbounded
+     *
+     * @return this
+     */
+    public TemplateCache setMaximumWeight(long maximumWeight) {
+        this.maximumWeight = maximumWeight;
+        evictIfNeeded();
+
+        return this;
+    }
+
+    /**
+     * Set how templates are weighed. Only affects templates loaded after this call.
+     *
+     * @param weigher The weigher
+     *
+     * @return this
+     */
+    public TemplateCache setWeigher(Weigher weigher) {
+        this.weigher = weigher;
+
+        return this;
+    }
+
+    /**
+     * Run the factory and publish its result (or failure) to everyone waiting for this class name
+     */
+    private Template load(Entry entry, TemplateFactory factory) throws Twig4jException {
+        Template template;
+
+        try {
+            template = factory.create();
+        } catch (Twig4jException | RuntimeException | Error e) {
+            // Don't cache failures, the next request should get a new chance to load the template
+            templates.remove(entry.className, entry);
+            entry.future.completeExceptionally(e);
+
+            throw e;
+        }
+
+        entry.future.complete(template);
+        added(entry, template);
+
+        return template;
+    }
+
+    /**
+     * Put a loaded entry on the clock and evict other entries if the cache is full
+     */
+    private void added(Entry entry, Template template) {
+        // The entry may have been invalidated while loading
+        if (!entry.markAdded(weigher.weigh(template))) {
+            return;
+        }
+
+        loadedCount.incrementAndGet();
+        totalWeight.addAndGet(entry.weight);
+        clock.add(entry);
+        evictIfNeeded();
+    }
+
+    /**
+     * Account for an entry that's no longer in the map (it's left on the clock and skipped when the hand reaches it)
+     */
+    private void removed(Entry entry) {
+        if (entry.markRemoved()) {
+            loadedCount.decrementAndGet();
+            totalWeight.addAndGet(-entry.weight);
+        }
+        removalCount.incrementAndGet();
+    }
+
+    /**
+     * Move the clock hand until the cache is within its bounds
+     */
+    private void evictIfNeeded() {
+        if (!isOverLimit()) {
+            return;
+        }
+
+        synchronized (evictionLock) {
+            while (isOverLimit()) {
+                Entry entry = clock.poll();
+
+                if (entry == null) {
+                    // Only templates that were removed or are still loading left
+                    return;
+                }
+
+                if (entry.isRemoved()) {
+                    continue;
+                }
+
+                if (entry.referenced) {
+                    // Used since the hand last passed, give it a second chance
+                    entry.referenced = false;
+                    clock.add(entry);
+                } else if (templates.remove(entry.className, entry)) {
+                    removed(entry);
+                    evictionCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private boolean isOverLimit() {
+        return (maximumSize >= 0 && loadedCount.get() > maximumSize)
+            || (maximumWeight >= 0 && totalWeight.get() > maximumWeight);
+    }
+
+    /**
+     * The size of the class files of a runtime compiled template, 0 for templates from the class path
+     */
+    private static long getClassFileSize(Template template) {
+        ClassLoader classLoader = template.getClass().getClassLoader();
+
+        if (classLoader instanceof TemplateClassLoader) {
+            return ((TemplateClassLoader) classLoader).getByteSize();
+        }
+
+        return 0;
+    }
+
+    /**
+     * Wait for another thread to finish loading a template
+     */
+    private Template await(String className, CompletableFuture<Template> future) throws Twig4jException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new Twig4jRuntimeException("Interrupted while waiting for template " + className + " to load", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof Twig4jException) {
+                throw (Twig4jException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw new Twig4jRuntimeException("Failed loading template " + className, cause);
+        }
+    }
+
+    /**
+     * Creates a template on a cache miss
+     */
+    @FunctionalInterface
+    public interface TemplateFactory {
+        /**
+         * Create (compile or instantiate) the template
+         *
+         * @return The template
+         *
+         * @throws Twig4jException If the template can't be created
+         */
+        Template create() throws Twig4jException;
+    }
+
+    /**
+     * Calculates the weight of a template for the maximum weight of the cache
+     */
+    @FunctionalInterface
+    public interface Weigher {
+        /**
+         * Weigh the template
+         *
+         * @param template The template
+         *
+         * @return The weight (not negative)
+         */
+        long weigh(Template template);
+    }
+
+    /**
+     * A template (or future template if it's still loading) in the cache
+     */
+    private static class Entry {
+        private final String className;
+        private final CompletableFuture<Template> future;
+        private volatile boolean referenced = false;
+        private volatile long weight = 0;
+        private volatile boolean added = false;
+        private volatile boolean removed = false;
+
+        private Entry(String className, CompletableFuture<Template> future) {
+            this.className = className;
+            this.future = future;
+        }
+
+        private boolean isLoaded() {
+            return future.isDone() && !future.isCompletedExceptionally();
+        }
+
+        private void markReferenced() {
+            // Only write when needed, hot templates are read by many threads
+            if (!referenced) {
+                referenced = true;
+            }
+        }
+
+        /**
+         * Count the loaded entry, unless it was removed while loading
+         */
+        private synchronized boolean markAdded(long weight) {
+            if (removed) {
+                return false;
+            }
+
+            this.weight = weight;
+            added = true;
+
+            return true;
+        }
+
+        /**
+         * Whether the entry was counted and has to be uncounted
+         */
+        private synchronized boolean markRemoved() {
+            if (removed) {
+                return false;
+            }
+
+            removed = true;
+
+            return added;
+        }
+
+        private boolean isRemoved() {
+            return removed;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package org.twig4j.core.compiler;
+
+import org.twig4j.core.Environment;
+import org.twig4j.core.compiler.bytecode.ClassFileWriter;
+import org.twig4j.core.compiler.bytecode.ConstantPool;
+import org.twig4j.core.compiler.bytecode.MethodWriter;
+import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.syntax.parser.node.Module;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiles templates directly to JVM bytecode, without generating java code and running javac.
+ *
+ * The generated class does the same as the class generated by {@link ClassCompiler}: doDisplay() appends everything
+ * to the template output (the "output" parameter) by calling the same Template methods. Nodes compile themselves with
+ * {@link Compilable#compileBytecode(BytecodeCompiler)}; as long as not all nodes support it, templates with nodes that
+ * don't are compiled with javac instead.
+ */
+public class BytecodeCompiler {
+    private static final String DISPLAY_DESCRIPTOR = "(Lorg/twig4j/core/template/Context;Ljava/util/Map;Lorg/twig4j/core/template/TemplateOutput;)V";
+    private static final String TEMPLATE_OUTPUT = "org/twig4j/core/template/TemplateOutput";
+
+    // The local variables of doDisplay()
+    private static final int THIS = 0;
+    private static final int CONTEXT = 1;
+    private static final int OUTPUT = 3;
+
+    private static final String TEXT_DESCRIPTOR = "[B";
+
+    private static final String ATTRIBUTE_LINKER = "org/twig4j/core/template/AttributeLinker";
+    private static final String ATTRIBUTE_BOOTSTRAP_DESCRIPTOR = "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/String;Ljava/lang/String;I)Ljava/lang/invoke/CallSite;";
+    private static final String ATTRIBUTE_CALL_SITE_DESCRIPTOR = "(Lorg/twig4j/core/template/Template;Ljava/lang/Object;)Ljava/lang/Object;";
+
+    private Environment environment;
+    private ClassFileWriter classFile;
+    private MethodWriter method;
+    private Map<String, String> textConstants;
+
+    /**
+     * @param environment The Twig environment
+     */
+    public BytecodeCompiler(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Compile a template module to a class file
+     *
+     * @param module The module to compile
+     * @param className The name of the template class INCLUDING package name
+     *
+     * @return The class files indexed by class name, or null if the module contains nodes that can't be compiled to
+     * bytecode
+     *
+     * @throws LoaderException If a template can't be loaded
+     * @throws Twig4jRuntimeException On runtime errors
+     */
+    public Map<String, byte[]> compile(Module module, String className) throws LoaderException, Twig4jRuntimeException {
+        String baseClass = environment.getTemplateBaseClass();
+        classFile = new ClassFileWriter(className, baseClass);
+        textConstants = new LinkedHashMap<>();
+
+        // public Template_xxx(Environment environment) { super(); this.environment = environment; }
+        method = classFile.addMethod(MethodWriter.ACC_PUBLIC, "<init>", "(Lorg/twig4j/core/Environment;)V", 2);
+        method
+            .aload(THIS)
+            .invokeSpecial(baseClass.replace('.', '/'), "<init>", "()V")
+            .aload(THIS)
+            .aload(1)
+            .putField(classFile.getInternalName(), "environment", "Lorg/twig4j/core/Environment;")
+            .returnVoid();
+
+        // public String getTemplateName() { return "name"; }
+        method = classFile.addMethod(MethodWriter.ACC_PUBLIC, "getTemplateName", "()Ljava/lang/String;", 1);
+        if (!pushString(module.getFileName())) {
+            return null;
+        }
+        method.areturn();
+
+        // protected void doDisplay(Context context, Map blocks, TemplateOutput output) { ... }
+        method = classFile.addMethod(MethodWriter.ACC_PROTECTED, "doDisplay", DISPLAY_DESCRIPTOR, 4);
+
+        if (!module.compileBytecode(this)) {
+            return null;
+        }
+
+        method.returnVoid();
+
+        if (method.getCodeSize() > 0xffff) {
+            // Too large for a single method, javac will fail as well but with a better error message
+            return null;
+        }
+
+        compileTextConstants();
+
+        return Collections.singletonMap(className, classFile.toByteArray());
+    }
+
+    /**
+     * Compile a node
+     *
+     * @param node The node to compile
+     *
+     * @return Whether the node could be compiled to bytecode
+     *
+     * @throws LoaderException If a template can't be loaded
+     * @throws Twig4jRuntimeException On runtime errors
+     */
+    public boolean subCompile(Compilable node) throws LoaderException, Twig4jRuntimeException {
+        return node.compileBytecode(this);
+    }
+
+    /**
+     * Append a static text to the output (ie. output.appendText("text", TEXT_0)), where the UTF-8 encoded text is in a
+     * static field initialized with the class
+     *
+     * @param text The text
+     *
+     * @return this
+     */
+    public BytecodeCompiler appendText(String text) {
+        // A string constant can be at most 65535 bytes, 3 bytes per char is the worst case
+        int chunkSize = ConstantPool.MAX_UTF8_LENGTH / 3;
+
+        for (int start = 0; start < text.length(); start += chunkSize) {
+            String chunk = text.substring(start, Math.min(text.length(), start + chunkSize));
+            String field = textConstants.computeIfAbsent(chunk, key -> "TEXT_" + textConstants.size());
+
+            method
+                .aload(OUTPUT)
+                .pushString(chunk)
+                .getStatic(classFile.getInternalName(), field, TEXT_DESCRIPTOR)
+                .invokeVirtual(TEMPLATE_OUTPUT, "appendText", "(Ljava/lang/String;[B)Lorg/twig4j/core/template/TemplateOutput;")
+                .pop();
+        }
+
+        return this;
+    }
+
+    /**
+     * Add the static fields of the texts and initialize them in the static initializer (ie.
+     * TEXT_0 = "text".getBytes(StandardCharsets.UTF_8))
+     */
+    private void compileTextConstants() {
+        if (textConstants.isEmpty()) {
+            return;
+        }
+
+        MethodWriter initializer = classFile.addMethod(MethodWriter.ACC_STATIC, "<clinit>", "()V", 0);
+
+        for (Map.Entry<String, String> textConstant : textConstants.entrySet()) {
+            classFile.addField(MethodWriter.ACC_PRIVATE | MethodWriter.ACC_STATIC | MethodWriter.ACC_FINAL, textConstant.getValue(), TEXT_DESCRIPTOR);
+
+            initializer
+                .pushString(textConstant.getKey())
+                .getStatic("java/nio/charset/StandardCharsets", "UTF_8", "Ljava/nio/charset/Charset;")
+                .invokeVirtual("java/lang/String", "getBytes", "(Ljava/nio/charset/Charset;)[B")
+                .putStatic(classFile.getInternalName(), textConstant.getValue(), TEXT_DESCRIPTOR);
+        }
+
+        initializer.returnVoid();
+    }
+
+    /**
+     * Push a value the same way as {@link ClassCompiler#representValue(Object)} writes it (ie. 1 as an Integer)
+     *
+     * @param value The value
+     *
+     * @return Whether the value could be pushed
+     */
+    public boolean pushValue(Object value) {
+        if (value instanceof Integer) {
+            method
+                .pushInt((Integer) value)
+                .invokeStatic("java/lang/Integer", "valueOf", "(I)Ljava/lang/Integer;");
+        } else if (value instanceof Float || value instanceof Double) {
+            // Floats are written as double literals
+            method
+                .pushDouble(Double.parseDouble(String.valueOf(value)))
+                .invokeStatic("java/lang/Double", "valueOf", "(D)Ljava/lang/Double;");
+        } else if (value == null) {
+            method.aconstNull();
+        } else if (value.equals(true) || value.equals(false)) {
+            method.getStatic("java/lang/Boolean", value.equals(true) ? "TRUE" : "FALSE", "Ljava/lang/Boolean;");
+        } else {
+            return pushString(String.valueOf(value));
+        }
+
+        return true;
+    }
+
+    /**
+     * Push a string
+     *
+     * @param value The string
+     *
+     * @return Whether the string could be pushed (it can't if it's too long to be a constant)
+     */
+    public boolean pushString(String value) {
+        if (ConstantPool.getUtf8Length(value) > ConstantPool.MAX_UTF8_LENGTH) {
+            return false;
+        }
+
+        method.pushString(value);
+
+        return true;
+    }
+
+    /**
+     * Load this (the template) onto the stack
+     *
+     * @return this
+     */
+    public BytecodeCompiler loadThis() {
+        method.aload(THIS);
+
+        return this;
+    }
+
+    /**
+     * Load the context onto the stack
+     *
+     * @return this
+     */
+    public BytecodeCompiler loadContext() {
+        method.aload(CONTEXT);
+
+        return this;
+    }
+
+    /**
+     * Load the template output onto the stack
+     *
+     * @return this
+     */
+    public BytecodeCompiler loadOutput() {
+        method.aload(OUTPUT);
+
+        return this;
+    }
+
+    /**
+     * Call a method of the template (the template and the arguments must be on the stack)
+     *
+     * @param name The method name
+     * @param descriptor The method descriptor
+     *
+     * @return this
+     */
+    public BytecodeCompiler invokeTemplateMethod(String name, String descriptor) {
+        method.invokeVirtual(classFile.getInternalName(), name, descriptor);
+
+        return this;
+    }
+
+    /**
+     * Get an attribute through an invokedynamic call site linked by {@link org.twig4j.core.template.AttributeLinker}
+     * (the template and the object must be on the stack)
+     *
+     * @param attribute The attribute
+     * @param accessType Whether it's a method or any attribute
+     * @param line The line of the attribute access
+     *
+     * @return Whether the call site could be written (it can't if the attribute is too long to be a constant)
+     */
+    public boolean invokeLinkedAttribute(String attribute, String accessType, int line) {
+        if (ConstantPool.getUtf8Length(attribute) > ConstantPool.MAX_UTF8_LENGTH) {
+            return false;
+        }
+
+        ConstantPool constantPool = classFile.getConstantPool();
+        int bootstrapMethod = classFile.addBootstrapMethod(
+                constantPool.methodHandle(ConstantPool.REF_INVOKE_STATIC, ATTRIBUTE_LINKER, "bootstrap", ATTRIBUTE_BOOTSTRAP_DESCRIPTOR),
+                constantPool.string(attribute),
+                constantPool.string(accessType),
+                constantPool.integer(line)
+        );
+
+        method.invokeDynamic(bootstrapMethod, "getAttribute", ATTRIBUTE_CALL_SITE_DESCRIPTOR);
+
+        return true;
+    }
+
+    /**
+     * Get the writer of the method currently being compiled
+     *
+     * @return The method writer
+     */
+    public MethodWriter getMethod() {
+        return method;
+    }
+
+    /**
+     * @return The Twig environment
+     */
+    public Environment getEnvironment() {
+        return environment;
+    }
+}
@@ -3,10 +3,30 @@ package org.twig4j.core.compiler;
 import org.twig4j.core.Environment;
 import org.twig4j.core.exception.LoaderException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.syntax.parser.node.Node;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class ClassCompiler {
+    /**
+     * Version of the generated code, bump it whenever the generated code changes so class files stored in a bytecode
+     * cache by an older version aren't used
+     */
+    public static final int CODEGEN_VERSION = 16;
+
     private int numberOfIndents = 0;
     private StringBuilder sourceCode = new StringBuilder();
+    private Map<String, String> textConstants = new LinkedHashMap<>();
+    private Map<String, String> staticConstants = new LinkedHashMap<>();
+    private Map<String, String> staticConstantTypes = new LinkedHashMap<>();
+    private Map<String, String> privateMethods = new LinkedHashMap<>();
+    private Map<String, String> inlinedTemplates = new LinkedHashMap<>();
+    private VariableScope variableScope = VariableScope.EMPTY;
+    private Deque<String> loopVariables = new ArrayDeque<>();
+    private Deque<Map<String, Class<?>>> variableTypes = new ArrayDeque<>();
     private Environment environment;
 
     /**
@@ -49,6 +69,14 @@ public class ClassCompiler {
     public ClassCompiler compile(Compilable node) throws LoaderException, Twig4jRuntimeException {
         // Reset compiler
         sourceCode = new StringBuilder();
+        textConstants = new LinkedHashMap<>();
+        staticConstants = new LinkedHashMap<>();
+        staticConstantTypes = new LinkedHashMap<>();
+        privateMethods = new LinkedHashMap<>();
+        inlinedTemplates = new LinkedHashMap<>();
+        variableScope = VariableScope.EMPTY;
+        loopVariables = new ArrayDeque<>();
+        variableTypes = new ArrayDeque<>();
         numberOfIndents = 0;
 
         node.compile(this);
@@ -165,12 +193,309 @@ public class ClassCompiler {
      *
      * @return The escaped string
      */
-    private String escapeString(String text) {
+    public String escapeString(String text) {
         return text.replace("\\", "\\\\")
                 .replace("\n", "\\n")
                 .replace("\"", "\\\"");
     }
 
+    /**
+     * Get the name of the static field holding a text encoded as UTF-8, so the text is only encoded once when the
+     * class is initialized. The fields are written with {@link #writeTextConstants()}.
+     *
+     * @param text The text
+     *
+     * @return The field name
+     */
+    public String getTextConstant(String text) {
+        return textConstants.computeIfAbsent(text, key -> "TEXT_" + textConstants.size());
+    }
+
+    /**
+     * Write the static fields of all texts requested with {@link #getTextConstant(String)}
+     *
+     * @return this
+     */
+    public ClassCompiler writeTextConstants() {
+        for (Map.Entry<String, String> textConstant : textConstants.entrySet()) {
+            write("private static final byte[] " + textConstant.getValue() + " = ")
+                .writeString(textConstant.getKey())
+                .writeRaw(".getBytes(java.nio.charset.StandardCharsets.UTF_8);\n");
+        }
+
+        return this;
+    }
+
+    /**
+     * Get the name of a static field holding a value that's computed once when the class is initialized instead of on
+     * every render. The fields are written with {@link #writeStaticConstants()}.
+     *
+     * @param type The java type of the field
+     * @param initializer The java expression computing the value
+     *
+     * @return The field name
+     */
+    public String getStaticConstant(String type, String initializer) {
+        String name = staticConstants.computeIfAbsent(type + " " + initializer, key -> "CONSTANT_" + staticConstants.size());
+        staticConstantTypes.put(name, type);
+
+        return name;
+    }
+
+    /**
+     * Write the static fields of all values requested with {@link #getStaticConstant(String, String)}
+     *
+     * @return this
+     */
+    public ClassCompiler writeStaticConstants() {
+        for (Map.Entry<String, String> staticConstant : staticConstants.entrySet()) {
+            String type = staticConstantTypes.get(staticConstant.getValue());
+
+            writeLine("private static final " + type + " " + staticConstant.getValue() + " = " + staticConstant.getKey().substring(type.length() + 1) + ";");
+        }
+
+        return this;
+    }
+
+    /**
+     * Get the name of a private method of the template, for code that needs statements where only an expression can
+     * be written. Identical methods are only written once, with {@link #writePrivateMethods()}.
+     *
+     * @param signature The return type, parameters and throws clause of the method, with %s where the name goes
+     *                  (ie. "Object %s(Object value)")
+     * @param body The lines of the method body, indented with 4 spaces per level
+     *
+     * @return The method name
+     */
+    public String getPrivateMethod(String signature, String... body) {
+        StringBuilder method = new StringBuilder(signature);
+        for (String line : body) {
+            method.append('\n').append(line);
+        }
+
+        return privateMethods.computeIfAbsent(method.toString(), key -> "method_" + privateMethods.size());
+    }
+
+    /**
+     * Write all methods requested with {@link #getPrivateMethod(String, String...)}
+     *
+     * @return this
+     */
+    public ClassCompiler writePrivateMethods() {
+        for (Map.Entry<String, String> privateMethod : privateMethods.entrySet()) {
+            String[] lines = privateMethod.getKey().split("\n", -1);
+
+            writeLine("private " + String.format(lines[0], privateMethod.getValue()) + " {").indent();
+            for (int i = 1; i < lines.length; i++) {
+                if (lines[i].isEmpty()) {
+                    writeRaw("\n");
+                } else {
+                    writeLine(lines[i]);
+                }
+            }
+            unIndent().writeLine("}\n");
+        }
+
+        return this;
+    }
+
+    /**
+     * Record a template compiled into the template being compiled, see {@link #writeInlinedTemplates()}
+     *
+     * @param templateName The name of the inlined template
+     * @param templateClass The class name of the inlined template when it was inlined
+     *
+     * @return this
+     */
+    public ClassCompiler addInlinedTemplate(String templateName, String templateClass) {
+        inlinedTemplates.put(templateName, templateClass);
+
+        return this;
+    }
+
+    /**
+     * Get the templates compiled into the template being compiled
+     *
+     * @return The class names of the inlined templates by template name
+     */
+    public Map<String, String> getInlinedTemplates() {
+        return inlinedTemplates;
+    }
+
+    /**
+     * Write the method returning the templates recorded with {@link #addInlinedTemplate(String, String)}, if there
+     * are any (must be written before the static constants)
+     *
+     * @return this
+     */
+    public ClassCompiler writeInlinedTemplates() {
+        if (inlinedTemplates.isEmpty()) {
+            return this;
+        }
+
+        StringBuilder initializer = new StringBuilder("inlinedTemplates(");
+        for (Map.Entry<String, String> inlinedTemplate : inlinedTemplates.entrySet()) {
+            if (initializer.length() > "inlinedTemplates(".length()) {
+                initializer.append(", ");
+            }
+
+            initializer
+                .append('"').append(escapeString(inlinedTemplate.getKey())).append("\", ")
+                .append('"').append(escapeString(inlinedTemplate.getValue())).append('"');
+        }
+
+        String constant = getStaticConstant("java.util.Map<String, String>", initializer.append(")").toString());
+
+        return this
+            .writeLine("public java.util.Map<String, String> getInlinedTemplates() {")
+            .indent()
+                .writeLine("return " + constant + ";")
+            .unIndent()
+            .writeLine("}\n");
+    }
+
+    /**
+     * Start compiling a method keeping the variables it can in local variables (see {@link VariableScope}), writing
+     * the code reading them from the context
+     *
+     * @param body The method body
+     *
+     * @return this
+     *
+     * @throws Twig4jRuntimeException If a node is missing attributes
+     */
+    public ClassCompiler enterVariableScope(Node body) throws Twig4jRuntimeException {
+        variableScope = VariableScope.analyze(body);
+
+        for (String name : variableScope.getVariables()) {
+            writeLine("Object " + VariableScope.getValueVariable(name) + " = context.get(\"" + name + "\");");
+            writeLine(
+                "boolean " + VariableScope.getDefinedVariable(name) + " = "
+                    + VariableScope.getValueVariable(name) + " != null || context.containsKey(\"" + name + "\");"
+            );
+        }
+
+        return this;
+    }
+
+    /**
+     * Finish compiling a method started with {@link #enterVariableScope(Node)}, writing the code writing the variables
+     * set in the method back to the context
+     *
+     * @return this
+     */
+    public ClassCompiler leaveVariableScope() {
+        for (String name : variableScope.getAssignedVariables()) {
+            writeLine("if (" + VariableScope.getDefinedVariable(name) + ") {")
+                .indent()
+                    .writeLine("context.put(\"" + name + "\", " + VariableScope.getValueVariable(name) + ");")
+                .unIndent()
+                .writeLine("} else {")
+                .indent()
+                    .writeLine("context.remove(\"" + name + "\");")
+                .unIndent()
+                .writeLine("}");
+        }
+
+        variableScope = VariableScope.EMPTY;
+
+        return this;
+    }
+
+    /**
+     * Get the variables of the method being compiled that are kept in local variables
+     *
+     * @return The scope
+     */
+    public VariableScope getVariableScope() {
+        return variableScope;
+    }
+
+    /**
+     * Whether a variable of the method being compiled is kept in a local variable instead of the context
+     *
+     * @param name The variable name
+     *
+     * @return Whether it's local
+     */
+    public boolean isLocalVariable(String name) {
+        return variableScope.isLocal(name);
+    }
+
+    /**
+     * Start compiling the body of a for loop
+     *
+     * @param loopVariable The java variable holding the {@link org.twig4j.core.template.LoopContext} of the loop
+     *
+     * @return this
+     */
+    public ClassCompiler enterLoop(String loopVariable) {
+        loopVariables.push(loopVariable);
+
+        return this;
+    }
+
+    /**
+     * Finish compiling the body of a for loop started with {@link #enterLoop(String)}
+     *
+     * @return this
+     */
+    public ClassCompiler leaveLoop() {
+        loopVariables.pop();
+
+        return this;
+    }
+
+    /**
+     * Get the java variable holding the loop context of the innermost loop being compiled
+     *
+     * @return The variable name or null if not compiling a loop (using the loop variable)
+     */
+    public String getLoopVariable() {
+        return loopVariables.peek();
+    }
+
+    /**
+     * Start compiling code where local variables are known to have a primitive type (see {@link TypeInference})
+     *
+     * @param types The types of the variables
+     *
+     * @return this
+     */
+    public ClassCompiler enterVariableTypes(Map<String, Class<?>> types) {
+        variableTypes.push(types);
+
+        return this;
+    }
+
+    /**
+     * Finish compiling code started with {@link #enterVariableTypes(Map)}
+     *
+     * @return this
+     */
+    public ClassCompiler leaveVariableTypes() {
+        variableTypes.pop();
+
+        return this;
+    }
+
+    /**
+     * Get the primitive type a local variable is known to have in the code being compiled
+     *
+     * @param name The variable name
+     *
+     * @return The type or null if it isn't known
+     */
+    public Class<?> getVariableType(String name) {
+        for (Map<String, Class<?>> types : variableTypes) {
+            if (types.containsKey(name)) {
+                return types.get(name);
+            }
+        }
+
+        return null;
+    }
+
     /**
      * Add a comment telling which line the node is on
      *
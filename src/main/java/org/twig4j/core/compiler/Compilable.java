@@ -13,4 +13,18 @@ public interface Compilable {
      * @throws Twig4jRuntimeException If runtime errors are encountered
      */
     public void compile(ClassCompiler compiler) throws LoaderException, Twig4jRuntimeException;
+
+    /**
+     * Compile the instance directly to bytecode. Expressions leave their value (an object) on the stack.
+     *
+     * @param compiler The compiler to compile on
+     *
+     * @return Whether the instance could be compiled to bytecode, if not the template is compiled to Java code instead
+     *
+     * @throws LoaderException If a file with the file name cannot be found by loader
+     * @throws Twig4jRuntimeException If runtime errors are encountered
+     */
+    public default boolean compileBytecode(BytecodeCompiler compiler) throws LoaderException, Twig4jRuntimeException {
+        return false;
+    }
 }
@@ -0,0 +1,189 @@
+package org.twig4j.core.compiler;
+
+import org.twig4j.core.exception.Twig4jRuntimeException;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Compiles java source code to class files in memory with the system java compiler (javac)
+ *
+ * Compilations run in parallel, each with a file manager of its own (file managers aren't thread safe).
+ */
+public class InMemoryJavaCompiler {
+    private static JavaCompiler systemJavaCompiler;
+
+    private ClassLoader classPathClassLoader;
+    // The file managers not used by a compilation right now, they cache the class path so they're reused
+    private final Queue<StandardJavaFileManager> standardFileManagers = new ConcurrentLinkedQueue<>();
+    private volatile List<String> options;
+
+    /**
+     * @param classPathClassLoader The class loader whose class path is used when compiling (in addition to java.class.path)
+     */
+    public InMemoryJavaCompiler(ClassLoader classPathClassLoader) {
+        this.classPathClassLoader = classPathClassLoader;
+    }
+
+    /**
+     * Compile a single java source file
+     *
+     * @param className The name of the class INCLUDING package name
+     * @param sourceCode The java source code
+     *
+     * @return The compiled class files indexed by class name (nested classes are included)
+     *
+     * @throws Twig4jRuntimeException If the source code doesn't compile
+     */
+    public Map<String, byte[]> compile(String className, String sourceCode) throws Twig4jRuntimeException {
+        JavaCompiler compiler = getSystemJavaCompiler();
+        StandardJavaFileManager standardFileManager = standardFileManagers.poll();
+
+        if (standardFileManager == null) {
+            standardFileManager = compiler.getStandardFileManager(null, null, null);
+        }
+
+        try {
+            return compile(compiler, standardFileManager, className, sourceCode);
+        } finally {
+            standardFileManagers.add(standardFileManager);
+        }
+    }
+
+    private Map<String, byte[]> compile(JavaCompiler compiler, StandardJavaFileManager standardFileManager, String className, String sourceCode) throws Twig4jRuntimeException {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Map<String, ByteArrayOutputStream> classFiles = new LinkedHashMap<>();
+
+        JavaFileManager fileManager = new ForwardingJavaFileManager<JavaFileManager>(standardFileManager) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind, FileObject sibling) {
+                ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+                classFiles.put(name, classFile);
+
+                return new SimpleJavaFileObject(URI.create("mem:///" + name.replace('.', '/') + kind.extension), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return classFile;
+                    }
+                };
+            }
+        };
+
+        JavaFileObject source = new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return sourceCode;
+            }
+        };
+
+        Boolean success = compiler
+            .getTask(null, fileManager, diagnostics, getOptions(), null, Collections.singletonList(source))
+            .call();
+
+        if (!success) {
+            StringBuilder message = new StringBuilder("Failed to compile class " + className + ":");
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    message
+                        .append("\n")
+                        .append("line ")
+                        .append(diagnostic.getLineNumber())
+                        .append(": ")
+                        .append(diagnostic.getMessage(Locale.ENGLISH));
+                }
+            }
+
+            throw new Twig4jRuntimeException(message.toString(), null, -1);
+        }
+
+        Map<String, byte[]> compiledClasses = new LinkedHashMap<>();
+        for (Map.Entry<String, ByteArrayOutputStream> classFile : classFiles.entrySet()) {
+            compiledClasses.put(classFile.getKey(), classFile.getValue().toByteArray());
+        }
+
+        return compiledClasses;
+    }
+
+    /**
+     * Get the javac options, ie. the class path of the class loader
+     *
+     * @return The options
+     */
+    protected List<String> getOptions() {
+        if (options != null) {
+            return options;
+        }
+
+        // Application servers often load twig4j (and the template base class) from somewhere else than java.class.path
+        LinkedHashSet<String> classPath = new LinkedHashSet<>();
+        for (ClassLoader classLoader = classPathClassLoader; classLoader != null; classLoader = classLoader.getParent()) {
+            if (classLoader instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) classLoader).getURLs()) {
+                    if (url.getProtocol().equals("file")) {
+                        try {
+                            classPath.add(Paths.get(url.toURI()).toString());
+                        } catch (Exception e) {
+                            // Not a usable path, skip it
+                        }
+                    }
+                }
+            }
+        }
+        classPath.addAll(Arrays.asList(System.getProperty("java.class.path", "").split(File.pathSeparator)));
+
+        options = Arrays.asList("-classpath", String.join(File.pathSeparator, classPath));
+
+        return options;
+    }
+
+    /**
+     * Get the system java compiler, which doesn't exist when running on a JRE unless tools.jar can be found
+     *
+     * @return The compiler
+     *
+     * @throws Twig4jRuntimeException If there is no compiler available
+     */
+    protected static synchronized JavaCompiler getSystemJavaCompiler() throws Twig4jRuntimeException {
+        if (systemJavaCompiler != null) {
+            return systemJavaCompiler;
+        }
+
+        systemJavaCompiler = ToolProvider.getSystemJavaCompiler();
+
+        if (systemJavaCompiler == null) {
+            // A JRE inside a JDK (java.home = jdk/jre), try to load javac from the JDK's tools.jar
+            File toolsJar = new File(System.getProperty("java.home"), "../lib/tools.jar");
+
+            try {
+                URLClassLoader toolsClassLoader = new URLClassLoader(new URL[]{toolsJar.toURI().toURL()});
+                systemJavaCompiler = (JavaCompiler) toolsClassLoader.loadClass("com.sun.tools.javac.api.JavacTool").newInstance();
+            } catch (Exception | LinkageError e) {
+                throw new Twig4jRuntimeException("No java compiler available, templates can only be compiled at runtime when running on a JDK", e);
+            }
+        }
+
+        return systemJavaCompiler;
+    }
+
+    /**
+     * Close the file managers (and the jar files they keep open) not used by a compilation right now
+     *
+     * @throws IOException If closing fails
+     */
+    public void close() throws IOException {
+        StandardJavaFileManager standardFileManager;
+
+        while ((standardFileManager = standardFileManagers.poll()) != null) {
+            standardFileManager.close();
+        }
+    }
+}
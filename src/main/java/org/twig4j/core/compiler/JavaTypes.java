@@ -0,0 +1,155 @@
+package org.twig4j.core.compiler;
+
+import org.twig4j.core.Environment;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.syntax.parser.node.type.expression.*;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+
+/**
+ * The types javac gives the code expressions compile to, and which methods it resolves calls to. Used to decide how
+ * an expression can be compiled (or folded or interpreted) so it behaves exactly like the compiled code.
+ */
+public class JavaTypes {
+    private JavaTypes() {
+    }
+
+    /**
+     * Get the java type an expression has in the compiled code, which decides which method overloads javac picks and
+     * whether the code compiles at all
+     *
+     * @param node The expression
+     * @param environment The Twig environment
+     *
+     * @return The type (a primitive class for primitive values and null for the null literal)
+     *
+     * @throws Twig4jRuntimeException If the node is missing attributes
+     */
+    public static Class<?> getJavaType(Node node, Environment environment) throws Twig4jRuntimeException {
+        if (node instanceof FoldedConstant) {
+            return ((FoldedConstant) node).getJavaType();
+        }
+
+        if (node instanceof RangeConstant) {
+            return List.class;
+        }
+
+        if (node instanceof StringConstant || node instanceof BinaryConcat || node instanceof Parent || node instanceof BlockReferenceExpression) {
+            return String.class;
+        }
+
+        if (node instanceof Constant) {
+            Object value = node.hasAttribute("data") ? node.getAttribute("data") : null;
+
+            if (value instanceof Integer) {
+                return int.class;
+            } else if (value instanceof Float || value instanceof Double) {
+                return double.class;
+            } else if (value == null) {
+                return null;
+            } else if (value.equals(true) || value.equals(false)) {
+                return boolean.class;
+            }
+
+            return String.class;
+        }
+
+        if (
+            node instanceof BinaryNumberComparison
+            || node instanceof BinaryNotEquals
+            || node instanceof BinaryStartsWith
+            || node instanceof BinaryEndsWith
+            || node instanceof BinaryAnd
+            || node instanceof BinaryOr
+            || node instanceof UnaryNot
+        ) {
+            return boolean.class;
+        }
+
+        if (node instanceof BinaryDynamicTypeOperation) {
+            Method operatorMethod = ((BinaryDynamicTypeOperation) node).getOperatorMethod(environment);
+
+            return operatorMethod == null ? Object.class : operatorMethod.getReturnType();
+        }
+
+        if (node instanceof Filter) {
+            org.twig4j.core.filter.Filter filter = environment.getFilter(String.valueOf(node.getNode(1).getAttribute("data")));
+
+            return filter == null ? Object.class : filter.getMethod().getReturnType();
+        }
+
+        if (node instanceof Array) {
+            return List.class;
+        }
+
+        if (node instanceof Hash) {
+            return org.twig4j.core.util.HashMap.class;
+        }
+
+        return Object.class;
+    }
+
+    /**
+     * Whether a static method call compiled from the method's name (ie. Class.method(arguments)) calls exactly this
+     * method, given the java types of the arguments
+     *
+     * @param method The method
+     * @param argumentTypes The java types of the arguments (see {@link #getJavaType(Node, Environment)})
+     *
+     * @return Whether javac would compile the call to this method
+     */
+    public static boolean isCallableWith(Method method, List<Class<?>> argumentTypes) {
+        if (!Modifier.isStatic(method.getModifiers()) || method.isVarArgs() || method.getParameterCount() != argumentTypes.size()) {
+            return false;
+        }
+
+        // With overloads javac might pick another method
+        for (Method overload : method.getDeclaringClass().getMethods()) {
+            if (overload.getName().equals(method.getName()) && !overload.equals(method)) {
+                return false;
+            }
+        }
+
+        // Checked exceptions other than twig ones wouldn't compile in doDisplay()
+        for (Class<?> exceptionType : method.getExceptionTypes()) {
+            if (!Twig4jException.class.isAssignableFrom(exceptionType) && !RuntimeException.class.isAssignableFrom(exceptionType) && !Error.class.isAssignableFrom(exceptionType)) {
+                return false;
+            }
+        }
+
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            Class<?> argumentType = argumentTypes.get(i);
+
+            if (argumentType == null) {
+                if (parameterTypes[i].isPrimitive()) {
+                    return false;
+                }
+            } else if (argumentType.isPrimitive()) {
+                if (parameterTypes[i] != argumentType && !parameterTypes[i].isAssignableFrom(box(argumentType))) {
+                    return false;
+                }
+            } else if (!parameterTypes[i].isAssignableFrom(argumentType)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static Class<?> box(Class<?> primitiveType) {
+        if (primitiveType == int.class) {
+            return Integer.class;
+        } else if (primitiveType == double.class) {
+            return Double.class;
+        } else if (primitiveType == boolean.class) {
+            return Boolean.class;
+        }
+
+        return primitiveType;
+    }
+}
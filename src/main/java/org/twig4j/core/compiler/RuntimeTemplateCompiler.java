@@ -1,27 +1,25 @@
 package org.twig4j.core.compiler;
 
-import net.openhft.compiler.CachedCompiler;
-import net.openhft.compiler.CompilerUtils;
 import org.twig4j.core.Environment;
 import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.template.Template;
 
+import java.util.Map;
+
 public class RuntimeTemplateCompiler {
-    private CachedCompiler cachedCompiler = CompilerUtils.CACHED_COMPILER;
+    private InMemoryJavaCompiler javaCompiler;
+    private ClassLoader parentClassLoader;
     private Environment environment;
 
     public RuntimeTemplateCompiler(Environment environment) {
-        this.environment = environment;
-    }
-
-    public RuntimeTemplateCompiler(CachedCompiler cachedCompiler) {
-        this.cachedCompiler = cachedCompiler;
+        this(environment, environment.getClass().getClassLoader());
     }
 
-    public RuntimeTemplateCompiler(Environment environment, CachedCompiler cachedCompiler) {
+    public RuntimeTemplateCompiler(Environment environment, ClassLoader parentClassLoader) {
         this.environment = environment;
-        this.cachedCompiler = cachedCompiler;
+        this.parentClassLoader = parentClassLoader;
+        this.javaCompiler = new InMemoryJavaCompiler(parentClassLoader);
     }
 
     /**
@@ -35,53 +33,98 @@ public class RuntimeTemplateCompiler {
      * @throws Twig4jException If something goes wrong, probably (but hopefully not) because of java syntax error
      */
     public Template compile(String sourceCode, String name) throws Twig4jException {
+        return instantiate(compileClasses(sourceCode, name), name);
+    }
+
+    /**
+     * Compile java source code to class files without loading them
+     *
+     * @param sourceCode The java code to compile
+     * @param name The name of the template class INCLUDING package name
+     *
+     * @return The class files indexed by class name
+     *
+     * @throws Twig4jRuntimeException If the java code doesn't compile
+     */
+    public Map<String, byte[]> compileClasses(String sourceCode, String name) throws Twig4jRuntimeException {
+        if (environment.isDebug()) {
+            System.out.println("Compiling template " + name);
+            System.out.print(sourceCode);
+        }
+
         try {
-            if (environment.isDebug()) {
-                System.out.println("Compiling template " + name);
-                System.out.print(sourceCode);
+            return javaCompiler.compile(name, sourceCode);
+        } catch (Twig4jRuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new Twig4jRuntimeException("Exception " + e.toString() + " thrown by compiler when compiling template " + name + ".", e);
+        }
+    }
 
-            }
+    /**
+     * Define already compiled template classes in a new class loader and create the template
+     *
+     * @param classFiles The class files of the template indexed by class name
+     * @param name The name of the template class INCLUDING package name
+     *
+     * @return The template
+     *
+     * @throws Twig4jException If the template can't be instantiated
+     */
+    public Template instantiate(Map<String, byte[]> classFiles, String name) throws Twig4jException {
+        try {
+            // Every template gets its own class loader so it can be unloaded when evicted from the template cache
+            Class<?> templateClass = new TemplateClassLoader(parentClassLoader, classFiles).loadClass(name);
 
             // First try to load template with Environment constructor, if that doesn't work load it with default constructor
             try {
-                Template template = (Template) cachedCompiler.loadFromJava(name, sourceCode).getConstructor(Environment.class).newInstance(environment);
+                Template template = (Template) templateClass.getConstructor(Environment.class).newInstance(environment);
 
                 return template;
             } catch (NoSuchMethodException e) {
-                Template template = (Template) cachedCompiler.loadFromJava(name, sourceCode).newInstance();
+                Template template = (Template) templateClass.newInstance();
                 template.setEnvironment(environment);
 
                 return template;
             }
         } catch (ClassNotFoundException e) {
             throw new Twig4jRuntimeException("Failed to find compiled class " + name + ". Maybe it failed to compile?", e);
-        } catch (Exception e) {
+        } catch (Exception | LinkageError e) {
             if (e.getCause() instanceof Twig4jException) {
                 throw (Twig4jException)e.getCause();
             }
 
-            throw new Twig4jRuntimeException("Exception " + e.toString() + " thrown by compiler when compiling template " + name + ".", e);
+            throw new Twig4jRuntimeException("Exception " + e.toString() + " thrown when instantiating template " + name + ".", e);
         }
     }
 
     /**
-     * Get the actual compiler
+     * Get the class loader template classes are loaded with, which is where they find the classes they use
+     *
+     * @return The class loader
+     */
+    public ClassLoader getParentClassLoader() {
+        return parentClassLoader;
+    }
+
+    /**
+     * Get the java compiler
      *
      * @return The compiler
      */
-    public CachedCompiler getCachedCompiler() {
-        return cachedCompiler;
+    public InMemoryJavaCompiler getJavaCompiler() {
+        return javaCompiler;
     }
 
     /**
-     * Set the actual compiler
+     * Set the java compiler
      *
-     * @param cachedCompiler The compiler
+     * @param javaCompiler The compiler
      *
      * @return this
      */
-    public RuntimeTemplateCompiler setCachedCompiler(CachedCompiler cachedCompiler) {
-        this.cachedCompiler = cachedCompiler;
+    public RuntimeTemplateCompiler setJavaCompiler(InMemoryJavaCompiler javaCompiler) {
+        this.javaCompiler = javaCompiler;
 
         return this;
     }
@@ -0,0 +1,50 @@
+package org.twig4j.core.compiler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class loader for the classes of a single compiled template.
+ *
+ * Every template gets its own class loader so the template class can be unloaded by the garbage collector when the
+ * template is evicted from the cache (a class is only unloaded together with its class loader).
+ */
+public class TemplateClassLoader extends ClassLoader {
+    private final Map<String, byte[]> classes;
+    private long byteSize = 0;
+
+    /**
+     * @param parent The class loader to load everything but the template classes from
+     * @param classes The class files of the template indexed by class name
+     */
+    public TemplateClassLoader(ClassLoader parent, Map<String, byte[]> classes) {
+        super(parent);
+
+        this.classes = new HashMap<>(classes);
+        for (byte[] classFile : classes.values()) {
+            byteSize += classFile.length;
+        }
+    }
+
+    @Override
+    protected synchronized Class<?> findClass(String name) throws ClassNotFoundException {
+        // Each class file is only needed once, the class is cached by the JVM after it's defined
+        byte[] classFile = classes.remove(name);
+
+        if (classFile == null) {
+            throw new ClassNotFoundException(name);
+        }
+
+        return defineClass(name, classFile, 0, classFile.length);
+    }
+
+    /**
+     * Get the total size of the class files in this class loader, which is a (rough) estimate of how much metaspace
+     * the template classes use
+     *
+     * @return The size in bytes
+     */
+    public long getByteSize() {
+        return byteSize;
+    }
+}
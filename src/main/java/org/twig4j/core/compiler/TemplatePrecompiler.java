@@ -0,0 +1,168 @@
+package org.twig4j.core.compiler;
+
+import org.twig4j.core.Environment;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.loader.FilesystemLoader;
+import org.twig4j.core.loader.Loader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Compiles templates to class files ahead of time (ie. when building the application).
+ *
+ * The class files are written to an output directory (to be packaged with the application), and since
+ * {@link Environment#loadTemplate(String)} tries to load the template class from the class path before compiling the
+ * template, precompiled templates are never compiled at runtime.
+ */
+public class TemplatePrecompiler {
+    private Environment environment;
+    private Path outputDirectory;
+
+    /**
+     * @param environment The environment to compile the templates with (must be configured like the runtime one)
+     * @param outputDirectory The directory to write the class files to
+     */
+    public TemplatePrecompiler(Environment environment, Path outputDirectory) {
+        this.environment = environment;
+        this.outputDirectory = outputDirectory;
+    }
+
+    /**
+     * Precompile all templates of the environment's filesystem loader
+     *
+     * @return The names of the written template classes
+     *
+     * @throws Twig4jException If any template fails to compile
+     */
+    public List<String> precompile() throws Twig4jException {
+        Loader loader = environment.getLoader();
+
+        if (!(loader instanceof FilesystemLoader)) {
+            throw new Twig4jRuntimeException("Only templates of a FilesystemLoader can be listed, pass the template names instead.", null, -1);
+        }
+
+        return precompile(((FilesystemLoader) loader).getTemplateNames());
+    }
+
+    /**
+     * Precompile templates
+     *
+     * @param templateNames The names of the templates to compile
+     *
+     * @return The names of the written template classes
+     *
+     * @throws Twig4jException If any template fails to compile (after trying to compile all of them)
+     */
+    public List<String> precompile(Collection<String> templateNames) throws Twig4jException {
+        Loader loader = environment.getLoader();
+
+        if (loader instanceof FilesystemLoader && ((FilesystemLoader) loader).isMetadataCacheKeys()) {
+            throw new Twig4jRuntimeException("Templates can't be precompiled with metadata cache keys, the class names would be different at runtime.", null, -1);
+        }
+
+        List<String> classNames = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+
+        for (String templateName : templateNames) {
+            try {
+                classNames.add(precompile(templateName));
+            } catch (Twig4jException e) {
+                errors.add(templateName + ": " + e.getMessage());
+            }
+        }
+
+        if (!errors.isEmpty()) {
+            throw new Twig4jRuntimeException("Failed to precompile " + errors.size() + " template(s):\n" + String.join("\n", errors), null, -1);
+        }
+
+        return classNames;
+    }
+
+    /**
+     * Precompile a single template
+     *
+     * @param templateName The name of the template to compile
+     *
+     * @return The name of the written template class
+     *
+     * @throws Twig4jException If the template fails to compile or the class files can't be written
+     */
+    public String precompile(String templateName) throws Twig4jException {
+        String className = environment.getTemplatePackage() + "." + environment.getTemplateClass(templateName);
+        Map<String, byte[]> classFiles = environment.compileClasses(environment.getLoader().getSource(templateName), templateName, className);
+
+        for (Map.Entry<String, byte[]> classFile : classFiles.entrySet()) {
+            Path file = outputDirectory.resolve(classFile.getKey().replace('.', '/') + ".class");
+
+            try {
+                Files.createDirectories(file.getParent());
+                Files.write(file, classFile.getValue());
+            } catch (IOException e) {
+                throw new Twig4jRuntimeException("Failed to write class file \"" + file + "\".", templateName, -1, e);
+            }
+        }
+
+        return className;
+    }
+
+    /**
+     * Precompile all templates in a set of directories from the command line:
+     *
+     *   TemplatePrecompiler output-directory template-directory [namespace=template-directory ...]
+     *
+     * Exits with status 1 if any template fails to compile, so the build fails.
+     *
+     * @param args The output directory followed by template directories
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: TemplatePrecompiler <output directory> <template directory> [<namespace>=<template directory> ...]");
+            System.exit(2);
+        }
+
+        try {
+            FilesystemLoader loader = new FilesystemLoader();
+            for (String path : Arrays.copyOfRange(args, 1, args.length)) {
+                if (path.matches("^[^=/\\\\]+=.+")) {
+                    loader.addPath(path.substring(path.indexOf('=') + 1), path.substring(0, path.indexOf('=')));
+                } else {
+                    loader.addPath(path);
+                }
+            }
+
+            List<String> classNames = new TemplatePrecompiler(new Environment(loader), Paths.get(args[0])).precompile();
+
+            System.out.println("Precompiled " + classNames.size() + " template(s) to " + args[0]);
+        } catch (Twig4jException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Get the output directory
+     *
+     * @return The directory
+     */
+    public Path getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    /**
+     * Set the output directory
+     *
+     * @param outputDirectory The directory
+     *
+     * @return this
+     */
+    public TemplatePrecompiler setOutputDirectory(Path outputDirectory) {
+        this.outputDirectory = outputDirectory;
+
+        return this;
+    }
+}
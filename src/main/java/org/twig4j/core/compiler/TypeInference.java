@@ -0,0 +1,220 @@
+package org.twig4j.core.compiler;
+
+import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.syntax.parser.node.type.control.For;
+import org.twig4j.core.syntax.parser.node.type.expression.Array;
+import org.twig4j.core.syntax.parser.node.type.expression.BinaryDynamicTypeOperation;
+import org.twig4j.core.syntax.parser.node.type.expression.BinaryRange;
+import org.twig4j.core.syntax.parser.node.type.expression.Constant;
+import org.twig4j.core.syntax.parser.node.type.expression.FoldedConstant;
+import org.twig4j.core.syntax.parser.node.type.expression.GetAttr;
+import org.twig4j.core.syntax.parser.node.type.expression.Name;
+import org.twig4j.core.syntax.parser.node.type.expression.RangeConstant;
+import org.twig4j.core.typesystem.Ops;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Infers which expressions can be compiled to a primitive java value, so operators on them compile to plain java
+ * arithmetic and comparisons instead of calling {@link Ops} with boxed operands.
+ *
+ * Only types giving exactly the same results as the dynamic operators are inferred:
+ * - int for integer literals, the numeric attributes of the loop variable (ie. `loop.index`), loop variables of integer
+ *   ranges, keys of lists, filters returning ints and sums, differences, products and remainders of ints (which
+ *   overflow like Ops does for 2 integers)
+ * - boolean for comparisons, logical operators, `loop.first`, `loop.last` and filters returning booleans
+ *
+ * Doubles are never inferred as Ops calculates with them as decimals. Everything else is unknown and compiled as before.
+ */
+public class TypeInference {
+    private TypeInference() {
+    }
+
+    /**
+     * Get the primitive type an expression can be compiled to with {@link #compile(Node, ClassCompiler)}
+     *
+     * @param node The expression
+     * @param compiler The compiler compiling the expression
+     *
+     * @return int.class, boolean.class or null if the type isn't known
+     *
+     * @throws Twig4jRuntimeException If a node is missing attributes
+     */
+    public static Class<?> getType(Node node, ClassCompiler compiler) throws Twig4jRuntimeException {
+        if (node == null) {
+            return null;
+        }
+
+        // Expressions that already compile to primitives
+        Class<?> javaType = JavaTypes.getJavaType(node, compiler.getEnvironment());
+        if (javaType == int.class || javaType == boolean.class) {
+            return javaType;
+        }
+
+        if (node instanceof FoldedConstant) {
+            return node.getAttribute("data") instanceof Integer ? int.class : null;
+        }
+
+        if (node instanceof GetAttr && compiler.getLoopVariable() != null && For.isLoopAttribute((GetAttr) node)) {
+            return getLoopAttributeType(String.valueOf(node.getNode(1).getAttribute("data")));
+        }
+
+        if (node instanceof Name) {
+            String name = String.valueOf(node.getAttribute("name"));
+
+            return compiler.isLocalVariable(name) ? compiler.getVariableType(name) : null;
+        }
+
+        if (node instanceof BinaryDynamicTypeOperation && getArithmeticOperator((BinaryDynamicTypeOperation) node, compiler) != null) {
+            return int.class;
+        }
+
+        return null;
+    }
+
+    /**
+     * Compile an expression to its primitive type (see {@link #getType(Node, ClassCompiler)})
+     *
+     * @param node The expression
+     * @param compiler The compiler
+     *
+     * @return The compiler
+     *
+     * @throws LoaderException If failing to find a template
+     * @throws Twig4jRuntimeException If the expression doesn't have a primitive type
+     */
+    public static ClassCompiler compile(Node node, ClassCompiler compiler) throws LoaderException, Twig4jRuntimeException {
+        Class<?> type = getType(node, compiler);
+
+        if (type == null) {
+            throw new Twig4jRuntimeException("Expression of type \"" + node.getClass().getName() + "\" doesn't have a primitive type", null, node.getLine());
+        }
+
+        Class<?> javaType = JavaTypes.getJavaType(node, compiler.getEnvironment());
+
+        if (javaType == type) {
+            return compiler.subCompile(node);
+        }
+
+        if (node instanceof FoldedConstant) {
+            return compiler.representValue(node.getAttribute("data"));
+        }
+
+        if (node instanceof GetAttr) {
+            return compiler.writeRaw(compiler.getLoopVariable() + "." + GetAttr.getLoopAccessor(String.valueOf(node.getNode(1).getAttribute("data"))) + "()");
+        }
+
+        if (node instanceof Name) {
+            // Typed variables are always defined where they're typed, ie. in the body of the loop setting them
+            return compiler.writeRaw("((java.lang.Integer) " + VariableScope.getValueVariable(String.valueOf(node.getAttribute("name"))) + ").intValue()");
+        }
+
+        BinaryDynamicTypeOperation operation = (BinaryDynamicTypeOperation) node;
+        compiler.writeRaw("(");
+        compile(operation.getLeftNode(), compiler);
+        compiler.writeRaw(" " + getArithmeticOperator(operation, compiler) + " ");
+        compile(operation.getRightNode(), compiler);
+
+        return compiler.writeRaw(")");
+    }
+
+    /**
+     * Whether both operands of an operator have the same primitive type
+     *
+     * @param left The left operand
+     * @param right The right operand
+     * @param compiler The compiler
+     *
+     * @return The type of the operands or null if they don't have the same primitive type
+     *
+     * @throws Twig4jRuntimeException If a node is missing attributes
+     */
+    public static Class<?> getOperandType(Node left, Node right, ClassCompiler compiler) throws Twig4jRuntimeException {
+        Class<?> leftType = getType(left, compiler);
+
+        return leftType != null && leftType == getType(right, compiler) ? leftType : null;
+    }
+
+    /**
+     * Get the type of the values of a sequence a for loop iterates over
+     *
+     * @param seq The sequence
+     * @param compiler The compiler
+     *
+     * @return int.class for integer ranges or null if the type isn't known
+     *
+     * @throws Twig4jRuntimeException If a node is missing attributes
+     */
+    public static Class<?> getValueType(Node seq, ClassCompiler compiler) throws Twig4jRuntimeException {
+        if (seq instanceof RangeConstant) {
+            List<?> values = (List<?>) seq.getAttribute("data");
+
+            return !values.isEmpty() && values.get(0) instanceof Integer ? int.class : null;
+        }
+
+        // Ranges only compile with 2 ints or 2 strings
+        if (seq instanceof BinaryRange && JavaTypes.getJavaType(seq.getNode(0), compiler.getEnvironment()) == int.class) {
+            return int.class;
+        }
+
+        return null;
+    }
+
+    /**
+     * Get the type of the keys of a sequence a for loop iterates over
+     *
+     * @param seq The sequence
+     *
+     * @return int.class for lists or null if the type isn't known
+     */
+    public static Class<?> getKeyType(Node seq) {
+        return seq instanceof RangeConstant || seq instanceof BinaryRange || seq instanceof Array ? int.class : null;
+    }
+
+    private static Class<?> getLoopAttributeType(String attribute) {
+        switch (attribute) {
+            case "first":
+            case "last":
+                return boolean.class;
+            case "parent":
+                return null;
+            default:
+                return int.class;
+        }
+    }
+
+    /**
+     * Get the java operator an arithmetic operation on 2 ints compiles to
+     *
+     * @return The operator or null if the operation can't be compiled to java arithmetic
+     */
+    private static String getArithmeticOperator(BinaryDynamicTypeOperation operation, ClassCompiler compiler) throws Twig4jRuntimeException {
+        Method operatorMethod = operation.getOperatorMethod(compiler.getEnvironment());
+
+        if (operatorMethod == null || operatorMethod.getDeclaringClass() != Ops.class || getOperandType(operation.getLeftNode(), operation.getRightNode(), compiler) != int.class) {
+            return null;
+        }
+
+        switch (operatorMethod.getName()) {
+            case "add":
+                return "+";
+            case "subtract":
+                return "-";
+            case "multiply":
+                return "*";
+            case "mod":
+                // Ops fails dividing by 0 with another message than java does
+                return isNonZeroInteger(operation.getRightNode()) ? "%" : null;
+            default:
+                // Divisions might give decimals
+                return null;
+        }
+    }
+
+    private static boolean isNonZeroInteger(Node node) throws Twig4jRuntimeException {
+        return node instanceof Constant && node.getAttribute("data") instanceof Integer && (Integer) node.getAttribute("data") != 0;
+    }
+}
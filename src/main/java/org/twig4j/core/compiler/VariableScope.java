@@ -0,0 +1,230 @@
+package org.twig4j.core.compiler;
+
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.syntax.parser.node.type.BlockReference;
+import org.twig4j.core.syntax.parser.node.type.Include;
+import org.twig4j.core.syntax.parser.node.type.Set;
+import org.twig4j.core.syntax.parser.node.type.control.For;
+import org.twig4j.core.syntax.parser.node.type.expression.BlockReferenceExpression;
+import org.twig4j.core.syntax.parser.node.type.expression.Constant;
+import org.twig4j.core.syntax.parser.node.type.expression.GetAttr;
+import org.twig4j.core.syntax.parser.node.type.expression.Name;
+import org.twig4j.core.syntax.parser.node.type.expression.Parent;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * The template variables a compiled method (doDisplay() or a block method) keeps in java local variables instead of
+ * looking them up in the context every time they're used.
+ *
+ * Every variable is read from the context once when the method is entered, and the variables the method sets are
+ * written back to the context when it returns. That's only the same as using the context directly if nothing else
+ * sees the context while the method runs, so methods with anything that might (blocks, parent(), includes, filters
+ * that need the context, extension nodes and the "loop.parent" variable) don't get any local variables.
+ */
+public class VariableScope {
+    /**
+     * A scope without local variables, all variables are looked up in the context
+     */
+    public static final VariableScope EMPTY = new VariableScope(new LinkedHashSet<>(), new LinkedHashSet<>());
+
+    // Variables the compiled code keeps in the context itself
+    private static final List<String> INTERNAL_VARIABLES = Arrays.asList("loop");
+
+    private java.util.Set<String> variables;
+    private java.util.Set<String> assignedVariables;
+
+    /**
+     * @param variables The variables kept in local variables
+     * @param assignedVariables The variables (of the local variables) that are set in the method
+     */
+    public VariableScope(java.util.Set<String> variables, java.util.Set<String> assignedVariables) {
+        this.variables = variables;
+        this.assignedVariables = assignedVariables;
+    }
+
+    /**
+     * Find the variables the method compiled from a body can keep in local variables
+     *
+     * @param body The method body
+     *
+     * @return The scope, or {@link #EMPTY} if the method has to use the context for all variables
+     *
+     * @throws Twig4jRuntimeException If a node is missing attributes
+     */
+    public static VariableScope analyze(Node body) throws Twig4jRuntimeException {
+        java.util.Set<String> variables = new LinkedHashSet<>();
+        java.util.Set<String> assignedVariables = new LinkedHashSet<>();
+
+        if (!collectVariables(body, null, variables, assignedVariables)) {
+            return EMPTY;
+        }
+
+        variables.addAll(assignedVariables);
+
+        return new VariableScope(Collections.unmodifiableSet(variables), Collections.unmodifiableSet(assignedVariables));
+    }
+
+    /**
+     * Get the variables set within a node (by set tags and for loop targets)
+     *
+     * @param node The node
+     *
+     * @return The variable names
+     *
+     * @throws Twig4jRuntimeException If a node is missing attributes
+     */
+    public static java.util.Set<String> findAssignedVariables(Node node) throws Twig4jRuntimeException {
+        java.util.Set<String> assignedVariables = new LinkedHashSet<>();
+
+        collectVariables(node, null, new LinkedHashSet<>(), assignedVariables);
+
+        return assignedVariables;
+    }
+
+    /**
+     * Walk the node tree collecting read and assigned variables
+     *
+     * @return Whether the variables can be kept in local variables
+     */
+    private static boolean collectVariables(Node node, Node parentNode, java.util.Set<String> variables, java.util.Set<String> assignedVariables) throws Twig4jRuntimeException {
+        if (node == null) {
+            return true;
+        }
+
+        if (exposesContext(node)) {
+            return false;
+        }
+
+        boolean canUseLocals = true;
+
+        if (node instanceof Name) {
+            String name = String.valueOf(node.getAttribute("name"));
+
+            if (name.equals("loop")) {
+                // The loop variable stays in the context, but "loop.parent" is a copy of the context
+                canUseLocals = isLoopAttribute(node, parentNode);
+            } else {
+                canUseLocals = addVariable(name, variables);
+            }
+        } else if (node instanceof Set) {
+            for (Object name : (List<?>) node.getAttribute("names")) {
+                canUseLocals &= addVariable(String.valueOf(name), assignedVariables);
+            }
+        } else if (node instanceof For) {
+            canUseLocals = addVariable(String.valueOf(node.getAttribute("key_target")), assignedVariables)
+                && addVariable(String.valueOf(node.getAttribute("value_target")), assignedVariables);
+        }
+
+        for (Node childNode : node.getNodes()) {
+            canUseLocals &= collectVariables(childNode, node, variables, assignedVariables);
+        }
+
+        // Some nodes (ie. hashes) keep expressions in attributes
+        for (Object attribute : node.getAttributes().values()) {
+            if (attribute instanceof Node) {
+                canUseLocals &= collectVariables((Node) attribute, node, variables, assignedVariables);
+            }
+        }
+
+        return canUseLocals;
+    }
+
+    /**
+     * Whether code other than the compiled code of the node itself might see or change the context when the node is
+     * rendered
+     *
+     * @param node The node (not its children)
+     *
+     * @return Whether the context is exposed
+     *
+     * @throws Twig4jRuntimeException If the node is missing attributes
+     */
+    public static boolean exposesContext(Node node) throws Twig4jRuntimeException {
+        // Extension nodes might compile to anything using the context
+        return !node.getClass().getName().startsWith("org.twig4j.core.syntax.parser.node.")
+            || node instanceof BlockReference
+            || node instanceof BlockReferenceExpression
+            || node instanceof Parent
+            || node instanceof Include
+            || (node.hasAttribute("needs_context") && Boolean.TRUE.equals(node.getAttribute("needs_context")));
+    }
+
+    private static boolean isLoopAttribute(Node name, Node parentNode) throws Twig4jRuntimeException {
+        return parentNode instanceof GetAttr
+            && parentNode.getNode(0) == name
+            && parentNode.getNode(1) instanceof Constant
+            && !"parent".equals(parentNode.getNode(1).getAttribute("data"));
+    }
+
+    private static boolean addVariable(String name, java.util.Set<String> variables) {
+        if (INTERNAL_VARIABLES.contains(name) || name.isEmpty()) {
+            return false;
+        }
+
+        for (char character : name.toCharArray()) {
+            if (!Character.isJavaIdentifierPart(character)) {
+                return false;
+            }
+        }
+
+        variables.add(name);
+
+        return true;
+    }
+
+    /**
+     * Whether a variable is kept in a local variable
+     *
+     * @param name The variable name
+     *
+     * @return Whether it's local
+     */
+    public boolean isLocal(String name) {
+        return variables.contains(name);
+    }
+
+    /**
+     * Get the name of the java local variable holding the value of a variable
+     *
+     * @param name The variable name
+     *
+     * @return The java variable name
+     */
+    public static String getValueVariable(String name) {
+        return "var_" + name;
+    }
+
+    /**
+     * Get the name of the java local variable telling whether a variable is defined (the context contains it)
+     *
+     * @param name The variable name
+     *
+     * @return The java variable name
+     */
+    public static String getDefinedVariable(String name) {
+        return "defined_" + name;
+    }
+
+    /**
+     * Get the variables kept in local variables
+     *
+     * @return The variable names
+     */
+    public java.util.Set<String> getVariables() {
+        return variables;
+    }
+
+    /**
+     * Get the local variables that are set in the method (and written back to the context when it returns)
+     *
+     * @return The variable names
+     */
+    public java.util.Set<String> getAssignedVariables() {
+        return assignedVariables;
+    }
+}
@@ -0,0 +1,205 @@
+package org.twig4j.core.compiler.bytecode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes a class file with a set of fields (without initial values) and methods.
+ *
+ * The class file version is 49 (Java 5), the latest version that doesn't require stack map frames, so no control flow
+ * analysis is needed when writing the code. Classes with invokedynamic call sites are version 51 (Java 7), which is
+ * fine as long as the code is straight line code, since stack map frames are only needed where jumps go.
+ */
+public class ClassFileWriter {
+    private static final int MAGIC = 0xcafebabe;
+    private static final int MAJOR_VERSION = 49;
+    private static final int INVOKEDYNAMIC_MAJOR_VERSION = 51;
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_SUPER = 0x0020;
+
+    private ConstantPool constantPool = new ConstantPool();
+    private String internalName;
+    private String superInternalName;
+    private List<Field> fields = new ArrayList<>();
+    private List<MethodWriter> methods = new ArrayList<>();
+    private List<int[]> bootstrapMethods = new ArrayList<>();
+
+    /**
+     * @param className The name of the class INCLUDING package name
+     * @param superClassName The name of the super class INCLUDING package name
+     */
+    public ClassFileWriter(String className, String superClassName) {
+        this.internalName = className.replace('.', '/');
+        this.superInternalName = superClassName.replace('.', '/');
+    }
+
+    /**
+     * Add a field
+     *
+     * @param access The access flags (MethodWriter.ACC_*)
+     * @param name The field name
+     * @param descriptor The field descriptor
+     *
+     * @return this
+     */
+    public ClassFileWriter addField(int access, String name, String descriptor) {
+        fields.add(new Field(access, constantPool.utf8(name), constantPool.utf8(descriptor)));
+
+        return this;
+    }
+
+    /**
+     * Add a method
+     *
+     * @param access The access flags (MethodWriter.ACC_*)
+     * @param name The method name
+     * @param descriptor The method descriptor
+     * @param maxLocals The number of local variables (including this and the arguments)
+     *
+     * @return The method writer to write the code with
+     */
+    public MethodWriter addMethod(int access, String name, String descriptor, int maxLocals) {
+        MethodWriter method = new MethodWriter(constantPool, access, name, descriptor, maxLocals);
+        methods.add(method);
+
+        return method;
+    }
+
+    /**
+     * Add a bootstrap method of invokedynamic call sites
+     *
+     * @param methodHandle The index of the method handle constant of the bootstrap method
+     * @param arguments The indexes of the constants passed to the bootstrap method
+     *
+     * @return The index of the bootstrap method (see {@link ConstantPool#invokeDynamic(int, String, String)})
+     */
+    public int addBootstrapMethod(int methodHandle, int... arguments) {
+        int[] bootstrapMethod = new int[arguments.length + 1];
+        bootstrapMethod[0] = methodHandle;
+        System.arraycopy(arguments, 0, bootstrapMethod, 1, arguments.length);
+
+        for (int i = 0; i < bootstrapMethods.size(); i++) {
+            if (Arrays.equals(bootstrapMethods.get(i), bootstrapMethod)) {
+                return i;
+            }
+        }
+
+        bootstrapMethods.add(bootstrapMethod);
+
+        return bootstrapMethods.size() - 1;
+    }
+
+    /**
+     * Get the constant pool of the class
+     *
+     * @return The constant pool
+     */
+    public ConstantPool getConstantPool() {
+        return constantPool;
+    }
+
+    /**
+     * Get the class file
+     *
+     * @return The class file
+     */
+    public byte[] toByteArray() {
+        try {
+            // The methods are written first since they add to the constant pool
+            ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+            DataOutputStream methodOutput = new DataOutputStream(methodBytes);
+            for (MethodWriter method : methods) {
+                method.writeTo(methodOutput);
+            }
+            int thisClass = constantPool.classRef(internalName);
+            int superClass = constantPool.classRef(superInternalName);
+            int bootstrapMethodsName = bootstrapMethods.isEmpty() ? 0 : constantPool.utf8("BootstrapMethods");
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(bytes);
+            output.writeInt(MAGIC);
+            output.writeShort(0);
+            output.writeShort(bootstrapMethods.isEmpty() ? MAJOR_VERSION : INVOKEDYNAMIC_MAJOR_VERSION);
+            output.writeShort(constantPool.getCount());
+            output.write(constantPool.toByteArray());
+            output.writeShort(ACC_PUBLIC | ACC_SUPER);
+            output.writeShort(thisClass);
+            output.writeShort(superClass);
+            // No interfaces
+            output.writeShort(0);
+            output.writeShort(fields.size());
+            for (Field field : fields) {
+                output.writeShort(field.access);
+                output.writeShort(field.name);
+                output.writeShort(field.descriptor);
+                // No attributes
+                output.writeShort(0);
+            }
+            output.writeShort(methods.size());
+            methodBytes.writeTo(output);
+            writeBootstrapMethods(output, bootstrapMethodsName);
+            output.flush();
+
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            // Can't happen when writing to a byte array
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Write the attributes of the class, which is the BootstrapMethods attribute if there are invokedynamic call sites
+     */
+    private void writeBootstrapMethods(DataOutputStream output, int name) throws IOException {
+        if (bootstrapMethods.isEmpty()) {
+            output.writeShort(0);
+
+            return;
+        }
+
+        int length = 2;
+        for (int[] bootstrapMethod : bootstrapMethods) {
+            length += 2 + 2 * bootstrapMethod.length;
+        }
+
+        output.writeShort(1);
+        output.writeShort(name);
+        output.writeInt(length);
+        output.writeShort(bootstrapMethods.size());
+        for (int[] bootstrapMethod : bootstrapMethods) {
+            output.writeShort(bootstrapMethod[0]);
+            output.writeShort(bootstrapMethod.length - 1);
+            for (int i = 1; i < bootstrapMethod.length; i++) {
+                output.writeShort(bootstrapMethod[i]);
+            }
+        }
+    }
+
+    /**
+     * Get the internal name of the class (ie. org/twig4j/core/template/Template_abc_0)
+     *
+     * @return The internal name
+     */
+    public String getInternalName() {
+        return internalName;
+    }
+
+    /**
+     * A field_info structure (with indexes into the constant pool)
+     */
+    private static class Field {
+        private int access;
+        private int name;
+        private int descriptor;
+
+        private Field(int access, int name, int descriptor) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package org.twig4j.core.compiler.bytecode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The constant pool of a class file. Every constant is only added once.
+ */
+public class ConstantPool {
+    public static final int MAX_UTF8_LENGTH = 0xffff;
+
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int DOUBLE = 6;
+    private static final int CLASS = 7;
+    private static final int STRING = 8;
+    private static final int FIELD_REF = 9;
+    private static final int METHOD_REF = 10;
+    private static final int NAME_AND_TYPE = 12;
+    private static final int METHOD_HANDLE = 15;
+    private static final int INVOKE_DYNAMIC = 18;
+
+    /**
+     * The reference kind of method handles to static methods
+     */
+    public static final int REF_INVOKE_STATIC = 6;
+
+    private ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private DataOutputStream output = new DataOutputStream(bytes);
+    private Map<String, Integer> indexes = new HashMap<>();
+    // Index 0 is not used
+    private int count = 1;
+
+    /**
+     * Add an UTF-8 constant (class names, method names, descriptors etc.)
+     *
+     * @param value The value (at most 65535 bytes in modified UTF-8)
+     *
+     * @return The index of the constant
+     */
+    public int utf8(String value) {
+        Integer index = indexes.get("U" + value);
+
+        if (index == null) {
+            if (getUtf8Length(value) > MAX_UTF8_LENGTH) {
+                throw new IllegalArgumentException("Constant \"" + value.substring(0, 50) + "...\" is too long");
+            }
+
+            try {
+                output.writeByte(UTF8);
+                output.writeUTF(value);
+            } catch (IOException e) {
+                // Can't happen when writing to a byte array
+                throw new IllegalStateException(e);
+            }
+
+            index = add("U" + value, 1);
+        }
+
+        return index;
+    }
+
+    /**
+     * Get the length of a string in modified UTF-8 (the encoding of strings in class files)
+     *
+     * @param value The string
+     *
+     * @return The length in bytes
+     */
+    public static int getUtf8Length(String value) {
+        int length = 0;
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c >= 0x0001 && c <= 0x007f) {
+                length += 1;
+            } else if (c <= 0x07ff) {
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+
+        return length;
+    }
+
+    /**
+     * Add a class constant
+     *
+     * @param internalName The internal name of the class (ie. java/lang/String)
+     *
+     * @return The index of the constant
+     */
+    public int classRef(String internalName) {
+        Integer index = indexes.get("C" + internalName);
+
+        if (index == null) {
+            int nameIndex = utf8(internalName);
+            write(CLASS, nameIndex);
+            index = add("C" + internalName, 1);
+        }
+
+        return index;
+    }
+
+    /**
+     * Add a string constant
+     *
+     * @param value The string
+     *
+     * @return The index of the constant
+     */
+    public int string(String value) {
+        Integer index = indexes.get("S" + value);
+
+        if (index == null) {
+            int valueIndex = utf8(value);
+            write(STRING, valueIndex);
+            index = add("S" + value, 1);
+        }
+
+        return index;
+    }
+
+    /**
+     * Add an int constant
+     *
+     * @param value The int
+     *
+     * @return The index of the constant
+     */
+    public int integer(int value) {
+        Integer index = indexes.get("I" + value);
+
+        if (index == null) {
+            try {
+                output.writeByte(INTEGER);
+                output.writeInt(value);
+            } catch (IOException e) {
+                // Can't happen when writing to a byte array
+                throw new IllegalStateException(e);
+            }
+
+            index = add("I" + value, 1);
+        }
+
+        return index;
+    }
+
+    /**
+     * Add a double constant (which takes 2 entries in the pool)
+     *
+     * @param value The double
+     *
+     * @return The index of the constant
+     */
+    public int doubleValue(double value) {
+        String key = "D" + Double.doubleToRawLongBits(value);
+        Integer index = indexes.get(key);
+
+        if (index == null) {
+            try {
+                output.writeByte(DOUBLE);
+                output.writeDouble(value);
+            } catch (IOException e) {
+                // Can't happen when writing to a byte array
+                throw new IllegalStateException(e);
+            }
+
+            index = add(key, 2);
+        }
+
+        return index;
+    }
+
+    /**
+     * Add a field reference
+     *
+     * @param owner The internal name of the class owning the field
+     * @param name The field name
+     * @param descriptor The field descriptor
+     *
+     * @return The index of the constant
+     */
+    public int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(FIELD_REF, owner, name, descriptor);
+    }
+
+    /**
+     * Add a (non interface) method reference
+     *
+     * @param owner The internal name of the class owning the method
+     * @param name The method name
+     * @param descriptor The method descriptor
+     *
+     * @return The index of the constant
+     */
+    public int methodRef(String owner, String name, String descriptor) {
+        return memberRef(METHOD_REF, owner, name, descriptor);
+    }
+
+    /**
+     * Add a method handle
+     *
+     * @param referenceKind The kind of the method handle (ie. {@link #REF_INVOKE_STATIC})
+     * @param owner The internal name of the class owning the method
+     * @param name The method name
+     * @param descriptor The method descriptor
+     *
+     * @return The index of the constant
+     */
+    public int methodHandle(int referenceKind, String owner, String name, String descriptor) {
+        String key = "H" + referenceKind + owner + "." + name + descriptor;
+        Integer index = indexes.get(key);
+
+        if (index == null) {
+            int methodIndex = methodRef(owner, name, descriptor);
+
+            try {
+                output.writeByte(METHOD_HANDLE);
+                output.writeByte(referenceKind);
+                output.writeShort(methodIndex);
+            } catch (IOException e) {
+                // Can't happen when writing to a byte array
+                throw new IllegalStateException(e);
+            }
+
+            index = add(key, 1);
+        }
+
+        return index;
+    }
+
+    /**
+     * Add an invokedynamic call site
+     *
+     * @param bootstrapMethod The index of the bootstrap method in the BootstrapMethods attribute of the class
+     * @param name The name of the call site
+     * @param descriptor The method descriptor of the call site
+     *
+     * @return The index of the constant
+     */
+    public int invokeDynamic(int bootstrapMethod, String name, String descriptor) {
+        String key = "Y" + bootstrapMethod + "." + name + descriptor;
+        Integer index = indexes.get(key);
+
+        if (index == null) {
+            int nameAndTypeIndex = nameAndType(name, descriptor);
+            write(INVOKE_DYNAMIC, bootstrapMethod, nameAndTypeIndex);
+            index = add(key, 1);
+        }
+
+        return index;
+    }
+
+    /**
+     * Get the number of entries + 1 (as written in the class file)
+     *
+     * @return The count
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Get the entries as they are written in the class file
+     *
+     * @return The entries
+     */
+    public byte[] toByteArray() {
+        return bytes.toByteArray();
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        String key = tag + owner + "." + name + descriptor;
+        Integer index = indexes.get(key);
+
+        if (index == null) {
+            int classIndex = classRef(owner);
+            int nameAndTypeIndex = nameAndType(name, descriptor);
+            write(tag, classIndex, nameAndTypeIndex);
+            index = add(key, 1);
+        }
+
+        return index;
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        String key = "N" + name + descriptor;
+        Integer index = indexes.get(key);
+
+        if (index == null) {
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            write(NAME_AND_TYPE, nameIndex, descriptorIndex);
+            index = add(key, 1);
+        }
+
+        return index;
+    }
+
+    private void write(int tag, int... indexes) {
+        try {
+            output.writeByte(tag);
+            for (int index : indexes) {
+                output.writeShort(index);
+            }
+        } catch (IOException e) {
+            // Can't happen when writing to a byte array
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private int add(String key, int size) {
+        if (count + size > 0xffff) {
+            throw new IllegalArgumentException("Too many constants in class");
+        }
+
+        int index = count;
+        indexes.put(key, index);
+        count += size;
+
+        return index;
+    }
+}
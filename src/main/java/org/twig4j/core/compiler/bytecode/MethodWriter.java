@@ -0,0 +1,267 @@
+package org.twig4j.core.compiler.bytecode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Writes the code of a method, keeping track of the maximum stack size.
+ *
+ * Only straight line code is supported (no jumps), which is why the class files don't need stack map frames.
+ */
+public class MethodWriter {
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_PRIVATE = 0x0002;
+    public static final int ACC_PROTECTED = 0x0004;
+    public static final int ACC_STATIC = 0x0008;
+    public static final int ACC_FINAL = 0x0010;
+
+    private static final int ACONST_NULL = 0x01;
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC = 0x12;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int ALOAD = 0x19;
+    private static final int ASTORE = 0x3a;
+    private static final int AASTORE = 0x53;
+    private static final int POP = 0x57;
+    private static final int DUP = 0x59;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int GETSTATIC = 0xb2;
+    private static final int PUTSTATIC = 0xb3;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int INVOKEDYNAMIC = 0xba;
+    private static final int NEW = 0xbb;
+    private static final int ANEWARRAY = 0xbd;
+
+    private ConstantPool constantPool;
+    private int access;
+    private String name;
+    private String descriptor;
+    private ByteArrayOutputStream code = new ByteArrayOutputStream();
+    private int stackSize = 0;
+    private int maxStackSize = 0;
+    private int maxLocals;
+
+    /**
+     * @param constantPool The constant pool of the class
+     * @param access The access flags
+     * @param name The method name
+     * @param descriptor The method descriptor
+     * @param maxLocals The number of local variables (including this and the arguments)
+     */
+    public MethodWriter(ConstantPool constantPool, int access, String name, String descriptor, int maxLocals) {
+        this.constantPool = constantPool;
+        this.access = access;
+        this.name = name;
+        this.descriptor = descriptor;
+        this.maxLocals = maxLocals;
+    }
+
+    // The instructions, named after the JVM opcodes
+
+    public MethodWriter aconstNull() {
+        return op(ACONST_NULL, 1);
+    }
+
+    public MethodWriter pushInt(int value) {
+        if (value >= -1 && value <= 5) {
+            return op(ICONST_0 + value, 1);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            return op(BIPUSH, 1).u1(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            return op(SIPUSH, 1).u2(value);
+        }
+
+        return ldc(constantPool.integer(value));
+    }
+
+    public MethodWriter pushString(String value) {
+        return ldc(constantPool.string(value));
+    }
+
+    public MethodWriter pushDouble(double value) {
+        return op(LDC2_W, 2).u2(constantPool.doubleValue(value));
+    }
+
+    public MethodWriter aload(int index) {
+        return op(ALOAD, 1).u1(index);
+    }
+
+    public MethodWriter astore(int index) {
+        return op(ASTORE, -1).u1(index);
+    }
+
+    public MethodWriter aastore() {
+        return op(AASTORE, -3);
+    }
+
+    public MethodWriter pop() {
+        return op(POP, -1);
+    }
+
+    public MethodWriter dup() {
+        return op(DUP, 1);
+    }
+
+    public MethodWriter areturn() {
+        return op(ARETURN, -1);
+    }
+
+    public MethodWriter returnVoid() {
+        return op(RETURN, 0);
+    }
+
+    public MethodWriter getStatic(String owner, String name, String descriptor) {
+        return op(GETSTATIC, getSize(descriptor)).u2(constantPool.fieldRef(owner, name, descriptor));
+    }
+
+    public MethodWriter putStatic(String owner, String name, String descriptor) {
+        return op(PUTSTATIC, -getSize(descriptor)).u2(constantPool.fieldRef(owner, name, descriptor));
+    }
+
+    public MethodWriter putField(String owner, String name, String descriptor) {
+        return op(PUTFIELD, -1 - getSize(descriptor)).u2(constantPool.fieldRef(owner, name, descriptor));
+    }
+
+    public MethodWriter invokeVirtual(String owner, String name, String descriptor) {
+        return op(INVOKEVIRTUAL, getStackDelta(descriptor) - 1).u2(constantPool.methodRef(owner, name, descriptor));
+    }
+
+    public MethodWriter invokeSpecial(String owner, String name, String descriptor) {
+        return op(INVOKESPECIAL, getStackDelta(descriptor) - 1).u2(constantPool.methodRef(owner, name, descriptor));
+    }
+
+    public MethodWriter invokeStatic(String owner, String name, String descriptor) {
+        return op(INVOKESTATIC, getStackDelta(descriptor)).u2(constantPool.methodRef(owner, name, descriptor));
+    }
+
+    public MethodWriter invokeDynamic(int bootstrapMethod, String name, String descriptor) {
+        return op(INVOKEDYNAMIC, getStackDelta(descriptor)).u2(constantPool.invokeDynamic(bootstrapMethod, name, descriptor)).u2(0);
+    }
+
+    public MethodWriter newObject(String internalName) {
+        return op(NEW, 1).u2(constantPool.classRef(internalName));
+    }
+
+    public MethodWriter newArray(String internalName) {
+        return op(ANEWARRAY, 0).u2(constantPool.classRef(internalName));
+    }
+
+    /**
+     * Get the size of the code written so far
+     *
+     * @return The size in bytes
+     */
+    public int getCodeSize() {
+        return code.size();
+    }
+
+    /**
+     * Write the method (method_info structure) to a class file. This adds constants to the constant pool, so the
+     * constant pool must be written after the methods.
+     *
+     * @param output The class file
+     *
+     * @throws IOException If writing fails
+     */
+    public void writeTo(DataOutputStream output) throws IOException {
+        if (code.size() > 0xffff) {
+            throw new IllegalStateException("Method " + name + " is too large");
+        }
+
+        output.writeShort(access);
+        output.writeShort(constantPool.utf8(name));
+        output.writeShort(constantPool.utf8(descriptor));
+        // Only the Code attribute
+        output.writeShort(1);
+        output.writeShort(constantPool.utf8("Code"));
+        output.writeInt(2 + 2 + 4 + code.size() + 2 + 2);
+        output.writeShort(maxStackSize);
+        output.writeShort(maxLocals);
+        output.writeInt(code.size());
+        code.writeTo(output);
+        // No exception table and no attributes
+        output.writeShort(0);
+        output.writeShort(0);
+    }
+
+    private MethodWriter ldc(int index) {
+        if (index <= 0xff) {
+            return op(LDC, 1).u1(index);
+        }
+
+        return op(LDC_W, 1).u2(index);
+    }
+
+    private MethodWriter op(int opcode, int stackDelta) {
+        code.write(opcode);
+        stackSize += stackDelta;
+        maxStackSize = Math.max(maxStackSize, stackSize);
+
+        return this;
+    }
+
+    private MethodWriter u1(int value) {
+        code.write(value);
+
+        return this;
+    }
+
+    private MethodWriter u2(int value) {
+        code.write(value >> 8);
+        code.write(value);
+
+        return this;
+    }
+
+    /**
+     * The number of stack entries a method call adds (return value) minus the ones it removes (arguments)
+     */
+    private static int getStackDelta(String methodDescriptor) {
+        int argumentsSize = 0;
+        int i = 1;
+
+        while (methodDescriptor.charAt(i) != ')') {
+            char c = methodDescriptor.charAt(i);
+
+            if (c == 'L') {
+                argumentsSize++;
+                i = methodDescriptor.indexOf(';', i) + 1;
+            } else if (c == '[') {
+                // Skip all dimensions and the element type
+                while (methodDescriptor.charAt(i) == '[') {
+                    i++;
+                }
+                i = methodDescriptor.charAt(i) == 'L' ? methodDescriptor.indexOf(';', i) + 1 : i + 1;
+                argumentsSize++;
+            } else {
+                argumentsSize += getSize(String.valueOf(c));
+                i++;
+            }
+        }
+
+        return getSize(methodDescriptor.substring(i + 1)) - argumentsSize;
+    }
+
+    /**
+     * The number of stack entries a value of a type takes
+     */
+    private static int getSize(String descriptor) {
+        switch (descriptor.charAt(0)) {
+            case 'V':
+                return 0;
+            case 'J':
+            case 'D':
+                return 2;
+            default:
+                return 1;
+        }
+    }
+}
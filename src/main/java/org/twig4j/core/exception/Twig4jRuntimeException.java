@@ -87,6 +87,23 @@ public class Twig4jRuntimeException extends Twig4jException {
         return e;
     }
 
+    /**
+     * When reading an attribute of a loop that depends on its length (ie. `loop.length` or `loop.last`) while the length
+     * isn't known
+     *
+     * @param templateName The template name
+     * @param lineNumber The line number
+     *
+     * @return The exception
+     */
+    public static Twig4jRuntimeException loopLengthNotKnown(String templateName, Integer lineNumber) {
+        return new Twig4jRuntimeException(
+                "The loop length is not known as the loop has a condition or the sequence is not a collection",
+                templateName,
+                lineNumber
+        );
+    }
+
     /**
      * When trying to pop a state without a previous state
      *
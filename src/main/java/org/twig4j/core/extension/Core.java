@@ -2,6 +2,11 @@ package org.twig4j.core.extension;
 
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.filter.Filter;
+import org.twig4j.core.nodevisitor.ConstantFoldingNodeVisitor;
+import org.twig4j.core.nodevisitor.IncludeInliningNodeVisitor;
+import org.twig4j.core.nodevisitor.LoopVariableNodeVisitor;
+import org.twig4j.core.nodevisitor.NodeVisitor;
+import org.twig4j.core.nodevisitor.TextMergingNodeVisitor;
 import org.twig4j.core.syntax.operator.*;
 import org.twig4j.core.syntax.parser.tokenparser.*;
 import org.twig4j.core.syntax.parser.tokenparser.Set;
@@ -77,6 +82,17 @@ public class Core implements Extension {
         return filters;
     }
 
+    @Override
+    public List<NodeVisitor> getNodeVisitors() {
+        List<NodeVisitor> nodeVisitors = new ArrayList<>();
+        nodeVisitors.add(new IncludeInliningNodeVisitor());
+        nodeVisitors.add(new ConstantFoldingNodeVisitor());
+        nodeVisitors.add(new TextMergingNodeVisitor());
+        nodeVisitors.add(new LoopVariableNodeVisitor());
+
+        return nodeVisitors;
+    }
+
     @Override
     public String getName() {
         return "Twig Core";
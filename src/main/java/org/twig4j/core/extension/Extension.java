@@ -2,6 +2,7 @@ package org.twig4j.core.extension;
 
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.filter.Filter;
+import org.twig4j.core.nodevisitor.NodeVisitor;
 import org.twig4j.core.syntax.operator.Operator;
 import org.twig4j.core.syntax.parser.tokenparser.AbstractTokenParser;
 
@@ -39,6 +40,13 @@ public interface Extension {
      */
     public Map<String, Filter> getFilters() throws Twig4jRuntimeException;
 
+    /**
+     * Get the node visitors of this extension, which run over templates before they're compiled
+     *
+     * @return The node visitors
+     */
+    public List<NodeVisitor> getNodeVisitors();
+
     /**
      * Get the name of the extension
      *
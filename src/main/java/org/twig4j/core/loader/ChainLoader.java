@@ -32,7 +32,31 @@ public class ChainLoader implements Loader {
 
     @Override
     public String getCacheKey(String name) throws LoaderException {
-        return getSource(name);
+        for (Loader loader : loaders) {
+            try {
+                return loader.getCacheKey(name);
+            } catch (LoaderException e) {
+                // Just continue to the next loader
+            }
+        }
+
+        // No loader found any template
+        throw LoaderException.notDefined(name);
+    }
+
+    @Override
+    public String getFreshnessToken(String name) throws LoaderException {
+        for (Integer loaderIndex = 0; loaderIndex < loaders.size(); loaderIndex++) {
+            try {
+                // Include the loader index so a template moving between loaders isn't considered fresh
+                return loaderIndex + "|" + loaders.get(loaderIndex).getFreshnessToken(name);
+            } catch (LoaderException e) {
+                // Just continue to the next loader
+            }
+        }
+
+        // No loader found any template
+        throw LoaderException.notDefined(name);
     }
 
     public List<Loader> getLoaders() {
@@ -4,16 +4,22 @@ import org.twig4j.core.exception.LoaderException;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 public class FilesystemLoader implements Loader {
     private Map<String, List<String>> paths;
-    private Map<String, String> cache = new HashMap<>();
-    private Map<String, String> errorCache = new HashMap<>();
+    private Map<String, String> cache = new ConcurrentHashMap<>();
+    private Map<String, String> errorCache = new ConcurrentHashMap<>();
     private final String MAIN_NAMESPACE = "__main__";
+    // Whether to use path, modification time and size as cache key instead of the template source
+    private boolean metadataCacheKeys = false;
 
     public FilesystemLoader() {
         paths = new HashMap<>();
@@ -38,9 +44,71 @@ public class FilesystemLoader implements Loader {
 
     @Override
     public String getCacheKey(String name) throws LoaderException {
+        if (metadataCacheKeys) {
+            return getFreshnessToken(name);
+        }
+
         return getSource(name);
     }
 
+    /**
+     * Get a token based on the template path, modification time and size (without reading the template)
+     *
+     * @param name The name of the template
+     *
+     * @return The freshness token
+     *
+     * @throws LoaderException If the template does not exist or can't be read
+     */
+    @Override
+    public String getFreshnessToken(String name) throws LoaderException {
+        String path = findTemplate(name);
+
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(Paths.get(path), BasicFileAttributes.class);
+
+            return path + "|" + attributes.lastModifiedTime().toMillis() + "|" + attributes.size();
+        } catch (IOException e) {
+            LoaderException loaderException = new LoaderException(String.format("Error reading attributes of file \"%s\".", name));
+            loaderException.initCause(e);
+
+            throw loaderException;
+        }
+    }
+
+    /**
+     * Use the template path, modification time and size as cache key instead of the template source. This avoids
+     * reading (and hashing) the template source when resolving the template class, but also means that the compiled
+     * class names are different on every machine.
+     *
+     * @return this
+     */
+    public FilesystemLoader enableMetadataCacheKeys() {
+        metadataCacheKeys = true;
+
+        return this;
+    }
+
+    /**
+     * Use the template source as cache key (default)
+     *
+     * @return this
+     */
+    public FilesystemLoader disableMetadataCacheKeys() {
+        metadataCacheKeys = false;
+
+        return this;
+    }
+
+    /**
+     * Whether the template path, modification time and size is used as cache key instead of the template source
+     *
+     * @return Whether metadata cache keys are used
+     */
+    public boolean isMetadataCacheKeys() {
+        return metadataCacheKeys;
+    }
+
     /**
      * @see #findTemplate(String, boolean) - Defaults throwExceptionWhenNotFound to true
      */
@@ -306,6 +374,38 @@ public class FilesystemLoader implements Loader {
         return this;
     }
 
+    /**
+     * Get the names of all templates in all directory paths (ie. "foo/bar.twig" or "@namespace/foo/bar.twig")
+     *
+     * @return The template names
+     *
+     * @throws LoaderException If a directory can't be read
+     */
+    public SortedSet<String> getTemplateNames() throws LoaderException {
+        SortedSet<String> templateNames = new TreeSet<>();
+
+        for (Map.Entry<String, List<String>> namespace : paths.entrySet()) {
+            String prefix = namespace.getKey().equals(MAIN_NAMESPACE) ? "" : "@" + namespace.getKey() + "/";
+
+            for (String path : namespace.getValue()) {
+                Path directory = Paths.get(path);
+
+                try (Stream<Path> files = Files.walk(directory)) {
+                    files
+                        .filter(Files::isRegularFile)
+                        .forEach(file -> templateNames.add(prefix + normalizeName(directory.relativize(file).toString())));
+                } catch (IOException e) {
+                    LoaderException loaderException = new LoaderException(String.format("Error listing templates in directory \"%s\".", path));
+                    loaderException.initCause(e);
+
+                    throw loaderException;
+                }
+            }
+        }
+
+        return templateNames;
+    }
+
     /**
      * @return All namespaces
      */
@@ -27,4 +27,20 @@ public interface Loader {
      * @throws LoaderException If the template does not exist
      */
     public String getCacheKey(String name) throws LoaderException;
+
+    /**
+     * Gets a token that changes whenever the template changes, used to check whether an already resolved template is
+     * still fresh. Should be cheap to compute (ie. based on modification time and size rather than the source).
+     *
+     * Defaults to the cache key.
+     *
+     * @param name The name of the template
+     *
+     * @return The freshness token
+     *
+     * @throws LoaderException If the template does not exist
+     */
+    default String getFreshnessToken(String name) throws LoaderException {
+        return getCacheKey(name);
+    }
 }
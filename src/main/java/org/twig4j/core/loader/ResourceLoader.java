@@ -2,12 +2,21 @@ package org.twig4j.core.loader;
 
 import org.twig4j.core.exception.LoaderException;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Scanner;
 
 public class ResourceLoader implements Loader {
     ClassLoader classLoader;
+    // Whether to use the resource URL, modification time and size as cache key instead of the template source
+    private boolean metadataCacheKeys = false;
 
     public ResourceLoader(ClassLoader classLoader) {
         this.classLoader = classLoader;
@@ -37,6 +46,112 @@ public class ResourceLoader implements Loader {
 
     @Override
     public String getCacheKey(String name) throws LoaderException {
+        if (metadataCacheKeys) {
+            return getFreshnessToken(name);
+        }
+
         return getSource(name);
     }
+
+    /**
+     * Get a token based on the resource URL, modification time and size (without reading the template). Files and
+     * resources in jar files on the file system are only checked with the modification time and size of the file (of
+     * the jar file itself for resources in jars), other resources through their URL connection.
+     *
+     * @param name The name of the template
+     *
+     * @return The freshness token
+     *
+     * @throws LoaderException If the template does not exist
+     */
+    @Override
+    public String getFreshnessToken(String name) throws LoaderException {
+        URL url = classLoader.getResource(name);
+
+        if (url == null) {
+            throw LoaderException.notDefined(name);
+        }
+
+        try {
+            File file = getFile(url);
+
+            if (file != null) {
+                BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+
+                return url.toExternalForm() + "|" + attributes.lastModifiedTime().toMillis() + "|" + attributes.size();
+            }
+
+            URLConnection connection = url.openConnection();
+            // Don't keep resources open (or cached) just to check the modification time
+            connection.setUseCaches(false);
+
+            long lastModified = connection.getLastModified();
+            long contentLength = connection.getContentLengthLong();
+            try {
+                connection.getInputStream().close();
+            } catch (IOException e) {}
+
+            return url.toExternalForm() + "|" + lastModified + "|" + contentLength;
+        } catch (IOException e) {
+            LoaderException loaderException = new LoaderException(String.format("Error reading attributes of resource \"%s\".", name));
+            loaderException.initCause(e);
+
+            throw loaderException;
+        }
+    }
+
+    /**
+     * Get the file a resource is in: the file itself or the jar file it's in
+     *
+     * @return The file or null if it isn't on the file system
+     */
+    private File getFile(URL url) {
+        String location = url.toExternalForm();
+
+        // ie. jar:file:/path/to/templates.jar!/template.twig, which changes when the jar file does
+        if (url.getProtocol().equals("jar") && location.contains("!/")) {
+            location = location.substring("jar:".length(), location.indexOf("!/"));
+        }
+
+        if (!location.startsWith("file:")) {
+            return null;
+        }
+
+        try {
+            return new File(new URI(location));
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Use the resource URL, modification time and size as cache key instead of the template source
+     *
+     * @return this
+     */
+    public ResourceLoader enableMetadataCacheKeys() {
+        metadataCacheKeys = true;
+
+        return this;
+    }
+
+    /**
+     * Use the template source as cache key (default)
+     *
+     * @return this
+     */
+    public ResourceLoader disableMetadataCacheKeys() {
+        metadataCacheKeys = false;
+
+        return this;
+    }
+
+    /**
+     * Whether the resource URL, modification time and size is used as cache key instead of the template source
+     *
+     * @return Whether metadata cache keys are used
+     */
+    public boolean isMetadataCacheKeys() {
+        return metadataCacheKeys;
+    }
 }
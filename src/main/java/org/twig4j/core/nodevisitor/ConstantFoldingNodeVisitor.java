@@ -0,0 +1,161 @@
+package org.twig4j.core.nodevisitor;
+
+import org.twig4j.core.Environment;
+import org.twig4j.core.compiler.JavaTypes;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.syntax.parser.node.type.PrintExpression;
+import org.twig4j.core.syntax.parser.node.type.Text;
+import org.twig4j.core.syntax.parser.node.type.expression.Binary;
+import org.twig4j.core.syntax.parser.node.type.expression.BinaryRange;
+import org.twig4j.core.syntax.parser.node.type.expression.Constant;
+import org.twig4j.core.syntax.parser.node.type.expression.FoldedConstant;
+import org.twig4j.core.syntax.parser.node.type.expression.RangeConstant;
+import org.twig4j.core.syntax.parser.node.type.expression.StringConstant;
+import org.twig4j.core.syntax.parser.node.type.expression.Unary;
+import org.twig4j.core.template.Interpreter;
+import org.twig4j.core.util.Php;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Evaluates expressions with only constant operands when the template is compiled instead of on every render.
+ *
+ * Operators are evaluated by the {@link Interpreter}, which calls the same operator methods as the compiled code,
+ * and only if the interpreter can evaluate them exactly like the compiled code would (see
+ * {@link Node#isInterpretable(Environment)}). Expressions that fail (ie. 1 / 0) are left alone so they fail when
+ * rendered, like they did before. Arrays and hashes aren't folded themselves as every render gets a new (mutable)
+ * one, but their values are.
+ */
+public class ConstantFoldingNodeVisitor implements NodeVisitor {
+    /**
+     * The longest range that's folded, so huge ranges aren't kept in memory for as long as the template is
+     */
+    public static final int MAX_RANGE_LENGTH = 10000;
+
+    private static final String DEFAULT_TEMPLATE_BASE_CLASS = "org.twig4j.core.template.Template";
+
+    @Override
+    public Node enterNode(Node node, Environment environment) {
+        return node;
+    }
+
+    @Override
+    public Node leaveNode(Node node, Environment environment) throws Twig4jRuntimeException {
+        // Operands are visited first, so expressions like 60 * 60 * 24 fold completely
+        if (node instanceof BinaryRange) {
+            return foldRange((BinaryRange) node, environment);
+        }
+
+        if ((node instanceof Binary || node instanceof Unary) && hasConstantOperands(node) && node.isInterpretable(environment)) {
+            return fold(node, environment);
+        }
+
+        if (node instanceof PrintExpression) {
+            return foldPrint((PrintExpression) node, environment);
+        }
+
+        return node;
+    }
+
+    /**
+     * Replace an expression with its value
+     */
+    private Node fold(Node node, Environment environment) throws Twig4jRuntimeException {
+        Object value;
+        try {
+            value = new Interpreter(environment).evaluate(node);
+        } catch (Twig4jException | RuntimeException e) {
+            return node;
+        }
+
+        Class<?> javaType = JavaTypes.getJavaType(node, environment);
+
+        if (value instanceof String && javaType == String.class) {
+            return new StringConstant((String) value, node.getLine());
+        }
+
+        // Only values that can be written as java literals
+        if (value instanceof Integer || value instanceof Boolean || value instanceof String || (value instanceof Double && !((Double) value).isInfinite() && !((Double) value).isNaN())) {
+            return new FoldedConstant(value, javaType, node.getLine());
+        }
+
+        return node;
+    }
+
+    /**
+     * Replace a range of constants with the list it creates
+     */
+    private Node foldRange(BinaryRange node, Environment environment) throws Twig4jRuntimeException {
+        // Folded arithmetic has the type Number, which the compiled code doesn't compile with
+        if (!hasConstantOperands(node) || node.getLeftNode() instanceof FoldedConstant || node.getRightNode() instanceof FoldedConstant) {
+            return node;
+        }
+
+        Constant from = (Constant) node.getLeftNode();
+        Constant to = (Constant) node.getRightNode();
+        Interpreter interpreter = new Interpreter(environment);
+        Object fromValue = from.evaluate(interpreter);
+        Object toValue = to.evaluate(interpreter);
+        List<?> values;
+
+        // The compiled code only compiles with 2 integers or 2 strings
+        try {
+            if (fromValue instanceof Integer && toValue instanceof Integer && isFoldableRange((Integer) fromValue, (Integer) toValue)) {
+                values = Php.range((Integer) fromValue, (Integer) toValue);
+            } else if (fromValue instanceof String && toValue instanceof String) {
+                values = Php.range((String) fromValue, (String) toValue);
+            } else {
+                return node;
+            }
+        } catch (RuntimeException e) {
+            return node;
+        }
+
+        return new RangeConstant(from, to, Collections.unmodifiableList(values), node.getLine());
+    }
+
+    private boolean isFoldableRange(int from, int to) {
+        // Ranges ending at the edges of int never end
+        return Math.abs((long) to - from) < MAX_RANGE_LENGTH
+            && Math.max(from, to) < Integer.MAX_VALUE
+            && Math.min(from, to) > Integer.MIN_VALUE;
+    }
+
+    /**
+     * Replace printing a constant with the text it prints
+     */
+    private Node foldPrint(PrintExpression node, Environment environment) throws Twig4jRuntimeException {
+        Node expression = node.getExpression();
+
+        // Templates with another base class might print values differently
+        if (!(expression instanceof Constant) || !DEFAULT_TEMPLATE_BASE_CLASS.equals(environment.getTemplateBaseClass())) {
+            return node;
+        }
+
+        Object value = ((Constant) expression).evaluate(new Interpreter(environment));
+
+        if (value == null) {
+            return node;
+        }
+
+        return new Text(String.valueOf(value), node.getLine());
+    }
+
+    private boolean hasConstantOperands(Node node) {
+        for (Node operand : node.getNodes()) {
+            if (!(operand instanceof Constant)) {
+                return false;
+            }
+        }
+
+        return !node.getNodes().isEmpty();
+    }
+
+    @Override
+    public int getPriority() {
+        return 200;
+    }
+}
@@ -0,0 +1,164 @@
+package org.twig4j.core.nodevisitor;
+
+import org.twig4j.core.Environment;
+import org.twig4j.core.compiler.VariableScope;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.syntax.parser.node.Module;
+import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.syntax.parser.node.type.Body;
+import org.twig4j.core.syntax.parser.node.type.Include;
+import org.twig4j.core.syntax.parser.node.type.InlinedInclude;
+import org.twig4j.core.syntax.parser.node.type.PrintExpression;
+import org.twig4j.core.syntax.parser.node.type.Text;
+import org.twig4j.core.syntax.parser.node.type.control.ElseBody;
+import org.twig4j.core.syntax.parser.node.type.control.ElseIfBody;
+import org.twig4j.core.syntax.parser.node.type.control.IfBody;
+import org.twig4j.core.syntax.parser.node.type.control.IfStatement;
+import org.twig4j.core.syntax.parser.node.type.expression.Constant;
+import org.twig4j.core.syntax.parser.node.type.expression.Expression;
+import org.twig4j.core.syntax.parser.node.type.expression.Name;
+
+/**
+ * Compiles small included templates into the including template (ie. `{% include 'partial.twig' %}`), so they're
+ * rendered without loading the template and copying the context.
+ *
+ * Only includes with a constant name, without variables, `only` or `ignore missing` are inlined, of templates that
+ * are at most {@link #getMaxSize()} characters and only print text and expressions (optionally in if statements).
+ * As those can't change the context, it doesn't have to be copied for them. Templates with a parent, blocks, variables
+ * set, loops or anything else using the context are included as before.
+ *
+ * The compiled template keeps the class names of the inlined templates (see
+ * {@link org.twig4j.core.template.Template#getInlinedTemplates()}), so it's compiled again when one of them changes.
+ */
+public class IncludeInliningNodeVisitor implements NodeVisitor {
+    /**
+     * The maximum size (in characters) of the templates inlined by default
+     */
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    // Templates inlined into an inlined template would have to be checked for changes too
+    private static final ThreadLocal<Boolean> INLINING = new ThreadLocal<>();
+
+    private int maxSize;
+
+    public IncludeInliningNodeVisitor() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize The maximum size (in characters) of the templates to inline
+     */
+    public IncludeInliningNodeVisitor(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public Node enterNode(Node node, Environment environment) {
+        return node;
+    }
+
+    @Override
+    public Node leaveNode(Node node, Environment environment) throws Twig4jRuntimeException {
+        if (!(node instanceof Include) || !isInlinable((Include) node) || INLINING.get() != null) {
+            return node;
+        }
+
+        String name = (String) node.getNode(0).getAttribute("data");
+        Module module;
+        String className;
+
+        INLINING.set(true);
+        try {
+            // The class name first, so a template changing in between is compiled again the next time it's loaded
+            className = environment.getTemplateClass(name);
+            String source = environment.getLoader().getSource(name);
+
+            if (source.length() > maxSize) {
+                return node;
+            }
+
+            module = environment.parse(source, name);
+        } catch (Twig4jException e) {
+            // Included as before, so errors are thrown when (and if) the template is included
+            return node;
+        } finally {
+            INLINING.remove();
+        }
+
+        if (module.getParent() != null || (module.getBlocks() != null && !module.getBlocks().isEmpty()) || !isReadOnly(module.getBodyNode())) {
+            return node;
+        }
+
+        return new InlinedInclude(name, className, module.getBodyNode(), node.getLine());
+    }
+
+    /**
+     * Get the maximum size (in characters) of the templates to inline
+     *
+     * @return The maximum size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    private boolean isInlinable(Include include) throws Twig4jRuntimeException {
+        return include.getNode(0) instanceof Constant
+            && include.getNode(0).getAttribute("data") instanceof String
+            && include.getNode(1) == null
+            && !(Boolean) include.getAttribute("only")
+            && !(Boolean) include.getAttribute("ignore_missing");
+    }
+
+    /**
+     * Whether a node only prints text and expressions that don't change or expose the context
+     */
+    private boolean isReadOnly(Node node) throws Twig4jRuntimeException {
+        if (node == null) {
+            return true;
+        }
+
+        Class<?> nodeClass = node.getClass();
+        boolean isStatement = nodeClass == Node.class
+            || nodeClass == Body.class
+            || nodeClass == Text.class
+            || nodeClass == PrintExpression.class
+            || nodeClass == IfStatement.class
+            || nodeClass == IfBody.class
+            || nodeClass == ElseIfBody.class
+            || nodeClass == ElseBody.class;
+
+        if ((!isStatement && !(node instanceof Expression)) || VariableScope.exposesContext(node)) {
+            return false;
+        }
+
+        // The loop variable and the internal variables aren't the same in the including template
+        if (node instanceof Name) {
+            String name = String.valueOf(node.getAttribute("name"));
+
+            if (name.equals("loop") || name.startsWith("_")) {
+                return false;
+            }
+        }
+
+        for (Node childNode : node.getNodes()) {
+            if (!isReadOnly(childNode)) {
+                return false;
+            }
+        }
+
+        // Some nodes (ie. hashes) keep expressions in attributes
+        for (Object attribute : node.getAttributes().values()) {
+            if (attribute instanceof Node && !isReadOnly((Node) attribute)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int getPriority() {
+        return 100;
+    }
+}
@@ -0,0 +1,30 @@
+package org.twig4j.core.nodevisitor;
+
+import org.twig4j.core.Environment;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.syntax.parser.node.type.control.For;
+
+/**
+ * Removes the "loop" variable from for loops that don't use it, so the loop doesn't have to keep track of it
+ */
+public class LoopVariableNodeVisitor implements NodeVisitor {
+    @Override
+    public Node enterNode(Node node, Environment environment) {
+        return node;
+    }
+
+    @Override
+    public Node leaveNode(Node node, Environment environment) throws Twig4jRuntimeException {
+        if (node instanceof For) {
+            ((For) node).setWithLoop(((For) node).usesLoopVariable());
+        }
+
+        return node;
+    }
+
+    @Override
+    public int getPriority() {
+        return 255;
+    }
+}
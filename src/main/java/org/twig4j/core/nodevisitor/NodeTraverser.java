@@ -0,0 +1,104 @@
+package org.twig4j.core.nodevisitor;
+
+import org.twig4j.core.Environment;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.syntax.parser.node.Module;
+import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.syntax.parser.node.type.Block;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs node visitors over the node tree of a template, one visitor at a time
+ */
+public class NodeTraverser {
+    private Environment environment;
+    private List<NodeVisitor> visitors = new ArrayList<>();
+
+    /**
+     * @param environment The Twig environment
+     * @param visitors The visitors (in any order, they're sorted by priority)
+     */
+    public NodeTraverser(Environment environment, List<NodeVisitor> visitors) {
+        this.environment = environment;
+        this.visitors.addAll(visitors);
+        // The sort is stable, so visitors with the same priority run in the order they're added
+        this.visitors.sort(Comparator.comparingInt(NodeVisitor::getPriority));
+    }
+
+    /**
+     * Visit the body, blocks and parent of a template
+     *
+     * @param module The template
+     *
+     * @return The template
+     *
+     * @throws Twig4jRuntimeException On errors visiting
+     */
+    public Module traverse(Module module) throws Twig4jRuntimeException {
+        for (NodeVisitor visitor : visitors) {
+            module.setBodyNode(traverseForVisitor(visitor, module.getBodyNode()));
+
+            if (module.getParent() != null) {
+                module.setParent(traverseForVisitor(visitor, module.getParent()));
+            }
+
+            if (module.getBlocks() != null) {
+                for (Map.Entry<String, Block> block : module.getBlocks().entrySet()) {
+                    block.setValue((Block) traverseForVisitor(visitor, block.getValue()));
+                }
+            }
+        }
+
+        return module;
+    }
+
+    /**
+     * Visit a node and all its children
+     *
+     * @param node The node
+     *
+     * @return The node replacing the node
+     *
+     * @throws Twig4jRuntimeException On errors visiting
+     */
+    public Node traverse(Node node) throws Twig4jRuntimeException {
+        for (NodeVisitor visitor : visitors) {
+            node = traverseForVisitor(visitor, node);
+        }
+
+        return node;
+    }
+
+    protected Node traverseForVisitor(NodeVisitor visitor, Node node) throws Twig4jRuntimeException {
+        if (node == null) {
+            return null;
+        }
+
+        node = visitor.enterNode(node, environment);
+
+        List<Node> nodes = node.getNodes();
+        if (nodes != null) {
+            for (int i = 0; i < nodes.size(); i++) {
+                Node childNode = nodes.get(i);
+                Node newChildNode = traverseForVisitor(visitor, childNode);
+
+                if (newChildNode != childNode) {
+                    nodes.set(i, newChildNode);
+                }
+            }
+        }
+
+        // Some nodes (ie. hashes) keep expressions in attributes
+        for (Map.Entry<String, Object> attribute : node.getAttributes().entrySet()) {
+            if (attribute.getValue() instanceof Node) {
+                attribute.setValue(traverseForVisitor(visitor, (Node) attribute.getValue()));
+            }
+        }
+
+        return visitor.leaveNode(node, environment);
+    }
+}
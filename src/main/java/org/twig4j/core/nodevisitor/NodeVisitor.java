@@ -0,0 +1,44 @@
+package org.twig4j.core.nodevisitor;
+
+import org.twig4j.core.Environment;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.syntax.parser.node.Node;
+
+/**
+ * Visits (and might modify or replace) the nodes of a parsed template before it's compiled. Visitors are registered
+ * with extensions (see {@link org.twig4j.core.extension.Extension#getNodeVisitors()}) and run by the
+ * {@link NodeTraverser} one at a time, in order of priority.
+ */
+public interface NodeVisitor {
+    /**
+     * Called before the child nodes of a node are visited
+     *
+     * @param node The node
+     * @param environment The Twig environment
+     *
+     * @return The node to visit the child nodes of, which replaces the node (return the node itself to keep it)
+     *
+     * @throws Twig4jRuntimeException On errors visiting
+     */
+    public Node enterNode(Node node, Environment environment) throws Twig4jRuntimeException;
+
+    /**
+     * Called after the child nodes of a node are visited
+     *
+     * @param node The node
+     * @param environment The Twig environment
+     *
+     * @return The node replacing the node (return the node itself to keep it)
+     *
+     * @throws Twig4jRuntimeException On errors visiting
+     */
+    public Node leaveNode(Node node, Environment environment) throws Twig4jRuntimeException;
+
+    /**
+     * Get the priority of the visitor, visitors with a lower priority run first. Visitors of extensions should use
+     * priorities between -10 and 10 (0 if it doesn't matter), the optimizing visitors of the core run after those.
+     *
+     * @return The priority
+     */
+    public int getPriority();
+}
@@ -0,0 +1,96 @@
+package org.twig4j.core.nodevisitor;
+
+import org.twig4j.core.Environment;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.syntax.parser.node.type.Body;
+import org.twig4j.core.syntax.parser.node.type.Text;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Merges adjacent texts into one text node (and removes empty ones), so the compiled template writes one string
+ * instead of several. Lists of nodes nested in another list are flattened first, so texts are merged across them.
+ */
+public class TextMergingNodeVisitor implements NodeVisitor {
+    @Override
+    public Node enterNode(Node node, Environment environment) {
+        return node;
+    }
+
+    @Override
+    public Node leaveNode(Node node, Environment environment) throws Twig4jRuntimeException {
+        if (!isNodeList(node)) {
+            return node;
+        }
+
+        List<Node> nodes = new ArrayList<>();
+        boolean changed = false;
+
+        for (Node childNode : node.getNodes()) {
+            // The child lists are already merged
+            if (childNode != null && childNode.getClass() == Node.class) {
+                for (Node grandChildNode : childNode.getNodes()) {
+                    changed |= addNode(nodes, grandChildNode);
+                }
+                changed = true;
+            } else {
+                changed |= addNode(nodes, childNode);
+            }
+        }
+
+        if (changed) {
+            node.setNodes(nodes);
+        }
+
+        return node;
+    }
+
+    /**
+     * Add a node to a list of nodes, merging it with the last one if both are texts
+     *
+     * @return Whether the node was merged or removed
+     */
+    private boolean addNode(List<Node> nodes, Node node) throws Twig4jRuntimeException {
+        if (node == null) {
+            return true;
+        }
+
+        if (node.getClass() != Text.class) {
+            nodes.add(node);
+
+            return false;
+        }
+
+        String text = String.valueOf(node.getAttribute("data"));
+
+        if (text.isEmpty()) {
+            return true;
+        }
+
+        Node lastNode = nodes.isEmpty() ? null : nodes.get(nodes.size() - 1);
+
+        if (lastNode != null && lastNode.getClass() == Text.class) {
+            nodes.set(nodes.size() - 1, new Text(lastNode.getAttribute("data") + text, lastNode.getLine()));
+
+            return true;
+        }
+
+        nodes.add(node);
+
+        return false;
+    }
+
+    /**
+     * Whether a node just renders its child nodes one after the other
+     */
+    private boolean isNodeList(Node node) {
+        return node.getClass() == Node.class || node.getClass() == Body.class;
+    }
+
+    @Override
+    public int getPriority() {
+        return 250;
+    }
+}
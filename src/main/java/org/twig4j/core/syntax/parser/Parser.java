@@ -3,6 +3,7 @@ package org.twig4j.core.syntax.parser;
 import org.twig4j.core.Environment;
 import org.twig4j.core.exception.SyntaxErrorException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.nodevisitor.NodeTraverser;
 import org.twig4j.core.syntax.Token;
 import org.twig4j.core.syntax.TokenStream;
 import org.twig4j.core.syntax.parser.node.Module;
@@ -54,8 +55,6 @@ public class Parser {
         this.handlers.putAll(environment.getTokenParsers());
         this.handlers.forEach((String key, AbstractTokenParser tokenParser) -> tokenParser.setParser(this));
 
-        // TODO: Create node visitors
-
         this.tokenStream = tokenStream;
         this.parent = null;
         this.blocks = new HashMap<>();
@@ -88,7 +87,7 @@ public class Parser {
 
         Module node = new Module(body, parent, this.blocks, tokenStream.getFilename());
 
-        return node;
+        return new NodeTraverser(environment, environment.getEnabledNodeVisitors()).traverse(node);
     }
 
     /**
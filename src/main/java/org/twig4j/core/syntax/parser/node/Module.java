@@ -1,20 +1,25 @@
 package org.twig4j.core.syntax.parser.node;
 
+import org.twig4j.core.Environment;
+import org.twig4j.core.compiler.BytecodeCompiler;
 import org.twig4j.core.compiler.ClassCompiler;
 import org.twig4j.core.compiler.Compilable;
+import org.twig4j.core.compiler.JavaTypes;
 import org.twig4j.core.exception.LoaderException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.type.Block;
 import org.twig4j.core.syntax.parser.node.type.expression.Constant;
+import org.twig4j.core.template.Interpretable;
 
 import java.util.Map;
 
-public class Module implements Compilable {
+public class Module implements Compilable, Interpretable {
     protected Node bodyNode;
     protected Node parent;
     protected Map<String, Block> blocks;
 
     protected String fileName = "";
+    protected String className;
 
     public Module(Node bodyNode) {
         this.bodyNode = bodyNode;
@@ -29,7 +34,8 @@ public class Module implements Compilable {
 
     @Override
     public void compile(ClassCompiler compiler) throws LoaderException, Twig4jRuntimeException {
-        String className = compiler.getEnvironment().getTemplateClass(this.fileName);
+        // Resolving the class name asks the loader for the cache key, which might read the template again
+        String className = this.className != null ? this.className : compiler.getEnvironment().getTemplateClass(this.fileName);
 
         compileClassHeader(compiler, className);
 
@@ -42,6 +48,32 @@ public class Module implements Compilable {
         compileClassFooter(compiler);
     }
 
+    @Override
+    public boolean compileBytecode(BytecodeCompiler compiler) throws LoaderException, Twig4jRuntimeException {
+        // Only the display method is compiled to bytecode so far, templates with a parent or blocks need javac
+        if (parent != null || (blocks != null && !blocks.isEmpty())) {
+            return false;
+        }
+
+        return compiler.subCompile(getBodyNode());
+    }
+
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        // The compiled constructor needs the blocks, and only constant parent template names are compiled
+        if (blocks == null || (parent != null && (!(parent instanceof Constant) || JavaTypes.getJavaType(parent, environment) != String.class))) {
+            return false;
+        }
+
+        for (Block block : blocks.values()) {
+            if (!block.isInterpretable(environment)) {
+                return false;
+            }
+        }
+
+        return bodyNode.isInterpretable(environment);
+    }
+
     protected void compileClassHeader(ClassCompiler compiler, String className) throws LoaderException {
         String baseClass = compiler.getEnvironment().getTemplateBaseClass();
 
@@ -68,7 +100,7 @@ public class Module implements Compilable {
                 .indent();
 
             for (Map.Entry block : blocks.entrySet()) {
-                compiler.writeLine("blocks.put(\"" + block.getKey() + "\", new TemplateBlockMethodSet(this, this.getClass().getMethod(\"block_" + block.getKey() + "\", Context.class, java.util.Map.class)));");
+                compiler.writeLine("blocks.put(\"" + block.getKey() + "\", new TemplateBlockMethodSet(this, this.getClass().getMethod(\"block_" + block.getKey() + "\", Context.class, java.util.Map.class, org.twig4j.core.template.TemplateOutput.class)));");
             }
 
             compiler
@@ -86,6 +118,10 @@ public class Module implements Compilable {
 
     protected void compileClassFooter(ClassCompiler compiler) {
         compiler
+                .writeInlinedTemplates()
+                .writePrivateMethods()
+                .writeTextConstants()
+                .writeStaticConstants()
                 .writeLine("public String getTemplateName() {")
                 .indent()
                     .write("return ")
@@ -99,7 +135,7 @@ public class Module implements Compilable {
 
     protected void compileDisplay(ClassCompiler compiler) throws LoaderException, Twig4jRuntimeException {
         compiler
-                .writeLine("protected String doDisplay(Context context, java.util.Map<String, TemplateBlockMethodSet> blocks) throws Twig4jException {")
+                .writeLine("protected void doDisplay(Context context, java.util.Map<String, TemplateBlockMethodSet> blocks, org.twig4j.core.template.TemplateOutput output) throws Twig4jException {")
                     .indent();
 
         if (parent != null) {
@@ -110,12 +146,16 @@ public class Module implements Compilable {
                 .writeRaw(", \"" + getFileName() + "\", 1, null);\n\n");
         }
 
-        compiler
-                    .writeLine("java.util.Map<String, Object> tmpForParent;")
-                    .writeLine("StringBuilder output = new StringBuilder();");
-
-        compiler
+        // Child templates hand the context over to the parent template, so they keep the variables there
+        if (parent == null) {
+            compiler
+                    .enterVariableScope(this.getBodyNode())
+                    .subCompile(this.getBodyNode())
+                    .leaveVariableScope();
+        } else {
+            compiler
                     .subCompile(this.getBodyNode());
+        }
 
         if (parent != null) {
             compiler.addDebugInfo(parent);
@@ -124,7 +164,7 @@ public class Module implements Compilable {
                     .writeLine("java.util.Map<String, TemplateBlockMethodSet> mergedBlocks = new java.util.HashMap<>();")
                     .writeLine("mergedBlocks.putAll(this.blocks);")
                     .writeLine("mergedBlocks.putAll(blocks);")
-                    .writeLine("output.append(parent.display(context, mergedBlocks));");
+                    .writeLine("parent.display(context, mergedBlocks, output);");
             } else {
                 // TODO
                 throw new RuntimeException("not implemented yet");
@@ -132,7 +172,6 @@ public class Module implements Compilable {
         }
 
         compiler
-                .writeLine("return output.toString();")
             .unIndent()
             .writeLine("}");
     }
@@ -180,4 +219,25 @@ public class Module implements Compilable {
     public void setFileName(String fileName) {
         this.fileName = fileName;
     }
+
+    /**
+     * Get the class name the template is compiled to, if it's known already
+     *
+     * @return The class name (without package) or null if it's resolved when compiling
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Set the class name the template is compiled to
+     *
+     * @param className The class name (without package)
+     *
+     * @return this
+     */
+    public Module setClassName(String className) {
+        this.className = className;
+        return this;
+    }
 }
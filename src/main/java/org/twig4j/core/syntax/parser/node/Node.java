@@ -1,17 +1,22 @@
 package org.twig4j.core.syntax.parser.node;
 
+import org.twig4j.core.Environment;
+import org.twig4j.core.compiler.BytecodeCompiler;
 import org.twig4j.core.compiler.ClassCompiler;
 import org.twig4j.core.compiler.Compilable;
 import org.twig4j.core.compiler.LineAware;
 import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.template.Interpretable;
+import org.twig4j.core.template.Interpreter;
 
 import java.util.*;
 
 /**
  * Represents something in the AST.
  */
-public class Node implements Compilable, LineAware {
+public class Node implements Compilable, Interpretable, LineAware {
     // The nodes belonging to this node
     protected List<Node> nodes;
     // The attributes belonging to this node
@@ -45,6 +50,86 @@ public class Node implements Compilable, LineAware {
         }
     }
 
+    /**
+     * Compiles the node to bytecode. Only plain lists of nodes are compiled by compiling the child nodes, subclasses
+     * with their own code have to compile themselves.
+     *
+     * @param compiler The compiler
+     *
+     * @return Whether the node could be compiled to bytecode
+     */
+    @Override
+    public boolean compileBytecode(BytecodeCompiler compiler) throws LoaderException, Twig4jRuntimeException {
+        if (getClass() != Node.class) {
+            return false;
+        }
+
+        return compileNodesBytecode(compiler);
+    }
+
+    /**
+     * Compiles all child nodes to bytecode
+     *
+     * @param compiler The compiler
+     *
+     * @return Whether all child nodes could be compiled to bytecode
+     */
+    protected boolean compileNodesBytecode(BytecodeCompiler compiler) throws LoaderException, Twig4jRuntimeException {
+        for (Node node : nodes) {
+            if (!compiler.subCompile(node)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Whether the node can be interpreted. Like with bytecode, only plain lists of nodes are interpretable by default,
+     * subclasses with their own code have to interpret themselves.
+     *
+     * @param environment The Twig environment
+     *
+     * @return Whether the node can be interpreted
+     */
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        if (getClass() != Node.class) {
+            return false;
+        }
+
+        return areNodesInterpretable(environment);
+    }
+
+    /**
+     * Whether all child nodes can be interpreted
+     *
+     * @param environment The Twig environment
+     *
+     * @return Whether all child nodes can be interpreted
+     */
+    protected boolean areNodesInterpretable(Environment environment) throws Twig4jRuntimeException {
+        for (Node node : nodes) {
+            if (!node.isInterpretable(environment)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Interprets all child nodes
+     *
+     * @param interpreter The interpreter
+     */
+    @Override
+    public void display(Interpreter interpreter) throws Twig4jException {
+        for (Node node : nodes) {
+            interpreter.display(node);
+        }
+    }
+
     /**
      * Set an attribute
      *
@@ -91,6 +176,15 @@ public class Node implements Compilable, LineAware {
         attributes.remove(name);
     }
 
+    /**
+     * Get all attributes
+     *
+     * @return The attributes by name
+     */
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
     /**
      * Add a node at a specific index
      *
@@ -147,6 +241,15 @@ public class Node implements Compilable, LineAware {
         return nodes;
     }
 
+    /**
+     * Replace all child nodes
+     *
+     * @param nodes The new child nodes
+     */
+    public void setNodes(List<Node> nodes) {
+        this.nodes = nodes;
+    }
+
     /**
      * Removes a node by its index
      *
@@ -1,5 +1,6 @@
 package org.twig4j.core.syntax.parser.node.type;
 
+import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.ClassCompiler;
 import org.twig4j.core.exception.LoaderException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
@@ -18,13 +19,17 @@ public class Block extends Node {
     public void compile(ClassCompiler compiler) throws LoaderException, Twig4jRuntimeException {
         compiler
             .addDebugInfo(this)
-            .writeLine("public String block_" + getAttribute("name") + "(Context context, java.util.Map<String, TemplateBlockMethodSet> blocks) throws Twig4jException {")
+            .writeLine("public void block_" + getAttribute("name") + "(Context context, java.util.Map<String, TemplateBlockMethodSet> blocks, org.twig4j.core.template.TemplateOutput output) throws Twig4jException {")
             .indent()
-                .writeLine("java.util.Map<String, Object> tmpForParent;")
-                .writeLine("StringBuilder output = new StringBuilder();")
+                .enterVariableScope(getNode(0))
                 .subCompile(getNode(0))
-                .writeLine("return output.toString();")
+                .leaveVariableScope()
             .unIndent()
             .writeLine("}\n");
     }
+
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        return getNode(0).isInterpretable(environment);
+    }
 }
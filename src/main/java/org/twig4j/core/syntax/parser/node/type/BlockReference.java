@@ -1,10 +1,13 @@
 package org.twig4j.core.syntax.parser.node.type;
 
+import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.ClassCompiler;
 import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Node;
 import org.twig4j.core.syntax.parser.node.Output;
+import org.twig4j.core.template.Interpreter;
 
 public class BlockReference extends Node implements Output {
     public BlockReference(String name, Integer line, String tag) {
@@ -18,6 +21,16 @@ public class BlockReference extends Node implements Output {
     public void compile(ClassCompiler compiler) throws LoaderException, Twig4jRuntimeException {
         compiler
             .addDebugInfo(this)
-            .writeLine("output.append(displayBlock(\"" + getAttribute("name") + "\", context, blocks, true));");
+            .writeLine("displayBlock(\"" + getAttribute("name") + "\", context, blocks, true, output);");
+    }
+
+    @Override
+    public boolean isInterpretable(Environment environment) {
+        return true;
+    }
+
+    @Override
+    public void display(Interpreter interpreter) throws Twig4jException {
+        interpreter.displayBlock(String.valueOf(getAttribute("name")));
     }
 }
@@ -1,5 +1,9 @@
 package org.twig4j.core.syntax.parser.node.type;
 
+import org.twig4j.core.Environment;
+import org.twig4j.core.compiler.BytecodeCompiler;
+import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Node;
 
 import java.util.ArrayList;
@@ -13,4 +17,14 @@ public class Body extends Node {
     public Body(Integer line) {
         super(line);
     }
+
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        return areNodesInterpretable(environment);
+    }
+
+    @Override
+    public boolean compileBytecode(BytecodeCompiler compiler) throws LoaderException, Twig4jRuntimeException {
+        return compileNodesBytecode(compiler);
+    }
 }
@@ -1,12 +1,19 @@
 package org.twig4j.core.syntax.parser.node.type;
 
+import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.ClassCompiler;
+import org.twig4j.core.compiler.JavaTypes;
 import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Node;
 import org.twig4j.core.syntax.parser.node.Output;
+import org.twig4j.core.syntax.parser.node.type.expression.Constant;
+import org.twig4j.core.template.Context;
+import org.twig4j.core.template.Interpreter;
 
 import java.util.Arrays;
+import java.util.Map;
 
 public class Include extends Node implements Output {
     /**
@@ -37,45 +44,46 @@ public class Include extends Node implements Output {
                 .indent();
         }
 
+        // Load the template, only once if the name is constant
+        if (getNode(0) instanceof Constant && getNode(0).getAttribute("data") instanceof String) {
+            String target = compiler.getStaticConstant(
+                    "org.twig4j.core.template.IncludeTarget",
+                    "new org.twig4j.core.template.IncludeTarget(\"" + compiler.escapeString((String) getNode(0).getAttribute("data")) + "\")"
+            );
 
-        if ((Boolean)getAttribute("only")) {
             compiler
-                .writeLine("context.put(\"_include_context\", new org.twig4j.core.template.Context());");
+                .write("loadTemplate(" + target + ", ")
+                .representValue(getLine())
+                .writeRaw(")");
         } else {
-            compiler.writeLine("context.put(\"_include_context\", context.clone());");
+            compiler
+                .write("loadTemplate(")
+                .subCompile(getNode(0)) // expr/template name
+                .writeRaw(", ")
+                .representValue(null)
+                .writeRaw(", ")
+                .representValue(getLine())
+                .writeRaw(", ")
+                .representValue(null)
+                .writeRaw(")");
+        }
+
+        // The included template gets a frame on top of the context (or an empty one), so nothing is copied
+        compiler.writeRaw(".render(");
+
+        if ((Boolean) getAttribute("only")) {
+            compiler.writeRaw("new org.twig4j.core.template.Context(");
+        } else {
+            compiler.writeRaw("context.pushFrame(");
         }
 
         if (getNode(1) != null) {
             compiler
-                .write("((org.twig4j.core.template.Context)context.get(\"_include_context\")).putAll(")
                 .writeRaw("(java.util.Map<String, Object>)")
-                .subCompile(getNode(1)) // Variables
-                .writeRaw(");\n");
+                .subCompile(getNode(1)); // Variables
         }
 
-
-        compiler.write("output.append(");
-
-        // Load the template
-        compiler
-            .writeRaw("loadTemplate(")
-            .subCompile(getNode(0)) // expr/template name
-            .writeRaw(", ")
-            .representValue(null)
-            .writeRaw(", ")
-            .representValue(getLine())
-            .writeRaw(", ")
-            .representValue(null)
-            .writeRaw(")");
-
-        compiler
-            .writeRaw(".render(")
-            .writeRaw("((org.twig4j.core.template.Context)context.get(\"_include_context\"))")
-            .writeRaw(")");
-
-        compiler.writeRaw(");\n");
-
-        compiler.writeLine("context.remove(\"_include_context\");");
+        compiler.writeRaw("), output);\n");
 
         if ((Boolean) getAttribute("ignore_missing")) {
             compiler
@@ -87,4 +95,45 @@ public class Include extends Node implements Output {
                 .writeLine("}");
         }
     }
+
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        // The template name is passed to loadTemplate(String ...) and the variables are cast to a map
+        if (JavaTypes.getJavaType(getNode(0), environment) != String.class || !getNode(0).isInterpretable(environment)) {
+            return false;
+        }
+
+        if (getNode(1) == null) {
+            return true;
+        }
+
+        Class<?> variablesType = JavaTypes.getJavaType(getNode(1), environment);
+
+        return (variablesType == Object.class || (variablesType != null && Map.class.isAssignableFrom(variablesType)))
+                && getNode(1).isInterpretable(environment);
+    }
+
+    @Override
+    public void display(Interpreter interpreter) throws Twig4jException {
+        Context context = interpreter.getContext();
+
+        try {
+            Context includeContext = (Boolean) getAttribute("only") ? new Context() : context.pushFrame();
+
+            if (getNode(1) != null) {
+                // The variables are a hash, so the keys are strings
+                @SuppressWarnings("unchecked")
+                Map<String, Object> variables = (Map<String, Object>) interpreter.evaluate(getNode(1));
+                includeContext.putAll(variables);
+            }
+
+            interpreter
+                .loadTemplate((String) interpreter.evaluate(getNode(0)), getLine())
+                .render(includeContext, interpreter.getOutput());
+        } catch (Twig4jException e) {
+            if (!(Boolean) getAttribute("ignore_missing")) {
+                throw e;
+            }
+        }
+    }
 }
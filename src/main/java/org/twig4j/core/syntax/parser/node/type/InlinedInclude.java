@@ -0,0 +1,71 @@
+package org.twig4j.core.syntax.parser.node.type;
+
+import org.twig4j.core.Environment;
+import org.twig4j.core.compiler.ClassCompiler;
+import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.syntax.parser.node.Output;
+import org.twig4j.core.template.Interpreter;
+
+/**
+ * The body of an included template compiled into the including template (see
+ * {@link org.twig4j.core.nodevisitor.IncludeInliningNodeVisitor}). Errors are still reported in the included template.
+ */
+public class InlinedInclude extends Node implements Output {
+    /**
+     * @param templateName The name of the included template
+     * @param templateClass The class name of the included template when it was inlined
+     * @param body The body of the included template
+     * @param lineNumber The line of the include
+     */
+    public InlinedInclude(String templateName, String templateClass, Node body, Integer lineNumber) {
+        super(lineNumber);
+        addNode(body);
+        putAttribute("template", templateName);
+        putAttribute("template_class", templateClass);
+    }
+
+    @Override
+    public void compile(ClassCompiler compiler) throws LoaderException, Twig4jRuntimeException {
+        String templateName = String.valueOf(getAttribute("template"));
+
+        compiler
+            .addDebugInfo(this)
+            .addInlinedTemplate(templateName, String.valueOf(getAttribute("template_class")))
+            .writeLine("try {")
+            .subCompile(getNode(0))
+            // Rethrown as is, so only the exceptions the body throws have to be declared
+            .writeLine("} catch (Exception e) {")
+            .indent()
+                .writeLine("if (e instanceof Twig4jException) {")
+                .indent()
+                    .write("reportInInlinedTemplate((Twig4jException) e, ")
+                    .writeString(templateName)
+                    .writeRaw(");\n")
+                .unIndent()
+                .writeLine("}\n")
+                .writeLine("throw e;")
+            .unIndent()
+            .writeLine("}");
+    }
+
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        return areNodesInterpretable(environment);
+    }
+
+    @Override
+    public void display(Interpreter interpreter) throws Twig4jException {
+        try {
+            interpreter.display(getNode(0));
+        } catch (Twig4jException e) {
+            if (e.getTemplateName() == null || e.getTemplateName().equals(interpreter.getTemplate().getTemplateName())) {
+                e.setTemplateName(String.valueOf(getAttribute("template")));
+            }
+
+            throw e;
+        }
+    }
+}
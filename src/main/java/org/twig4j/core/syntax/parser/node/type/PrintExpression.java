@@ -1,10 +1,16 @@
 package org.twig4j.core.syntax.parser.node.type;
 
+import org.twig4j.core.Environment;
+import org.twig4j.core.compiler.BytecodeCompiler;
 import org.twig4j.core.compiler.ClassCompiler;
 import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Node;
 import org.twig4j.core.syntax.parser.node.Output;
+import org.twig4j.core.syntax.parser.node.type.expression.BlockReferenceExpression;
+import org.twig4j.core.syntax.parser.node.type.expression.Parent;
+import org.twig4j.core.template.Interpreter;
 
 public class PrintExpression extends Node implements Output {
     public PrintExpression(Node expression, Integer line) {
@@ -14,11 +20,57 @@ public class PrintExpression extends Node implements Output {
 
     @Override
     public void compile(ClassCompiler compiler) throws LoaderException, Twig4jRuntimeException {
-        compiler
-                .addDebugInfo(this)
+        compiler.addDebugInfo(this);
+
+        // Blocks render straight to the output instead of to a string that's then printed
+        if (isParentBlock()) {
+            ((Parent) getExpression()).compileDisplay(compiler);
+        } else if (getExpression() instanceof BlockReferenceExpression) {
+            compiler
+                .write("displayBlock(")
+                    .subCompile(getExpression().getNode(0))
+                .writeRaw(", context, blocks, true, output);\n");
+        } else {
+            compiler
                 .write("output.append(convertNullValueToEmptyString(")
                     .subCompile(getExpression())
                 .writeRaw("));\n");
+        }
+    }
+
+    @Override
+    public boolean compileBytecode(BytecodeCompiler compiler) throws LoaderException, Twig4jRuntimeException {
+        compiler.loadOutput().loadThis();
+
+        if (!compiler.subCompile(getExpression())) {
+            return false;
+        }
+
+        compiler
+                .invokeTemplateMethod("convertNullValueToEmptyString", "(Ljava/lang/Object;)Ljava/lang/Object;")
+                .getMethod()
+                    .invokeVirtual("org/twig4j/core/template/TemplateOutput", "append", "(Ljava/lang/Object;)Lorg/twig4j/core/template/TemplateOutput;")
+                    .pop();
+
+        return true;
+    }
+
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        return getExpression().isInterpretable(environment);
+    }
+
+    @Override
+    public void display(Interpreter interpreter) throws Twig4jException {
+        if (isParentBlock() || getExpression() instanceof BlockReferenceExpression) {
+            interpreter.display(getExpression());
+        } else {
+            interpreter.getOutput().append(interpreter.convertNullValueToEmptyString(interpreter.evaluate(getExpression())));
+        }
+    }
+
+    private boolean isParentBlock() {
+        return getExpression() instanceof Parent && getExpression().hasAttribute("name");
     }
 
     public Node getExpression() {
@@ -1,9 +1,13 @@
 package org.twig4j.core.syntax.parser.node.type;
 
+import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.ClassCompiler;
+import org.twig4j.core.compiler.VariableScope;
 import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.template.Interpreter;
 
 import java.util.List;
 
@@ -31,13 +35,37 @@ public class Set extends Node {
         compiler.addDebugInfo(this);
 
         for (Integer variableIndex = 0; variableIndex < names.size(); variableIndex ++) {
-            compiler
-                .write("((java.util.Map<String, Object>)context).put(")
-                .writeString(names.get(variableIndex))
-                .writeRaw(", ")
-                .subCompile(nodes.get(variableIndex))
-                .writeRaw(");\n");
+            String name = names.get(variableIndex);
+
+            if (compiler.isLocalVariable(name)) {
+                compiler
+                    .write(VariableScope.getValueVariable(name) + " = ")
+                    .subCompile(nodes.get(variableIndex))
+                    .writeRaw(";\n")
+                    .writeLine(VariableScope.getDefinedVariable(name) + " = true;");
+            } else {
+                compiler
+                    .write("((java.util.Map<String, Object>)context).put(")
+                    .writeString(name)
+                    .writeRaw(", ")
+                    .subCompile(nodes.get(variableIndex))
+                    .writeRaw(");\n");
+            }
         }
 
     }
+
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        return ((List<?>) getAttribute("names")).size() <= nodes.size() && areNodesInterpretable(environment);
+    }
+
+    @Override
+    public void display(Interpreter interpreter) throws Twig4jException {
+        List<?> names = (List<?>) getAttribute("names");
+
+        for (Integer variableIndex = 0; variableIndex < names.size(); variableIndex ++) {
+            interpreter.getContext().put(String.valueOf(names.get(variableIndex)), interpreter.evaluate(nodes.get(variableIndex)));
+        }
+    }
 }
@@ -1,13 +1,19 @@
 package org.twig4j.core.syntax.parser.node.type;
 
+import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.*;
+import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Node;
 import org.twig4j.core.syntax.parser.node.Output;
+import org.twig4j.core.template.Interpreter;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 
 public class Text extends Node implements Output {
+    private byte[] utf8Text;
+
     public Text(ArrayList<Node> nodes, HashMap<String, Object> attributes, Integer line, String tag) {
         super(nodes, attributes, line, tag);
     }
@@ -24,8 +30,31 @@ public class Text extends Node implements Output {
     @Override
     public void compile(ClassCompiler compiler) {
         String text = String.valueOf(attributes.get("data"));
-        compiler.write("output.append(");
+        compiler.write("output.appendText(");
         compiler.writeString(text);
-        compiler.writeRaw(");\n");
+        compiler.writeRaw(", " + compiler.getTextConstant(text) + ");\n");
+    }
+
+    @Override
+    public boolean compileBytecode(BytecodeCompiler compiler) {
+        compiler.appendText(String.valueOf(attributes.get("data")));
+
+        return true;
+    }
+
+    @Override
+    public boolean isInterpretable(Environment environment) {
+        return true;
+    }
+
+    @Override
+    public void display(Interpreter interpreter) throws Twig4jRuntimeException {
+        String text = String.valueOf(attributes.get("data"));
+
+        if (utf8Text == null) {
+            utf8Text = text.getBytes(StandardCharsets.UTF_8);
+        }
+
+        interpreter.getOutput().appendText(text, utf8Text);
     }
 }
@@ -1,13 +1,36 @@
 package org.twig4j.core.syntax.parser.node.type.control;
 
+import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.ClassCompiler;
+import org.twig4j.core.compiler.TypeInference;
+import org.twig4j.core.compiler.VariableScope;
 import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.extension.Core;
 import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.syntax.parser.node.type.expression.Constant;
 import org.twig4j.core.syntax.parser.node.type.expression.Expression;
+import org.twig4j.core.syntax.parser.node.type.expression.GetAttr;
+import org.twig4j.core.syntax.parser.node.type.expression.Name;
+import org.twig4j.core.template.Context;
+import org.twig4j.core.template.Interpreter;
+import org.twig4j.core.template.LoopContext;
 
 import java.util.*;
 
+/**
+ * A for loop.
+ *
+ * The compiled loop keeps its bookkeeping in java locals and a {@link LoopContext}, which isn't created at all if
+ * nothing uses the "loop" variable. Attributes of the loop variable (ie. `loop.index`) compile to calls on the loop
+ * context directly. Only if something else might look at the context (blocks, includes, filters needing the context
+ * or using the "loop" variable as a whole, like `loop.parent`) is the loop variable put in the context and the
+ * context copied before the loop.
+ *
+ * After the loop the context is restored: variables that were defined before the loop get their old values back, the
+ * loop targets are removed if they weren't defined, and other variables set in the loop are kept.
+ */
 public class For extends Node {
     protected ForLoop loop;
 
@@ -29,78 +52,104 @@ public class For extends Node {
         );
         attributes.put("key_target", settings.getKeyTarget());
         attributes.put("value_target", settings.getValueTarget());
-        // TODO add the Optimizer node visitor that removes with_loop if it's not used
+        // Removed by the LoopVariableNodeVisitor if the loop variable isn't used
         attributes.put("with_loop", true);
         attributes.put("ifExpr", null != settings.getIfExpr());
 
+        this.loop.putAttribute("else", null != settings.getElseBody());
+
         this.nodes = nodes;
         setTag(tag);
     }
 
     @Override
     public void compile(ClassCompiler compiler) throws LoaderException, Twig4jRuntimeException {
-        compiler.addDebugInfo(this)
-                .writeLine(putInContext("_parent", "context.clone()"))
-                .write("context.put(\"_seq\", org.twig4j.core.extension.Core.ensureIterable(");
-            this.getNode(0).compile(compiler); // Node 0 = _seq
-        compiler
-                .writeRaw("));\n")
-                .writeLine(putInContext("_iterated", "false"))
-                .writeLine(putInContext("_loop_internal", "(new org.twig4j.core.util.HashMap())"))
-                .writeLine("((org.twig4j.core.util.HashMap)context.get(\"_loop_internal\")).put(\"iterator_index\", 0);");
+        String randomVariableName = getRandomVariableName();
+        String loopVariable = "loop_" + randomVariableName;
+        String iteratedVariable = "iterated_" + randomVariableName;
+        String parentVariable = "parent_" + randomVariableName;
+        String seqVariable = "seq_" + randomVariableName;
+        String isListVariable = "isList_" + randomVariableName;
+        String iteratorIndexVariable = "iteratorIndex_" + randomVariableName;
+        boolean withLoop = (Boolean) getAttribute("with_loop");
+        boolean loopInContext = isLoopInContext();
+        java.util.Set<String> localVariables = getLocalVariables(compiler);
+        java.util.Set<String> contextVariables = new LinkedHashSet<>();
+
+        // Without a frame on top of the context only the variables set in the loop are saved and restored
+        if (!loopInContext) {
+            contextVariables.addAll(VariableScope.findAssignedVariables(this));
+            contextVariables.removeAll(localVariables);
+        }
 
-        ;
+        compiler.addDebugInfo(this);
 
-        if (((Boolean)this.getAttribute("with_loop"))) {
+        for (String name : localVariables) {
             compiler
-                    .writeLine(putInContext("loop", "(new org.twig4j.core.util.HashMap())"))
-                    .writeLine("((org.twig4j.core.util.HashMap)context.get(\"loop\"))")
-                    .indent()
-                        .writeLine(".put(\"parent\", ((Object)context.get(\"_parent\")))")
-                        .writeLine(".put(\"index0\", 0)")
-                        .writeLine(".put(\"index\", 1)")
-                        .writeLine(".put(\"_iterator_index\", 0)")
-                        .writeLine(".put(\"first\", true);")
-                    .unIndent()
-                    // Make an extra line break before the for loop
-                    .writeRaw("\n");
+                .writeLine("Object saved_" + randomVariableName + "_" + VariableScope.getValueVariable(name) + " = " + VariableScope.getValueVariable(name) + ";")
+                .writeLine("boolean saved_" + randomVariableName + "_" + VariableScope.getDefinedVariable(name) + " = " + VariableScope.getDefinedVariable(name) + ";");
         }
 
-        if (!(Boolean)getAttribute("ifExpr") && (Boolean)getAttribute("with_loop")) {
+        for (String name : contextVariables) {
             compiler
-                    .writeLine("if (context.get(\"_seq\") instanceof java.util.Collection) {")
-                    .indent()
-                        .writeLine("((org.twig4j.core.util.HashMap)context.get(\"loop\")).put(\"revindex0\", ((java.util.Collection)context.get(\"_seq\")).size() - 1);")
-                        .writeLine("((org.twig4j.core.util.HashMap)context.get(\"loop\")).put(\"revindex\", ((java.util.Collection)context.get(\"_seq\")).size());")
-                        .writeLine("((org.twig4j.core.util.HashMap)context.get(\"loop\")).put(\"length\", ((java.util.Collection)context.get(\"_seq\")).size());")
-                        .writeLine("((org.twig4j.core.util.HashMap)context.get(\"loop\")).put(\"last\", ((java.util.Collection)context.get(\"_seq\")).size() ==  1);")
-                    .unIndent()
-                    .writeLine("}\n");
+                .writeLine("Object saved_" + randomVariableName + "_" + VariableScope.getValueVariable(name) + " = context.get(\"" + name + "\");")
+                .writeLine(
+                    "boolean saved_" + randomVariableName + "_" + VariableScope.getDefinedVariable(name) + " = "
+                        + "saved_" + randomVariableName + "_" + VariableScope.getValueVariable(name) + " != null || context.containsKey(\"" + name + "\");"
+                );
         }
 
-        String randomVariableName = getRandomVariableName();
+        // The loop writes to a frame on top of the context, which stays as it was before the loop for `loop.parent`
+        if (loopInContext) {
+            compiler
+                .writeLine("org.twig4j.core.template.Context " + parentVariable + " = context;")
+                .writeLine("context = context.pushFrame();");
+        }
+
+        compiler.write("Iterable<?> " + seqVariable + " = org.twig4j.core.extension.Core.ensureIterable(");
+            this.getNode(0).compile(compiler); // Node 0 = _seq
+        compiler
+                .writeRaw(");\n")
+                .writeLine("boolean " + isListVariable + " = " + seqVariable + " instanceof java.util.List;")
+                .writeLine("int " + iteratorIndexVariable + " = 0;");
+
+        if (withLoop) {
+            compiler.writeLine(
+                "org.twig4j.core.template.LoopContext " + loopVariable + " = new org.twig4j.core.template.LoopContext("
+                    + (loopInContext ? parentVariable : "null")
+                    // The length isn't known when some items might be skipped
+                    + ((Boolean) getAttribute("ifExpr") ? "" : ", " + seqVariable)
+                    + ");"
+            );
+
+            if (loopInContext) {
+                compiler.writeLine(putInContext("loop", loopVariable));
+            }
+        } else if (getNode(2) != null) {
+            compiler.writeLine("boolean " + iteratedVariable + " = false;");
+        }
+
+        loop.putAttribute("loop_variable", loopVariable);
+        loop.putAttribute("iterated_variable", iteratedVariable);
+
         // Do the loop
         compiler
                 .writeLine("// " + randomVariableName + " = " + ((String)getAttribute("value_target")))
-                .writeLine("for (Object " + randomVariableName + " : ((Iterable)(context.get(\"_seq\")))) {")
+                .writeLine("for (Object " + randomVariableName + " : " + seqVariable + ") {")
                 .indent();
 
         compileKeyValueTarget(compiler, randomVariableName);
 
-        this.getNode(1).compile(compiler); // Node 1 = for body
+        if (withLoop) {
+            compiler.enterLoop(loopVariable);
+        }
 
-        // Increase the internal iterator index by 1
-        compiler
-                .writeLine("((org.twig4j.core.util.HashMap)context.get(\"_loop_internal\"))")
-                .indent()
-                    .writeLine(".put(\"iterator_index\",")
-                    .indent()
-                        .writeLine("((Integer)((org.twig4j.core.util.HashMap)context.get(\"_loop_internal\")).get(\"iterator_index\")) + 1")
-                    .unIndent()
-                    .writeLine(");")
-                .unIndent();
+        compiler.enterVariableTypes(getTargetTypes(compiler));
+        this.getNode(1).compile(compiler); // Node 1 = for body
+        compiler.leaveVariableTypes();
 
         compiler
+                .writeLine(iteratorIndexVariable + "++;")
                 .unIndent()
                 .writeLine("}") // End for
         ;
@@ -108,25 +157,259 @@ public class For extends Node {
         // Node 2 = else
         if (getNode(2) != null) {
             compiler
-                    .writeLine("if (!((Boolean)context.get(\"_iterated\"))) {")
+                    .writeLine("if (" + (withLoop ? loopVariable + ".isFirst()" : "!" + iteratedVariable) + ") {")
                     .indent()
                         .subCompile(getNode(2))
                     .unIndent()
                     .writeLine("}");
         }
 
+        if (withLoop) {
+            compiler.leaveLoop();
+        }
+
         // Reset loop
-        compiler
-                .writeLine("tmpForParent = new java.util.HashMap<String, Object>();")
-                .writeLine("tmpForParent.putAll(((java.util.Map<String, Object>)context.get(\"_parent\")));")
-                .writeLine("context.remove(\"_seq\");")
-                .writeLine("context.remove(\"_iterated\");")
-                .writeLine("context.remove(\"" + getAttribute("key_target") + "\");")
-                .writeLine("context.remove(\"" + getAttribute("value_target") + "\");")
-                .writeLine("context.remove(\"_parent\");")
-                .writeLine("context.remove(\"loop\");")
-                .writeLine("context.putAll(tmpForParent);")
-        ;
+        if (loopInContext) {
+            compiler.writeLine("context = context.popFrame(\"" + getAttribute("key_target") + "\", \"" + getAttribute("value_target") + "\", \"loop\");");
+        }
+
+        for (String name : contextVariables) {
+            compiler
+                .writeLine("if (saved_" + randomVariableName + "_" + VariableScope.getDefinedVariable(name) + ") {")
+                .indent()
+                    .writeLine("context.put(\"" + name + "\", saved_" + randomVariableName + "_" + VariableScope.getValueVariable(name) + ");")
+                .unIndent();
+
+            if (isTarget(name)) {
+                compiler
+                    .writeLine("} else {")
+                    .indent()
+                        .writeLine("context.remove(\"" + name + "\");")
+                    .unIndent();
+            }
+
+            compiler.writeLine("}");
+        }
+
+        for (String name : localVariables) {
+            compiler
+                .writeLine("if (saved_" + randomVariableName + "_" + VariableScope.getDefinedVariable(name) + ") {")
+                .indent()
+                    .writeLine(VariableScope.getValueVariable(name) + " = saved_" + randomVariableName + "_" + VariableScope.getValueVariable(name) + ";")
+                    .writeLine(VariableScope.getDefinedVariable(name) + " = true;")
+                .unIndent();
+
+            // Targets that weren't defined before the loop are removed, other variables set in the loop are kept
+            if (isTarget(name)) {
+                compiler
+                    .writeLine("} else {")
+                    .indent()
+                        .writeLine(VariableScope.getValueVariable(name) + " = null;")
+                        .writeLine(VariableScope.getDefinedVariable(name) + " = false;")
+                    .unIndent();
+            }
+
+            compiler.writeLine("}");
+        }
+    }
+
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        return getNode(0).isInterpretable(environment)
+            && getNode(1).isInterpretable(environment)
+            && (getNode(2) == null || getNode(2).isInterpretable(environment));
+    }
+
+    @Override
+    public void display(Interpreter interpreter) throws Twig4jException {
+        // Always uses the context for the loop variable and a frame on top of it, which renders the same as the
+        // compiled code as that only skips the frame when nothing can tell the difference
+        Context parent = interpreter.getContext();
+        Context context = parent.pushFrame();
+        String keyTarget = (String) getAttribute("key_target");
+        String valueTarget = (String) getAttribute("value_target");
+
+        interpreter.setContext(context);
+
+        Iterable<?> seq = Core.ensureIterable(interpreter.evaluate(getNode(0)));
+        LoopContext loopContext = (Boolean) getAttribute("ifExpr") ? new LoopContext(parent) : new LoopContext(parent, seq);
+        int iteratorIndex = 0;
+
+        context.put("loop", loopContext);
+
+        for (Object value : seq) {
+            if (seq instanceof List) {
+                context.put(keyTarget, iteratorIndex);
+                context.put(valueTarget, value);
+            } else if (value instanceof Map.Entry) {
+                context.put(keyTarget, ((Map.Entry<?, ?>) value).getKey());
+                context.put(valueTarget, ((Map.Entry<?, ?>) value).getValue());
+            } else {
+                context.put(keyTarget, null);
+                context.put(valueTarget, value);
+            }
+
+            interpreter.display(getNode(1));
+
+            iteratorIndex++;
+        }
+
+        if (getNode(2) != null && loopContext.isFirst()) {
+            interpreter.display(getNode(2));
+        }
+
+        interpreter.setContext(context.popFrame(keyTarget, valueTarget, "loop"));
+    }
+
+    /**
+     * Whether the body (or else body) of the loop might use the loop variable
+     *
+     * @return Whether it's used
+     *
+     * @throws Twig4jRuntimeException If a node is missing attributes
+     */
+    public boolean usesLoopVariable() throws Twig4jRuntimeException {
+        return usesLoop(getNode(1), null, true) || usesLoop(getNode(2), null, true);
+    }
+
+    /**
+     * Set whether the loop keeps track of the loop variable
+     *
+     * @param withLoop Whether there's a loop variable
+     *
+     * @return this
+     */
+    public For setWithLoop(boolean withLoop) {
+        attributes.put("with_loop", withLoop);
+        loop.putAttribute("with_loop", withLoop);
+
+        return this;
+    }
+
+    /**
+     * Whether the loop variable is put in the context (and the context copied for `loop.parent`), which is needed if
+     * anything but the direct access to its attributes might use it
+     *
+     * @return Whether the loop is in the context
+     *
+     * @throws Twig4jRuntimeException If a node is missing attributes
+     */
+    protected boolean isLoopInContext() throws Twig4jRuntimeException {
+        return usesLoop(getNode(1), null, false) || usesLoop(getNode(2), null, false);
+    }
+
+    /**
+     * Whether a node might use the loop variable
+     *
+     * @param node The node
+     * @param parentNode The parent of the node
+     * @param includeAttributes Whether to count direct access to loop attributes (ie. `loop.index`)
+     *
+     * @return Whether it's used
+     *
+     * @throws Twig4jRuntimeException If a node is missing attributes
+     */
+    protected static boolean usesLoop(Node node, Node parentNode, boolean includeAttributes) throws Twig4jRuntimeException {
+        if (node == null) {
+            return false;
+        }
+
+        if (VariableScope.exposesContext(node)) {
+            return true;
+        }
+
+        if (node instanceof Name && "loop".equals(node.getAttribute("name"))) {
+            if (includeAttributes || !(parentNode instanceof GetAttr) || !isLoopAttribute((GetAttr) parentNode) || "parent".equals(parentNode.getNode(1).getAttribute("data"))) {
+                return true;
+            }
+        }
+
+        for (Node childNode : node.getNodes()) {
+            if (usesLoop(childNode, node, includeAttributes)) {
+                return true;
+            }
+        }
+
+        for (Object attribute : node.getAttributes().values()) {
+            if (attribute instanceof Node && usesLoop((Node) attribute, node, includeAttributes)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Whether an attribute access is to an attribute of the loop variable (ie. `loop.index`)
+     *
+     * @param getAttr The attribute access
+     *
+     * @return Whether it's a loop attribute
+     *
+     * @throws Twig4jRuntimeException If the node is missing attributes
+     */
+    public static boolean isLoopAttribute(GetAttr getAttr) throws Twig4jRuntimeException {
+        return getAttr.getNode(0) instanceof Name
+            && "loop".equals(getAttr.getNode(0).getAttribute("name"))
+            && getAttr.getNode(1) instanceof Constant
+            && LoopContext.ATTRIBUTES.contains(getAttr.getNode(1).getAttribute("data"))
+            && !"method".equals(getAttr.getAttribute("type"));
+    }
+
+    /**
+     * Get the primitive types the loop targets have in the body of the loop (ie. int for the values of 1..10), if
+     * they're local variables that aren't set anywhere else in the body
+     *
+     * @param compiler The compiler
+     *
+     * @return The types of the targets
+     *
+     * @throws Twig4jRuntimeException If a node is missing attributes
+     */
+    protected Map<String, Class<?>> getTargetTypes(ClassCompiler compiler) throws Twig4jRuntimeException {
+        Map<String, Class<?>> types = new HashMap<>();
+        String keyTarget = String.valueOf(getAttribute("key_target"));
+        String valueTarget = String.valueOf(getAttribute("value_target"));
+        Class<?> keyType = TypeInference.getKeyType(getNode(0));
+        Class<?> valueType = TypeInference.getValueType(getNode(0), compiler);
+
+        // The value is assigned after the key
+        if (keyType != null && !keyTarget.equals(valueTarget)) {
+            types.put(keyTarget, keyType);
+        }
+        if (valueType != null) {
+            types.put(valueTarget, valueType);
+        }
+
+        java.util.Set<String> assignedVariables = VariableScope.findAssignedVariables(getNode(1));
+        types.keySet().removeIf(name -> assignedVariables.contains(name) || !compiler.isLocalVariable(name));
+
+        return types;
+    }
+
+    private boolean isTarget(String name) throws Twig4jRuntimeException {
+        return name.equals(getAttribute("key_target")) || name.equals(getAttribute("value_target"));
+    }
+
+    /**
+     * Get the variables set in the loop that the method being compiled keeps in local variables
+     *
+     * @param compiler The compiler
+     *
+     * @return The variable names
+     *
+     * @throws Twig4jRuntimeException If a node is missing attributes
+     */
+    protected java.util.Set<String> getLocalVariables(ClassCompiler compiler) throws Twig4jRuntimeException {
+        java.util.Set<String> localVariables = new LinkedHashSet<>();
+
+        for (String name : VariableScope.findAssignedVariables(this)) {
+            if (compiler.isLocalVariable(name)) {
+                localVariables.add(name);
+            }
+        }
+
+        return localVariables;
     }
 
     /**
@@ -140,24 +423,41 @@ public class For extends Node {
     protected void compileKeyValueTarget(ClassCompiler compiler, String valueVariableName) throws Twig4jRuntimeException {
 
         compiler
-                .writeLine("if (context.get(\"_seq\") instanceof java.util.List) {")
+                .writeLine("if (isList_" + valueVariableName + ") {")
                 .indent()
-                    .writeLine(putInContext(((String)getAttribute("key_target")), "((org.twig4j.core.util.HashMap)context.get(\"_loop_internal\")).get(\"iterator_index\")"))
-                    .writeLine(putInContext((String)getAttribute("value_target"), valueVariableName))
+                    .writeLine(assignTarget(compiler, ((String)getAttribute("key_target")), "iteratorIndex_" + valueVariableName))
+                    .writeLine(assignTarget(compiler, (String)getAttribute("value_target"), valueVariableName))
                 .unIndent()
                 .writeLine("} else if (" + valueVariableName + " instanceof java.util.Map.Entry) {")
                 .indent()
-                    .writeLine(putInContext(((String)getAttribute("key_target")), "((java.util.Map.Entry<String, Object>)" + valueVariableName + ").getKey()"))
-                    .writeLine(putInContext(((String)getAttribute("value_target")), "((java.util.Map.Entry<String, Object>)" + valueVariableName + ").getValue()"))
+                    .writeLine(assignTarget(compiler, ((String)getAttribute("key_target")), "((java.util.Map.Entry<String, Object>)" + valueVariableName + ").getKey()"))
+                    .writeLine(assignTarget(compiler, ((String)getAttribute("value_target")), "((java.util.Map.Entry<String, Object>)" + valueVariableName + ").getValue()"))
                 .unIndent()
                 .writeLine("} else {")
                 .indent()
-                    .writeLine(putInContext(((String)getAttribute("key_target")), null))
-                    .writeLine(putInContext(((String)getAttribute("value_target")), valueVariableName))
+                    .writeLine(assignTarget(compiler, ((String)getAttribute("key_target")), null))
+                    .writeLine(assignTarget(compiler, ((String)getAttribute("value_target")), valueVariableName))
                 .unIndent()
                 .writeLine("}");
     }
 
+    /**
+     * Make an assignment to a loop target, which is either in the context or a local variable
+     *
+     * @param compiler The compiler
+     * @param key The target variable name
+     * @param value The value variable name to put in
+     *
+     * @return The assignment statement
+     */
+    protected String assignTarget(ClassCompiler compiler, String key, String value) {
+        if (compiler.isLocalVariable(key)) {
+            return VariableScope.getValueVariable(key) + " = " + value + "; " + VariableScope.getDefinedVariable(key) + " = true;";
+        }
+
+        return putInContext(key, value);
+    }
+
     /**
      * Make an assignment to the context
      *
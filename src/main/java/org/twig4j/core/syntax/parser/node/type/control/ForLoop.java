@@ -1,10 +1,17 @@
 package org.twig4j.core.syntax.parser.node.type.control;
 
+import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.ClassCompiler;
 import org.twig4j.core.exception.LoaderException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.template.Interpreter;
+import org.twig4j.core.template.LoopContext;
 
+/**
+ * The end of an iteration of a for loop, placed at the end of the loop body (and inside the condition, if the loop has
+ * one). The java variables it uses are set by the {@link For} node when compiling.
+ */
 public class ForLoop extends Node {
     public ForLoop(Integer line) {
         super(line);
@@ -14,37 +21,29 @@ public class ForLoop extends Node {
         super(line);
         setTag(tag);
 
-        // TODO change attributes to false when we find out where it's changed to true in another place (probably a node visitor)
         putAttribute("with_loop", true);
-        putAttribute("ifExpr", true);
         putAttribute("else", true);
+        putAttribute("loop_variable", "loop");
+        putAttribute("iterated_variable", "iterated");
     }
 
     @Override
     public void compile(ClassCompiler compiler) throws LoaderException, Twig4jRuntimeException {
-        if (((Boolean)getAttribute("else"))) {
-            compiler.writeLine("context.put(\"_iterated\", true);");
-        }
-
         if (((Boolean)getAttribute("with_loop"))) {
-            compiler
-                    .writeLine("((org.twig4j.core.util.HashMap)context.get(\"loop\"))")
-                    .indent()
-                        .writeLine(".put(\"index\", ((Integer)((org.twig4j.core.util.HashMap)context.get(\"loop\")).get(\"index\")) + 1)")
-                        .writeLine(".put(\"index0\", ((Integer)((org.twig4j.core.util.HashMap)context.get(\"loop\")).get(\"index0\")) + 1)")
-                        .writeLine(".put(\"first\", false);")
-                    .unIndent();
+            // The loop context tells whether the loop iterated as well
+            compiler.writeLine(getAttribute("loop_variable") + ".next();");
+        } else if (((Boolean)getAttribute("else"))) {
+            compiler.writeLine(getAttribute("iterated_variable") + " = true;");
         }
+    }
 
-        if (((Boolean)getAttribute("ifExpr"))) {
-            compiler
-                    .writeLine("if (((org.twig4j.core.util.HashMap)context.get(\"loop\")).containsKey(\"length\")) {")
-                    .indent()
-                        .writeLine("((org.twig4j.core.util.HashMap)context.get(\"loop\")).put(\"revindex0\", ((Integer)((org.twig4j.core.util.HashMap)context.get(\"loop\")).get(\"revindex0\")) - 1);")
-                        .writeLine("((org.twig4j.core.util.HashMap)context.get(\"loop\")).put(\"revindex\", ((Integer)((org.twig4j.core.util.HashMap)context.get(\"loop\")).get(\"revindex\")) - 1);")
-                        .writeLine("((org.twig4j.core.util.HashMap)context.get(\"loop\")).put(\"last\", ((Integer)((org.twig4j.core.util.HashMap)context.get(\"loop\")).get(\"revindex0\")) == 0);")
-                    .unIndent()
-                    .writeLine("}");
-        }
+    @Override
+    public boolean isInterpretable(Environment environment) {
+        return true;
+    }
+
+    @Override
+    public void display(Interpreter interpreter) throws Twig4jRuntimeException {
+        ((LoopContext) interpreter.getContext().get("loop")).next();
     }
 }
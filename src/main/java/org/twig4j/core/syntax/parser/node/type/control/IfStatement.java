@@ -1,9 +1,14 @@
 package org.twig4j.core.syntax.parser.node.type.control;
 
+import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.ClassCompiler;
+import org.twig4j.core.compiler.TypeInference;
 import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.template.Interpreter;
+import org.twig4j.core.typesystem.Ops;
 
 import java.util.HashMap;
 import java.util.List;
@@ -19,16 +24,16 @@ public class IfStatement extends Node {
 
         for (Node node : nodes) {
             if (node instanceof IfBody) {
+                compiler.write("if (");
+                compileCondition(compiler, node.getNode(0));
                 compiler
-                        .write("if ((new org.twig4j.core.typesystem.DynamicType(")
-                        .subCompile(node.getNode(0))
-                        .writeRaw(")).toBoolean()) {\n")
+                        .writeRaw(") {\n")
                         .subCompile(node.getNode(1));
             } else if (node instanceof ElseIfBody) {
+                compiler.write("} else if (");
+                compileCondition(compiler, node.getNode(0));
                 compiler
-                        .write("} else if ((new org.twig4j.core.typesystem.DynamicType(")
-                        .subCompile(node.getNode(0))
-                        .writeRaw(")).toBoolean()) {\n")
+                        .writeRaw(") {\n")
                         .subCompile(node.getNode(1));
             } else if (node instanceof ElseBody) {
                 compiler
@@ -42,4 +47,63 @@ public class IfStatement extends Node {
 
         compiler.writeLine("}");
     }
+
+    /**
+     * Compile a condition, which is used as is if it's a boolean
+     *
+     * @param compiler The compiler
+     * @param condition The condition
+     *
+     * @throws LoaderException If failing to find a template
+     * @throws Twig4jRuntimeException On runtime errors
+     */
+    protected void compileCondition(ClassCompiler compiler, Node condition) throws LoaderException, Twig4jRuntimeException {
+        if (TypeInference.getType(condition, compiler) == boolean.class) {
+            TypeInference.compile(condition, compiler);
+
+            return;
+        }
+
+        compiler
+                .writeRaw("org.twig4j.core.typesystem.Ops.truthy(")
+                .subCompile(condition)
+                .writeRaw(")");
+    }
+
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        // Anything else doesn't compile (an if, any number of else ifs and an optional else at the end)
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+
+            if (i == 0 ? !(node instanceof IfBody) : !(node instanceof ElseIfBody || (node instanceof ElseBody && i == nodes.size() - 1))) {
+                return false;
+            }
+
+            for (Node child : node.getNodes()) {
+                if (!child.isInterpretable(environment)) {
+                    return false;
+                }
+            }
+        }
+
+        return !nodes.isEmpty();
+    }
+
+    @Override
+    public void display(Interpreter interpreter) throws Twig4jException {
+        for (Node node : nodes) {
+            if (node instanceof ElseBody) {
+                interpreter.display(node.getNode(0));
+
+                return;
+            }
+
+            if (Ops.truthy(interpreter.evaluate(node.getNode(0)))) {
+                interpreter.display(node.getNode(1));
+
+                return;
+            }
+        }
+    }
 }
@@ -1,9 +1,15 @@
 package org.twig4j.core.syntax.parser.node.type.expression;
 
+import org.twig4j.core.Environment;
+import org.twig4j.core.compiler.BytecodeCompiler;
 import org.twig4j.core.compiler.ClassCompiler;
 import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.template.Interpreter;
+
+import java.util.Arrays;
 
 public class Array extends Expression {
     public Array(Integer line) {
@@ -26,4 +32,43 @@ public class Array extends Expression {
 
         compiler.writeRaw(")");
     }
+
+    @Override
+    public boolean compileBytecode(BytecodeCompiler compiler) throws LoaderException, Twig4jRuntimeException {
+        compiler.getMethod()
+                .pushInt(nodes.size())
+                .newArray("java/lang/Object");
+
+        for (int i = 0; i < nodes.size(); i++) {
+            compiler.getMethod()
+                    .dup()
+                    .pushInt(i);
+
+            if (!compiler.subCompile(nodes.get(i))) {
+                return false;
+            }
+
+            compiler.getMethod().aastore();
+        }
+
+        compiler.getMethod().invokeStatic("java/util/Arrays", "asList", "([Ljava/lang/Object;)Ljava/util/List;");
+
+        return true;
+    }
+
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        return areNodesInterpretable(environment);
+    }
+
+    @Override
+    public Object evaluate(Interpreter interpreter) throws Twig4jException {
+        Object[] values = new Object[nodes.size()];
+
+        for (int i = 0; i < nodes.size(); i++) {
+            values[i] = interpreter.evaluate(nodes.get(i));
+        }
+
+        return Arrays.asList(values);
+    }
 }
@@ -1,11 +1,14 @@
 package org.twig4j.core.syntax.parser.node.type.expression;
 
+import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.ClassCompiler;
 import org.twig4j.core.exception.LoaderException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Node;
 
 abstract public class Binary extends Expression {
+    private String javaOperator;
+
     public Binary(Node left, Node right, Integer line) {
         super(line);
 
@@ -35,6 +38,38 @@ abstract public class Binary extends Expression {
      */
     abstract protected Binary compileOperator(ClassCompiler compiler);
 
+    /**
+     * Get the operator as it's written by {@link #compileOperator(ClassCompiler)}
+     *
+     * @param environment The Twig environment
+     *
+     * @return The operator
+     */
+    protected String getJavaOperator(Environment environment) {
+        if (javaOperator == null) {
+            ClassCompiler operatorCompiler = new ClassCompiler(environment);
+            compileOperator(operatorCompiler);
+
+            javaOperator = operatorCompiler.getSourceCode();
+        }
+
+        return javaOperator;
+    }
+
+    /**
+     * Whether a node is the null literal, which javac passes to String.valueOf(char[]) (throwing a
+     * NullPointerException) instead of String.valueOf(Object)
+     *
+     * @param node The node
+     *
+     * @return Whether the node is a null constant
+     *
+     * @throws Twig4jRuntimeException If the node is missing attributes
+     */
+    protected boolean isNullConstant(Node node) throws Twig4jRuntimeException {
+        return node instanceof Constant && node.hasAttribute("data") && node.getAttribute("data") == null;
+    }
+
     /**
      * Get the node on the left
      *
@@ -1,13 +1,37 @@
 package org.twig4j.core.syntax.parser.node.type.expression;
 
+import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.ClassCompiler;
+import org.twig4j.core.compiler.JavaTypes;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.template.Interpreter;
 
 public class BinaryAnd extends Binary {
     public BinaryAnd(Node left, Node right, Integer line) {
         super(left, right, line);
     }
 
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        // Only compiles with booleans on both sides
+        for (Node node : getNodes()) {
+            Class<?> type = JavaTypes.getJavaType(node, environment);
+
+            if ((type != boolean.class && type != Boolean.class) || !node.isInterpretable(environment)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public Object evaluate(Interpreter interpreter) throws Twig4jException {
+        return (Boolean) interpreter.evaluate(getLeftNode()) && (Boolean) interpreter.evaluate(getRightNode());
+    }
+
     @Override
     protected Binary compileOperator(ClassCompiler compiler) {
         compiler.writeRaw("&&");
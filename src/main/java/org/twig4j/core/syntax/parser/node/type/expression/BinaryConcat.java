@@ -1,9 +1,13 @@
 package org.twig4j.core.syntax.parser.node.type.expression;
 
+import org.twig4j.core.Environment;
+import org.twig4j.core.compiler.BytecodeCompiler;
 import org.twig4j.core.compiler.ClassCompiler;
 import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.template.Interpreter;
 
 public class BinaryConcat extends Binary {
     public BinaryConcat(Node left, Node right, Integer line) {
@@ -19,6 +23,38 @@ public class BinaryConcat extends Binary {
         compiler.writeRaw(")))");
     }
 
+    @Override
+    public boolean compileBytecode(BytecodeCompiler compiler) throws LoaderException, Twig4jRuntimeException {
+        // javac picks String.valueOf(char[]) for a null literal, which throws a NullPointerException
+        if (isNullConstant(getLeftNode()) || isNullConstant(getRightNode())) {
+            return false;
+        }
+
+        if (!compiler.subCompile(getLeftNode())) {
+            return false;
+        }
+        compiler.getMethod().invokeStatic("java/lang/String", "valueOf", "(Ljava/lang/Object;)Ljava/lang/String;");
+
+        if (!compiler.subCompile(getRightNode())) {
+            return false;
+        }
+        compiler.getMethod()
+                .invokeStatic("java/lang/String", "valueOf", "(Ljava/lang/Object;)Ljava/lang/String;")
+                .invokeVirtual("java/lang/String", "concat", "(Ljava/lang/String;)Ljava/lang/String;");
+
+        return true;
+    }
+
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        return !isNullConstant(getLeftNode()) && !isNullConstant(getRightNode()) && areNodesInterpretable(environment);
+    }
+
+    @Override
+    public Object evaluate(Interpreter interpreter) throws Twig4jException {
+        return String.valueOf(interpreter.evaluate(getLeftNode())).concat(String.valueOf(interpreter.evaluate(getRightNode())));
+    }
+
     @Override
     protected Binary compileOperator(ClassCompiler compiler) {
         // Do nothing in this case
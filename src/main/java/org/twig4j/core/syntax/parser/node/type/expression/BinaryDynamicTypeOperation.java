@@ -1,17 +1,59 @@
 package org.twig4j.core.syntax.parser.node.type.expression;
 
+import org.twig4j.core.Environment;
+import org.twig4j.core.compiler.BytecodeCompiler;
 import org.twig4j.core.compiler.ClassCompiler;
+import org.twig4j.core.compiler.JavaTypes;
+import org.twig4j.core.compiler.TypeInference;
 import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.template.Interpreter;
+import org.twig4j.core.typesystem.DynamicType;
+import org.twig4j.core.typesystem.Ops;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
 
 abstract public class BinaryDynamicTypeOperation extends Binary {
+    private static final String DYNAMIC_TYPE = "org/twig4j/core/typesystem/DynamicType";
+    private static final String OPS = "org/twig4j/core/typesystem/Ops";
+
+    private Method operatorMethod;
+
     public BinaryDynamicTypeOperation(Node left, Node right, Integer line) {
         super(left, right, line);
     }
 
     @Override
     public void compile(ClassCompiler compiler) throws LoaderException, Twig4jRuntimeException {
+        // Arithmetic on ints is plain java arithmetic, boxed to the same type the operator method returns
+        if (TypeInference.getType(this, compiler) == int.class && JavaTypes.getJavaType(this, compiler.getEnvironment()) != int.class) {
+            compiler.writeRaw("((java.lang.Number) ");
+            TypeInference.compile(this, compiler);
+            compiler.writeRaw(")");
+
+            return;
+        }
+
+        // Operators of the core call a static helper instead of wrapping both operands in a DynamicType
+        if (isStaticOperator(compiler.getEnvironment())) {
+            compiler.writeRaw("org.twig4j.core.typesystem.Ops.");
+
+            compileOperator(compiler);
+
+            compiler
+                    .writeRaw("(")
+                    .subCompile(getLeftNode())
+                    .writeRaw(", ")
+                    .subCompile(getRightNode())
+                    .writeRaw(")");
+
+            return;
+        }
+
         compiler
                 .writeRaw("((new org.twig4j.core.typesystem.DynamicType(")
                 .subCompile(getLeftNode())
@@ -23,4 +65,104 @@ abstract public class BinaryDynamicTypeOperation extends Binary {
                 .subCompile(getRightNode())
                 .writeRaw(")))");
     }
+
+    @Override
+    public boolean compileBytecode(BytecodeCompiler compiler) throws LoaderException, Twig4jRuntimeException {
+        Method operatorMethod = getOperatorMethod(compiler.getEnvironment());
+
+        // Operators that don't return a number (ie. equals()) are boxed by javac
+        if (operatorMethod == null || operatorMethod.getReturnType() != Number.class) {
+            return false;
+        }
+
+        if (isStaticOperator(compiler.getEnvironment())) {
+            if (!compiler.subCompile(getLeftNode()) || !compiler.subCompile(getRightNode())) {
+                return false;
+            }
+
+            compiler.getMethod().invokeStatic(OPS, operatorMethod.getName(), "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Number;");
+
+            return true;
+        }
+
+        if (operatorMethod.getParameterTypes()[0] != DynamicType.class) {
+            return false;
+        }
+
+        for (Node node : Arrays.asList(getLeftNode(), getRightNode())) {
+            compiler.getMethod()
+                    .newObject(DYNAMIC_TYPE)
+                    .dup();
+
+            if (!compiler.subCompile(node)) {
+                return false;
+            }
+
+            compiler.getMethod().invokeSpecial(DYNAMIC_TYPE, "<init>", "(Ljava/lang/Object;)V");
+        }
+
+        compiler.getMethod().invokeVirtual(DYNAMIC_TYPE, operatorMethod.getName(), "(L" + DYNAMIC_TYPE + ";)Ljava/lang/Number;");
+
+        return true;
+    }
+
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        return getOperatorMethod(environment) != null && areNodesInterpretable(environment);
+    }
+
+    @Override
+    public Object evaluate(Interpreter interpreter) throws Twig4jException {
+        if (isStaticOperator(interpreter.getEnvironment())) {
+            return interpreter.invoke(getOperatorMethod(interpreter.getEnvironment()), null, interpreter.evaluate(getLeftNode()), interpreter.evaluate(getRightNode()));
+        }
+
+        DynamicType left = new DynamicType(interpreter.evaluate(getLeftNode()));
+        DynamicType right = new DynamicType(interpreter.evaluate(getRightNode()));
+
+        return interpreter.invoke(getOperatorMethod(interpreter.getEnvironment()), left, right);
+    }
+
+    /**
+     * Get the method the operator calls, a static {@link Ops} method taking the 2 operands or else a DynamicType method
+     * taking the right operand
+     *
+     * @param environment The Twig environment
+     *
+     * @return The method or null if neither Ops nor DynamicType has such a method
+     */
+    public Method getOperatorMethod(Environment environment) {
+        if (operatorMethod == null) {
+            String name = getJavaOperator(environment);
+
+            for (Method method : Ops.class.getMethods()) {
+                if (method.getName().equals(name) && Modifier.isStatic(method.getModifiers()) && Arrays.equals(method.getParameterTypes(), new Class<?>[] {Object.class, Object.class})) {
+                    operatorMethod = method;
+                    break;
+                }
+            }
+
+            for (Method method : DynamicType.class.getMethods()) {
+                if (operatorMethod == null && method.getName().equals(name) && method.getParameterCount() == 1 && !method.isBridge() && method.getParameterTypes()[0].isAssignableFrom(DynamicType.class)) {
+                    operatorMethod = method;
+                    break;
+                }
+            }
+        }
+
+        return operatorMethod;
+    }
+
+    /**
+     * Whether the operator calls a static {@link Ops} method
+     *
+     * @param environment The Twig environment
+     *
+     * @return Whether it's static
+     */
+    protected boolean isStaticOperator(Environment environment) {
+        Method operatorMethod = getOperatorMethod(environment);
+
+        return operatorMethod != null && Modifier.isStatic(operatorMethod.getModifiers());
+    }
 }
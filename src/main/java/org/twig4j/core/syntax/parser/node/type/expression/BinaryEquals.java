@@ -1,6 +1,7 @@
 package org.twig4j.core.syntax.parser.node.type.expression;
 
 import org.twig4j.core.compiler.ClassCompiler;
+import org.twig4j.core.compiler.TypeInference;
 import org.twig4j.core.exception.LoaderException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Node;
@@ -10,6 +11,22 @@ public class BinaryEquals extends BinaryDynamicTypeOperation {
         super(left, right, line);
     }
 
+    @Override
+    public void compile(ClassCompiler compiler) throws LoaderException, Twig4jRuntimeException {
+        // 2 ints or 2 booleans are equal like they are in java
+        if (isStaticOperator(compiler.getEnvironment()) && TypeInference.getOperandType(getLeftNode(), getRightNode(), compiler) != null) {
+            compiler.writeRaw("(");
+            TypeInference.compile(getLeftNode(), compiler);
+            compiler.writeRaw(" == ");
+            TypeInference.compile(getRightNode(), compiler);
+            compiler.writeRaw(")");
+
+            return;
+        }
+
+        super.compile(compiler);
+    }
+
     @Override
     protected Binary compileOperator(ClassCompiler compiler) {
         compiler.writeRaw("equals");
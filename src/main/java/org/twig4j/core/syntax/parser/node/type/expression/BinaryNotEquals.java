@@ -1,9 +1,14 @@
 package org.twig4j.core.syntax.parser.node.type.expression;
 
+import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.ClassCompiler;
+import org.twig4j.core.compiler.TypeInference;
 import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.template.Interpreter;
+import org.twig4j.core.typesystem.Ops;
 
 public class BinaryNotEquals extends Binary {
     public BinaryNotEquals(Node left, Node right, Integer line) {
@@ -12,12 +17,33 @@ public class BinaryNotEquals extends Binary {
 
     @Override
     public void compile(ClassCompiler compiler) throws LoaderException, Twig4jRuntimeException {
+        // 2 ints or 2 booleans are equal like they are in java
+        if (TypeInference.getOperandType(getLeftNode(), getRightNode(), compiler) != null) {
+            compiler.writeRaw("(");
+            TypeInference.compile(getLeftNode(), compiler);
+            compiler.writeRaw(" != ");
+            TypeInference.compile(getRightNode(), compiler);
+            compiler.writeRaw(")");
+
+            return;
+        }
+
         compiler
-            .writeRaw("(!(new org.twig4j.core.typesystem.DynamicType(")
+            .writeRaw("(!org.twig4j.core.typesystem.Ops.equals(")
             .subCompile(getLeftNode())
-            .writeRaw(")).equals((new org.twig4j.core.typesystem.DynamicType(")
+            .writeRaw(", ")
             .subCompile(getRightNode())
-            .writeRaw("))))");
+            .writeRaw("))");
+    }
+
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        return areNodesInterpretable(environment);
+    }
+
+    @Override
+    public Object evaluate(Interpreter interpreter) throws Twig4jException {
+        return !Ops.equals(interpreter.evaluate(getLeftNode()), interpreter.evaluate(getRightNode()));
     }
 
     @Override
@@ -1,9 +1,13 @@
 package org.twig4j.core.syntax.parser.node.type.expression;
 
+import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.ClassCompiler;
+import org.twig4j.core.compiler.JavaTypes;
 import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.template.Interpreter;
 
 public class BinaryNullCoalesce extends Binary {
     public BinaryNullCoalesce(Node left, Node right, Integer line) {
@@ -22,6 +26,20 @@ public class BinaryNullCoalesce extends Binary {
             .writeRaw(")");
     }
 
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        // Comparing a primitive to null doesn't compile, and with a boxed number on the left javac might unbox it
+        Class<?> leftType = JavaTypes.getJavaType(getLeftNode(), environment);
+
+        return leftType != null && !leftType.isPrimitive() && !Number.class.isAssignableFrom(leftType) && areNodesInterpretable(environment);
+    }
+
+    @Override
+    public Object evaluate(Interpreter interpreter) throws Twig4jException {
+        // The compiled code evaluates the left node twice as well
+        return (interpreter.evaluate(getLeftNode()) != null) ? interpreter.evaluate(getLeftNode()) : interpreter.evaluate(getRightNode());
+    }
+
     @Override
     protected Binary compileOperator(ClassCompiler compiler) {
         // Do nothing in this case
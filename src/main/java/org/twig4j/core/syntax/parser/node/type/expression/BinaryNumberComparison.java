@@ -1,9 +1,14 @@
 package org.twig4j.core.syntax.parser.node.type.expression;
 
+import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.ClassCompiler;
+import org.twig4j.core.compiler.TypeInference;
 import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.template.Interpreter;
+import org.twig4j.core.typesystem.Ops;
 
 abstract public class BinaryNumberComparison extends Binary {
     public BinaryNumberComparison(Node left, Node right, Integer line) {
@@ -12,17 +17,58 @@ abstract public class BinaryNumberComparison extends Binary {
 
     @Override
     public void compile(ClassCompiler compiler) throws LoaderException, Twig4jRuntimeException {
+        // Ints compare like they do in java
+        if (TypeInference.getOperandType(getLeftNode(), getRightNode(), compiler) == int.class) {
+            compiler.writeRaw("(");
+            TypeInference.compile(getLeftNode(), compiler);
+            compiler.writeRaw(" ");
+            compileOperator(compiler);
+            compiler.writeRaw(" ");
+            TypeInference.compile(getRightNode(), compiler);
+            compiler.writeRaw(")");
+
+            return;
+        }
+
         compiler
-                .writeRaw("((new org.twig4j.core.typesystem.DynamicType(")
+                .writeRaw("(org.twig4j.core.typesystem.Ops.compare(")
                 .subCompile(getLeftNode())
-                .writeRaw(")).compareTo(")
-                .writeRaw("(new org.twig4j.core.typesystem.DynamicType(")
+                .writeRaw(", ")
                 .subCompile(getRightNode())
-                .writeRaw("))) ");
+                .writeRaw(") ");
 
         compileOperator(compiler);
 
 
         compiler.writeRaw(" 0)");
     }
+
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        switch (getJavaOperator(environment)) {
+            case "<":
+            case "<=":
+            case ">":
+            case ">=":
+                return areNodesInterpretable(environment);
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public Object evaluate(Interpreter interpreter) throws Twig4jException {
+        int comparison = Ops.compare(interpreter.evaluate(getLeftNode()), interpreter.evaluate(getRightNode()));
+
+        switch (getJavaOperator(interpreter.getEnvironment())) {
+            case "<":
+                return comparison < 0;
+            case "<=":
+                return comparison <= 0;
+            case ">":
+                return comparison > 0;
+            default:
+                return comparison >= 0;
+        }
+    }
 }
@@ -1,9 +1,12 @@
 package org.twig4j.core.syntax.parser.node.type.expression;
 
+import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.ClassCompiler;
 import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.template.Interpreter;
 
 public class BinaryStartsWith extends Binary {
     public BinaryStartsWith(Node left, Node right, Integer line) {
@@ -20,6 +23,16 @@ public class BinaryStartsWith extends Binary {
             .writeRaw(")))");
     }
 
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        return !isNullConstant(getLeftNode()) && !isNullConstant(getRightNode()) && areNodesInterpretable(environment);
+    }
+
+    @Override
+    public Object evaluate(Interpreter interpreter) throws Twig4jException {
+        return String.valueOf(interpreter.evaluate(getLeftNode())).startsWith(String.valueOf(interpreter.evaluate(getRightNode())));
+    }
+
     @Override
     protected Binary compileOperator(ClassCompiler compiler) {
         // Do nothing in this case
@@ -1,9 +1,13 @@
 package org.twig4j.core.syntax.parser.node.type.expression;
 
+import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.ClassCompiler;
+import org.twig4j.core.compiler.JavaTypes;
 import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Output;
+import org.twig4j.core.template.Interpreter;
 
 public class BlockReferenceExpression extends Expression implements Output {
     public BlockReferenceExpression(Expression name, Integer line, String tag) {
@@ -20,9 +24,9 @@ public class BlockReferenceExpression extends Expression implements Output {
 
         if ((Boolean) getAttribute("output")) {
             compiler
-                .writeLine("output.append(displayBlock(")
+                .write("displayBlock(")
                    .subCompile(getNode(0))
-                .writeRaw(", context, blocks, true));");
+                .writeRaw(", context, blocks, true, output);\n");
         } else {
             compiler
                 .writeRaw("displayBlock(")
@@ -30,4 +34,20 @@ public class BlockReferenceExpression extends Expression implements Output {
                 .writeRaw(", context, blocks, true)");
         }
     }
+
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        // The block name is passed to displayBlock(String ...)
+        return JavaTypes.getJavaType(getNode(0), environment) == String.class && getNode(0).isInterpretable(environment);
+    }
+
+    @Override
+    public void display(Interpreter interpreter) throws Twig4jException {
+        interpreter.displayBlock((String) interpreter.evaluate(getNode(0)));
+    }
+
+    @Override
+    public Object evaluate(Interpreter interpreter) throws Twig4jException {
+        return interpreter.renderBlock((String) interpreter.evaluate(getNode(0)));
+    }
 }
@@ -1,6 +1,9 @@
 package org.twig4j.core.syntax.parser.node.type.expression;
 
+import org.twig4j.core.Environment;
+import org.twig4j.core.compiler.BytecodeCompiler;
 import org.twig4j.core.compiler.ClassCompiler;
+import org.twig4j.core.template.Interpreter;
 
 public class Constant extends Expression {
     public Constant(Integer line) {
@@ -16,4 +19,28 @@ public class Constant extends Expression {
     public void compile(ClassCompiler compiler) {
         compiler.representValue(attributes.get("data"));
     }
+
+    @Override
+    public boolean compileBytecode(BytecodeCompiler compiler) {
+        return compiler.pushValue(attributes.get("data"));
+    }
+
+    @Override
+    public boolean isInterpretable(Environment environment) {
+        return true;
+    }
+
+    @Override
+    public Object evaluate(Interpreter interpreter) {
+        // The same value as the literal written by ClassCompiler.representValue()
+        Object value = attributes.get("data");
+
+        if (value instanceof Integer || value == null || value.equals(true) || value.equals(false)) {
+            return value;
+        } else if (value instanceof Float || value instanceof Double) {
+            return Double.parseDouble(String.valueOf(value));
+        }
+
+        return String.valueOf(value);
+    }
 }
@@ -1,9 +1,17 @@
 package org.twig4j.core.syntax.parser.node.type.expression;
 
+import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.ClassCompiler;
+import org.twig4j.core.compiler.JavaTypes;
 import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.template.Context;
+import org.twig4j.core.template.Interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
 
 public class Filter extends Call {
     public Filter(Node node, Constant filterName, Node arguments, Integer line, String tag) {
@@ -27,4 +35,68 @@ public class Filter extends Call {
 
         compileCallable(compiler);
     }
+
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        org.twig4j.core.filter.Filter filter = environment.getFilter(String.valueOf(getNode(1).getAttribute("data")));
+
+        // Without the environment there's no comma between the context and the next argument, which doesn't compile
+        if (filter == null || getNode(2) == null || (filter.getOptions().needsContext() && !filter.getOptions().needsEnvironment())) {
+            return false;
+        }
+
+        // The same arguments as compileArguments() writes
+        List<Class<?>> argumentTypes = new ArrayList<>();
+        List<Node> argumentNodes = new ArrayList<>();
+
+        if (filter.getOptions().needsEnvironment()) {
+            argumentTypes.add(Environment.class);
+        }
+        if (filter.getOptions().needsContext()) {
+            argumentTypes.add(Context.class);
+        }
+        if (filter.getArguments() != null) {
+            for (String argument : filter.getArguments()) {
+                argumentTypes.add(String.class);
+            }
+        }
+        if (getNode(0) != null) {
+            argumentNodes.add(getNode(0));
+        }
+        argumentNodes.addAll(getNode(2).getNodes());
+
+        for (Node argument : argumentNodes) {
+            if (!argument.isInterpretable(environment)) {
+                return false;
+            }
+
+            argumentTypes.add(JavaTypes.getJavaType(argument, environment));
+        }
+
+        return JavaTypes.isCallableWith(filter.getMethod(), argumentTypes);
+    }
+
+    @Override
+    public Object evaluate(Interpreter interpreter) throws Twig4jException {
+        org.twig4j.core.filter.Filter filter = interpreter.getEnvironment().getFilter(String.valueOf(getNode(1).getAttribute("data")));
+        List<Object> arguments = new ArrayList<>();
+
+        if (filter.getOptions().needsEnvironment()) {
+            arguments.add(interpreter.getEnvironment());
+        }
+        if (filter.getOptions().needsContext()) {
+            arguments.add(interpreter.getContext());
+        }
+        if (filter.getArguments() != null) {
+            arguments.addAll(filter.getArguments());
+        }
+        if (getNode(0) != null) {
+            arguments.add(interpreter.evaluate(getNode(0)));
+        }
+        for (Node argument : getNode(2).getNodes()) {
+            arguments.add(interpreter.evaluate(argument));
+        }
+
+        return interpreter.invoke(filter.getMethod(), null, arguments.toArray());
+    }
 }
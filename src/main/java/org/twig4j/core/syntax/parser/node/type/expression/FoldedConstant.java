@@ -0,0 +1,48 @@
+package org.twig4j.core.syntax.parser.node.type.expression;
+
+import org.twig4j.core.compiler.ClassCompiler;
+
+/**
+ * The value of an expression of constants, evaluated when the template was compiled (see
+ * {@link org.twig4j.core.nodevisitor.ConstantFoldingNodeVisitor}).
+ *
+ * It keeps the java type the expression had in the compiled code (ie. Number for arithmetic), so the code it's used in
+ * compiles to the same method calls as before it was folded.
+ */
+public class FoldedConstant extends Constant {
+    /**
+     * @param value The value
+     * @param javaType The java type of the folded expression
+     * @param line The line of the expression
+     */
+    public FoldedConstant(Object value, Class<?> javaType, Integer line) {
+        super(value, line);
+
+        putAttribute("java_type", javaType);
+    }
+
+    @Override
+    public void compile(ClassCompiler compiler) {
+        Class<?> javaType = getJavaType();
+
+        // Literals of primitives and strings already have the type
+        if (javaType == null || javaType.isPrimitive() || javaType == String.class) {
+            super.compile(compiler);
+
+            return;
+        }
+
+        compiler.writeRaw("((" + javaType.getCanonicalName() + ") ");
+        super.compile(compiler);
+        compiler.writeRaw(")");
+    }
+
+    /**
+     * Get the java type of the folded expression
+     *
+     * @return The type
+     */
+    public Class<?> getJavaType() {
+        return (Class<?>) attributes.get("java_type");
+    }
+}
@@ -1,8 +1,18 @@
 package org.twig4j.core.syntax.parser.node.type.expression;
 
+import org.twig4j.core.Environment;
+import org.twig4j.core.compiler.BytecodeCompiler;
 import org.twig4j.core.compiler.ClassCompiler;
 import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.syntax.parser.node.type.control.For;
+import org.twig4j.core.template.AttributeAccessor;
+import org.twig4j.core.template.Interpreter;
+import org.twig4j.core.template.LoopContext;
+
+import java.lang.reflect.Modifier;
+import java.util.List;
 
 /**
  * Get an attribute on an object in the context. Can be a "regular" method call (`object.method()`), direct access to a
@@ -29,6 +39,67 @@ public class GetAttr extends Expression {
 
     @Override
     public void compile(ClassCompiler compiler) throws LoaderException, Twig4jRuntimeException {
+        if (compiler.getLoopVariable() != null && For.isLoopAttribute(this)) {
+            String attribute = String.valueOf(getNode(1).getAttribute("data"));
+            String loop = compiler.getLoopVariable();
+
+            // Reported like the interpreter reports it
+            if (LoopContext.LENGTH_ATTRIBUTES.contains(attribute)) {
+                loop += ".requireLength(getTemplateName(), " + getLine() + ")";
+            }
+
+            // Cast to Object so the expression has the same type as getAttribute() would have
+            compiler.writeRaw("((Object) " + loop + "." + getLoopAccessor(attribute) + "())");
+
+            return;
+        }
+
+        // Attributes of variables with a declared type are read directly
+        Class<?> declaredType = getDeclaredType(compiler.getEnvironment());
+        AttributeAccessor accessor = getTypedAccessor(declaredType);
+        if (accessor != null) {
+            compiler
+                    .writeRaw(getTypedAttributeMethod(compiler, declaredType, accessor) + "(")
+                    .subCompile(getNode(0))
+                    .writeRaw(")");
+
+            return;
+        }
+
+        // Attributes without arguments are read through a linked method handle
+        if (hasCallSite() && compiler.getEnvironment().isAttributeLinking()) {
+            String callSite = compiler.getStaticConstant(
+                    "java.lang.invoke.MethodHandle",
+                    "org.twig4j.core.template.AttributeLinker.link(\"" + getNode(1).getAttribute("data") + "\", \"" + getAttribute("type") + "\", " + getLine() + ")"
+            );
+
+            compiler
+                    .writeRaw("org.twig4j.core.template.AttributeLinker.invoke(" + callSite + ", this, ")
+                    .subCompile(getNode(0))
+                    .writeRaw(")");
+
+            return;
+        }
+
+        // or an inline cache of the accessors of the classes seen before
+        if (hasCallSite()) {
+            String callSite = compiler.getStaticConstant(
+                    "org.twig4j.core.template.AttributeCallSite",
+                    "new org.twig4j.core.template.AttributeCallSite(\"" + getNode(1).getAttribute("data") + "\", " + getLine() + ")"
+            );
+
+            compiler
+                    .writeRaw("getAttribute(" + callSite + ", ")
+                    .subCompile(getNode(0))
+                    .writeRaw(", ")
+                    .subCompile(getNode(1))
+                    .writeRaw(", java.util.Collections.emptyList(), ")
+                    .representValue(String.valueOf(getAttribute("type")))
+                    .writeRaw(")");
+
+            return;
+        }
+
         compiler
                 .writeRaw("getAttribute(")
                 .subCompile(getNode(0)) // The "name" node
@@ -40,4 +111,205 @@ public class GetAttr extends Expression {
                 .representValue(String.valueOf(getAttribute("type"))) // ie "method"
                 .writeRaw(")");
     }
+
+    @Override
+    public boolean compileBytecode(BytecodeCompiler compiler) throws LoaderException, Twig4jRuntimeException {
+        // The arguments must be a list
+        if (!(getNode(2) instanceof Array)) {
+            return false;
+        }
+
+        // Typed attributes need a method with a guard, which only the java compiler can write
+        if (getTypedAccessor(getDeclaredType(compiler.getEnvironment())) != null) {
+            return false;
+        }
+
+        if (hasCallSite() && compiler.getEnvironment().isAttributeLinking()) {
+            compiler.loadThis();
+
+            return compiler.subCompile(getNode(0))
+                && compiler.invokeLinkedAttribute(String.valueOf(getNode(1).getAttribute("data")), String.valueOf(getAttribute("type")), getLine());
+        }
+
+        compiler.loadThis();
+        for (int i = 0; i < 3; i++) {
+            if (!compiler.subCompile(getNode(i))) {
+                return false;
+            }
+        }
+        compiler.getMethod().pushString(String.valueOf(getAttribute("type")));
+        compiler.invokeTemplateMethod("getAttribute", "(Ljava/lang/Object;Ljava/lang/Object;Ljava/util/List;Ljava/lang/String;)Ljava/lang/Object;");
+
+        return true;
+    }
+
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        // The arguments must be a list
+        return getNode(2) instanceof Array && areNodesInterpretable(environment);
+    }
+
+    @Override
+    public Object evaluate(Interpreter interpreter) throws Twig4jException {
+        Object object = interpreter.evaluate(getNode(0));
+        Object attribute = interpreter.evaluate(getNode(1));
+        // The arguments are an array node (see isInterpretable), which evaluates to a list
+        @SuppressWarnings("unchecked")
+        List<Object> arguments = (List<Object>) interpreter.evaluate(getNode(2));
+
+        if (object instanceof LoopContext && For.isLoopAttribute(this) && LoopContext.LENGTH_ATTRIBUTES.contains(getNode(1).getAttribute("data"))) {
+            ((LoopContext) object).requireLength(interpreter.getTemplate().getTemplateName(), getLine());
+        }
+
+        return interpreter.getAttribute(
+                object,
+                attribute,
+                arguments,
+                String.valueOf(getAttribute("type"))
+        );
+    }
+
+    /**
+     * Whether the compiled code reads the attribute through an {@link org.twig4j.core.template.AttributeCallSite}, which
+     * it does for attributes with a constant name and no arguments that aren't array keys
+     *
+     * @return Whether there's a call site
+     *
+     * @throws Twig4jRuntimeException If the node is missing attributes
+     */
+    protected boolean hasCallSite() throws Twig4jRuntimeException {
+        return getNode(1) instanceof Constant
+            && getNode(1).getAttribute("data") instanceof String
+            && isIdentifier((String) getNode(1).getAttribute("data"))
+            && getNode(2) instanceof Array
+            && getNode(2).getNodes().isEmpty()
+            && !"array".equals(getAttribute("type"));
+    }
+
+    /**
+     * Get the declared type (see {@link Environment#declareType(String, Class)}) of the variable the attribute is read
+     * from, if the template classes can use it
+     *
+     * @param environment The environment
+     *
+     * @return The class or null if it isn't declared or can't be used
+     *
+     * @throws Twig4jRuntimeException If a node is missing attributes
+     */
+    protected Class<?> getDeclaredType(Environment environment) throws Twig4jRuntimeException {
+        if (!(getNode(0) instanceof Name) || !hasCallSite()) {
+            return null;
+        }
+
+        Class<?> type = environment.getDeclaredType(String.valueOf(getNode(0).getAttribute("name")));
+        if (type == null || type.isArray() || type.isPrimitive() || type.getCanonicalName() == null) {
+            return null;
+        }
+
+        // The template classes are in a package, so they can't refer to classes in the unnamed package
+        if (type.getPackage() == null || type.getPackage().getName().isEmpty()) {
+            return null;
+        }
+
+        for (Class<?> enclosingClass = type; enclosingClass != null; enclosingClass = enclosingClass.getEnclosingClass()) {
+            if (!Modifier.isPublic(enclosingClass.getModifiers())) {
+                return null;
+            }
+        }
+
+        try {
+            return Class.forName(type.getName(), false, environment.getRuntimeTemplateCompiler().getParentClassLoader()) == type ? type : null;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the accessor getAttribute() reads the attribute of objects of the declared type with
+     *
+     * @return The accessor or null if it can't be called directly
+     */
+    private AttributeAccessor getTypedAccessor(Class<?> declaredType) throws Twig4jRuntimeException {
+        if (declaredType == null) {
+            return null;
+        }
+
+        AttributeAccessor accessor = AttributeAccessor.getCacheable(declaredType, String.valueOf(getNode(1).getAttribute("data")), String.valueOf(getAttribute("type")));
+        if (accessor == null || accessor.isField()) {
+            return accessor;
+        }
+
+        // Void methods can't be returned (getAttribute() returns null for them)
+        try {
+            return declaredType.getMethod(accessor.getName()).getReturnType() == void.class ? null : accessor;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Get a method reading the attribute directly from objects of the declared type and with getAttribute() from
+     * anything else (including subclasses, which might have other fields)
+     */
+    private String getTypedAttributeMethod(ClassCompiler compiler, Class<?> declaredType, AttributeAccessor accessor) throws Twig4jRuntimeException {
+        String type = declaredType.getCanonicalName();
+        String getAttribute = "return getAttribute(object, \"" + getNode(1).getAttribute("data") + "\", java.util.Collections.emptyList(), \"" + getAttribute("type") + "\");";
+        String guard = "if (object != null && object.getClass() == " + type + ".class) {";
+
+        if (accessor.isField()) {
+            return compiler.getPrivateMethod(
+                    "Object %s(Object object) throws org.twig4j.core.exception.Twig4jRuntimeException",
+                    guard,
+                    "    return ((" + type + ") object)." + accessor.getName() + ";",
+                    "}",
+                    "",
+                    getAttribute
+            );
+        }
+
+        return compiler.getPrivateMethod(
+                "Object %s(Object object) throws org.twig4j.core.exception.Twig4jRuntimeException",
+                guard,
+                "    try {",
+                "        return ((" + type + ") object)." + accessor.getName() + "();",
+                "    } catch (Throwable e) {",
+                "        // Like getAttribute() fails when the method throws",
+                "        throw org.twig4j.core.exception.Twig4jRuntimeException.invocationTargetException(\"" + accessor.getName() + "\", object.getClass().getName(), getTemplateName(), new java.lang.reflect.InvocationTargetException(e));",
+                "    }",
+                "}",
+                "",
+                getAttribute
+        );
+    }
+
+    private static boolean isIdentifier(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+
+        for (char character : name.toCharArray()) {
+            if (!Character.isJavaIdentifierPart(character)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the method of {@link org.twig4j.core.template.LoopContext} returning an attribute of the loop variable
+     *
+     * @param attribute The attribute (ie. "index")
+     *
+     * @return The method name (ie. "getIndex")
+     */
+    public static String getLoopAccessor(String attribute) {
+        switch (attribute) {
+            case "first":
+            case "last":
+                return "is" + attribute.substring(0, 1).toUpperCase() + attribute.substring(1);
+            default:
+                return "get" + attribute.substring(0, 1).toUpperCase() + attribute.substring(1);
+        }
+    }
 }
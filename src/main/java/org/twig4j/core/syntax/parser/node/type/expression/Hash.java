@@ -1,8 +1,11 @@
 package org.twig4j.core.syntax.parser.node.type.expression;
 
+import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.ClassCompiler;
 import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.template.Interpreter;
 
 public class Hash extends Expression {
     public Hash(Integer line) {
@@ -27,4 +30,26 @@ public class Hash extends Expression {
 
         compiler.writeRaw(")");
     }
+
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        for (Object expr : attributes.values()) {
+            if (!((Expression) expr).isInterpretable(environment)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public Object evaluate(Interpreter interpreter) throws Twig4jException {
+        org.twig4j.core.util.HashMap hash = new org.twig4j.core.util.HashMap();
+
+        for (String key : attributes.keySet()) {
+            hash.put(key, interpreter.evaluate((Expression) attributes.get(key)));
+        }
+
+        return hash;
+    }
 }
@@ -1,8 +1,12 @@
 package org.twig4j.core.syntax.parser.node.type.expression;
 
+import org.twig4j.core.Environment;
+import org.twig4j.core.compiler.BytecodeCompiler;
 import org.twig4j.core.compiler.ClassCompiler;
+import org.twig4j.core.compiler.VariableScope;
 import org.twig4j.core.exception.LoaderException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.template.Interpreter;
 
 public class Name extends Expression {
     public Name(String name, Integer line) {
@@ -12,6 +16,38 @@ public class Name extends Expression {
 
     @Override
     public void compile(ClassCompiler compiler) throws LoaderException, Twig4jRuntimeException {
-        compiler.writeRaw("getContext(context, \"" + getAttribute("name") + "\", false, " + getLine() +")");
+        String name = String.valueOf(getAttribute("name"));
+
+        if (compiler.isLocalVariable(name)) {
+            // Only variables that aren't defined are looked up, for the strict variables check
+            compiler.writeRaw(
+                "(" + VariableScope.getDefinedVariable(name) + " ? " + VariableScope.getValueVariable(name)
+                    + " : getContext(context, \"" + name + "\", false, " + getLine() + "))"
+            );
+        } else {
+            compiler.writeRaw("getContext(context, \"" + name + "\", false, " + getLine() +")");
+        }
+    }
+
+    @Override
+    public boolean compileBytecode(BytecodeCompiler compiler) throws Twig4jRuntimeException {
+        compiler.loadThis().loadContext();
+        compiler.getMethod()
+                .pushString(String.valueOf(getAttribute("name")))
+                .pushInt(0);
+        compiler.pushValue(getLine());
+        compiler.invokeTemplateMethod("getContext", "(Ljava/util/Map;Ljava/lang/String;ZLjava/lang/Integer;)Ljava/lang/Object;");
+
+        return true;
+    }
+
+    @Override
+    public boolean isInterpretable(Environment environment) {
+        return true;
+    }
+
+    @Override
+    public Object evaluate(Interpreter interpreter) throws Twig4jRuntimeException {
+        return interpreter.getContextVariable(String.valueOf(getAttribute("name")), getLine());
     }
 }
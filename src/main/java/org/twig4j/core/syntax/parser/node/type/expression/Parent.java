@@ -1,8 +1,11 @@
 package org.twig4j.core.syntax.parser.node.type.expression;
 
+import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.ClassCompiler;
 import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.template.Interpreter;
 
 public class Parent extends Expression {
     public Parent(Integer line) {
@@ -19,4 +22,31 @@ public class Parent extends Expression {
     public void compile(ClassCompiler compiler) throws LoaderException, Twig4jRuntimeException {
         compiler.writeRaw("displayParentBlock(\"" + getAttribute("name") + "\", context, blocks)");
     }
+
+    /**
+     * Compile displaying the parent block straight to the output (ie. for {{ parent() }})
+     *
+     * @param compiler The compiler
+     *
+     * @throws LoaderException Never
+     * @throws Twig4jRuntimeException Never
+     */
+    public void compileDisplay(ClassCompiler compiler) throws LoaderException, Twig4jRuntimeException {
+        compiler.writeLine("displayParentBlock(\"" + getAttribute("name") + "\", context, blocks, output);");
+    }
+
+    @Override
+    public boolean isInterpretable(Environment environment) {
+        return hasAttribute("name");
+    }
+
+    @Override
+    public void display(Interpreter interpreter) throws Twig4jException {
+        interpreter.displayParentBlock(String.valueOf(getAttribute("name")));
+    }
+
+    @Override
+    public Object evaluate(Interpreter interpreter) throws Twig4jException {
+        return interpreter.renderParentBlock(String.valueOf(getAttribute("name")));
+    }
 }
@@ -0,0 +1,53 @@
+package org.twig4j.core.syntax.parser.node.type.expression;
+
+import org.twig4j.core.Environment;
+import org.twig4j.core.compiler.ClassCompiler;
+import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.template.Interpreter;
+
+import java.util.List;
+
+/**
+ * A range of constants (ie. 1..12), created once in a static field of the template class instead of on every render
+ * (see {@link org.twig4j.core.nodevisitor.ConstantFoldingNodeVisitor}). The list is shared, so it's unmodifiable.
+ */
+public class RangeConstant extends Expression {
+    /**
+     * @param from The first value of the range
+     * @param to The last value of the range
+     * @param values The values of the range (unmodifiable)
+     * @param line The line of the range
+     */
+    public RangeConstant(Constant from, Constant to, List<?> values, Integer line) {
+        super(line);
+
+        addNode(0, from);
+        addNode(1, to);
+        putAttribute("data", values);
+    }
+
+    @Override
+    public void compile(ClassCompiler compiler) throws LoaderException, Twig4jRuntimeException {
+        ClassCompiler initializerCompiler = new ClassCompiler(compiler.getEnvironment());
+        initializerCompiler
+                .writeRaw("java.util.Collections.unmodifiableList(org.twig4j.core.util.Php.range(")
+                .subCompile(getNode(0))
+                .writeRaw(", ")
+                .subCompile(getNode(1))
+                .writeRaw("))");
+
+        compiler.writeRaw(compiler.getStaticConstant("java.util.List", initializerCompiler.getSourceCode()));
+    }
+
+    @Override
+    public boolean isInterpretable(Environment environment) {
+        return true;
+    }
+
+    @Override
+    public Object evaluate(Interpreter interpreter) {
+        return attributes.get("data");
+    }
+}
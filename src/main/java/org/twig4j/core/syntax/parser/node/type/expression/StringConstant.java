@@ -1,6 +1,8 @@
 package org.twig4j.core.syntax.parser.node.type.expression;
 
+import org.twig4j.core.compiler.BytecodeCompiler;
 import org.twig4j.core.compiler.ClassCompiler;
+import org.twig4j.core.template.Interpreter;
 
 public class StringConstant extends Constant {
     public StringConstant(Integer line) {
@@ -16,4 +18,14 @@ public class StringConstant extends Constant {
     public void compile(ClassCompiler compiler) {
         compiler.writeString(String.valueOf(attributes.get("data")));
     }
+
+    @Override
+    public boolean compileBytecode(BytecodeCompiler compiler) {
+        return compiler.pushString(String.valueOf(attributes.get("data")));
+    }
+
+    @Override
+    public Object evaluate(Interpreter interpreter) {
+        return String.valueOf(attributes.get("data"));
+    }
 }
@@ -1,9 +1,14 @@
 package org.twig4j.core.syntax.parser.node.type.expression;
 
+import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.ClassCompiler;
+import org.twig4j.core.compiler.TypeInference;
 import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.template.Interpreter;
+import org.twig4j.core.typesystem.Ops;
 
 public class UnaryNot extends Unary {
     public UnaryNot(Node node, Integer line) {
@@ -12,10 +17,28 @@ public class UnaryNot extends Unary {
 
     @Override
     public void compile(ClassCompiler compiler) throws LoaderException, Twig4jRuntimeException {
+        if (TypeInference.getType(getNode(0), compiler) == boolean.class) {
+            compiler.writeRaw(" !(");
+            TypeInference.compile(getNode(0), compiler);
+            compiler.writeRaw(")");
+
+            return;
+        }
+
         compiler
-            .writeRaw(" !(new org.twig4j.core.typesystem.DynamicType(")
+            .writeRaw(" !org.twig4j.core.typesystem.Ops.truthy(")
             .subCompile(getNode(0))
-            .writeRaw(")).toBoolean()");
+            .writeRaw(")");
+    }
+
+    @Override
+    public boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        return areNodesInterpretable(environment);
+    }
+
+    @Override
+    public Object evaluate(Interpreter interpreter) throws Twig4jException {
+        return !Ops.truthy(interpreter.evaluate(getNode(0)));
     }
 
     @Override
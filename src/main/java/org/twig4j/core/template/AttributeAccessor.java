@@ -0,0 +1,330 @@
+package org.twig4j.core.template;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * How an attribute is read from objects of a class: a public field, a method, a getter (`getProperty()`), an "isser"
+ * (`isProperty()`), a "hasser" (`hasProperty()`) or nothing at all.
+ *
+ * Accessors are looked up once per class, attribute and argument types and cached (including missing ones), so
+ * {@link Template#getAttribute(Object, Object, List, String)} doesn't have to look for fields and methods with
+ * reflection every time it's called. Accessors call the field or method through a method handle, or through
+ * reflection if the method handle can't be created, which fails with the same exception as it did without the cache.
+ */
+public class AttributeAccessor {
+    private static final ClassValue<ClassAccessors> CLASS_ACCESSORS = new ClassValue<ClassAccessors>() {
+        @Override
+        protected ClassAccessors computeValue(Class<?> type) {
+            return new ClassAccessors();
+        }
+    };
+
+    private static final AttributeAccessor NO_FIELD = new AttributeAccessor(null, null, null, null);
+
+    // Field and method handles take the object and return the value
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    // Method handles with arguments take them as an array
+    private static final MethodType METHOD_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    private String name;
+    private MethodHandle handle;
+    private Method method;
+    private String missingMessage;
+
+    private AttributeAccessor(String name, MethodHandle handle, Method method, String missingMessage) {
+        this.name = name;
+        this.handle = handle;
+        this.method = method;
+        this.missingMessage = missingMessage;
+    }
+
+    /**
+     * Get the accessor of the public field of a class
+     *
+     * @param type The class
+     * @param name The field name
+     *
+     * @return The accessor or null if there's no field that can be read
+     */
+    public static AttributeAccessor getField(Class<?> type, String name) {
+        ConcurrentMap<String, AttributeAccessor> fields = CLASS_ACCESSORS.get(type).fields;
+        AttributeAccessor accessor = fields.get(name);
+
+        if (accessor == null) {
+            accessor = findField(type, name);
+            fields.putIfAbsent(name, accessor);
+        }
+
+        return accessor == NO_FIELD ? null : accessor;
+    }
+
+    /**
+     * Get the accessor of a method (ie. `property(arguments)`) or else a getter, "isser" or "hasser" (which don't take
+     * arguments) of a class
+     *
+     * @param type The class
+     * @param name The attribute name
+     * @param arguments The arguments the method is called with
+     *
+     * @return The accessor, see {@link #exists()}
+     */
+    public static AttributeAccessor getMethod(Class<?> type, String name, List<Object> arguments) {
+        Class<?>[] argumentClasses = new Class<?>[arguments.size()];
+        for (int i = 0; i < argumentClasses.length; i++) {
+            argumentClasses[i] = arguments.get(i).getClass();
+        }
+
+        String key = argumentClasses.length == 0 ? name : name + getArgumentTypes(argumentClasses);
+        ConcurrentMap<String, AttributeAccessor> methods = CLASS_ACCESSORS.get(type).methods;
+        AttributeAccessor accessor = methods.get(key);
+
+        if (accessor == null) {
+            accessor = findMethod(type, name, argumentClasses);
+            methods.putIfAbsent(key, accessor);
+        }
+
+        return accessor;
+    }
+
+    /**
+     * Get the accessor {@link Template#getAttribute(Object, Object, List, String)} reads an attribute of an object
+     * with, if it's the same for all objects of its class
+     *
+     * @param object The object
+     * @param item The attribute
+     * @param arguments The arguments of the method
+     * @param type Whether it's an array, a method or any attribute
+     *
+     * @return The accessor or null if it depends on the object (ie. for lists and maps) or there's no such attribute
+     */
+    public static AttributeAccessor getCacheable(Object object, Object item, List<Object> arguments, String type) {
+        if (object == null || !(item instanceof String) || !arguments.isEmpty()) {
+            return null;
+        }
+
+        return getCacheable(object.getClass(), (String) item, type);
+    }
+
+    /**
+     * Get the accessor {@link Template#getAttribute(Object, Object, List, String)} reads an attribute without arguments
+     * of all objects of a class with
+     *
+     * @param objectClass The class of the objects
+     * @param attribute The attribute
+     * @param type Whether it's an array, a method or any attribute
+     *
+     * @return The accessor or null if it depends on the object (ie. for lists and maps) or there's no such attribute
+     */
+    public static AttributeAccessor getCacheable(Class<?> objectClass, String attribute, String type) {
+        if (
+            type.equals("array")
+            || List.class.isAssignableFrom(objectClass)
+            || Map.class.isAssignableFrom(objectClass)
+            || Template.class.isAssignableFrom(objectClass)
+            || objectClass == Integer.class
+            || objectClass == String.class
+            || objectClass == Float.class
+            || objectClass == Double.class
+            || objectClass == Boolean.class
+        ) {
+            return null;
+        }
+
+        if (!type.equals("method")) {
+            AttributeAccessor field = getField(objectClass, attribute);
+
+            if (field != null) {
+                return field;
+            }
+        }
+
+        AttributeAccessor method = getMethod(objectClass, attribute, Collections.emptyList());
+
+        return method.exists() ? method : null;
+    }
+
+    /**
+     * Whether the class has the attribute
+     *
+     * @return Whether the accessor can be invoked
+     */
+    public boolean exists() {
+        return missingMessage == null;
+    }
+
+    /**
+     * Get the name of the field or method
+     *
+     * @return The name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Whether the accessor reads a public field
+     *
+     * @return Whether it's a field
+     */
+    public boolean isField() {
+        return method == null && exists();
+    }
+
+    /**
+     * Get the method handle reading the attribute, taking the object and returning the value if the attribute doesn't
+     * take arguments
+     *
+     * @return The method handle or null if the attribute is read with reflection
+     */
+    MethodHandle getGetterHandle() {
+        return handle != null && handle.type().equals(GETTER_TYPE) ? handle : null;
+    }
+
+    /**
+     * Get the exception Class.getMethod() threw looking for the method if the class doesn't have the attribute
+     *
+     * @return The exception
+     */
+    public NoSuchMethodException getMissingException() {
+        return new NoSuchMethodException(missingMessage);
+    }
+
+    /**
+     * Read the attribute from an object
+     *
+     * @param object The object, an instance of the class of the accessor
+     * @param arguments The arguments of the method (not passed to getters, issers and hassers)
+     *
+     * @return The value
+     *
+     * @throws IllegalAccessException If the method can't be called
+     * @throws InvocationTargetException If the method throws anything
+     */
+    public Object invoke(Object object, List<Object> arguments) throws IllegalAccessException, InvocationTargetException {
+        if (handle == null) {
+            return method.invoke(object, method.getParameterCount() == 0 ? new Object[0] : arguments.toArray());
+        }
+
+        try {
+            if (handle.type().equals(GETTER_TYPE)) {
+                return handle.invokeExact(object);
+            }
+
+            return handle.invokeExact(object, arguments.toArray());
+        } catch (Throwable e) {
+            // Like Method.invoke() does
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    private static AttributeAccessor findField(Class<?> type, String name) {
+        Field field;
+        try {
+            field = type.getField(name);
+        } catch (NoSuchFieldException e) {
+            return NO_FIELD;
+        }
+
+        try {
+            return new AttributeAccessor(name, toGetterType(MethodHandles.lookup().unreflectGetter(field), Modifier.isStatic(field.getModifiers())), null, null);
+        } catch (IllegalAccessException e) {
+            // Field.get() fails as well, so there might be a getter instead
+            return NO_FIELD;
+        }
+    }
+
+    private static AttributeAccessor findMethod(Class<?> type, String name, Class<?>[] argumentClasses) {
+        // Used for (get|is|has)Property
+        String propertyNameWithUpperFirst = name.substring(0, 1).toUpperCase() + name.substring(1);
+
+        Method method;
+        try {
+            method = type.getMethod(name, argumentClasses);
+        } catch (NoSuchMethodException e) {
+            method = null;
+        }
+
+        // Methods without arguments are tried as a getter, "isser" or "hasser"
+        for (String prefix : new String[] {"get", "is", "has"}) {
+            if (method != null) {
+                break;
+            }
+
+            try {
+                method = type.getMethod(prefix + propertyNameWithUpperFirst);
+            } catch (NoSuchMethodException e) {
+                method = null;
+            }
+        }
+
+        if (method == null) {
+            // The message of the exception looking for the method itself
+            return new AttributeAccessor(name, null, null, type.getName() + "." + name + getArgumentTypes(argumentClasses));
+        }
+
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            // Method.invoke() throws the same exception
+            return new AttributeAccessor(method.getName(), null, method, null);
+        }
+
+        boolean isStatic = Modifier.isStatic(method.getModifiers());
+
+        if (method.getParameterCount() == 0) {
+            return new AttributeAccessor(method.getName(), toGetterType(handle, isStatic), method, null);
+        }
+
+        if (isStatic) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+
+        handle = handle
+            .asSpreader(Object[].class, method.getParameterCount())
+            .asType(METHOD_TYPE);
+
+        return new AttributeAccessor(method.getName(), handle, method, null);
+    }
+
+    private static MethodHandle toGetterType(MethodHandle handle, boolean isStatic) {
+        if (isStatic) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+
+        return handle.asType(GETTER_TYPE);
+    }
+
+    private static String getArgumentTypes(Class<?>[] argumentClasses) {
+        StringBuilder argumentTypes = new StringBuilder("(");
+
+        for (int i = 0; i < argumentClasses.length; i++) {
+            if (i > 0) {
+                argumentTypes.append(", ");
+            }
+
+            argumentTypes.append(argumentClasses[i].getName());
+        }
+
+        return argumentTypes.append(")").toString();
+    }
+
+    /**
+     * The accessors of a class by attribute name
+     */
+    private static class ClassAccessors {
+        private final ConcurrentMap<String, AttributeAccessor> fields = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, AttributeAccessor> methods = new ConcurrentHashMap<>();
+    }
+}
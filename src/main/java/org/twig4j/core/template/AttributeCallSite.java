@@ -0,0 +1,153 @@
+package org.twig4j.core.template;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An inline cache of a compiled attribute access (ie. `user.name`), remembering the accessor (see
+ * {@link AttributeAccessor}) of the last few receiver classes it has seen. A receiver of one of those classes is read
+ * with one class check and a direct call, anything else goes through
+ * {@link Template#getAttribute(Object, Object, java.util.List, String)}.
+ *
+ * Only accesses without arguments to objects that aren't lists, maps, templates or scalars are cached, as what those
+ * return depends on the object itself and not only its class. Accesses of the same attribute on the same line share
+ * a call site. Hits and misses are counted when the environment is in debug mode.
+ */
+public class AttributeCallSite {
+    /**
+     * The number of receiver classes a call site remembers, receivers of other classes always miss
+     */
+    public static final int MAX_RECEIVER_CLASSES = 4;
+
+    private String attribute;
+    private Integer line;
+    private volatile Entry[] entries = new Entry[0];
+    private AtomicLong hits = new AtomicLong();
+    private AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param attribute The attribute the call site reads
+     * @param line The line of the call site
+     */
+    public AttributeCallSite(String attribute, Integer line) {
+        this.attribute = attribute;
+        this.line = line;
+    }
+
+    /**
+     * Get the accessor cached for the class of an object
+     *
+     * @param object The object
+     *
+     * @return The accessor or null if the class isn't cached
+     */
+    public AttributeAccessor getAccessor(Object object) {
+        if (object == null) {
+            return null;
+        }
+
+        return getAccessor(object.getClass(), entries);
+    }
+
+    /**
+     * Cache the accessor of a class, unless the call site already remembers as many classes as it can
+     *
+     * @param receiverClass The class
+     * @param accessor The accessor
+     */
+    public void addAccessor(Class<?> receiverClass, AttributeAccessor accessor) {
+        Entry[] entries = this.entries;
+
+        if (entries.length < MAX_RECEIVER_CLASSES && getAccessor(receiverClass, entries) == null) {
+            Entry[] newEntries = new Entry[entries.length + 1];
+            System.arraycopy(entries, 0, newEntries, 0, entries.length);
+            newEntries[entries.length] = new Entry(receiverClass, accessor);
+
+            // Concurrent additions might lose an entry, which is only looked up again
+            this.entries = newEntries;
+        }
+    }
+
+    /**
+     * Count a read of a cached class
+     */
+    public void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    /**
+     * Count a read of a class that isn't cached
+     */
+    public void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    /**
+     * Get the number of reads of cached classes (only counted in debug mode)
+     *
+     * @return The number of hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get the number of reads of classes that weren't cached (only counted in debug mode)
+     *
+     * @return The number of misses
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Get the number of receiver classes the call site remembers
+     *
+     * @return The number of classes
+     */
+    public int getReceiverClassCount() {
+        return entries.length;
+    }
+
+    /**
+     * Get the attribute the call site reads
+     *
+     * @return The attribute name
+     */
+    public String getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * Get the line of the call site
+     *
+     * @return The line
+     */
+    public Integer getLine() {
+        return line;
+    }
+
+    private static AttributeAccessor getAccessor(Class<?> receiverClass, Entry[] entries) {
+        for (Entry entry : entries) {
+            if (entry.receiverClass == receiverClass) {
+                return entry.accessor;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "." + attribute + " on line " + line + " (" + getHits() + " hits, " + getMisses() + " misses, " + getReceiverClassCount() + " classes)";
+    }
+
+    private static class Entry {
+        private final Class<?> receiverClass;
+        private final AttributeAccessor accessor;
+
+        private Entry(Class<?> receiverClass, AttributeAccessor accessor) {
+            this.receiverClass = receiverClass;
+            this.accessor = accessor;
+        }
+    }
+}
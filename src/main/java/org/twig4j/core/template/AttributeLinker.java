@@ -0,0 +1,171 @@
+package org.twig4j.core.template;
+
+import org.twig4j.core.exception.Twig4jRuntimeException;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Links compiled attribute accesses (ie. `user.name`) as method handle call sites, which the JIT can inline straight
+ * through to the getter or field read, instead of resolving the attribute in
+ * {@link Template#getAttribute(Object, Object, List, String)}.
+ *
+ * A call site starts out calling getAttribute(). Every time it sees an object of a new class that getAttribute() reads
+ * the same way for all objects of the class (see {@link AttributeAccessor#getCacheable(Object, Object, List, String)}),
+ * it's relinked to check for that class first and read the attribute directly, up to
+ * {@link AttributeCallSite#MAX_RECEIVER_CLASSES} classes.
+ *
+ * The bytecode backend links call sites with invokedynamic (see {@link #bootstrap}), the javac backend keeps the
+ * {@link #link(String, String, Integer) linked method handle} in a static final field and calls it with
+ * {@link #invoke(MethodHandle, Template, Object)}.
+ */
+public class AttributeLinker {
+    /**
+     * The type of the call sites, taking the template and the object and returning the value
+     */
+    public static final MethodType CALL_SITE_TYPE = MethodType.methodType(Object.class, Template.class, Object.class);
+
+    private static final MethodHandle FALLBACK;
+    private static final MethodHandle IS_RECEIVER_CLASS;
+    private static final MethodHandle FAIL;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+            FALLBACK = lookup.findVirtual(AttributeSite.class, "fallback", CALL_SITE_TYPE);
+            IS_RECEIVER_CLASS = lookup.findStatic(AttributeLinker.class, "isReceiverClass", MethodType.methodType(boolean.class, Class.class, Object.class));
+            FAIL = lookup.findStatic(AttributeLinker.class, "fail", MethodType.methodType(Object.class, AttributeAccessor.class, Throwable.class, Template.class, Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private AttributeLinker() {
+    }
+
+    /**
+     * The bootstrap method of invokedynamic attribute accesses
+     *
+     * @param lookup The lookup of the template class
+     * @param name The name of the call site (not used)
+     * @param type The type of the call site, (Template, Object)Object
+     * @param attribute The attribute to get
+     * @param accessType Whether it's a method or any attribute
+     * @param line The line of the attribute access
+     *
+     * @return The call site
+     */
+    public static CallSite bootstrap(MethodHandles.Lookup lookup, String name, MethodType type, String attribute, String accessType, int line) {
+        return new AttributeSite(attribute, accessType, line);
+    }
+
+    /**
+     * Create a call site for the javac backend
+     *
+     * @param attribute The attribute to get
+     * @param accessType Whether it's a method or any attribute
+     * @param line The line of the attribute access
+     *
+     * @return The method handle calling the call site, to be called with {@link #invoke(MethodHandle, Template, Object)}
+     */
+    public static MethodHandle link(String attribute, String accessType, Integer line) {
+        return new AttributeSite(attribute, accessType, line).dynamicInvoker();
+    }
+
+    /**
+     * Call a call site created with {@link #link(String, String, Integer)}. Kept small so it's inlined into the
+     * template, where the method handle is a constant.
+     *
+     * @param callSite The method handle of the call site
+     * @param template The template
+     * @param object The object to get the attribute on
+     *
+     * @return The value
+     *
+     * @throws Twig4jRuntimeException If the attribute can't be accessed
+     */
+    public static Object invoke(MethodHandle callSite, Template template, Object object) throws Twig4jRuntimeException {
+        try {
+            return (Object) callSite.invokeExact(template, object);
+        } catch (Twig4jRuntimeException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // Nothing else is thrown by getAttribute() or the accessors
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isReceiverClass(Class<?> receiverClass, Object object) {
+        return object != null && object.getClass() == receiverClass;
+    }
+
+    private static Object fail(AttributeAccessor accessor, Throwable e, Template template, Object object) throws Twig4jRuntimeException {
+        // Like getAttribute() fails when the method throws
+        throw Twig4jRuntimeException.invocationTargetException(accessor.getName(), object.getClass().getName(), template.getTemplateName(), new InvocationTargetException(e));
+    }
+
+    /**
+     * A call site of an attribute access
+     */
+    static class AttributeSite extends MutableCallSite {
+        private String attribute;
+        private String accessType;
+        private Integer line;
+        private int receiverClasses = 0;
+
+        private AttributeSite(String attribute, String accessType, Integer line) {
+            super(CALL_SITE_TYPE);
+
+            this.attribute = attribute;
+            this.accessType = accessType;
+            this.line = line;
+
+            setTarget(FALLBACK.bindTo(this));
+        }
+
+        /**
+         * Get the attribute with getAttribute() and link the class of the object if it can be
+         */
+        Object fallback(Template template, Object object) throws Twig4jRuntimeException {
+            List<Object> arguments = Collections.emptyList();
+            Object value = template.getAttribute(object, attribute, arguments, accessType);
+
+            AttributeAccessor accessor = AttributeAccessor.getCacheable(object, attribute, arguments, accessType);
+            if (accessor != null && accessor.getGetterHandle() != null) {
+                link(object.getClass(), accessor);
+            }
+
+            return value;
+        }
+
+        private synchronized void link(Class<?> receiverClass, AttributeAccessor accessor) {
+            if (receiverClasses >= AttributeCallSite.MAX_RECEIVER_CLASSES) {
+                return;
+            }
+
+            // (Template, Object) => boolean
+            MethodHandle test = MethodHandles.dropArguments(IS_RECEIVER_CLASS.bindTo(receiverClass), 0, Template.class);
+            // (Template, Object) => Object, failing like getAttribute() does
+            MethodHandle read = MethodHandles.catchException(
+                    MethodHandles.dropArguments(accessor.getGetterHandle(), 0, Template.class),
+                    Throwable.class,
+                    FAIL.bindTo(accessor)
+            );
+
+            setTarget(MethodHandles.guardWithTest(test, read, getTarget()));
+            receiverClasses++;
+        }
+
+        @Override
+        public String toString() {
+            return "." + attribute + " on line " + line + " (" + receiverClasses + " classes)";
+        }
+    }
+}
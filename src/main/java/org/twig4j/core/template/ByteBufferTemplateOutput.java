@@ -0,0 +1,184 @@
+package org.twig4j.core.template;
+
+import org.twig4j.core.exception.Twig4jRuntimeException;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Renders a template to a list of byte buffers, for servers doing gathering writes.
+ *
+ * The static text of UTF-8 output isn't copied: its segments are read-only views of the byte arrays the template class
+ * encoded once (a view per render, since writing a buffer moves its position). Only dynamic output is encoded, into
+ * chunks that are sliced into segments between the static texts.
+ */
+public class ByteBufferTemplateOutput extends TemplateOutput {
+    private static final int DEFAULT_CHUNK_SIZE = 4096;
+    /**
+     * Shorter static texts are copied into the chunk with the dynamic output, many tiny segments would make the
+     * gathering write slower than the copy
+     */
+    private static final int MIN_SEGMENT_LENGTH = 64;
+
+    private Charset charset;
+    private CharsetEncoder encoder;
+    private int chunkSize;
+    private ByteBuffer chunk;
+    private int segmentStart = 0;
+    private List<ByteBuffer> segments = new ArrayList<>();
+
+    /**
+     * Write UTF-8
+     */
+    public ByteBufferTemplateOutput() {
+        this(StandardCharsets.UTF_8, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param charset The charset to encode the output with
+     * @param chunkSize The size of the buffers dynamic output is encoded into
+     */
+    public ByteBufferTemplateOutput(Charset charset, int chunkSize) {
+        this.charset = charset;
+        this.chunkSize = chunkSize;
+        // Same replacements as String.getBytes()
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public TemplateOutput append(String text) throws Twig4jRuntimeException {
+        if (text.isEmpty()) {
+            return this;
+        }
+
+        CharBuffer chars = CharBuffer.wrap(text);
+        CoderResult result;
+
+        if (chunk == null) {
+            newChunk();
+        }
+
+        try {
+            encoder.reset();
+
+            do {
+                result = encoder.encode(chars, chunk, true);
+
+                if (result.isOverflow()) {
+                    newChunk();
+                } else if (result.isError()) {
+                    result.throwException();
+                }
+            } while (!result.isUnderflow());
+
+            do {
+                result = encoder.flush(chunk);
+
+                if (result.isOverflow()) {
+                    newChunk();
+                }
+            } while (result.isOverflow());
+        } catch (CharacterCodingException e) {
+            throw new Twig4jRuntimeException("Failed writing the output (\"" + e.getMessage() + "\")", null, -1, e);
+        }
+
+        return this;
+    }
+
+    @Override
+    public TemplateOutput appendText(String text, byte[] utf8Text) throws Twig4jRuntimeException {
+        if (!charset.equals(StandardCharsets.UTF_8)) {
+            return append(text);
+        }
+
+        if (utf8Text.length < Math.min(MIN_SEGMENT_LENGTH, chunkSize)) {
+            if (chunk == null || chunk.remaining() < utf8Text.length) {
+                newChunk();
+            }
+            chunk.put(utf8Text);
+        } else {
+            endSegment();
+            segments.add(ByteBuffer.wrap(utf8Text).asReadOnlyBuffer());
+        }
+
+        return this;
+    }
+
+    @Override
+    public void finish() {
+        endSegment();
+    }
+
+    /**
+     * End the current segment and continue in a new chunk
+     */
+    private void newChunk() {
+        endSegment();
+
+        chunk = ByteBuffer.allocate(chunkSize);
+        segmentStart = 0;
+    }
+
+    /**
+     * Add the dynamic output written to the chunk since the last segment as a segment
+     */
+    private void endSegment() {
+        if (chunk == null || chunk.position() == segmentStart) {
+            return;
+        }
+
+        ByteBuffer segment = chunk.duplicate();
+        segment.position(segmentStart).limit(chunk.position());
+        segments.add(segment.slice());
+
+        segmentStart = chunk.position();
+    }
+
+    /**
+     * Get the rendered segments (call {@link #finish()} first)
+     *
+     * @return The segments in order
+     */
+    public List<ByteBuffer> getSegments() {
+        return Collections.unmodifiableList(segments);
+    }
+
+    /**
+     * Get the total number of bytes in the segments (ie. for the Content-Length header)
+     *
+     * @return The number of bytes
+     */
+    public long getLength() {
+        long length = 0;
+        for (ByteBuffer segment : segments) {
+            length += segment.remaining();
+        }
+
+        return length;
+    }
+
+    /**
+     * Get the charset the output is encoded with
+     *
+     * @return The charset
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getName() + "[segments=" + segments.size() + "]";
+    }
+}
@@ -1,9 +1,333 @@
 package org.twig4j.core.template;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
+/**
+ * The variables of a template.
+ *
+ * A context can be a frame on top of another context (see {@link #pushFrame()}), giving includes and loops their own
+ * scope without copying the variables: the frame reads the variables of its parent it doesn't have itself and keeps
+ * the ones written (or removed) to itself. The parent mustn't be changed while the frame is used. Anything but reading,
+ * writing and removing single variables (ie. iterating over them) copies the variables of the parent into the frame
+ * first, after which it's a context of its own.
+ */
 public class Context extends HashMap<String, Object> {
+    // The context the frame was pushed on
+    private transient Context frameParent;
+    // The context the variables the frame doesn't have are read from, until the frame is flattened
+    private transient Context parent;
+    // The variables of the parent removed in this frame
+    private transient Set<Object> removed;
+
+    public Context() {
+    }
+
+    /**
+     * @param variables The variables to start with
+     */
+    public Context(Map<String, ?> variables) {
+        super(variables);
+    }
+
+    private Context(Context parent) {
+        this.frameParent = parent;
+        this.parent = parent;
+    }
+
+    /**
+     * Create a frame on top of this context, which sees its variables without copying them
+     *
+     * @return The frame
+     */
+    public Context pushFrame() {
+        return new Context(this);
+    }
+
+    /**
+     * Create a frame on top of this context with some variables of its own
+     *
+     * @param variables The variables of the frame
+     *
+     * @return The frame
+     */
+    public Context pushFrame(Map<String, ?> variables) {
+        Context frame = new Context(this);
+        frame.putAll(variables);
+
+        return frame;
+    }
+
+    /**
+     * Leave a frame created with {@link #pushFrame()}, copying the variables defined in the frame that the parent
+     * doesn't have to the parent (like variables set in a loop are kept after it)
+     *
+     * @param frameVariables The variables that only exist in the frame (ie. the loop targets)
+     *
+     * @return The parent
+     */
+    public Context popFrame(String... frameVariables) {
+        if (frameParent == null) {
+            throw new IllegalStateException("The context isn't a frame");
+        }
+
+        Context parent = frameParent;
+        Set<String> skipped = new HashSet<>();
+        for (String frameVariable : frameVariables) {
+            skipped.add(frameVariable);
+        }
+
+        for (Map.Entry<String, Object> variable : super.entrySet()) {
+            if (!skipped.contains(variable.getKey()) && !parent.containsKey(variable.getKey())) {
+                parent.put(variable.getKey(), variable.getValue());
+            }
+        }
+
+        return parent;
+    }
+
+    /**
+     * Get the context this frame is on top of
+     *
+     * @return The parent or null if the context isn't a frame
+     */
+    public Context getParent() {
+        return frameParent;
+    }
+
+    @Override
+    public Object get(Object key) {
+        Object value = super.get(key);
+
+        if (value != null || parent == null || super.containsKey(key) || isRemoved(key)) {
+            return value;
+        }
+
+        return parent.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return super.containsKey(key) || (parent != null && !isRemoved(key) && parent.containsKey(key));
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        if (parent == null) {
+            return super.getOrDefault(key, defaultValue);
+        }
+
+        return containsKey(key) ? get(key) : defaultValue;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        if (parent == null) {
+            return super.put(key, value);
+        }
+
+        Object previous = get(key);
+        super.put(key, value);
+
+        if (removed != null) {
+            removed.remove(key);
+        }
+
+        return previous;
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ?> variables) {
+        if (parent == null) {
+            super.putAll(variables);
+
+            return;
+        }
+
+        for (Map.Entry<? extends String, ?> variable : variables.entrySet()) {
+            put(variable.getKey(), variable.getValue());
+        }
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if (parent == null) {
+            return super.remove(key);
+        }
+
+        Object previous = get(key);
+        super.remove(key);
+
+        if (parent.containsKey(key)) {
+            if (removed == null) {
+                removed = new HashSet<>();
+            }
+
+            removed.add(key);
+        }
+
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        parent = null;
+        removed = null;
+        super.clear();
+    }
+
+    @Override
+    public int size() {
+        flatten();
+        return super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        flatten();
+        return super.isEmpty();
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        flatten();
+        return super.containsValue(value);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        flatten();
+        return super.keySet();
+    }
+
+    @Override
+    public Collection<Object> values() {
+        flatten();
+        return super.values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        flatten();
+        return super.entrySet();
+    }
+
+    @Override
+    public Object putIfAbsent(String key, Object value) {
+        flatten();
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        flatten();
+        return super.remove(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, Object oldValue, Object newValue) {
+        flatten();
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public Object replace(String key, Object value) {
+        flatten();
+        return super.replace(key, value);
+    }
+
+    @Override
+    public Object computeIfAbsent(String key, Function<? super String, ?> mappingFunction) {
+        flatten();
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public Object computeIfPresent(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+        flatten();
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public Object compute(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+        flatten();
+        return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public Object merge(String key, Object value, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+        flatten();
+        return super.merge(key, value, remappingFunction);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        flatten();
+        super.forEach(action);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super Object, ?> function) {
+        flatten();
+        super.replaceAll(function);
+    }
+
+    /**
+     * Copy the context, the copy has all the variables of the contexts the frame is on top of and isn't a frame
+     *
+     * @return The copy
+     */
     public Object clone() {
-        return super.clone();
+        flatten();
+
+        Context clone = (Context) super.clone();
+        clone.frameParent = null;
+
+        return clone;
+    }
+
+    private Object writeReplace() {
+        flatten();
+        return this;
+    }
+
+    private boolean isRemoved(Object key) {
+        return removed != null && removed.contains(key);
+    }
+
+    /**
+     * Copy the variables of the parents into this frame, so it can be used like any other map
+     */
+    private void flatten() {
+        if (parent == null) {
+            return;
+        }
+
+        Map<String, Object> variables = new HashMap<>();
+        addVariables(variables);
+
+        parent = null;
+        removed = null;
+        super.putAll(variables);
+    }
+
+    private void addVariables(Map<String, Object> variables) {
+        if (parent != null) {
+            parent.addVariables(variables);
+
+            if (removed != null) {
+                variables.keySet().removeAll(removed);
+            }
+        }
+
+        for (Map.Entry<String, Object> variable : super.entrySet()) {
+            variables.put(variable.getKey(), variable.getValue());
+        }
     }
 }
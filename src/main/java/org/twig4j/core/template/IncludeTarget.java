@@ -0,0 +1,85 @@
+package org.twig4j.core.template;
+
+import org.twig4j.core.Environment;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * The template of a compiled include with a constant name (ie. `{% include 'foo.twig' %}`), kept after it's been
+ * loaded once so the following includes don't have to resolve the name again.
+ *
+ * The template is only reused while the environment says loaded templates can be reused (see
+ * {@link Environment#canReuseLoadedTemplates()}) and nothing has been removed from the template cache or forgotten
+ * from the resolved names since it was loaded, so it's always the template
+ * {@link Environment#loadTemplate(String, Integer)} would return. It's only weakly referenced so a template removed
+ * from the cache can still be unloaded.
+ */
+public class IncludeTarget {
+    private String name;
+    private volatile Entry entry;
+
+    /**
+     * @param name The name of the included template
+     */
+    public IncludeTarget(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Get the template loaded before, if it can be reused
+     *
+     * @param environment The environment including the template
+     *
+     * @return The template or null if it has to be loaded
+     */
+    public Template get(Environment environment) {
+        Entry entry = this.entry;
+
+        if (
+            entry == null
+            || entry.environment != environment
+            || !environment.canReuseLoadedTemplates()
+            || entry.resolutionGeneration != environment.getResolutionGeneration()
+            || entry.removalCount != environment.getTemplateCache().getRemovalCount()
+        ) {
+            return null;
+        }
+
+        return entry.template.get();
+    }
+
+    /**
+     * Keep a loaded template
+     *
+     * @param environment The environment that loaded the template
+     * @param resolutionGeneration The generation of resolved names before the template was loaded
+     * @param removalCount The removal count of the template cache before the template was loaded
+     * @param template The template
+     */
+    public void set(Environment environment, long resolutionGeneration, long removalCount, Template template) {
+        entry = new Entry(environment, resolutionGeneration, removalCount, template);
+    }
+
+    /**
+     * Get the name of the included template
+     *
+     * @return The template name
+     */
+    public String getName() {
+        return name;
+    }
+
+    private static class Entry {
+        private final Environment environment;
+        private final long resolutionGeneration;
+        private final long removalCount;
+        private final WeakReference<Template> template;
+
+        private Entry(Environment environment, long resolutionGeneration, long removalCount, Template template) {
+            this.environment = environment;
+            this.resolutionGeneration = resolutionGeneration;
+            this.removalCount = removalCount;
+            this.template = new WeakReference<>(template);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.twig4j.core.template;
+
+import org.twig4j.core.Environment;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+
+public interface Interpretable {
+    /**
+     * Whether the instance (and everything it contains) can be interpreted with exactly the same result as the compiled
+     * code. If not, the template is compiled right away.
+     *
+     * @param environment The Twig environment
+     *
+     * @return Whether the instance can be interpreted
+     *
+     * @throws Twig4jRuntimeException If runtime errors are encountered
+     */
+    public default boolean isInterpretable(Environment environment) throws Twig4jRuntimeException {
+        return false;
+    }
+
+    /**
+     * Interpret a statement, appending its output to the output of the interpreter
+     *
+     * @param interpreter The interpreter
+     *
+     * @throws Twig4jException On errors rendering
+     */
+    public default void display(Interpreter interpreter) throws Twig4jException {
+        throw new Twig4jRuntimeException(getClass().getName() + " can't be interpreted as a statement", null, -1);
+    }
+
+    /**
+     * Interpret an expression
+     *
+     * @param interpreter The interpreter
+     *
+     * @return The value of the expression
+     *
+     * @throws Twig4jException On errors rendering
+     */
+    public default Object evaluate(Interpreter interpreter) throws Twig4jException {
+        throw new Twig4jRuntimeException(getClass().getName() + " can't be interpreted as an expression", null, -1);
+    }
+}
@@ -0,0 +1,215 @@
+package org.twig4j.core.template;
+
+import org.twig4j.core.Environment;
+import org.twig4j.core.cache.TemplateCache;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.syntax.parser.node.Module;
+import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.syntax.parser.node.type.Block;
+import org.twig4j.core.syntax.parser.node.type.InlinedInclude;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A template rendered by interpreting its node tree, so templates that are only rendered a few times never pay for
+ * compilation.
+ *
+ * Every display counts as a render. When the promotion threshold of the environment is reached the template is
+ * compiled in the background, after which all renders are delegated to the compiled template and the template cache
+ * of the environment holds the compiled template instead of this one.
+ */
+public class InterpretedTemplate extends Template {
+    private Module module;
+    private String className;
+    private TemplateCache.TemplateFactory compiler;
+    private Map<String, String> inlinedTemplates = new HashMap<>();
+
+    private final AtomicInteger renderCount = new AtomicInteger();
+    private volatile Template compiledTemplate;
+    private volatile Exception promotionException;
+
+    /**
+     * @param environment The Twig environment
+     * @param module The parsed template
+     * @param className The template class name (the key of the template in the template cache)
+     * @param compiler Compiles the template when it's promoted
+     *
+     * @throws Twig4jException Never, but the template constructor says it might
+     */
+    public InterpretedTemplate(Environment environment, Module module, String className, TemplateCache.TemplateFactory compiler) throws Twig4jException {
+        super(environment);
+
+        this.module = module;
+        this.className = className;
+        this.compiler = compiler;
+
+        for (Map.Entry<String, Block> block : module.getBlocks().entrySet()) {
+            blocks.put(block.getKey(), new InterpretedBlockMethodSet(block.getValue()));
+            collectInlinedTemplates(block.getValue());
+        }
+
+        collectInlinedTemplates(module.getBodyNode());
+    }
+
+    @Override
+    public void render(Context context, TemplateOutput output) throws Twig4jException {
+        Template template = compiledTemplate;
+
+        if (template != null) {
+            template.render(context, output);
+        } else {
+            super.render(context, output);
+        }
+    }
+
+    @Override
+    public void display(Context context, Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws Twig4jException {
+        Template template = compiledTemplate;
+
+        if (template != null) {
+            template.display(context, blocks, output);
+
+            return;
+        }
+
+        if (renderCount.incrementAndGet() == environment.getPromotionThreshold()) {
+            environment.getPromotionExecutor().execute(this::promote);
+        }
+
+        super.display(context, blocks, output);
+    }
+
+    @Override
+    protected void doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws Twig4jException {
+        Interpreter interpreter = new Interpreter(this, context, blocks, output);
+        Node parentNode = module.getParent();
+
+        if (parentNode != null) {
+            parent = loadTemplate((String) interpreter.evaluate(parentNode), getTemplateName(), 1, null);
+        }
+
+        interpreter.display(module.getBodyNode());
+
+        if (parentNode != null) {
+            Map<String, TemplateBlockMethodSet> mergedBlocks = new HashMap<>();
+            mergedBlocks.putAll(this.blocks);
+            mergedBlocks.putAll(blocks);
+            parent.display(context, mergedBlocks, output);
+        }
+    }
+
+    @Override
+    public String getTemplateName() {
+        return module.getFileName();
+    }
+
+    @Override
+    public Map<String, String> getInlinedTemplates() {
+        return inlinedTemplates;
+    }
+
+    private void collectInlinedTemplates(Node node) throws Twig4jRuntimeException {
+        if (node instanceof InlinedInclude) {
+            inlinedTemplates.put(String.valueOf(node.getAttribute("template")), String.valueOf(node.getAttribute("template_class")));
+        }
+
+        for (Node childNode : node.getNodes()) {
+            if (childNode != null) {
+                collectInlinedTemplates(childNode);
+            }
+        }
+    }
+
+    /**
+     * Compile the template and delegate all further renders to the compiled template. If compiling fails the template
+     * just keeps being interpreted (the failure is available from {@link #getPromotionException()}).
+     */
+    public void promote() {
+        if (compiledTemplate != null) {
+            return;
+        }
+
+        try {
+            Template template = compiler.create();
+
+            compiledTemplate = template;
+            environment.getTemplateCache().replace(className, this, template);
+        } catch (Twig4jException | RuntimeException e) {
+            promotionException = e;
+        }
+    }
+
+    /**
+     * Get the number of times the template has been interpreted
+     *
+     * @return The render count
+     */
+    public int getRenderCount() {
+        return renderCount.get();
+    }
+
+    /**
+     * Get the compiled template renders are delegated to
+     *
+     * @return The compiled template or null if it hasn't been promoted (yet)
+     */
+    public Template getCompiledTemplate() {
+        return compiledTemplate;
+    }
+
+    /**
+     * Get the exception thrown when compiling the template in the background
+     *
+     * @return The exception or null if the template hasn't failed to compile
+     */
+    public Exception getPromotionException() {
+        return promotionException;
+    }
+
+    /**
+     * Get the parsed template
+     *
+     * @return The module
+     */
+    public Module getModule() {
+        return module;
+    }
+
+    /**
+     * Get the template class name
+     *
+     * @return The class name
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * A block that's interpreted instead of invoking a block method
+     */
+    private class InterpretedBlockMethodSet extends TemplateBlockMethodSet {
+        private Block block;
+
+        private InterpretedBlockMethodSet(Block block) {
+            super(InterpretedTemplate.this, null);
+
+            this.block = block;
+        }
+
+        @Override
+        public void invoke(String name, Context context, Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws Twig4jRuntimeException {
+            try {
+                new Interpreter(InterpretedTemplate.this, context, blocks, output).display(block.getNode(0));
+            } catch (Twig4jException | RuntimeException | Error e) {
+                // Fail the same way as invoking the block method of a compiled template
+                InvocationTargetException invocationException = new InvocationTargetException(e);
+
+                throw new Twig4jRuntimeException("Failed displaying block \"" + name + "\" (\"" + invocationException.getMessage() + "\")", getTemplateName(), -1, invocationException);
+            }
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package org.twig4j.core.template;
+
+import org.twig4j.core.Environment;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders (part of) a template by walking its node tree instead of running a compiled class.
+ *
+ * Nodes display and evaluate themselves with {@link Interpretable}, calling the same {@link Template} methods as the
+ * code they compile to, so an interpreted template renders exactly the same output as the compiled one.
+ */
+public class Interpreter {
+    private Environment environment;
+    private InterpretedTemplate template;
+    private Context context;
+    private Map<String, Template.TemplateBlockMethodSet> blocks;
+    private TemplateOutput output;
+
+    /**
+     * @param template The template being rendered
+     * @param context The context (the "context" variable of the compiled code)
+     * @param blocks The merged map of blocks (the "blocks" variable of the compiled code)
+     * @param output The output to render to (the "output" variable of the compiled code)
+     */
+    public Interpreter(InterpretedTemplate template, Context context, Map<String, Template.TemplateBlockMethodSet> blocks, TemplateOutput output) {
+        this.environment = template.environment;
+        this.template = template;
+        this.context = context;
+        this.blocks = blocks;
+        this.output = output;
+    }
+
+    /**
+     * Create an interpreter without a template, only able to evaluate expressions of constants (ie. to fold them when
+     * compiling a template)
+     *
+     * @param environment The Twig environment
+     */
+    public Interpreter(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * Interpret a statement
+     *
+     * @param node The statement
+     *
+     * @return this
+     *
+     * @throws Twig4jException On errors rendering
+     */
+    public Interpreter display(Interpretable node) throws Twig4jException {
+        node.display(this);
+
+        return this;
+    }
+
+    /**
+     * Interpret an expression
+     *
+     * @param node The expression
+     *
+     * @return The value
+     *
+     * @throws Twig4jException On errors rendering
+     */
+    public Object evaluate(Interpretable node) throws Twig4jException {
+        return node.evaluate(this);
+    }
+
+    /**
+     * @see Template#getContext(Map, String, boolean, Integer)
+     *
+     * @param name The variable name
+     * @param line The line the variable is on
+     *
+     * @return The variable
+     *
+     * @throws Twig4jRuntimeException If the variable does not exist and strict variables are enabled
+     */
+    public Object getContextVariable(String name, Integer line) throws Twig4jRuntimeException {
+        return template.getContext(context, name, false, line);
+    }
+
+    /**
+     * @see Template#getAttribute(Object, Object, List, String)
+     *
+     * @param object The object or array to get the attribute on
+     * @param item The attribute
+     * @param arguments The method arguments
+     * @param type Whether it's an array or an actual object
+     *
+     * @return The value
+     *
+     * @throws Twig4jRuntimeException If the attribute can not be accessed
+     */
+    public Object getAttribute(Object object, Object item, List<Object> arguments, String type) throws Twig4jRuntimeException {
+        return template.getAttribute(object, item, arguments, type);
+    }
+
+    /**
+     * @see Template#loadTemplate(String, String, Integer, Integer)
+     *
+     * @param name The name of the template to load
+     * @param line The line it's requested on
+     *
+     * @return The template
+     *
+     * @throws Twig4jException If the template isn't found or fails to load
+     */
+    public Template loadTemplate(String name, Integer line) throws Twig4jException {
+        return template.loadTemplate(name, null, line, null);
+    }
+
+    /**
+     * @see Template#displayBlock(String, Context, Map, boolean, TemplateOutput)
+     *
+     * @param name The block name
+     *
+     * @return this
+     *
+     * @throws Twig4jException On errors rendering
+     */
+    public Interpreter displayBlock(String name) throws Twig4jException {
+        template.displayBlock(name, context, blocks, true, output);
+
+        return this;
+    }
+
+    /**
+     * @see Template#displayBlock(String, Context, Map, boolean)
+     *
+     * @param name The block name
+     *
+     * @return The rendered block
+     *
+     * @throws Twig4jException On errors rendering
+     */
+    public String renderBlock(String name) throws Twig4jException {
+        return template.displayBlock(name, context, blocks, true);
+    }
+
+    /**
+     * @see Template#displayParentBlock(String, Context, Map, TemplateOutput)
+     *
+     * @param name The block name
+     *
+     * @return this
+     *
+     * @throws Twig4jException On errors rendering
+     */
+    public Interpreter displayParentBlock(String name) throws Twig4jException {
+        template.displayParentBlock(name, context, blocks, output);
+
+        return this;
+    }
+
+    /**
+     * @see Template#displayParentBlock(String, Context, Map)
+     *
+     * @param name The block name
+     *
+     * @return The rendered block
+     *
+     * @throws Twig4jException On errors rendering
+     */
+    public String renderParentBlock(String name) throws Twig4jException {
+        return template.displayParentBlock(name, context, blocks);
+    }
+
+    /**
+     * @see Template#convertNullValueToEmptyString(Object)
+     *
+     * @param value The value
+     *
+     * @return The value or an empty string
+     */
+    public Object convertNullValueToEmptyString(Object value) {
+        return template.convertNullValueToEmptyString(value);
+    }
+
+    /**
+     * Invoke a method, throwing whatever it throws like a direct call would
+     *
+     * @param method The method
+     * @param object The object to invoke the method on (null for static methods)
+     * @param arguments The arguments
+     *
+     * @return The return value
+     *
+     * @throws Twig4jException If the method throws one
+     */
+    public Object invoke(Method method, Object object, Object... arguments) throws Twig4jException {
+        try {
+            return method.invoke(object, arguments);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof Twig4jException) {
+                throw (Twig4jException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw Twig4jRuntimeException.invocationTargetException(method.getName(), method.getDeclaringClass().getName(), getTemplateName(), e);
+        } catch (IllegalAccessException e) {
+            throw Twig4jRuntimeException.illegalAccessToMethod(method.getName(), method.getDeclaringClass().getName(), getTemplateName(), e);
+        }
+    }
+
+    private String getTemplateName() {
+        return template == null ? null : template.getTemplateName();
+    }
+
+    /**
+     * Get the template being rendered
+     *
+     * @return The template (null if the interpreter only evaluates constants)
+     */
+    public InterpretedTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * Get the Twig environment
+     *
+     * @return The environment
+     */
+    public Environment getEnvironment() {
+        return environment;
+    }
+
+    /**
+     * Get the context
+     *
+     * @return The context
+     */
+    public Context getContext() {
+        return context;
+    }
+
+    /**
+     * Replace the context, ie. with a frame on top of it (like the compiled code assigns the "context" variable)
+     *
+     * @param context The context
+     *
+     * @return this
+     */
+    public Interpreter setContext(Context context) {
+        this.context = context;
+
+        return this;
+    }
+
+    /**
+     * Get the merged map of blocks
+     *
+     * @return The blocks
+     */
+    public Map<String, Template.TemplateBlockMethodSet> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Get the output the template is rendered to
+     *
+     * @return The output
+     */
+    public TemplateOutput getOutput() {
+        return output;
+    }
+}
@@ -0,0 +1,226 @@
+package org.twig4j.core.template;
+
+import org.twig4j.core.exception.Twig4jRuntimeException;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The "loop" variable of a for loop. One instance is created per loop and advanced with {@link #next()} after every
+ * iteration, the other attributes are calculated from the index and the length.
+ *
+ * It's a map to templates (ie. `loop.index` or `loop['index']`). The attributes depending on the length (revindex0,
+ * revindex, last and length) only exist if the length is known, which it isn't when the loop has a condition or the
+ * sequence isn't a collection.
+ */
+public class LoopContext extends AbstractMap<String, Object> {
+    /**
+     * The attributes of a loop
+     */
+    public static final List<String> ATTRIBUTES = Collections.unmodifiableList(
+        Arrays.asList("parent", "index0", "index", "first", "revindex0", "revindex", "length", "last")
+    );
+
+    /**
+     * The attributes of a loop that only exist if the length is known
+     */
+    public static final List<String> LENGTH_ATTRIBUTES = Collections.unmodifiableList(
+        Arrays.asList("revindex0", "revindex", "length", "last")
+    );
+
+    private Map<String, Object> parent;
+    private int index0 = 0;
+    private int length;
+
+    /**
+     * Create a loop with an unknown length
+     *
+     * @param parent The context before the loop (null if nothing uses it)
+     */
+    public LoopContext(Map<String, Object> parent) {
+        this.parent = parent;
+        this.length = -1;
+    }
+
+    /**
+     * Create a loop over a sequence, knowing the length if it's a collection
+     *
+     * @param parent The context before the loop (null if nothing uses it)
+     * @param seq The sequence the loop iterates over
+     */
+    public LoopContext(Map<String, Object> parent, Iterable<?> seq) {
+        this.parent = parent;
+        this.length = seq instanceof Collection ? ((Collection<?>) seq).size() : -1;
+    }
+
+    /**
+     * Move on to the next iteration
+     */
+    public void next() {
+        index0++;
+    }
+
+    /**
+     * Get the context before the loop (`loop.parent`)
+     *
+     * @return The context
+     */
+    public Map<String, Object> getParent() {
+        return parent;
+    }
+
+    /**
+     * Get the iteration starting at 0
+     *
+     * @return The index
+     */
+    public int getIndex0() {
+        return index0;
+    }
+
+    /**
+     * Get the iteration starting at 1
+     *
+     * @return The index
+     */
+    public int getIndex() {
+        return index0 + 1;
+    }
+
+    /**
+     * Whether this is the first iteration
+     *
+     * @return Whether it's first
+     */
+    public boolean isFirst() {
+        return index0 == 0;
+    }
+
+    /**
+     * Whether the length of the loop is known
+     *
+     * @return Whether there's a length
+     */
+    public boolean hasLength() {
+        return length >= 0;
+    }
+
+    /**
+     * Make sure the length is known before reading an attribute depending on it
+     *
+     * @param templateName The template the attribute is read in
+     * @param line The line the attribute is read on
+     *
+     * @return this
+     *
+     * @throws Twig4jRuntimeException If the length isn't known
+     */
+    public LoopContext requireLength(String templateName, Integer line) throws Twig4jRuntimeException {
+        if (length < 0) {
+            throw Twig4jRuntimeException.loopLengthNotKnown(templateName, line);
+        }
+
+        return this;
+    }
+
+    /**
+     * Get the number of iterations left, ending at 0
+     *
+     * @return The reverse index
+     *
+     * @throws Twig4jRuntimeException If the length isn't known
+     */
+    public int getRevindex0() throws Twig4jRuntimeException {
+        return getLength() - index0 - 1;
+    }
+
+    /**
+     * Get the number of iterations left, ending at 1
+     *
+     * @return The reverse index
+     *
+     * @throws Twig4jRuntimeException If the length isn't known
+     */
+    public int getRevindex() throws Twig4jRuntimeException {
+        return getLength() - index0;
+    }
+
+    /**
+     * Whether this is the last iteration
+     *
+     * @return Whether it's last
+     *
+     * @throws Twig4jRuntimeException If the length isn't known
+     */
+    public boolean isLast() throws Twig4jRuntimeException {
+        return getRevindex0() == 0;
+    }
+
+    /**
+     * Get the number of iterations
+     *
+     * @return The length
+     *
+     * @throws Twig4jRuntimeException If the length isn't known
+     */
+    public int getLength() throws Twig4jRuntimeException {
+        requireLength(null, -1);
+
+        return length;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return ATTRIBUTES.contains(key) && (hasLength() || !LENGTH_ATTRIBUTES.contains(key));
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (!containsKey(key)) {
+            return null;
+        }
+
+        try {
+            switch ((String) key) {
+                case "parent":
+                    return parent;
+                case "index0":
+                    return index0;
+                case "index":
+                    return getIndex();
+                case "first":
+                    return isFirst();
+                case "revindex0":
+                    return getRevindex0();
+                case "revindex":
+                    return getRevindex();
+                case "length":
+                    return getLength();
+                default:
+                    return isLast();
+            }
+        } catch (Twig4jRuntimeException e) {
+            // Can't happen as containsKey() checks the length is known
+            return null;
+        }
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+
+        for (String attribute : ATTRIBUTES) {
+            if (containsKey(attribute)) {
+                attributes.put(attribute, get(attribute));
+            }
+        }
+
+        return attributes.entrySet();
+    }
+}
@@ -0,0 +1,139 @@
+package org.twig4j.core.template;
+
+import org.twig4j.core.exception.Twig4jRuntimeException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Renders a template as bytes. The static text of UTF-8 output is written as is from the byte arrays the template
+ * class encoded once, only the dynamic output is encoded (into a buffer that's written when it's full).
+ */
+public class OutputStreamTemplateOutput extends TemplateOutput {
+    private static final int BUFFER_SIZE = 8192;
+
+    private OutputStream outputStream;
+    private Charset charset;
+    private CharsetEncoder encoder;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * Write UTF-8
+     *
+     * @param outputStream Where to write the output
+     */
+    public OutputStreamTemplateOutput(OutputStream outputStream) {
+        this(outputStream, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param outputStream Where to write the output
+     * @param charset The charset to encode the output with
+     */
+    public OutputStreamTemplateOutput(OutputStream outputStream, Charset charset) {
+        this.outputStream = outputStream;
+        this.charset = charset;
+        // Same replacements as String.getBytes()
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public TemplateOutput append(String text) throws Twig4jRuntimeException {
+        CharBuffer chars = CharBuffer.wrap(text);
+        CoderResult result;
+
+        try {
+            encoder.reset();
+
+            do {
+                result = encoder.encode(chars, buffer, true);
+
+                if (result.isOverflow()) {
+                    writeBuffer();
+                } else if (result.isError()) {
+                    result.throwException();
+                }
+            } while (!result.isUnderflow());
+
+            do {
+                result = encoder.flush(buffer);
+
+                if (result.isOverflow()) {
+                    writeBuffer();
+                }
+            } while (result.isOverflow());
+        } catch (IOException e) {
+            throw new Twig4jRuntimeException("Failed writing the output (\"" + e.getMessage() + "\")", null, -1, e);
+        }
+
+        return this;
+    }
+
+    @Override
+    public TemplateOutput appendText(String text, byte[] utf8Text) throws Twig4jRuntimeException {
+        if (!charset.equals(StandardCharsets.UTF_8)) {
+            return append(text);
+        }
+
+        try {
+            if (utf8Text.length <= buffer.remaining()) {
+                buffer.put(utf8Text);
+            } else {
+                writeBuffer();
+                outputStream.write(utf8Text);
+            }
+        } catch (IOException e) {
+            throw new Twig4jRuntimeException("Failed writing the output (\"" + e.getMessage() + "\")", null, -1, e);
+        }
+
+        return this;
+    }
+
+    @Override
+    public void finish() throws Twig4jRuntimeException {
+        try {
+            writeBuffer();
+        } catch (IOException e) {
+            throw new Twig4jRuntimeException("Failed writing the output (\"" + e.getMessage() + "\")", null, -1, e);
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        if (buffer.position() > 0) {
+            outputStream.write(buffer.array(), 0, buffer.position());
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Get the output stream the output is written to
+     *
+     * @return The output stream
+     */
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * Get the charset the output is encoded with
+     *
+     * @return The charset
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    @Override
+    public String toString() {
+        return outputStream.toString();
+    }
+}
@@ -3,11 +3,18 @@ package org.twig4j.core.template;
 import org.twig4j.core.Environment;
 import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.util.StringBuilderPool;
 
+import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,6 +24,12 @@ abstract public class Template {
     protected Template parent;
     protected Map<String, TemplateBlockMethodSet> blocks = new HashMap<>();
 
+    /**
+     * A running estimate of the length of the output, to size buffers so they don't have to grow while rendering.
+     * Follows larger outputs right away and smaller ones slowly.
+     */
+    private volatile int outputLengthEstimate = 0;
+
     public Template() {
     }
 
@@ -46,11 +59,99 @@ abstract public class Template {
      * @throws Twig4jException If there are any errors, i.e. accessing a variable that is not in the context.
      */
     public String render(Context context) throws Twig4jException {
-        return display(context, blocks);
+        StringBuilderPool pool = environment == null ? null : environment.getOutputBufferPool();
+        StringBuilder output = pool == null ? new StringBuilder(Math.max(outputLengthEstimate, 16)) : pool.acquire(outputLengthEstimate);
+
+        try {
+            render(context, output);
+            recordOutputLength(output.length());
+
+            return output.toString();
+        } finally {
+            if (pool != null) {
+                pool.release(output);
+            }
+        }
     }
 
     /**
-     * The actual rendering of the template. Composes blocks and then runs the actual template render method.
+     * Renders the template straight into a writer (or anything else appendable), without building the rendered
+     * result as a string first
+     *
+     * @param context The context - a Map that contains all variables to make available in the template
+     * @param output Where to write the rendered result
+     *
+     * @throws Twig4jException If there are any errors, i.e. accessing a variable that is not in the context or failing
+     * to write to the output.
+     */
+    public void render(Context context, Appendable output) throws Twig4jException {
+        render(context, new TemplateOutput(output));
+    }
+
+    /**
+     * Renders the template as UTF-8 straight into an output stream. The static text of the template is written
+     * without encoding it again.
+     *
+     * @param context The context - a Map that contains all variables to make available in the template
+     * @param output Where to write the rendered result
+     *
+     * @throws Twig4jException If there are any errors, i.e. accessing a variable that is not in the context or failing
+     * to write to the output.
+     */
+    public void render(Context context, OutputStream output) throws Twig4jException {
+        render(context, output, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Renders the template straight into an output stream
+     *
+     * @param context The context - a Map that contains all variables to make available in the template
+     * @param output Where to write the rendered result
+     * @param charset The charset to encode the result with
+     *
+     * @throws Twig4jException If there are any errors, i.e. accessing a variable that is not in the context or failing
+     * to write to the output.
+     */
+    public void render(Context context, OutputStream output, Charset charset) throws Twig4jException {
+        TemplateOutput templateOutput = new OutputStreamTemplateOutput(output, charset);
+
+        render(context, templateOutput);
+        templateOutput.finish();
+    }
+
+    /**
+     * Renders the template as UTF-8 to a list of byte buffers (ie. for a gathering write). The static text of the
+     * template is not copied, its buffers are read-only views of the text the template class encoded.
+     *
+     * @param context The context - a Map that contains all variables to make available in the template
+     *
+     * @return The rendered result in segments
+     *
+     * @throws Twig4jException If there are any errors, i.e. accessing a variable that is not in the context.
+     */
+    public List<ByteBuffer> renderByteBuffers(Context context) throws Twig4jException {
+        ByteBufferTemplateOutput output = new ByteBufferTemplateOutput();
+
+        render(context, output);
+        output.finish();
+
+        return output.getSegments();
+    }
+
+    /**
+     * Renders the template to the output of another template (ie. for includes)
+     *
+     * @param context The context - a Map that contains all variables to make available in the template
+     * @param output The output to render to
+     *
+     * @throws Twig4jException If there are any errors, i.e. accessing a variable that is not in the context.
+     */
+    public void render(Context context, TemplateOutput output) throws Twig4jException {
+        display(context, blocks, output);
+    }
+
+    /**
+     * @see #display(Context, Map, TemplateOutput)
      *
      * @param context The context to render
      * @param blocks The blocks (or empty map if none)
@@ -60,11 +161,27 @@ abstract public class Template {
      * @throws Twig4jException On errors rendering
      */
     public String display(Context context, Map<String, TemplateBlockMethodSet> blocks) throws Twig4jException {
+        StringBuilder output = new StringBuilder();
+        display(context, blocks, new TemplateOutput(output));
+
+        return output.toString();
+    }
+
+    /**
+     * The actual rendering of the template. Composes blocks and then runs the actual template render method.
+     *
+     * @param context The context to render
+     * @param blocks The blocks (or empty map if none)
+     * @param output The output to render to
+     *
+     * @throws Twig4jException On errors rendering
+     */
+    public void display(Context context, Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws Twig4jException {
         Map<String, TemplateBlockMethodSet> mergedBlocks = new HashMap<>();
         mergedBlocks.putAll(this.blocks);
         mergedBlocks.putAll(blocks);
 
-        return doDisplay(context, mergedBlocks);
+        doDisplay(context, mergedBlocks, output);
     }
 
     /**
@@ -72,12 +189,11 @@ abstract public class Template {
      *
      * @param context The context that contains all variables
      * @param blocks A merged map of blocks
-     *
-     * @return Rendered result
+     * @param output The output to render to
      *
      * @throws Twig4jRuntimeException On runtime errors (i.e. using a null var)
      */
-    abstract protected String doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks) throws Twig4jException;
+    abstract protected void doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws Twig4jException;
 
     /**
      * Get the template file name
@@ -86,6 +202,16 @@ abstract public class Template {
      */
     abstract public String getTemplateName();
 
+    /**
+     * Get the templates compiled into this template (see {@link org.twig4j.core.nodevisitor.IncludeInliningNodeVisitor})
+     * with the class names they had, so the template can be compiled again when one of them changes
+     *
+     * @return The class names of the inlined templates by template name
+     */
+    public Map<String, String> getInlinedTemplates() {
+        return Collections.emptyMap();
+    }
+
     /**
      * Get a variable from the provided context
      *
@@ -226,80 +352,110 @@ abstract public class Template {
             }
 
             // Try to get the property
-            try {
-                Field field = object.getClass().getField((String) item);
-                return field.get(object);
-            } catch (Exception e) {
-                // Just continue, there might be a getter
+            if (item instanceof String) {
+                AttributeAccessor field = AttributeAccessor.getField(object.getClass(), (String) item);
+
+                if (field != null) {
+                    try {
+                        return field.invoke(object, arguments);
+                    } catch (Exception e) {
+                        // Just continue, there might be a getter
+                    }
+                }
             }
         }
 
-        // Only methods left, setup the arguments
-        List<Class> argumentClasses = new ArrayList<>();
-        for (Object argument : arguments) {
-            argumentClasses.add(argument.getClass());
+        // Try to invoke the "method" directly (ie `property()`) or else a getter, "iser" or "haser" (ie `getProperty()`)
+        AttributeAccessor method = AttributeAccessor.getMethod(object.getClass(), (String) item, arguments);
+
+        if (!method.exists()) {
+            // Property was not a map attribute, class  field, method, getter, haser or iser - we have nothing more to try
+            throw new Twig4jRuntimeException(
+                    "No such method \"" + String.valueOf(item) + "\" on object of type \"" + object.getClass().getName() + "\"",
+                    getTemplateName(),
+                    -1,
+                    method.getMissingException()
+            );
         }
 
-        // Used for (get|is|has)Property
-        String propertyNameWithUpperFirst = ((String) item).substring(0, 1).toUpperCase() + ((String) item).substring(1);
+        return invokeAccessor(method, object, arguments);
+    }
 
-        // 1. Try to invoke the "method" directly (ie `property()`)
-        try {
-            Method methodToInvoke = object.getClass().getMethod(String.valueOf(item), argumentClasses.toArray(new Class[argumentClasses.size()]));
+    /**
+     * Gets an attribute through the inline cache of a compiled attribute access, which reads objects of the classes it
+     * has seen before with the accessor it found for them
+     *
+     * @see #getAttribute(Object, Object, List, String)
+     *
+     * @param callSite The inline cache
+     * @param object The object or array (hopefully) to get the attribute on
+     * @param item The attribute to get
+     * @param arguments If this is a method pass the arguments as an array here
+     * @param type Whether it's an array or an actual object
+     *
+     * @return The value
+     * @throws Twig4jRuntimeException If the item/property can not be accessed
+     */
+    protected Object getAttribute(AttributeCallSite callSite, Object object, Object item, List<Object> arguments, String type) throws Twig4jRuntimeException {
+        AttributeAccessor accessor = callSite.getAccessor(object);
 
-            return methodToInvoke.invoke(object, arguments.toArray());
-        } catch (NoSuchMethodException e) {
-            // 2. Try a getter (ie `getProperty()`)
-            try {
-                Method methodToInvoke = object.getClass().getMethod("get" + propertyNameWithUpperFirst);
+        if (accessor != null) {
+            if (environment.isDebug()) {
+                callSite.recordHit();
+            }
 
-                return methodToInvoke.invoke(object);
-            } catch (NoSuchMethodException getterException) {
-                // 3. Try a "haser' (ie `hasProperty()`)
-                try {
-                    Method methodToInvoke = object.getClass().getMethod("is" + propertyNameWithUpperFirst);
+            return invokeAccessor(accessor, object, arguments);
+        }
 
-                    return methodToInvoke.invoke(object);
-                } catch (NoSuchMethodException iserException) {
-                    // 4. Try an "iser" (ie `isProperty()`)
-                    try {
-                        Method methodToInvoke = object.getClass().getMethod("has" + propertyNameWithUpperFirst);
-
-                        return methodToInvoke.invoke(object);
-                    } catch (NoSuchMethodException haserException) {
-                        // Property was not a map attribute, class  field, method, getter, haser or iser - we have nothing more to try
-                        throw new Twig4jRuntimeException(
-                                "No such method \"" + String.valueOf(item) + "\" on object of type \"" + object.getClass().getName() + "\"",
-                                getTemplateName(),
-                                -1,
-                                e
-                        );
-                    } catch (IllegalAccessException haserException) {
-                        throw Twig4jRuntimeException.illegalAccessToMethod("has" + propertyNameWithUpperFirst, object.getClass().getName(), getTemplateName(), haserException);
-                    } catch (InvocationTargetException haserException) {
-                        throw Twig4jRuntimeException.invocationTargetException("has" + propertyNameWithUpperFirst, object.getClass().getName(), getTemplateName(), haserException);
-                    }
+        if (environment.isDebug()) {
+            callSite.recordMiss();
+        }
 
-                // is
-                } catch (IllegalAccessException iserException) {
-                    throw Twig4jRuntimeException.illegalAccessToMethod("is" + propertyNameWithUpperFirst, object.getClass().getName(), getTemplateName(), iserException);
-                } catch (InvocationTargetException iserException) {
-                    throw Twig4jRuntimeException.invocationTargetException("is" + propertyNameWithUpperFirst, object.getClass().getName(), getTemplateName(), iserException);
-                }
+        Object value = getAttribute(object, item, arguments, type);
 
-            // get
-            } catch (IllegalAccessException getterException) {
-                throw Twig4jRuntimeException.illegalAccessToMethod("get" + propertyNameWithUpperFirst, object.getClass().getName(), getTemplateName(), getterException);
-            } catch (InvocationTargetException getterException) {
-                throw Twig4jRuntimeException.invocationTargetException("get" + propertyNameWithUpperFirst, object.getClass().getName(), getTemplateName(), getterException);
-            }
+        // Only objects that were read without failing are cached
+        accessor = AttributeAccessor.getCacheable(object, item, arguments, type);
+        if (accessor != null) {
+            callSite.addAccessor(object.getClass(), accessor);
+        }
+
+        return value;
+    }
 
-        // The method
+    /**
+     * Read an attribute with its accessor, failing like calling the method with reflection does
+     */
+    private Object invokeAccessor(AttributeAccessor accessor, Object object, List<Object> arguments) throws Twig4jRuntimeException {
+        try {
+            return accessor.invoke(object, arguments);
         } catch (IllegalAccessException e) {
-            throw Twig4jRuntimeException.illegalAccessToMethod(String.valueOf(item), object.getClass().getName(), getTemplateName(), e);
+            throw Twig4jRuntimeException.illegalAccessToMethod(accessor.getName(), object.getClass().getName(), getTemplateName(), e);
         } catch (InvocationTargetException e) {
-            throw Twig4jRuntimeException.invocationTargetException(String.valueOf(item), object.getClass().getName(), getTemplateName(), e);
+            throw Twig4jRuntimeException.invocationTargetException(accessor.getName(), object.getClass().getName(), getTemplateName(), e);
+        }
+    }
+
+    /**
+     * Get the inline caches of the compiled attribute accesses of the template, with the number of hits and misses of
+     * each if the environment is in debug mode
+     *
+     * @return The call sites
+     */
+    public List<AttributeCallSite> getAttributeCallSites() {
+        List<AttributeCallSite> callSites = new ArrayList<>();
+
+        for (Field field : getClass().getDeclaredFields()) {
+            if (field.getType() == AttributeCallSite.class && Modifier.isStatic(field.getModifiers())) {
+                try {
+                    field.setAccessible(true);
+                    callSites.add((AttributeCallSite) field.get(null));
+                } catch (IllegalAccessException e) {
+                    // Can't happen as the field is made accessible
+                }
+            }
         }
+
+        return callSites;
     }
 
     /**
@@ -331,6 +487,64 @@ abstract public class Template {
         }
     }
 
+    /**
+     * Loads the template of an include with a constant name, reusing the template loaded the last time if it's still
+     * the one the environment would load
+     *
+     * @param target The included template
+     * @param line The line it's included on
+     *
+     * @return The loaded template
+     *
+     * @throws Twig4jException If the included template throws any errors or isn't found
+     */
+    protected Template loadTemplate(IncludeTarget target, Integer line) throws Twig4jException {
+        Template template = target.get(environment);
+
+        if (template != null) {
+            return template;
+        }
+
+        // Read before loading, so anything removed in the meantime makes the template load again the next time
+        long resolutionGeneration = environment.getResolutionGeneration();
+        long removalCount = environment.getTemplateCache().getRemovalCount();
+
+        template = loadTemplate(target.getName(), null, line, null);
+        target.set(environment, resolutionGeneration, removalCount, template);
+
+        return template;
+    }
+
+    /**
+     * Report an error of an inlined template (see {@link org.twig4j.core.nodevisitor.IncludeInliningNodeVisitor}) in
+     * that template rather than in this one, like it's reported when the template is included
+     *
+     * @param e The error
+     * @param templateName The name of the inlined template
+     */
+    protected void reportInInlinedTemplate(Twig4jException e, String templateName) {
+        if (e.getTemplateName() == null || e.getTemplateName().equals(getTemplateName())) {
+            e.setTemplateName(templateName);
+        }
+    }
+
+    /**
+     * Create the map returned by {@link #getInlinedTemplates()} of a compiled template
+     *
+     * @param namesAndClassNames The template names, each followed by its class name
+     *
+     * @return The class names by template name
+     */
+    protected static Map<String, String> inlinedTemplates(String... namesAndClassNames) {
+        Map<String, String> inlinedTemplates = new HashMap<>();
+
+        for (int i = 0; i < namesAndClassNames.length; i += 2) {
+            inlinedTemplates.put(namesAndClassNames[i], namesAndClassNames[i + 1]);
+        }
+
+        return Collections.unmodifiableMap(inlinedTemplates);
+    }
+
     /**
      * Displays parent block's block
      *
@@ -343,11 +557,28 @@ abstract public class Template {
      * @throws Twig4jException On errors rendering
      */
     protected String displayParentBlock(String name, Context context, Map<String, TemplateBlockMethodSet> blocks) throws Twig4jException {
+        StringBuilder output = new StringBuilder();
+        displayParentBlock(name, context, blocks, new TemplateOutput(output));
+
+        return output.toString();
+    }
+
+    /**
+     * Displays parent block's block
+     *
+     * @param name The block name
+     * @param context This context
+     * @param blocks Map of avialable blocks
+     * @param output The output to render to
+     *
+     * @throws Twig4jException On errors rendering
+     */
+    protected void displayParentBlock(String name, Context context, Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws Twig4jException {
         // TODO check for traits
 
         // TODO use getParent() instead
         if (parent != null) {
-            return parent.displayBlock(name, context, blocks, false);
+            parent.displayBlock(name, context, blocks, false, output);
         } else {
             throw new Twig4jRuntimeException(
                 String.format("The template has no parent and no traits defining the \"%s\" block", name),
@@ -370,16 +601,36 @@ abstract public class Template {
      * @throws Twig4jException On any errors
      */
     protected String displayBlock(String name, Context context, Map<String, TemplateBlockMethodSet> blocks, boolean useBlocks) throws Twig4jException {
+        StringBuilder output = new StringBuilder();
+        displayBlock(name, context, blocks, useBlocks, new TemplateOutput(output));
+
+        return output.toString();
+    }
+
+    /**
+     * Invokes the appropriate block method to display
+     *
+     * @param name The name of the block (i.e. "a")
+     * @param context The context
+     * @param blocks A collection of available blocks
+     * @param useBlocks Whether to use blocks provided or the blocks from this specific template
+     * @param output The output to render to
+     *
+     * @throws Twig4jException On any errors
+     */
+    protected void displayBlock(String name, Context context, Map<String, TemplateBlockMethodSet> blocks, boolean useBlocks, TemplateOutput output) throws Twig4jException {
         if (!useBlocks) {
             blocks = this.blocks;
         }
 
         if (!blocks.containsKey(name)) {
-            return parent.displayBlock(name, context, blocks, false);
+            parent.displayBlock(name, context, blocks, false, output);
+
+            return;
         }
 
         try {
-            return blocks.get(name).invoke(name, context, blocks);
+            blocks.get(name).invoke(name, context, blocks, output);
         } catch (Twig4jException e) {
             if (e.getTemplateName() == null) {
                 e.setTemplateName(getTemplateName());
@@ -403,6 +654,27 @@ abstract public class Template {
         }
     }
 
+    /**
+     * Update the estimated length of the output
+     *
+     * @param length The length of a rendered output
+     */
+    protected void recordOutputLength(int length) {
+        int estimate = outputLengthEstimate;
+
+        // Races only lose an update of the estimate
+        outputLengthEstimate = Math.max(length, estimate - (estimate >> 3));
+    }
+
+    /**
+     * Get the estimated length of the output
+     *
+     * @return The length in chars
+     */
+    public int getOutputLengthEstimate() {
+        return outputLengthEstimate;
+    }
+
     protected Object convertNullValueToEmptyString(Object value) {
         return value == null ? "" : value;
     }
@@ -440,8 +712,25 @@ abstract public class Template {
          * @throws Twig4jRuntimeException On any errors
          */
         public String invoke(String name, Context context, java.util.Map<String, TemplateBlockMethodSet> blocks) throws Twig4jRuntimeException {
+            StringBuilder output = new StringBuilder();
+            invoke(name, context, blocks, new TemplateOutput(output));
+
+            return output.toString();
+        }
+
+        /**
+         * Invoke the provided method
+         *
+         * @param name The block name (used for error message)
+         * @param context The context to provid to the block
+         * @param blocks Merged map of blocks available
+         * @param output The output to render to
+         *
+         * @throws Twig4jRuntimeException On any errors
+         */
+        public void invoke(String name, Context context, java.util.Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws Twig4jRuntimeException {
             try {
-                return (String)method.invoke(template, context, blocks);
+                method.invoke(template, context, blocks, output);
             } catch (ReflectiveOperationException e) {
                 throw new Twig4jRuntimeException("Failed displaying block \"" + name + "\" (\"" + e.getMessage() + "\")", getTemplateName(), -1, e);
             }
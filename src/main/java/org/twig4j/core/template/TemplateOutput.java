@@ -0,0 +1,93 @@
+package org.twig4j.core.template;
+
+import org.twig4j.core.exception.Twig4jRuntimeException;
+
+import java.io.IOException;
+
+/**
+ * The sink a template renders into. The compiled template, all of its blocks and all included templates write to the
+ * same output, so nothing is rendered into an intermediate string.
+ */
+public class TemplateOutput {
+    protected Appendable appendable;
+
+    protected TemplateOutput() {
+    }
+
+    /**
+     * @param appendable Where to write the output (ie. a StringBuilder or a Writer)
+     */
+    public TemplateOutput(Appendable appendable) {
+        this.appendable = appendable;
+    }
+
+    /**
+     * Write a string
+     *
+     * @param text The string
+     *
+     * @return this
+     *
+     * @throws Twig4jRuntimeException If writing fails
+     */
+    public TemplateOutput append(String text) throws Twig4jRuntimeException {
+        try {
+            appendable.append(text);
+        } catch (IOException e) {
+            throw new Twig4jRuntimeException("Failed writing the output (\"" + e.getMessage() + "\")", null, -1, e);
+        }
+
+        return this;
+    }
+
+    /**
+     * Write the string representation of a value
+     *
+     * @param value The value
+     *
+     * @return this
+     *
+     * @throws Twig4jRuntimeException If writing fails
+     */
+    public TemplateOutput append(Object value) throws Twig4jRuntimeException {
+        return append(String.valueOf(value));
+    }
+
+    /**
+     * Write static text of the template
+     *
+     * @param text The text
+     * @param utf8Text The text encoded as UTF-8 (encoded once when the template class is initialized, so outputs
+     *                 writing bytes don't have to encode it on every render)
+     *
+     * @return this
+     *
+     * @throws Twig4jRuntimeException If writing fails
+     */
+    public TemplateOutput appendText(String text, byte[] utf8Text) throws Twig4jRuntimeException {
+        return append(text);
+    }
+
+    /**
+     * Write anything the output buffers itself to what it's writing to (without flushing or closing that). Called
+     * when the template has been rendered.
+     *
+     * @throws Twig4jRuntimeException If writing fails
+     */
+    public void finish() throws Twig4jRuntimeException {
+    }
+
+    /**
+     * Get what the output is written to
+     *
+     * @return The appendable
+     */
+    public Appendable getAppendable() {
+        return appendable;
+    }
+
+    @Override
+    public String toString() {
+        return appendable.toString();
+    }
+}
@@ -3,9 +3,6 @@ package org.twig4j.core.typesystem;
 import org.jetbrains.annotations.NotNull;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.List;
-import java.util.Map;
 
 public class DynamicType implements Comparable<DynamicType> {
     protected Object value;
@@ -24,10 +21,7 @@ public class DynamicType implements Comparable<DynamicType> {
      * @throws TypeErrorException If any of the values aren't numbers
      */
     public Number add(DynamicType value) {
-        return normalizeNumber(
-            BigDecimal.valueOf(this.getValueAsNumber().doubleValue())
-                .add(BigDecimal.valueOf(value.getValueAsNumber().doubleValue()))
-        );
+        return Ops.add(getValue(), value.getValue());
     }
 
     /**
@@ -40,10 +34,7 @@ public class DynamicType implements Comparable<DynamicType> {
      * @throws TypeErrorException If any of the values aren't numbers
      */
     public Number subtract(DynamicType value) {
-        return normalizeNumber(
-            BigDecimal.valueOf(this.getValueAsNumber().doubleValue())
-                .subtract(BigDecimal.valueOf(value.getValueAsNumber().doubleValue()))
-        );
+        return Ops.subtract(getValue(), value.getValue());
     }
 
     /**
@@ -56,10 +47,7 @@ public class DynamicType implements Comparable<DynamicType> {
      * @throws TypeErrorException If any of the values aren't numbers
      */
     public Number multiply(DynamicType value) {
-        return normalizeNumber(
-            BigDecimal.valueOf(this.getValueAsNumber().doubleValue())
-                .multiply(BigDecimal.valueOf(value.getValueAsNumber().doubleValue()))
-        );
+        return Ops.multiply(getValue(), value.getValue());
     }
 
     /**
@@ -72,10 +60,7 @@ public class DynamicType implements Comparable<DynamicType> {
      * @throws TypeErrorException If any of the values aren't numbers
      */
     public Number divide(DynamicType value) {
-        return normalizeNumber(
-            BigDecimal.valueOf(this.getValueAsNumber().doubleValue())
-                .divide(BigDecimal.valueOf(value.getValueAsNumber().doubleValue()))
-        );
+        return Ops.divide(getValue(), value.getValue());
     }
 
     /**
@@ -88,12 +73,7 @@ public class DynamicType implements Comparable<DynamicType> {
      * @throws TypeErrorException If any of the values aren't numbers
      */
     public Number floorDivide(DynamicType value) {
-        return (int)
-            Math.floor(
-                BigDecimal.valueOf(this.getValueAsNumber().doubleValue())
-                    .divide(BigDecimal.valueOf(value.getValueAsNumber().doubleValue()))
-                   .doubleValue()
-            );
+        return Ops.floorDivide(getValue(), value.getValue());
     }
 
     /**
@@ -106,10 +86,7 @@ public class DynamicType implements Comparable<DynamicType> {
      * @throws TypeErrorException If any of the values aren't numbers
      */
     public Number pow(DynamicType value) {
-        return normalizeNumber(
-            BigDecimal.valueOf(this.getValueAsNumber().doubleValue())
-                .pow(getValueAsNumber().intValue())
-        );
+        return Ops.pow(getValue(), value.getValue());
     }
 
     /**
@@ -122,10 +99,7 @@ public class DynamicType implements Comparable<DynamicType> {
      * @throws TypeErrorException If any of the values aren't numbers
      */
     public Number mod(DynamicType value) {
-        return normalizeNumber(
-            BigDecimal.valueOf(this.getValueAsNumber().doubleValue())
-                .remainder(BigDecimal.valueOf(value.getValueAsNumber().doubleValue()))
-        );
+        return Ops.mod(getValue(), value.getValue());
     }
 
     /**
@@ -135,11 +109,7 @@ public class DynamicType implements Comparable<DynamicType> {
      * @return The normalized number
      */
     protected Number normalizeNumber(BigDecimal number) {
-        if (number.setScale(0, RoundingMode.FLOOR).subtract(number).doubleValue() == 0.0 && number.setScale(0, RoundingMode.CEILING).subtract(number).doubleValue() == 0.0) {
-            return number.intValue();
-        } else {
-            return number.doubleValue();
-        }
+        return Ops.normalizeNumber(number);
     }
 
     /**
@@ -160,74 +130,21 @@ public class DynamicType implements Comparable<DynamicType> {
      * @throws TypeErrorException If not possible to get value as double
      */
     public Number getValueAsNumber() throws TypeErrorException {
-        if (getValue() instanceof Number) {
-            return (Number) getValue();
-        } else if (getValue() instanceof String && ((String) getValue()).matches("^\\d+(\\.\\d+)?$")) {
-            // Is a string that represents a number
-            return Double.valueOf((String) getValue());
-        } else {
-            throw TypeErrorException.thingAsType(String.valueOf(getValue()), "number");
-        }
+        return Ops.toNumber(getValue());
     }
 
     @Override
     public int compareTo(@NotNull DynamicType o) {
-        if (getValueAsNumber().doubleValue() == o.getValueAsNumber().doubleValue()) {
-            return 0;
-        } else if (getValueAsNumber().doubleValue() < o.getValueAsNumber().doubleValue()) {
-            return -1;
-        } else {
-            return 1;
-        }
+        return Ops.compare(getValue(), o.getValue());
     }
 
     @Override
     public boolean equals(Object obj) {
-        if (obj instanceof DynamicType) {
-            // This takes care of many cases, i.e. booleans, nulls etc.
-            if (obj.toString().equals(this.toString())) {
-                return true;
-            } else if (((DynamicType) obj).getValue() instanceof Number) {
-                return ((DynamicType) obj).getValueAsNumber().doubleValue() == getValueAsNumber().doubleValue();
-            } else {
-                return getValue().equals(((DynamicType) obj).getValue());
-            }
-        } else {
-            return false;
-        }
+        return obj instanceof DynamicType && Ops.equals(getValue(), ((DynamicType) obj).getValue());
     }
 
     public Boolean toBoolean() {
-        Object value = getValue();
-        if (value instanceof DynamicType) {
-            value = ((DynamicType)value).getValue();
-        }
-
-        if (value == null) {
-            return false;
-        }
-
-        if (value instanceof Boolean) {
-            return (Boolean)value;
-        }
-
-        if (value instanceof Number) {
-            return ((Number)value).doubleValue() != 0d;
-        }
-
-        if (value instanceof String) {
-            return !value.equals("0") && ((String) value).length() > 0;
-        }
-
-        if (value instanceof List) {
-            return ((List)value).size() > 0;
-        }
-
-        if (value instanceof Map) {
-            return ((Map)value).size() > 0;
-        }
-
-        return true;
+        return Ops.truthy(getValue());
     }
 
     @Override
@@ -0,0 +1,405 @@
+package org.twig4j.core.typesystem;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The operators of templates as static methods on plain values, so compiled templates don't have to wrap every
+ * operand in a {@link DynamicType}. DynamicType calls these as well, so both always give the same result.
+ *
+ * Every operator checks the most common operand types first (ie. two integers for arithmetic and booleans for truthiness)
+ * before falling back to the general conversions.
+ */
+public final class Ops {
+    /**
+     * Integers up to this (2^53) are exact as doubles and BigDecimal.valueOf() gives their exact value, so arithmetic
+     * on them can be done with longs instead of BigDecimals and give the same result
+     */
+    private static final double MAX_EXACT_INTEGER = 9007199254740992d;
+
+    /**
+     * Integers below this (2^31) can be multiplied as longs without overflowing
+     */
+    private static final long MAX_MULTIPLIABLE_INTEGER = 2147483648L;
+
+    private Ops() {
+    }
+
+    /**
+     * Add 2 values
+     *
+     * @param left The value to add to
+     * @param right The value to add
+     *
+     * @return Integer or double, i.e. 1 or 4.2
+     *
+     * @throws TypeErrorException If any of the values aren't numbers
+     */
+    public static Number add(Object left, Object right) {
+        if (left instanceof Integer && right instanceof Integer) {
+            return (int) ((long) (Integer) left + (long) (Integer) right);
+        }
+
+        double leftNumber = toOperand(left);
+        double rightNumber = toNumber(right).doubleValue();
+
+        if (isExactInteger(leftNumber) && isExactInteger(rightNumber)) {
+            return (int) ((long) leftNumber + (long) rightNumber);
+        }
+
+        return normalizeNumber(
+            BigDecimal.valueOf(leftNumber)
+                .add(BigDecimal.valueOf(rightNumber))
+        );
+    }
+
+    /**
+     * Subtract a value from another
+     *
+     * @param left The value to subtract from
+     * @param right The value to subtract
+     *
+     * @return Integer or double, i.e. 1 or 4.2
+     *
+     * @throws TypeErrorException If any of the values aren't numbers
+     */
+    public static Number subtract(Object left, Object right) {
+        if (left instanceof Integer && right instanceof Integer) {
+            return (int) ((long) (Integer) left - (long) (Integer) right);
+        }
+
+        double leftNumber = toOperand(left);
+        double rightNumber = toNumber(right).doubleValue();
+
+        if (isExactInteger(leftNumber) && isExactInteger(rightNumber)) {
+            return (int) ((long) leftNumber - (long) rightNumber);
+        }
+
+        return normalizeNumber(
+            BigDecimal.valueOf(leftNumber)
+                .subtract(BigDecimal.valueOf(rightNumber))
+        );
+    }
+
+    /**
+     * Multiply 2 values
+     *
+     * @param left The value to multiply
+     * @param right The value to multiply with
+     *
+     * @return Integer or double, i.e. 1 or 4.2
+     *
+     * @throws TypeErrorException If any of the values aren't numbers
+     */
+    public static Number multiply(Object left, Object right) {
+        if (left instanceof Integer && right instanceof Integer) {
+            return (int) ((long) (Integer) left * (long) (Integer) right);
+        }
+
+        double leftNumber = toOperand(left);
+        double rightNumber = toNumber(right).doubleValue();
+
+        // Products that might overflow a long are multiplied as BigDecimals
+        if (Math.abs(leftNumber) < MAX_MULTIPLIABLE_INTEGER && Math.abs(rightNumber) < MAX_MULTIPLIABLE_INTEGER && isExactInteger(leftNumber) && isExactInteger(rightNumber)) {
+            return (int) ((long) leftNumber * (long) rightNumber);
+        }
+
+        return normalizeNumber(
+            BigDecimal.valueOf(leftNumber)
+                .multiply(BigDecimal.valueOf(rightNumber))
+        );
+    }
+
+    /**
+     * Divide a value by another
+     *
+     * @param left The value to divide
+     * @param right The value to divide by
+     *
+     * @return Integer or double, i.e. 1 or 4.2
+     *
+     * @throws TypeErrorException If any of the values aren't numbers
+     * @throws ArithmeticException If dividing by 0 or the quotient has infinitely many decimals
+     */
+    public static Number divide(Object left, Object right) {
+        double leftNumber = toOperand(left);
+        double rightNumber = toNumber(right).doubleValue();
+
+        // Only even divisions, the others (and dividing by 0) fail or give a decimal
+        if (isExactInteger(leftNumber) && isExactInteger(rightNumber) && rightNumber != 0 && (long) leftNumber % (long) rightNumber == 0) {
+            return (int) ((long) leftNumber / (long) rightNumber);
+        }
+
+        return normalizeNumber(
+            BigDecimal.valueOf(leftNumber)
+                .divide(BigDecimal.valueOf(rightNumber))
+        );
+    }
+
+    /**
+     * Divide a value by another and floor round it
+     *
+     * @param left The value to divide
+     * @param right The value to divide by
+     *
+     * @return The integer
+     *
+     * @throws TypeErrorException If any of the values aren't numbers
+     * @throws ArithmeticException If dividing by 0 or the quotient has infinitely many decimals
+     */
+    public static Number floorDivide(Object left, Object right) {
+        double leftNumber = toOperand(left);
+        double rightNumber = toNumber(right).doubleValue();
+
+        if (isExactInteger(leftNumber) && isExactInteger(rightNumber) && rightNumber != 0 && (long) leftNumber % (long) rightNumber == 0) {
+            return (int) Math.floor((double) ((long) leftNumber / (long) rightNumber));
+        }
+
+        return (int)
+            Math.floor(
+                BigDecimal.valueOf(leftNumber)
+                    .divide(BigDecimal.valueOf(rightNumber))
+                   .doubleValue()
+            );
+    }
+
+    /**
+     * Raise a value to the power of itself (the right value is ignored, but kept for compatibility)
+     *
+     * @param left The value
+     * @param right The power
+     *
+     * @return Integer or double, i.e. 1 or 4.2
+     *
+     * @throws TypeErrorException If the left value isn't a number
+     */
+    public static Number pow(Object left, Object right) {
+        return normalizeNumber(
+            BigDecimal.valueOf(toNumber(left).doubleValue())
+                .pow(toNumber(left).intValue())
+        );
+    }
+
+    /**
+     * Get the remainder of dividing a value by another
+     *
+     * @param left The value to divide
+     * @param right The value to divide by
+     *
+     * @return Integer or double, i.e. 1 or 4.2
+     *
+     * @throws TypeErrorException If any of the values aren't numbers
+     * @throws ArithmeticException If dividing by 0
+     */
+    public static Number mod(Object left, Object right) {
+        if (left instanceof Integer && right instanceof Integer && (Integer) right != 0) {
+            return (int) ((long) (Integer) left % (long) (Integer) right);
+        }
+
+        double leftNumber = toOperand(left);
+        double rightNumber = toNumber(right).doubleValue();
+
+        // The remainder has the sign of the dividend, like %
+        if (isExactInteger(leftNumber) && isExactInteger(rightNumber) && rightNumber != 0) {
+            return (int) ((long) leftNumber % (long) rightNumber);
+        }
+
+        return normalizeNumber(
+            BigDecimal.valueOf(leftNumber)
+                .remainder(BigDecimal.valueOf(rightNumber))
+        );
+    }
+
+    /**
+     * Whether 2 values are equal, ie. 1 and 1.0 or "1" and 1
+     *
+     * @param left The first value
+     * @param right The second value
+     *
+     * @return Whether they're equal
+     *
+     * @throws TypeErrorException If the right value is a number and the left one isn't
+     */
+    public static boolean equals(Object left, Object right) {
+        if (left instanceof Integer && right instanceof Integer) {
+            return ((Integer) left).intValue() == (Integer) right;
+        } else if (left instanceof String && right instanceof String) {
+            return left.equals(right);
+        }
+
+        // This takes care of many cases, i.e. booleans, nulls etc.
+        if (String.valueOf(right).equals(String.valueOf(left))) {
+            return true;
+        } else if (right instanceof Number) {
+            return ((Number) right).doubleValue() == toNumber(left).doubleValue();
+        } else {
+            return left.equals(right);
+        }
+    }
+
+    /**
+     * Compare 2 values as numbers
+     *
+     * @param left The first value
+     * @param right The second value
+     *
+     * @return A negative number, 0 or a positive number if the first value is less than, equal to or greater than the
+     *         second
+     *
+     * @throws TypeErrorException If any of the values aren't numbers
+     */
+    public static int compare(Object left, Object right) {
+        if (left instanceof Integer && right instanceof Integer) {
+            return Integer.compare((Integer) left, (Integer) right);
+        }
+
+        double leftNumber = toNumber(left).doubleValue();
+        double rightNumber = toNumber(right).doubleValue();
+
+        if (leftNumber == rightNumber) {
+            return 0;
+        } else if (leftNumber < rightNumber) {
+            return -1;
+        } else {
+            return 1;
+        }
+    }
+
+    /**
+     * Whether a value is true in a condition (ie. false for null, 0, "", "0" and empty lists and maps)
+     *
+     * @param value The value
+     *
+     * @return Whether it's true
+     */
+    public static boolean truthy(Object value) {
+        if (value instanceof DynamicType) {
+            return isTruthy(((DynamicType) value).getValue());
+        }
+
+        return isTruthy(value);
+    }
+
+    private static boolean isTruthy(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+
+        if (value == null) {
+            return false;
+        }
+
+        if (value instanceof String) {
+            return !value.equals("0") && ((String) value).length() > 0;
+        }
+
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue() != 0d;
+        }
+
+        if (value instanceof List) {
+            return ((List) value).size() > 0;
+        }
+
+        if (value instanceof Map) {
+            return ((Map) value).size() > 0;
+        }
+
+        return true;
+    }
+
+    /**
+     * Get a value as a number, if it's a number or a string of one
+     *
+     * @param value The value
+     *
+     * @return The number
+     *
+     * @throws TypeErrorException If the value isn't a number
+     */
+    public static Number toNumber(Object value) {
+        if (value instanceof Number) {
+            return (Number) value;
+        } else if (value instanceof String && isNumericString((String) value)) {
+            // Is a string that represents a number
+            return Double.valueOf((String) value);
+        } else {
+            throw TypeErrorException.thingAsType(String.valueOf(value), "number");
+        }
+    }
+
+    /**
+     * Get a value as the left operand of a calculation. NaN and infinity fail before the right operand is read, like
+     * they do when the operands are converted to BigDecimals.
+     */
+    private static double toOperand(Object value) {
+        double number = toNumber(value).doubleValue();
+
+        if (Double.isNaN(number) || Double.isInfinite(number)) {
+            // Throws a NumberFormatException
+            BigDecimal.valueOf(number);
+        }
+
+        return number;
+    }
+
+    /**
+     * Whether a number is an integer that can be calculated with as a long, giving the same result as calculating with
+     * its BigDecimal
+     */
+    private static boolean isExactInteger(double number) {
+        return Math.abs(number) < MAX_EXACT_INTEGER && number == Math.rint(number);
+    }
+
+    /**
+     * Convert a decimal to an int if it's even or to a double if it isn't
+     *
+     * @param number The number to normalize
+     *
+     * @return The normalized number
+     */
+    public static Number normalizeNumber(BigDecimal number) {
+        if (number.setScale(0, RoundingMode.FLOOR).subtract(number).doubleValue() == 0.0 && number.setScale(0, RoundingMode.CEILING).subtract(number).doubleValue() == 0.0) {
+            return number.intValue();
+        } else {
+            return number.doubleValue();
+        }
+    }
+
+    /**
+     * Whether a string is a number (digits, optionally followed by a dot and more digits)
+     *
+     * @param value The string
+     *
+     * @return Whether it's a number
+     */
+    public static boolean isNumericString(String value) {
+        int length = value.length();
+        int i = 0;
+
+        while (i < length && isDigit(value.charAt(i))) {
+            i++;
+        }
+
+        if (i == 0 || i == length) {
+            return i > 0;
+        }
+
+        if (value.charAt(i) != '.') {
+            return false;
+        }
+
+        int decimalsStart = ++i;
+        while (i < length && isDigit(value.charAt(i))) {
+            i++;
+        }
+
+        return i == length && i > decimalsStart;
+    }
+
+    private static boolean isDigit(char character) {
+        return character >= '0' && character <= '9';
+    }
+}
@@ -0,0 +1,100 @@
+package org.twig4j.core.util;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A small lock-free pool of string builders, so rendering templates to strings can reuse the char arrays of earlier
+ * renders instead of growing new ones every time.
+ *
+ * Builders aren't bound to threads (no thread locals), so the pool works the same with thread pools and virtual
+ * threads. When all builders are taken a new one is created, and builders grown beyond the maximum capacity aren't
+ * kept.
+ */
+public class StringBuilderPool {
+    private AtomicReferenceArray<StringBuilder> builders;
+    private int maximumCapacity;
+
+    /**
+     * Keep one builder per processor, of at most 1M chars (2 MB)
+     */
+    public StringBuilderPool() {
+        this(Runtime.getRuntime().availableProcessors(), 1 << 20);
+    }
+
+    /**
+     * @param size The number of builders to keep
+     * @param maximumCapacity The maximum capacity of builders to keep
+     */
+    public StringBuilderPool(int size, int maximumCapacity) {
+        this.builders = new AtomicReferenceArray<>(size);
+        this.maximumCapacity = maximumCapacity;
+    }
+
+    /**
+     * Take an empty builder from the pool, or create a new one
+     *
+     * @param capacity The expected length of the content
+     *
+     * @return The builder
+     */
+    public StringBuilder acquire(int capacity) {
+        int start = getStartIndex();
+
+        for (int i = 0; i < builders.length(); i++) {
+            StringBuilder builder = builders.getAndSet((start + i) % builders.length(), null);
+
+            if (builder != null) {
+                builder.ensureCapacity(capacity);
+
+                return builder;
+            }
+        }
+
+        return new StringBuilder(Math.max(capacity, 16));
+    }
+
+    /**
+     * Give a builder back to the pool (it must not be used after this)
+     *
+     * @param builder The builder
+     */
+    public void release(StringBuilder builder) {
+        if (builder.capacity() > maximumCapacity) {
+            return;
+        }
+
+        builder.setLength(0);
+        int start = getStartIndex();
+
+        for (int i = 0; i < builders.length(); i++) {
+            if (builders.compareAndSet((start + i) % builders.length(), null, builder)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Spread the threads over the pool so they don't all compete for the first builder
+     */
+    private int getStartIndex() {
+        return (int) (Thread.currentThread().getId() % builders.length());
+    }
+
+    /**
+     * Get the number of builders kept
+     *
+     * @return The size
+     */
+    public int getSize() {
+        return builders.length();
+    }
+
+    /**
+     * Get the maximum capacity of builders kept
+     *
+     * @return The capacity in chars
+     */
+    public int getMaximumCapacity() {
+        return maximumCapacity;
+    }
+}
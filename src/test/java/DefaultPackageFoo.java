@@ -0,0 +1,8 @@
+/**
+ * A class in the unnamed package, which compiled templates can't refer to
+ */
+public class DefaultPackageFoo {
+    public String getBar() {
+        return "bar";
+    }
+}
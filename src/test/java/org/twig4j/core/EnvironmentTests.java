@@ -1,7 +1,11 @@
 package org.twig4j.core;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.twig4j.core.cache.BytecodeCache;
+import org.twig4j.core.cache.FilesystemBytecodeCache;
 import org.twig4j.core.compiler.ClassCompiler;
 import org.twig4j.core.compiler.RuntimeTemplateCompiler;
 import org.twig4j.core.exception.LoaderException;
@@ -9,14 +13,20 @@ import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.loader.HashMapLoader;
 import org.twig4j.core.loader.Loader;
+import org.twig4j.core.nodevisitor.ConstantFoldingNodeVisitor;
 import org.twig4j.core.syntax.Lexer;
 import org.twig4j.core.syntax.TokenStream;
 import org.twig4j.core.syntax.parser.Parser;
 import org.twig4j.core.syntax.parser.node.Module;
 import org.twig4j.core.syntax.parser.node.type.Body;
+import org.twig4j.core.syntax.parser.node.type.Text;
+import org.twig4j.core.syntax.parser.node.type.expression.BinaryConcat;
 import org.twig4j.core.template.Context;
+import org.twig4j.core.template.InterpretedTemplate;
 import org.twig4j.core.template.Template;
+import org.twig4j.core.template.TemplateOutput;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -24,6 +34,9 @@ import java.util.Map;
 import static org.mockito.Mockito.*;
 
 public class EnvironmentTests {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testGetTemplateClass() throws LoaderException {
         HashMap<String, String> templates = new HashMap<>();
@@ -99,6 +112,177 @@ public class EnvironmentTests {
         Assert.assertEquals("Rendered result should be template contents", "bar", result);
     }
 
+    @Test
+    public void testCanDisableNodeVisitors() throws Twig4jException {
+        Environment environment = new Environment();
+        String fingerprint = environment.getCodegenFingerprint();
+
+        Assert.assertTrue("Node visitors should be enabled by default", environment.isNodeVisitorEnabled(ConstantFoldingNodeVisitor.class));
+        Assert.assertEquals("Should fold the concatenation", Text.class, environment.parse("{{ 'foo' ~ 'bar' }}", "foo").getBodyNode().getClass());
+
+        environment.disableNodeVisitor(ConstantFoldingNodeVisitor.class);
+
+        Assert.assertFalse("Node visitor should be disabled", environment.isNodeVisitorEnabled(ConstantFoldingNodeVisitor.class));
+        Assert.assertEquals("Should not fold the concatenation", BinaryConcat.class, environment.parse("{{ 'foo' ~ 'bar' }}", "foo").getBodyNode().getNode(0).getClass());
+        Assert.assertNotEquals("Disabling a node visitor should change the fingerprint", fingerprint, environment.getCodegenFingerprint());
+
+        environment.enableNodeVisitor(ConstantFoldingNodeVisitor.class);
+
+        Assert.assertEquals("Enabling a node visitor should restore the fingerprint", fingerprint, environment.getCodegenFingerprint());
+    }
+
+    @Test
+    public void testOnlyCompilesTemplateOnce() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo", "only compiled once");
+        Environment environment = new Environment(new HashMapLoader(templates));
+
+        Template first = environment.loadTemplate("foo");
+        Template second = environment.loadTemplate("foo");
+
+        Assert.assertSame("Second load should return the cached template", first, second);
+        Assert.assertEquals("Template should only be compiled once", 1, environment.getTemplateCache().getCompileCount());
+        Assert.assertEquals("First load should be a miss", 1, environment.getTemplateCache().getMissCount());
+    }
+
+    @Test
+    public void testResolvesSameNameWithoutLoadingSourceAgain() throws Twig4jException {
+        Loader loaderStub = mock(HashMapLoader.class);
+        when(loaderStub.getSource("foo")).thenReturn("resolved only once");
+        when(loaderStub.getCacheKey("foo")).thenReturn("resolved only once");
+        when(loaderStub.getFreshnessToken("foo")).thenReturn("token");
+        Environment environment = new Environment(loaderStub);
+
+        Template first = environment.loadTemplate("foo");
+        Template second = environment.loadTemplate("foo");
+
+        Assert.assertSame("Second load should return the resolved template", first, second);
+        // Only while resolving the template (the compilers get the class name from the environment)
+        verify(loaderStub, times(1)).getCacheKey("foo");
+        verify(loaderStub, times(2)).getFreshnessToken("foo");
+        Assert.assertEquals("Second load shouldn't reach the template cache", 0, environment.getTemplateCache().getHitCount());
+    }
+
+    @Test
+    public void testReloadsChangedTemplateWhenAutoReloadIsEnabled() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo", "bar");
+        Environment environment = new Environment(new HashMapLoader(templates));
+
+        Assert.assertEquals("First render should render first version", "bar", environment.render("foo"));
+
+        templates.put("foo", "baz");
+
+        Assert.assertEquals("Changed template should be reloaded", "baz", environment.render("foo"));
+    }
+
+    @Test
+    public void testDoesNotReloadChangedTemplateWhenAutoReloadIsDisabled() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo", "bar");
+        Environment environment = new Environment(new HashMapLoader(templates));
+        environment.disableAutoReload();
+
+        Assert.assertEquals("First render should render first version", "bar", environment.render("foo"));
+
+        templates.put("foo", "baz");
+
+        Assert.assertEquals("Resolved template should be used", "bar", environment.render("foo"));
+
+        environment.clearResolvedTemplates();
+
+        Assert.assertEquals("Template should be reloaded after clearing resolved templates", "baz", environment.render("foo"));
+    }
+
+    @Test
+    public void testRecompilesTemplateEvictedFromTemplateCache() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("first", "first evicted template");
+        templates.put("second", "second evicted template");
+        Environment environment = new Environment(new HashMapLoader(templates));
+        environment.getTemplateCache().setMaximumSize(1);
+
+        environment.render("first");
+        environment.render("second");
+
+        Assert.assertEquals("First template should be evicted", 1, environment.getTemplateCache().getEvictionCount());
+        Assert.assertEquals("Evicted template should be compiled again", "first evicted template", environment.render("first"));
+        Assert.assertEquals("Every load should compile the template", 3, environment.getTemplateCache().getCompileCount());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testSetsLoadedTemplatesInTemplateCache() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo", "loaded template");
+        Environment environment = new Environment(new HashMapLoader(templates));
+
+        Template template = environment.loadTemplate("foo");
+        HashMap<String, Template> loadedTemplates = environment.getLoadedTemplates();
+        Assert.assertSame("Loaded template should be returned", template, loadedTemplates.get(environment.getTemplateClass("foo")));
+
+        Environment otherEnvironment = new Environment(new HashMapLoader(templates)).setLoadedTemplates(loadedTemplates);
+
+        Assert.assertSame("Set template should be used", template, otherEnvironment.loadTemplate("foo"));
+        Assert.assertEquals("Set template should not be compiled again", 0, otherEnvironment.getTemplateCache().getCompileCount());
+    }
+
+    @Test
+    public void testLoadsCompiledTemplateFromBytecodeCache() throws Twig4jException, IOException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo", "bytecode cached template");
+        FilesystemBytecodeCache bytecodeCache = new FilesystemBytecodeCache(temporaryFolder.newFolder().toPath());
+
+        Environment firstEnvironment = new Environment(new HashMapLoader(templates)).setBytecodeCache(bytecodeCache);
+        Assert.assertEquals("First environment should render the template", "bytecode cached template", firstEnvironment.render("foo"));
+        Assert.assertEquals("First environment should compile the template", 1, firstEnvironment.getTemplateCache().getCompileCount());
+
+        // Like a restarted JVM
+        Environment secondEnvironment = new Environment(new HashMapLoader(templates)).setBytecodeCache(bytecodeCache);
+        Assert.assertEquals("Second environment should render the template", "bytecode cached template", secondEnvironment.render("foo"));
+        Assert.assertEquals("Second environment should not compile the template", 0, secondEnvironment.getTemplateCache().getCompileCount());
+
+        templates.put("foo", "changed bytecode cached template");
+        Environment thirdEnvironment = new Environment(new HashMapLoader(templates)).setBytecodeCache(bytecodeCache);
+        Assert.assertEquals("Changed template should be compiled again", "changed bytecode cached template", thirdEnvironment.render("foo"));
+        Assert.assertEquals("Changed template should be compiled", 1, thirdEnvironment.getTemplateCache().getCompileCount());
+    }
+
+    @Test
+    public void testRendersWhenBytecodeCacheCannotBeWritten() throws Twig4jException, IOException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo", "not bytecode cached template");
+        // A directory below a file can't be created
+        FilesystemBytecodeCache bytecodeCache = new FilesystemBytecodeCache(temporaryFolder.newFile().toPath().resolve("cache"));
+
+        Environment environment = new Environment(new HashMapLoader(templates)).setBytecodeCache(bytecodeCache);
+        Assert.assertEquals("Template should be rendered", "not bytecode cached template", environment.render("foo"));
+
+        Environment failingEnvironment = new Environment(new HashMapLoader(templates)).setBytecodeCache(new BytecodeCache() {
+            @Override
+            public Map<String, byte[]> load(String key, String sourceHash) {
+                return null;
+            }
+
+            @Override
+            public void write(String key, String sourceHash, Map<String, byte[]> classFiles) throws Twig4jRuntimeException {
+                throw new Twig4jRuntimeException("Failed", null, -1);
+            }
+        });
+        Assert.assertEquals("Failing to write should not fail rendering", "not bytecode cached template", failingEnvironment.render("foo"));
+
+        Environment tieredEnvironment = new Environment(new HashMapLoader(templates))
+                .setBytecodeCache(bytecodeCache)
+                .enableTieredCompilation()
+                .setPromotionThreshold(1)
+                .setPromotionExecutor(Runnable::run);
+        InterpretedTemplate template = (InterpretedTemplate) tieredEnvironment.loadTemplate("foo");
+        template.render(new Context());
+
+        Assert.assertNull("Promotion should not fail", template.getPromotionException());
+        Assert.assertNotNull("Template should be promoted", template.getCompiledTemplate());
+    }
+
     public void testCanResolveTemplate() throws Twig4jException {
         Loader loaderStub = mock(HashMapLoader.class);
         Environment environment = new Environment(loaderStub);
@@ -157,8 +341,8 @@ public class EnvironmentTests {
 
     protected class Template_Test_0 extends Template {
         @Override
-        protected String doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks) throws Twig4jRuntimeException {
-            return "foobar";
+        protected void doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws Twig4jRuntimeException {
+            output.append("foobar");
         }
 
         @Override
@@ -0,0 +1,79 @@
+package org.twig4j.core.cache;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class FilesystemBytecodeCacheTests {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void canWriteAndLoadClassFiles() throws IOException, Twig4jRuntimeException {
+        FilesystemBytecodeCache cache = new FilesystemBytecodeCache(temporaryFolder.newFolder().toPath());
+
+        cache.write("abcdef", "source", getClassFiles());
+        Map<String, byte[]> classFiles = cache.load("abcdef", "source");
+
+        Assert.assertNotNull("Class files should be loaded", classFiles);
+        Assert.assertArrayEquals("Class file should be the one written", new byte[]{1, 2, 3}, classFiles.get("Foo"));
+        Assert.assertArrayEquals("Nested class file should be the one written", new byte[]{4}, classFiles.get("Foo$Bar"));
+    }
+
+    @Test
+    public void missesWhenNotCached() throws IOException {
+        FilesystemBytecodeCache cache = new FilesystemBytecodeCache(temporaryFolder.newFolder().toPath());
+
+        Assert.assertNull("Nothing should be loaded", cache.load("abcdef", "source"));
+    }
+
+    @Test
+    public void missesWhenSourceHasChanged() throws IOException, Twig4jRuntimeException {
+        FilesystemBytecodeCache cache = new FilesystemBytecodeCache(temporaryFolder.newFolder().toPath());
+
+        cache.write("abcdef", "source", getClassFiles());
+
+        Assert.assertNull("Class files of another source should not be loaded", cache.load("abcdef", "changed source"));
+    }
+
+    @Test
+    public void missesWhenFileIsCorrupt() throws IOException, Twig4jRuntimeException {
+        Path directory = temporaryFolder.newFolder().toPath();
+        FilesystemBytecodeCache cache = new FilesystemBytecodeCache(directory);
+
+        cache.write("abcdef", "source", getClassFiles());
+        Path file = directory.resolve("ab").resolve("abcdef.class.bin");
+        byte[] content = Files.readAllBytes(file);
+        content[content.length / 2] ^= 1;
+        Files.write(file, content);
+
+        Assert.assertNull("Corrupt file should not be loaded", cache.load("abcdef", "source"));
+    }
+
+    @Test
+    public void skipsEntriesThatCannotBeWritten() throws IOException {
+        // A directory below a file can't be created
+        Path directory = temporaryFolder.newFile().toPath().resolve("cache");
+        FilesystemBytecodeCache cache = new FilesystemBytecodeCache(directory);
+
+        cache.write("abcdef", "source", getClassFiles());
+
+        Assert.assertNull("Nothing should be loaded", cache.load("abcdef", "source"));
+    }
+
+    private Map<String, byte[]> getClassFiles() {
+        Map<String, byte[]> classFiles = new LinkedHashMap<>();
+        classFiles.put("Foo", new byte[]{1, 2, 3});
+        classFiles.put("Foo$Bar", new byte[]{4});
+
+        return classFiles;
+    }
+}
@@ -0,0 +1,198 @@
+package org.twig4j.core.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.template.Context;
+import org.twig4j.core.template.Template;
+import org.twig4j.core.template.TemplateOutput;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TemplateCacheTests {
+    @Test
+    public void onlyCreatesTemplateOnceForConcurrentMisses() throws Exception {
+        TemplateCache cache = new TemplateCache();
+        AtomicInteger numberOfCreations = new AtomicInteger();
+        CountDownLatch factoryStarted = new CountDownLatch(1);
+        CountDownLatch releaseFactory = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        List<Future<Template>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> cache.get("Template_foo_0", () -> {
+                numberOfCreations.incrementAndGet();
+                factoryStarted.countDown();
+                try {
+                    releaseFactory.await();
+                } catch (InterruptedException e) {
+                    throw new Twig4jRuntimeException("Interrupted", e);
+                }
+
+                return new TestTemplate();
+            })));
+        }
+
+        factoryStarted.await();
+        // Give the other threads a chance to pile up behind the first one
+        Thread.sleep(50);
+        releaseFactory.countDown();
+
+        Template first = results.get(0).get();
+        for (Future<Template> result : results) {
+            Assert.assertSame("All threads should get the same template instance", first, result.get());
+        }
+        executor.shutdown();
+
+        Assert.assertEquals("Template should only be created once", 1, numberOfCreations.get());
+        Assert.assertEquals("Should be one miss", 1, cache.getMissCount());
+        Assert.assertEquals("All other lookups should be hits", 7, cache.getHitCount());
+    }
+
+    @Test
+    public void countsHitsAndMisses() throws Twig4jException {
+        TemplateCache cache = new TemplateCache();
+
+        cache.get("a", TestTemplate::new);
+        cache.get("a", TestTemplate::new);
+        cache.get("b", TestTemplate::new);
+
+        Assert.assertEquals("Should count misses", 2, cache.getMissCount());
+        Assert.assertEquals("Should count hits", 1, cache.getHitCount());
+        Assert.assertEquals("Should contain both templates", 2, cache.size());
+    }
+
+    @Test
+    public void doesNotCacheFailures() throws Twig4jException {
+        TemplateCache cache = new TemplateCache();
+
+        try {
+            cache.get("a", () -> {
+                throw new Twig4jRuntimeException("Failed", "a.twig", 1);
+            });
+            Assert.fail("Exception from factory should be thrown");
+        } catch (Twig4jRuntimeException e) {
+            Assert.assertEquals("Exception should be the one thrown by the factory", "a.twig", e.getTemplateName());
+        }
+
+        Assert.assertFalse("Failed template should not be cached", cache.contains("a"));
+
+        Template template = cache.get("a", TestTemplate::new);
+        Assert.assertSame("Template should be created on the next try", template, cache.getIfPresent("a"));
+    }
+
+    @Test
+    public void evictsTemplatesWhenMaximumSizeIsExceeded() throws Twig4jException {
+        TemplateCache cache = new TemplateCache(2);
+
+        cache.get("a", TestTemplate::new);
+        cache.get("b", TestTemplate::new);
+        cache.get("c", TestTemplate::new);
+
+        Assert.assertEquals("Cache should not grow beyond its maximum size", 2, cache.size());
+        Assert.assertEquals("Should count the eviction", 1, cache.getEvictionCount());
+        Assert.assertFalse("Oldest template should be evicted", cache.contains("a"));
+    }
+
+    @Test
+    public void doesNotCountTemplatesStillLoadingTowardsMaximumSize() throws Exception {
+        TemplateCache cache = new TemplateCache(1);
+        CountDownLatch factoryStarted = new CountDownLatch(1);
+        CountDownLatch releaseFactory = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        Future<Template> loading = executor.submit(() -> cache.get("a", () -> {
+            factoryStarted.countDown();
+            try {
+                releaseFactory.await();
+            } catch (InterruptedException e) {
+                throw new Twig4jRuntimeException("Interrupted", e);
+            }
+
+            return new TestTemplate();
+        }));
+
+        factoryStarted.await();
+        Template loaded = cache.get("b", TestTemplate::new);
+
+        Assert.assertSame("Loaded template should not be evicted for one still loading", loaded, cache.getIfPresent("b"));
+        Assert.assertEquals("Nothing should be evicted yet", 0, cache.getEvictionCount());
+
+        releaseFactory.countDown();
+        loading.get();
+        executor.shutdown();
+
+        Assert.assertEquals("Should evict once the other template is loaded", 1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void givesRecentlyUsedTemplatesASecondChance() throws Twig4jException {
+        TemplateCache cache = new TemplateCache(2);
+
+        cache.get("a", TestTemplate::new);
+        cache.get("b", TestTemplate::new);
+        cache.getIfPresent("a");
+        cache.get("c", TestTemplate::new);
+
+        Assert.assertTrue("Recently used template should be kept", cache.contains("a"));
+        Assert.assertFalse("Unused template should be evicted", cache.contains("b"));
+        Assert.assertTrue("New template should be cached", cache.contains("c"));
+    }
+
+    @Test
+    public void evictsTemplatesWhenMaximumWeightIsExceeded() throws Twig4jException {
+        TemplateCache cache = new TemplateCache()
+            .setWeigher(template -> 10)
+            .setMaximumWeight(25);
+
+        cache.get("a", TestTemplate::new);
+        cache.get("b", TestTemplate::new);
+        cache.get("c", TestTemplate::new);
+
+        Assert.assertEquals("Should evict until within the maximum weight", 1, cache.getEvictionCount());
+        Assert.assertEquals("Should keep track of the total weight", 20, cache.getTotalWeight());
+
+        cache.invalidateAll();
+
+        Assert.assertEquals("Invalidated templates should not weigh anything", 0, cache.getTotalWeight());
+    }
+
+    @Test
+    public void doesNotCountPrecompiledTemplatesInMetaspaceEstimate() throws Twig4jException {
+        TemplateCache cache = new TemplateCache();
+
+        cache.get("a", TestTemplate::new);
+
+        Assert.assertEquals("Templates from the class path should not be counted", 0, cache.getEstimatedMetaspaceSize());
+    }
+
+    @Test
+    public void onlyReplacesTheExpectedTemplate() throws Twig4jException {
+        TemplateCache cache = new TemplateCache();
+        Template original = cache.get("a", TestTemplate::new);
+        Template replacement = new TestTemplate();
+
+        Assert.assertFalse("Should not replace another template", cache.replace("a", new TestTemplate(), replacement));
+        Assert.assertFalse("Should not replace missing templates", cache.replace("b", original, replacement));
+        Assert.assertTrue("Should replace the expected template", cache.replace("a", original, replacement));
+        Assert.assertSame("Should return the replacement", replacement, cache.getIfPresent("a"));
+        Assert.assertEquals("Should still hold one template", 1, cache.size());
+    }
+
+    protected static class TestTemplate extends Template {
+        @Override
+        protected void doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws Twig4jRuntimeException {
+            output.append("foo");
+        }
+
+        @Override
+        public String getTemplateName() {
+            return "foo.twig";
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.twig4j.core.compiler;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.twig4j.core.Environment;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.loader.HashMapLoader;
+import org.twig4j.core.template.Context;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class BytecodeCompilerTests {
+    @Test
+    public void rendersSameOutputAsJavaBackend() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("text.twig", "plain text with \"quotes\", \\backslashes\\ and\nnew lines");
+        templates.put("variables.twig", "Hello {{ name }}! {{ undefined }}");
+        templates.put("constants.twig", "{{ 1 }} {{ 1.5 }} {{ true }} {{ false }} {{ null }} {{ 'foo' }}");
+        templates.put("concat.twig", "{{ 'foo' ~ name ~ 1 ~ true }}");
+        templates.put("math.twig", "{{ 1 + 2 }} {{ 5 - 1.5 }} {{ 2 * number }} {{ 7 // 2 }} {{ 2 ** 3 }} {{ 7 % 4 }}");
+        templates.put("attributes.twig", "{{ map.foo }} {{ list[1] }} {{ name.length() }} {{ [1, name][1] }}");
+
+        Context context = new Context();
+        context.put("name", "world");
+        context.put("number", 21);
+        context.put("list", Arrays.asList("a", "b"));
+        Map<String, Object> map = new HashMap<>();
+        map.put("foo", "bar");
+        context.put("map", map);
+
+        Environment bytecodeEnvironment = new Environment(new HashMapLoader(templates)).enableBytecodeBackend();
+        Environment javaEnvironment = new Environment(new HashMapLoader(templates));
+
+        for (String name : templates.keySet()) {
+            Assert.assertNotNull(
+                    "Template " + name + " should be compiled to bytecode",
+                    new BytecodeCompiler(bytecodeEnvironment).compile(bytecodeEnvironment.parse(templates.get(name), name), "org.twig4j.core.template.BytecodeTest")
+            );
+            Assert.assertEquals(
+                    "Template " + name + " should render the same with both backends",
+                    javaEnvironment.render(name, context),
+                    bytecodeEnvironment.render(name, context)
+            );
+        }
+    }
+
+    @Test
+    public void writesClassFilesWithoutStackMapFrames() throws Twig4jException {
+        Environment environment = new Environment();
+
+        byte[] classFile = new BytecodeCompiler(environment)
+                .compile(environment.parse("foo", "foo.twig"), "org.twig4j.core.template.BytecodeTest")
+                .get("org.twig4j.core.template.BytecodeTest");
+
+        Assert.assertEquals("Class file version should be 49", 49, classFile[7]);
+    }
+
+    @Test
+    public void returnsNullForUnsupportedNodes() throws Twig4jException {
+        Environment environment = new Environment();
+
+        Assert.assertNull(
+                "Templates with control structures should be left to javac",
+                new BytecodeCompiler(environment).compile(environment.parse("{% if true %}foo{% endif %}", "foo.twig"), "org.twig4j.core.template.BytecodeTest")
+        );
+    }
+
+    @Test
+    public void splitsLongTexts() throws Twig4jException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 30000; i++) {
+            text.append("åäö");
+        }
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", text.toString());
+
+        Assert.assertEquals("Long text should be rendered", text.toString(), new Environment(new HashMapLoader(templates)).enableBytecodeBackend().render("foo.twig"));
+    }
+
+    @Test
+    public void rendersPreEncodedTextToOutputStream() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", "åäö {{ 'bar' }} åäö");
+        Environment environment = new Environment(new HashMapLoader(templates)).enableBytecodeBackend();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        environment.loadTemplate("foo.twig").render(new Context(), output);
+
+        Assert.assertEquals("Rendered bytes should be UTF-8", "åäö bar åäö", new String(output.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
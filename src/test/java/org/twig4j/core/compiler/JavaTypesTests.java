@@ -0,0 +1,44 @@
+package org.twig4j.core.compiler;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.twig4j.core.Environment;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.syntax.parser.node.type.expression.Constant;
+import org.twig4j.core.syntax.parser.node.type.expression.Name;
+import org.twig4j.core.syntax.parser.node.type.expression.StringConstant;
+
+import java.util.Arrays;
+
+public class JavaTypesTests {
+    @Test
+    public void getsTheJavaTypesOfConstants() throws Twig4jException {
+        Environment environment = new Environment();
+
+        Assert.assertEquals("Integers should be ints", int.class, JavaTypes.getJavaType(new Constant(1, 1), environment));
+        Assert.assertEquals("Booleans should be booleans", boolean.class, JavaTypes.getJavaType(new Constant(true, 1), environment));
+        Assert.assertEquals("Strings should be strings", String.class, JavaTypes.getJavaType(new StringConstant("foo", 1), environment));
+        Assert.assertNull("Null should have no type", JavaTypes.getJavaType(new Constant(null, 1), environment));
+        Assert.assertEquals("Variables should be objects", Object.class, JavaTypes.getJavaType(new Name("foo", 1), environment));
+    }
+
+    @Test
+    public void onlyCallsMethodsJavacWouldResolve() throws NoSuchMethodException {
+        Assert.assertTrue(
+                "Should call a static method with matching arguments",
+                JavaTypes.isCallableWith(Integer.class.getMethod("bitCount", int.class), Arrays.asList(int.class))
+        );
+        Assert.assertFalse(
+                "Should not call a method with a primitive parameter with null",
+                JavaTypes.isCallableWith(Integer.class.getMethod("bitCount", int.class), Arrays.asList((Class<?>) null))
+        );
+        Assert.assertFalse(
+                "Should not call overloaded methods",
+                JavaTypes.isCallableWith(String.class.getMethod("valueOf", int.class), Arrays.asList(int.class))
+        );
+        Assert.assertFalse(
+                "Should not call instance methods",
+                JavaTypes.isCallableWith(String.class.getMethod("length"), Arrays.asList())
+        );
+    }
+}
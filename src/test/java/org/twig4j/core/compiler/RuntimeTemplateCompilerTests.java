@@ -7,6 +7,12 @@ import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.template.Template;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 public class RuntimeTemplateCompilerTests {
     @Test
     public void testCompileJavaCode() throws Twig4jException {
@@ -14,7 +20,7 @@ public class RuntimeTemplateCompilerTests {
 
         String sourceCode = "package org.twig4j.core.template;\n\n"
                 + "public class TestTemplate extends org.twig4j.core.template.Template {\n"
-                + "    protected String doDisplay(Context context, java.util.Map<String, TemplateBlockMethodSet> blocks) { return \"foo\"; }\n"
+                + "    protected void doDisplay(Context context, java.util.Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws org.twig4j.core.exception.Twig4jException { output.append(\"foo\"); }\n"
                 + "    public String getTemplateName() { return \"foo\"; }\n"
                 + "}\n";
         Template template = runtimeCompiler.compile(sourceCode, "org.twig4j.core.template.TestTemplate");
@@ -22,6 +28,46 @@ public class RuntimeTemplateCompilerTests {
         Assert.assertEquals("Complied class method render() should return \"foo\"", "foo", template.render());
     }
 
+    @Test
+    public void testDefinesEveryTemplateInItsOwnClassLoader() throws Twig4jException {
+        RuntimeTemplateCompiler runtimeCompiler = new RuntimeTemplateCompiler(new Environment());
+
+        String sourceCode = "package org.twig4j.core.template;\n\n"
+                + "public class OwnClassLoaderTemplate extends org.twig4j.core.template.Template {\n"
+                + "    protected void doDisplay(Context context, java.util.Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws org.twig4j.core.exception.Twig4jException { output.append(\"foo\"); }\n"
+                + "    public String getTemplateName() { return \"foo\"; }\n"
+                + "}\n";
+        Template first = runtimeCompiler.compile(sourceCode, "org.twig4j.core.template.OwnClassLoaderTemplate");
+        Template second = runtimeCompiler.compile(sourceCode, "org.twig4j.core.template.OwnClassLoaderTemplate");
+
+        Assert.assertTrue("Template should be defined in a template class loader", first.getClass().getClassLoader() instanceof TemplateClassLoader);
+        Assert.assertNotSame("Each compilation should get a new class loader", first.getClass().getClassLoader(), second.getClass().getClassLoader());
+        Assert.assertTrue("Class loader should know the size of the class files", ((TemplateClassLoader) first.getClass().getClassLoader()).getByteSize() > 0);
+    }
+
+    @Test
+    public void testCompilesConcurrently() throws Exception {
+        RuntimeTemplateCompiler runtimeCompiler = new RuntimeTemplateCompiler(new Environment());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        List<Future<Template>> templates = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            String className = "ConcurrentTemplate" + i;
+            String sourceCode = "package org.twig4j.core.template;\n\n"
+                    + "public class " + className + " extends org.twig4j.core.template.Template {\n"
+                    + "    protected void doDisplay(Context context, java.util.Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws org.twig4j.core.exception.Twig4jException { output.append(\"" + className + "\"); }\n"
+                    + "    public String getTemplateName() { return \"" + className + "\"; }\n"
+                    + "}\n";
+            templates.add(executor.submit(() -> runtimeCompiler.compile(sourceCode, "org.twig4j.core.template." + className)));
+        }
+
+        for (int i = 0; i < templates.size(); i++) {
+            Assert.assertEquals("Each template should get its own class", "ConcurrentTemplate" + i, templates.get(i).get().render());
+        }
+        executor.shutdown();
+        runtimeCompiler.getJavaCompiler().close();
+    }
+
     @Test(expected = Twig4jRuntimeException.class)
     public void testThrowsRuntimeErrorExceptionOnFailToCompile() throws Twig4jException {
         RuntimeTemplateCompiler runtimeCompiler = new RuntimeTemplateCompiler(new Environment());
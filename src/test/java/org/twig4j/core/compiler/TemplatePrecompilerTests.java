@@ -0,0 +1,57 @@
+package org.twig4j.core.compiler;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.twig4j.core.Environment;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.loader.FilesystemLoader;
+import org.twig4j.core.loader.HashMapLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+public class TemplatePrecompilerTests {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void canPrecompileAllTemplatesOfFilesystemLoader() throws Twig4jException, IOException {
+        FilesystemLoader loader = new FilesystemLoader();
+        loader.addPath(getClass().getClassLoader().getResource("test-templates").getPath());
+        Environment environment = new Environment(loader);
+        Path outputDirectory = temporaryFolder.newFolder().toPath();
+
+        List<String> classNames = new TemplatePrecompiler(environment, outputDirectory).precompile();
+
+        Assert.assertEquals("All templates should be precompiled", 3, classNames.size());
+        for (String className : classNames) {
+            Assert.assertTrue("Class file should be written", Files.isRegularFile(outputDirectory.resolve(className.replace('.', '/') + ".class")));
+        }
+        Assert.assertTrue(
+                "Class name should be the one the environment loads",
+                classNames.contains(environment.getTemplatePackage() + "." + environment.getTemplateClass("templateA.twig"))
+        );
+    }
+
+    @Test
+    public void failsWhenAnyTemplateFailsToCompile() throws Twig4jException, IOException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", "foo");
+        templates.put("bar.twig", "{{ unclosed");
+        Environment environment = new Environment(new HashMapLoader(templates));
+
+        try {
+            new TemplatePrecompiler(environment, temporaryFolder.newFolder().toPath()).precompile(Arrays.asList("foo.twig", "bar.twig"));
+            Assert.fail("Precompiling should fail");
+        } catch (Twig4jRuntimeException e) {
+            Assert.assertTrue("Message should contain the failing template", e.getMessage().contains("bar.twig"));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.twig4j.core.compiler;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.twig4j.core.Environment;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.loader.HashMapLoader;
+import org.twig4j.core.template.Context;
+
+import java.util.HashMap;
+
+public class TypeInferenceTests {
+    @Test
+    public void compilesIntsAndBooleansToPrimitives() throws Twig4jException {
+        String template = "{% for i in 1..6 %}{% if i % 2 == 0 and loop.index > 3 %}{{ i * loop.index + n }} {% endif %}{% endfor %}";
+        String source = compileSource(template);
+
+        Assert.assertTrue(
+                "Range values should be compared as ints",
+                source.contains("if ((((((java.lang.Integer) var_i).intValue() % 2) == 0) && (loop_")
+        );
+        Assert.assertTrue(
+                "Int arithmetic should be boxed once",
+                source.contains("org.twig4j.core.typesystem.Ops.add(((java.lang.Number) (((java.lang.Integer) var_i).intValue() * loop_")
+        );
+
+        Context context = new Context();
+        context.put("n", 1);
+
+        Assert.assertEquals("Should render the same as dynamic types", "17 37 ", render(template, context));
+    }
+
+    @Test
+    public void doesNotTypeVariablesSetInTheLoop() throws Twig4jException {
+        String template = "{% for i in 1..3 %}{% set i = 'a' ~ i %}{{ i }}{% endfor %}";
+
+        Assert.assertFalse("The loop variable should not be typed", compileSource(template).contains("intValue()"));
+        Assert.assertEquals("Should render the set value", "a1a2a3", render(template, new Context()));
+    }
+
+    @Test
+    public void overflowsLikeDynamicTypes() throws Twig4jException {
+        Assert.assertEquals(
+                "Int arithmetic should overflow like adding integers does",
+                "-2",
+                render("{% for i in 1..1 %}{{ i * 2147483647 * 2 }}{% endfor %}", new Context())
+        );
+    }
+
+    private String compileSource(String template) throws Twig4jException {
+        return environment(template).compileSource(template, "foo.twig");
+    }
+
+    private String render(String template, Context context) throws Twig4jException {
+        return environment(template).render("foo.twig", context);
+    }
+
+    private Environment environment(String template) {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", template);
+
+        return new Environment(new HashMapLoader(templates));
+    }
+}
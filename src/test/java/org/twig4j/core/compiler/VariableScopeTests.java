@@ -0,0 +1,58 @@
+package org.twig4j.core.compiler;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.twig4j.core.Environment;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.loader.HashMapLoader;
+import org.twig4j.core.syntax.parser.node.Module;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+
+public class VariableScopeTests {
+    @Test
+    public void findsReadAndAssignedVariables() throws Twig4jException {
+        VariableScope scope = VariableScope.analyze(parse("{% set foo = bar %}{% for key, item in items %}{{ loop.index }}{{ item }}{% endfor %}").getBodyNode());
+
+        Assert.assertEquals(
+                "All variables should be local",
+                new HashSet<>(Arrays.asList("foo", "bar", "key", "item", "items")),
+                scope.getVariables()
+        );
+        Assert.assertEquals(
+                "Set variables and loop targets should be assigned",
+                new HashSet<>(Arrays.asList("foo", "key", "item")),
+                scope.getAssignedVariables()
+        );
+        Assert.assertFalse("The loop variable should stay in the context", scope.isLocal("loop"));
+    }
+
+    @Test
+    public void usesTheContextWhenOtherCodeSeesIt() throws Twig4jException {
+        String[] templates = {
+                "{% set foo = 'bar' %}{% include 'bar.twig' with {'bar': 'baz'} %}",
+                "{% set foo = 'bar' %}{{ block('bar') }}",
+                "{% for foo in [1] %}{{ loop.parent.foo }}{% endfor %}",
+                "{% for foo in [1] %}{{ loop }}{% endfor %}",
+                "{% for loop in [1] %}{% endfor %}"
+        };
+
+        for (String template : templates) {
+            Assert.assertSame(
+                    template + " should not have local variables",
+                    VariableScope.EMPTY,
+                    VariableScope.analyze(parse(template).getBodyNode())
+            );
+        }
+    }
+
+    private Module parse(String template) throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", template);
+        templates.put("bar.twig", "bar");
+
+        return new Environment(new HashMapLoader(templates)).parse(template, "foo.twig");
+    }
+}
@@ -4,7 +4,9 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.twig4j.core.exception.SyntaxErrorException;
 import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.template.Context;
 
+import java.io.StringWriter;
 import java.util.HashMap;
 
 public class ExtendsTests extends FunctionalTests {
@@ -133,4 +135,27 @@ public class ExtendsTests extends FunctionalTests {
             environment.render("foo.twig")
         );
     }
+
+    @Test
+    public void rendersBlocksParentBlocksAndIncludesToOneWriter() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("layout.twig", "<{% block content %}layout{% endblock %}>{{ block('footer') }}{% block footer %}footer{% endblock %}");
+        templates.put("child.twig", "{% extends 'layout.twig' %}{% block content %}child {{ parent() }} {% include 'included.twig' %}{% endblock %}");
+        templates.put("included.twig", "included");
+        setupEnvironment(templates);
+
+        StringWriter writer = new StringWriter();
+        environment.loadTemplate("child.twig").render(new Context(), writer);
+
+        Assert.assertEquals(
+            "Everything should be written to the writer",
+            "<child layout included>footerfooter",
+            writer.toString()
+        );
+        Assert.assertEquals(
+            "Rendering to a string should render the same",
+            writer.toString(),
+            environment.render("child.twig")
+        );
+    }
 }
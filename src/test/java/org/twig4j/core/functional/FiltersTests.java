@@ -42,4 +42,14 @@ public class FiltersTests extends FunctionalTests {
 
         Assert.assertEquals("applied filter should join array with provided argument", "foo, bar", environment.render("foo.twig"));
     }
+
+    @Test
+    public void canApplyFiltersToConstantExpressions() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", "{{ ('a'..'c')|join(', ') }} {{ ('foo' ~ 'bar')|upper }}");
+        setupEnvironment(templates);
+
+        Assert.assertEquals("filters should be applied to folded constants", "a, b, c FOOBAR", environment.render("foo.twig"));
+        Assert.assertEquals("folded constants should render the same every time", "a, b, c FOOBAR", environment.render("foo.twig"));
+    }
 }
@@ -58,6 +58,25 @@ public class IncludeTests extends FunctionalTests {
         );
     }
 
+    @Test
+    public void includedTemplatesDontChangeTheContext() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", "{% include 'bar.twig' with { qux: 'quux' } %} {{ bar }}");
+        templates.put("bar.twig", "{% set bar = 'changed' %}{% for i in [1] %}{{ loop.parent.bar }}{% endfor %}{{ bar }}");
+        setupEnvironment(templates);
+
+        Context ctx = new Context();
+        ctx.put("bar", "baz");
+
+        Assert.assertEquals(
+            "Variables set in the included template should stay there",
+            "changedchanged baz",
+            environment.render("foo.twig", ctx)
+        );
+        Assert.assertEquals("The context passed in should not change", "baz", ctx.get("bar"));
+        Assert.assertFalse("The variables passed to the included template should stay there", ctx.containsKey("qux"));
+    }
+
     @Test(expected = Twig4jRuntimeException.class)
     public void includeWithOnlyThrowsErrorOnAccessToParentContext() throws Twig4jException {
         HashMap<String, String> templates = new HashMap<>();
@@ -104,6 +104,49 @@ public class RenderMethodsTests extends FunctionalTests {
         environment.render("foo.twig", ctx);
     }
 
+    @Test
+    public void canRenderAttributesOfDeclaredTypes() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", "{{ foo.something }} {{ foo.getSomething() }}");
+        templates.put("bar.twig", "{{ foo.something }}");
+        setupEnvironment(templates);
+        environment.declareType("foo", TestClass.class);
+
+        Context ctx = new Context();
+        ctx.put("foo", new TestClass());
+        Assert.assertEquals("Getters of the declared type should be rendered", "foo foo", environment.render("foo.twig", ctx));
+
+        HashMap<String, Object> object = new HashMap<>();
+        object.put("something", "bar");
+        ctx.put("foo", object);
+        Assert.assertEquals("Other types should be rendered like before", "bar", environment.render("bar.twig", ctx));
+    }
+
+    @Test
+    public void renderMethodOfDeclaredTypeThatThrowsExceptionThrowsSameException() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", "{{ foo.methodThatThrowsException() }}");
+        Context ctx = new Context();
+        ctx.put("foo", new TestClass());
+        String[] messages = new String[2];
+
+        for (int i = 0; i < messages.length; i++) {
+            setupEnvironment(templates);
+            if (i == 1) {
+                environment.declareType("foo", TestClass.class);
+            }
+
+            try {
+                environment.render("foo.twig", ctx);
+                Assert.fail("Rendering should fail");
+            } catch (Twig4jRuntimeException e) {
+                messages[i] = e.getMessage();
+            }
+        }
+
+        Assert.assertEquals("The exception should be the same as without the declared type", messages[0], messages[1]);
+    }
+
     public class TestClass {
         public String getSomething() {
             return "foo";
@@ -5,6 +5,9 @@ import org.junit.Test;
 import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.template.Context;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 
 public class RenderTextTests extends FunctionalTests {
@@ -85,4 +88,38 @@ public class RenderTextTests extends FunctionalTests {
 
         Assert.assertEquals("Print null should print empty string", "", environment.render("printNull.twig"));
     }
+
+    @Test
+    public void canRenderToOutputStream() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", "åäö {{ bar }}{% if true %} baz{% endif %}");
+        setupEnvironment(templates);
+
+        Context ctx = new Context();
+        ctx.put("bar", "€");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        environment.loadTemplate("foo.twig").render(ctx, output);
+
+        Assert.assertEquals("Rendered bytes should be UTF-8", "åäö € baz", new String(output.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void canRenderToByteBuffers() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", "åäö {{ bar }}{% if true %} baz{% endif %}");
+        setupEnvironment(templates);
+
+        Context ctx = new Context();
+        ctx.put("bar", "€");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        for (ByteBuffer segment : environment.loadTemplate("foo.twig").renderByteBuffers(ctx)) {
+            byte[] bytes = new byte[segment.remaining()];
+            segment.get(bytes);
+            output.write(bytes, 0, bytes.length);
+        }
+
+        Assert.assertEquals("Rendered bytes should be UTF-8", "åäö € baz", new String(output.toByteArray(), StandardCharsets.UTF_8));
+    }
 }
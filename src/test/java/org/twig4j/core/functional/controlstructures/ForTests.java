@@ -3,7 +3,9 @@ package org.twig4j.core.functional.controlstructures;
 import org.junit.Assert;
 import org.junit.Test;
 import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.exception.Twig4jRuntimeException;
 import org.twig4j.core.functional.FunctionalTests;
+import org.twig4j.core.template.Context;
 
 import java.util.HashMap;
 
@@ -185,4 +187,103 @@ public class ForTests extends FunctionalTests {
                 environment.render("foo.twig")
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    public void restoresVariablesSetInTheLoop() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put(
+                "foo.twig",
+                "{% set a = 'before' %}" +
+                        "{% for foo in [1, 2] %}{% set a = foo %}{% set b = foo %}{% endfor %}" +
+                        "{{ foo }} {{ a }} {{ b }}"
+        );
+        templates.put(
+                "bar.twig",
+                "{% block content %}" +
+                        "{% set a = 'before' %}" +
+                        "{% for foo in [1, 2] %}{% set a = foo %}{% set b = foo %}{% endfor %}" +
+                        "{{ foo }} {{ a }} {{ b }}" +
+                        "{% endblock %}"
+        );
+        setupEnvironment(templates);
+        Context context = new Context();
+        context.put("foo", "outer");
+
+        Assert.assertEquals(
+                "Variables defined before the loop should be restored and new ones kept",
+                "outer before 2",
+                environment.render("foo.twig", context)
+        );
+        Assert.assertEquals(
+                "Variables defined before the loop should be restored and new ones kept in blocks",
+                "outer before 2",
+                environment.render("bar.twig", context)
+        );
+    }
+
+    @Test(expected = Twig4jRuntimeException.class)
+    public void removesLoopTargetsAfterTheLoop() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", "{% for i in [1, 2] %}{{ i }}{% endfor %}{{ i }}");
+        setupEnvironment(templates);
+
+        environment.render("foo.twig");
+    }
+
+    @Test
+    public void keepsVariablesSetInBlocks() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put(
+                "foo.twig",
+                "{% block content %}{% for i in [1, 2] %}{% set last = i %}{% endfor %}{% endblock %}{{ last }}"
+        );
+        setupEnvironment(templates);
+
+        Assert.assertEquals(
+                "Variables set in a block should be in the context after the block",
+                "2",
+                environment.render("foo.twig")
+        );
+    }
+
+    @Test
+    public void canUseLoopParent() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put(
+                "foo.twig",
+                "{% for a in [1, 2] %}{% for a in ['x', 'y'] %}" +
+                        "{{ loop.parent.a }}{{ a }}{{ loop.parent.loop.index }}{{ loop.index }} " +
+                        "{% endfor %}{% endfor %}"
+        );
+        setupEnvironment(templates);
+
+        Assert.assertEquals(
+                "The parent should be the context before the loop",
+                "1x11 1y12 2x21 2y22 ",
+                environment.render("foo.twig")
+        );
+    }
+
+    @Test
+    public void canUseLoopVariableInIncludedTemplates() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", "{% for item in ['a', 'b'] %}{% include 'bar.twig' %}{% endfor %}");
+        templates.put("bar.twig", "{{ loop.index }}{{ item }}{% if not loop.last %},{% endif %}");
+        setupEnvironment(templates);
+
+        Assert.assertEquals(
+                "The loop variable should be passed to included templates",
+                "1a,2b",
+                environment.render("foo.twig")
+        );
+    }
+
+    @Test
+    public void canUseElseBodyWhenNothingMatchesTheIf() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", "{% for i in [1, 3] if i % 2 == 0 %}{{ i }}{% else %}none{% endfor %}");
+        setupEnvironment(templates);
+
+        Assert.assertEquals("Else body should be rendered", "none", environment.render("foo.twig"));
+    }
+}
@@ -4,6 +4,10 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.twig4j.core.exception.LoaderException;
 
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.TreeSet;
+
 public class FilesystemLoaderTests {
     @Test
     public void canAddExistingDirectory() throws LoaderException {
@@ -41,6 +45,20 @@ public class FilesystemLoaderTests {
         Assert.assertEquals("Cache key should be absolute path to template","template A\n", loader.getCacheKey("templateA.twig"));
     }
 
+    @Test
+    public void canGetMetadataCacheKey() throws LoaderException {
+        FilesystemLoader loader = new FilesystemLoader();
+        String templatesDirectory = getClass().getClassLoader().getResource("test-templates").getPath();
+        loader.addPath(templatesDirectory);
+        loader.enableMetadataCacheKeys();
+
+        String cacheKey = loader.getCacheKey("templateA.twig");
+
+        Assert.assertTrue("Cache key should start with the template path", cacheKey.startsWith(Paths.get(templatesDirectory, "templateA.twig").toAbsolutePath().toString() + "|"));
+        Assert.assertTrue("Cache key should end with the template size", cacheKey.endsWith("|11"));
+        Assert.assertEquals("Cache key should be the freshness token", loader.getFreshnessToken("templateA.twig"), cacheKey);
+    }
+
     @Test
     public void canLoadTemplateWithRegularName() throws LoaderException {
         FilesystemLoader loader = new FilesystemLoader();
@@ -76,4 +94,24 @@ public class FilesystemLoaderTests {
 
         Assert.assertEquals("Template contents should be returned", "template B\n", loader.getSource("@fooNamespace/subdir/templateB.twig"));
     }
+
+    @Test
+    public void canListTemplateNames() throws LoaderException {
+        FilesystemLoader loader = new FilesystemLoader();
+        String templatesDirectory = getClass().getClassLoader().getResource("test-templates").getPath();
+        loader.addPath(templatesDirectory);
+        loader.addPath(templatesDirectory + "/subdir", "fooNamespace");
+
+        Assert.assertEquals(
+                "All templates should be listed",
+                new TreeSet<>(Arrays.asList(
+                        "@fooNamespace/functional-test-template.twig",
+                        "@fooNamespace/templateB.twig",
+                        "subdir/functional-test-template.twig",
+                        "subdir/templateB.twig",
+                        "templateA.twig"
+                )),
+                loader.getTemplateNames()
+        );
+    }
 }
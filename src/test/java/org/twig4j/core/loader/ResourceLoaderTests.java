@@ -5,6 +5,14 @@ import org.junit.Test;
 import org.twig4j.core.exception.LoaderException;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 
 import static org.mockito.Mockito.*;
 
@@ -52,4 +60,29 @@ public class ResourceLoaderTests {
 
         Assert.assertEquals("Should return template contents", "template A\n", resourceLoader.getSource("nonExistingTemplate"));
     }
+
+    @Test
+    public void freshnessTokenOfResourcesInJarsChangesWithTheJar() throws IOException, LoaderException {
+        File jar = File.createTempFile("templates", ".jar");
+        jar.deleteOnExit();
+        writeJar(jar, "foo");
+
+        URLClassLoader classLoader = new URLClassLoader(new URL[] {jar.toURI().toURL()}, null);
+        ResourceLoader resourceLoader = new ResourceLoader(classLoader);
+        String token = resourceLoader.getFreshnessToken("foo.twig");
+
+        Assert.assertEquals("The token should not change without the jar changing", token, resourceLoader.getFreshnessToken("foo.twig"));
+
+        writeJar(jar, "foo bar");
+
+        Assert.assertNotEquals("The token should change with the jar", token, resourceLoader.getFreshnessToken("foo.twig"));
+    }
+
+    private void writeJar(File jar, String template) throws IOException {
+        try (JarOutputStream output = new JarOutputStream(new FileOutputStream(jar))) {
+            output.putNextEntry(new JarEntry("foo.twig"));
+            output.write(template.getBytes(StandardCharsets.UTF_8));
+            output.closeEntry();
+        }
+    }
 }
@@ -0,0 +1,107 @@
+package org.twig4j.core.nodevisitor;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.twig4j.core.Environment;
+import org.twig4j.core.compiler.ClassCompiler;
+import org.twig4j.core.exception.LoaderException;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.syntax.parser.node.type.PrintExpression;
+import org.twig4j.core.syntax.parser.node.type.Text;
+import org.twig4j.core.syntax.parser.node.type.expression.BinaryConcat;
+import org.twig4j.core.syntax.parser.node.type.expression.BinaryDivide;
+import org.twig4j.core.syntax.parser.node.type.expression.BinaryLessThan;
+import org.twig4j.core.syntax.parser.node.type.expression.BinaryMultiply;
+import org.twig4j.core.syntax.parser.node.type.expression.BinaryRange;
+import org.twig4j.core.syntax.parser.node.type.expression.Constant;
+import org.twig4j.core.syntax.parser.node.type.expression.FoldedConstant;
+import org.twig4j.core.syntax.parser.node.type.expression.Name;
+import org.twig4j.core.syntax.parser.node.type.expression.RangeConstant;
+import org.twig4j.core.syntax.parser.node.type.expression.StringConstant;
+
+import java.util.Arrays;
+
+public class ConstantFoldingNodeVisitorTests {
+    @Test
+    public void foldsStringConcatenation() throws Twig4jRuntimeException {
+        // 'a' ~ 'b' ~ 'c'
+        Node concat = new BinaryConcat(new BinaryConcat(new StringConstant("a", 1), new StringConstant("b", 1), 1), new StringConstant("c", 1), 1);
+
+        Node folded = fold(concat);
+
+        Assert.assertEquals("Should fold to a string constant", StringConstant.class, folded.getClass());
+        Assert.assertEquals("Should fold to the concatenated string", "abc", folded.getAttribute("data"));
+    }
+
+    @Test
+    public void foldsArithmeticKeepingTheType() throws Twig4jRuntimeException, LoaderException {
+        // 60 * 60 * 24
+        Node multiply = new BinaryMultiply(new BinaryMultiply(new Constant(60, 1), new Constant(60, 1), 1), new Constant(24, 1), 1);
+
+        Node folded = fold(multiply);
+
+        Assert.assertEquals("Should fold to a constant", FoldedConstant.class, folded.getClass());
+        Assert.assertEquals("Should fold to the product", 86400, folded.getAttribute("data"));
+        Assert.assertEquals(
+                "Should compile to a number like the multiplication",
+                "((java.lang.Number) 86400)",
+                new ClassCompiler(new Environment()).compile(folded).getSourceCode()
+        );
+    }
+
+    @Test
+    public void foldsComparisons() throws Twig4jRuntimeException, LoaderException {
+        // 1 < 2
+        Node folded = fold(new BinaryLessThan(new Constant(1, 1), new Constant(2, 1), 1));
+
+        Assert.assertEquals("Should fold to true", true, folded.getAttribute("data"));
+        Assert.assertEquals("Should compile to a boolean literal", "true", new ClassCompiler(new Environment()).compile(folded).getSourceCode());
+    }
+
+    @Test
+    public void foldsRanges() throws Twig4jRuntimeException, LoaderException {
+        // 1..3
+        Node folded = fold(new BinaryRange(new Constant(1, 1), new Constant(3, 1), 1));
+
+        Assert.assertEquals("Should fold to a range constant", RangeConstant.class, folded.getClass());
+        Assert.assertEquals("Should precompute the range", Arrays.asList(1, 2, 3), folded.getAttribute("data"));
+
+        ClassCompiler compiler = new ClassCompiler(new Environment()).compile(folded);
+        Assert.assertEquals("Should compile to a static field", "CONSTANT_0", compiler.getSourceCode());
+        Assert.assertEquals(
+                "Should create the range once",
+                "private static final java.util.List CONSTANT_0 = java.util.Collections.unmodifiableList(org.twig4j.core.util.Php.range(1, 3));\n",
+                compiler.writeStaticConstants().getSourceCode().substring("CONSTANT_0".length())
+        );
+    }
+
+    @Test
+    public void foldsPrintingConstantsToText() throws Twig4jRuntimeException {
+        // {{ 2 * 1.5 }}
+        Node folded = fold(new PrintExpression(new BinaryMultiply(new Constant(2, 1), new Constant(1.5, 1), 1), 1));
+
+        Assert.assertEquals("Should fold to a text", Text.class, folded.getClass());
+        Assert.assertEquals("Should print the value", "3", folded.getAttribute("data"));
+    }
+
+    @Test
+    public void doesNotFoldVariables() throws Twig4jRuntimeException {
+        // 'a' ~ b
+        Node concat = new BinaryConcat(new StringConstant("a", 1), new Name("b", 1), 1);
+
+        Assert.assertSame("Should keep the concatenation", concat, fold(concat));
+    }
+
+    @Test
+    public void doesNotFoldErrors() throws Twig4jRuntimeException {
+        // 1 / 0
+        Node divide = new BinaryDivide(new Constant(1, 1), new Constant(0, 1), 1);
+
+        Assert.assertSame("Should keep the division so it fails when rendered", divide, fold(divide));
+    }
+
+    private Node fold(Node node) throws Twig4jRuntimeException {
+        return new NodeTraverser(new Environment(), Arrays.asList(new ConstantFoldingNodeVisitor())).traverse(node);
+    }
+}
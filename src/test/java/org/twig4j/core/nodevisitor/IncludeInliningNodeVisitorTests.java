@@ -0,0 +1,146 @@
+package org.twig4j.core.nodevisitor;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.twig4j.core.Environment;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.loader.HashMapLoader;
+import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.syntax.parser.node.type.Body;
+import org.twig4j.core.syntax.parser.node.type.Include;
+import org.twig4j.core.syntax.parser.node.type.InlinedInclude;
+import org.twig4j.core.template.Context;
+import org.twig4j.core.template.Template;
+
+import java.util.HashMap;
+
+public class IncludeInliningNodeVisitorTests {
+    @Test
+    public void inlinesSmallTemplates() throws Twig4jException {
+        Environment environment = new Environment(new HashMapLoader(getTemplates()));
+        Node body = environment.parse("{% include 'partial.twig' %}", "foo.twig").getBodyNode();
+
+        Assert.assertEquals("The include should be inlined", InlinedInclude.class, getInclude(body).getClass());
+        Assert.assertEquals("The inlined template should be known", "partial.twig", getInclude(body).getAttribute("template"));
+        Assert.assertEquals(
+                "The class name of the inlined template should be kept",
+                environment.getTemplateClass("partial.twig"),
+                getInclude(body).getAttribute("template_class")
+        );
+    }
+
+    @Test
+    public void doesNotInlineTemplatesThatMightChangeTheContext() throws Twig4jException {
+        String[] templates = {
+                "{% include 'partial.twig' only %}",
+                "{% include 'partial.twig' with {'foo': 'bar'} %}",
+                "{% include 'missing.twig' ignore missing %}",
+                "{% include name %}",
+                "{% include 'set.twig' %}",
+                "{% include 'for.twig' %}",
+                "{% include 'loop.twig' %}",
+                "{% include 'nested.twig' %}",
+                "{% include 'child.twig' %}",
+                "{% include 'large.twig' %}"
+        };
+
+        Environment environment = new Environment(new HashMapLoader(getTemplates()));
+
+        for (String template : templates) {
+            Assert.assertEquals(
+                    template + " should not be inlined",
+                    Include.class,
+                    getInclude(environment.parse(template, "foo.twig").getBodyNode()).getClass()
+            );
+        }
+    }
+
+    @Test
+    public void rendersInlinedTemplatesTheSameAsIncludedTemplates() throws Twig4jException {
+        HashMap<String, String> templates = getTemplates();
+        templates.put("foo.twig", "{% set foo = 'baz' %}{% for i in 1..2 %}{% include 'partial.twig' %}{% endfor %}");
+
+        Environment inlining = new Environment(new HashMapLoader(templates));
+        Environment including = new Environment(new HashMapLoader(templates))
+                .disableNodeVisitor(IncludeInliningNodeVisitor.class);
+
+        Context context = new Context();
+        context.put("foo", "bar");
+
+        Assert.assertEquals(
+                "Inlined templates should render the same",
+                including.loadTemplate("foo.twig").render(context),
+                inlining.loadTemplate("foo.twig").render(context)
+        );
+        Assert.assertEquals("Inlined templates should see the variables", "<baz>yes<baz>yes", inlining.loadTemplate("foo.twig").render(context));
+        Assert.assertEquals(
+                "The compiled template should know the inlined templates",
+                inlining.getTemplateClass("partial.twig"),
+                inlining.loadTemplate("foo.twig").getInlinedTemplates().get("partial.twig")
+        );
+    }
+
+    @Test
+    public void reportsErrorsInTheInlinedTemplate() throws Twig4jException {
+        HashMap<String, String> templates = getTemplates();
+        templates.put("foo.twig", "\n{% include 'strict.twig' %}");
+        Environment environment = new Environment(new HashMapLoader(templates)).enableStrictVariables();
+
+        Template template = environment.loadTemplate("foo.twig");
+
+        Assert.assertEquals("The include should be inlined", "strict.twig", template.getInlinedTemplates().keySet().iterator().next());
+
+        try {
+            template.render(new Context());
+            Assert.fail("Rendering an undefined variable should fail");
+        } catch (Twig4jException e) {
+            Assert.assertEquals("The error should be in the inlined template", "strict.twig", e.getTemplateName());
+            Assert.assertEquals("The error should be on the line of the inlined template", 3, (int) e.getLineNumber());
+        }
+    }
+
+    @Test
+    public void compilesTheTemplateAgainWhenAnInlinedTemplateChanges() throws Twig4jException {
+        HashMap<String, String> templates = getTemplates();
+        templates.put("foo.twig", "{% include 'partial.twig' %}");
+        Environment environment = new Environment(new HashMapLoader(templates)).enableAutoReload();
+
+        Context context = new Context();
+        context.put("foo", "bar");
+
+        Assert.assertEquals("<bar>yes", environment.loadTemplate("foo.twig").render(context));
+
+        templates.put("partial.twig", "[{{ foo }}]");
+
+        Assert.assertEquals("The changed template should be rendered", "[bar]", environment.loadTemplate("foo.twig").render(context));
+    }
+
+    private Node getInclude(Node body) throws Twig4jException {
+        // The include might be wrapped in a list of nodes
+        while (body.getClass() == Node.class || body.getClass() == Body.class) {
+            body = body.getNode(0);
+        }
+
+        return body;
+    }
+
+    private HashMap<String, String> getTemplates() {
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < IncludeInliningNodeVisitor.DEFAULT_MAX_SIZE; i++) {
+            large.append('x');
+        }
+
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("partial.twig", "<{{ foo }}>{% if foo %}yes{% endif %}");
+        templates.put("strict.twig", "\n\n{{ missing }}");
+        templates.put("set.twig", "{% set foo = 'bar' %}");
+        templates.put("for.twig", "{% for foo in [1] %}{{ foo }}{% endfor %}");
+        templates.put("loop.twig", "{{ loop.index }}");
+        templates.put("nested.twig", "{% include 'partial.twig' %}");
+        templates.put("layout.twig", "{% block content %}{% endblock %}");
+        templates.put("child.twig", "{% extends 'layout.twig' %}");
+        templates.put("large.twig", large.append('x').toString());
+
+        return templates;
+    }
+}
@@ -0,0 +1,87 @@
+package org.twig4j.core.nodevisitor;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.twig4j.core.Environment;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.syntax.parser.node.Module;
+import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.syntax.parser.node.type.PrintExpression;
+import org.twig4j.core.syntax.parser.node.type.Text;
+import org.twig4j.core.syntax.parser.node.type.expression.Name;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+public class NodeTraverserTests {
+    @Test
+    public void runsVisitorsInOrderOfPriority() throws Twig4jRuntimeException {
+        List<String> visited = new ArrayList<>();
+        Node body = new Text("foo", 1);
+
+        new NodeTraverser(new Environment(), Arrays.asList(
+                new RecordingNodeVisitor("second", 10, visited),
+                new RecordingNodeVisitor("first", -10, visited),
+                new RecordingNodeVisitor("third", 10, visited)
+        )).traverse(new Module(body));
+
+        Assert.assertEquals("Visitors should run by priority", Arrays.asList("first", "second", "third"), visited);
+    }
+
+    @Test
+    public void canReplaceNodes() throws Twig4jRuntimeException {
+        Node body = new Node(new ArrayList<>(Arrays.asList(new Text("foo", 1), new PrintExpression(new Name("bar", 1), 1))), new HashMap<>(), 1, null);
+        NodeVisitor replaceNames = new NodeVisitor() {
+            @Override
+            public Node enterNode(Node node, Environment environment) {
+                return node;
+            }
+
+            @Override
+            public Node leaveNode(Node node, Environment environment) {
+                return node instanceof Name ? new Text("replaced", node.getLine()) : node;
+            }
+
+            @Override
+            public int getPriority() {
+                return 0;
+            }
+        };
+
+        Module module = new NodeTraverser(new Environment(), Arrays.asList(replaceNames)).traverse(new Module(body));
+
+        Assert.assertEquals("Child node should be replaced", Text.class, module.getBodyNode().getNode(1).getNode(0).getClass());
+        Assert.assertEquals("Other nodes should be kept", "foo", module.getBodyNode().getNode(0).getAttribute("data"));
+    }
+
+    private static class RecordingNodeVisitor implements NodeVisitor {
+        private String name;
+        private int priority;
+        private List<String> visited;
+
+        private RecordingNodeVisitor(String name, int priority, List<String> visited) {
+            this.name = name;
+            this.priority = priority;
+            this.visited = visited;
+        }
+
+        @Override
+        public Node enterNode(Node node, Environment environment) {
+            visited.add(name);
+
+            return node;
+        }
+
+        @Override
+        public Node leaveNode(Node node, Environment environment) {
+            return node;
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+    }
+}
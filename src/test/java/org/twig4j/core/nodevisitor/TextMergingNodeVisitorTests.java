@@ -0,0 +1,35 @@
+package org.twig4j.core.nodevisitor;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.twig4j.core.Environment;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.syntax.parser.node.Node;
+import org.twig4j.core.syntax.parser.node.type.PrintExpression;
+import org.twig4j.core.syntax.parser.node.type.Text;
+import org.twig4j.core.syntax.parser.node.type.expression.Name;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class TextMergingNodeVisitorTests {
+    @Test
+    public void mergesAdjacentTexts() throws Twig4jRuntimeException {
+        Node nested = new Node(new ArrayList<>(Arrays.asList(new Text("bar", 1), new Text("", 1))), new HashMap<>(), 1, null);
+        Node body = new Node(
+                new ArrayList<>(Arrays.asList(new Text("foo", 1), nested, new Text("baz", 2), new PrintExpression(new Name("qux", 2), 2), new Text("!", 2))),
+                new HashMap<>(),
+                1,
+                null
+        );
+
+        Node merged = new NodeTraverser(new Environment(), Arrays.asList(new TextMergingNodeVisitor())).traverse(body);
+
+        Assert.assertEquals("Texts should be merged", 3, merged.getNodes().size());
+        Assert.assertEquals("Texts should be merged in order", "foobarbaz", merged.getNode(0).getAttribute("data"));
+        Assert.assertEquals("Merged text should keep the first line", 1, (int) merged.getNode(0).getLine());
+        Assert.assertEquals("Other nodes should be kept", PrintExpression.class, merged.getNode(1).getClass());
+        Assert.assertEquals("Text after other nodes should not be merged", "!", merged.getNode(2).getAttribute("data"));
+    }
+}
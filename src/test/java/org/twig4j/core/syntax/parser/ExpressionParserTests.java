@@ -6,6 +6,7 @@ import org.twig4j.core.Environment;
 import org.twig4j.core.exception.SyntaxErrorException;
 import org.twig4j.core.exception.Twig4jException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.nodevisitor.ConstantFoldingNodeVisitor;
 import org.twig4j.core.syntax.Token;
 import org.twig4j.core.syntax.TokenStream;
 import org.twig4j.core.syntax.operator.UnaryNot;
@@ -249,7 +250,7 @@ public class ExpressionParserTests {
         tokenStream.add(new Token(Token.Type.VAR_END, null, 1));
         tokenStream.add(new Token(Token.Type.EOF, null, 1));
 
-        Parser parser = new Parser(new Environment());
+        Parser parser = new Parser(new Environment().disableNodeVisitor(ConstantFoldingNodeVisitor.class));
         Module module = parser.parse(tokenStream);
 
         Assert.assertEquals(
@@ -288,7 +289,7 @@ public class ExpressionParserTests {
         tokenStream.add(new Token(Token.Type.VAR_END, null, 1));
         tokenStream.add(new Token(Token.Type.EOF, null, 1));
 
-        Parser parser = new Parser(new Environment());
+        Parser parser = new Parser(new Environment().disableNodeVisitor(ConstantFoldingNodeVisitor.class));
         Module module = parser.parse(tokenStream);
 
         Assert.assertEquals(
@@ -5,6 +5,7 @@ import org.junit.Test;
 import org.twig4j.core.Environment;
 import org.twig4j.core.exception.SyntaxErrorException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.nodevisitor.ConstantFoldingNodeVisitor;
 import org.twig4j.core.syntax.Token;
 import org.twig4j.core.syntax.TokenStream;
 import org.twig4j.core.syntax.parser.node.Module;
@@ -35,7 +36,7 @@ public class ParserTests {
         tokenStream.add(new Token(Token.Type.VAR_END, null, 1));
         tokenStream.add(new Token(Token.Type.EOF, null, 1));
 
-        Parser parser = new Parser(new Environment());
+        Parser parser = new Parser(new Environment().disableNodeVisitor(ConstantFoldingNodeVisitor.class));
 
         Constant stringConstant = new Constant("foo", 1);
         Module module = parser.parse(tokenStream);
@@ -90,7 +91,7 @@ public class ParserTests {
         tokenStream.add(new Token(Token.Type.VAR_END, null, 1));
         tokenStream.add(new Token(Token.Type.EOF, null, 1));
 
-        Parser parser = new Parser(new Environment());
+        Parser parser = new Parser(new Environment().disableNodeVisitor(ConstantFoldingNodeVisitor.class));
         Module module = parser.parse(tokenStream);
 
         Assert.assertEquals(
@@ -118,7 +119,7 @@ public class ParserTests {
         tokenStream.add(new Token(Token.Type.VAR_END, null, 1));
         tokenStream.add(new Token(Token.Type.EOF, null, 1));
 
-        Parser parser = new Parser(new Environment());
+        Parser parser = new Parser(new Environment().disableNodeVisitor(ConstantFoldingNodeVisitor.class));
         Module module = parser.parse(tokenStream);
 
         Assert.assertEquals(
@@ -7,6 +7,7 @@ import org.twig4j.core.compiler.ClassCompiler;
 import org.twig4j.core.exception.LoaderException;
 import org.twig4j.core.exception.SyntaxErrorException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.syntax.parser.node.type.expression.Name;
 import org.twig4j.core.syntax.parser.node.type.expression.StringConstant;
 
 public class IncludeTests {
@@ -21,4 +22,53 @@ public class IncludeTests {
 
         Assert.assertTrue("Should compile some form of source code", compiler.getSourceCode().length() > 1);
     }
+
+    @Test
+    public void loadsConstantTemplateNamesOnce() throws SyntaxErrorException, LoaderException, Twig4jRuntimeException {
+        ClassCompiler compiler = new ClassCompiler(new Environment());
+
+        new Include(new StringConstant("bar.twig4j", 1), null, false, false, 1, "include").compile(compiler);
+
+        Assert.assertTrue(
+                "Should load the template through the include target",
+                compiler.getSourceCode().contains("loadTemplate(CONSTANT_0, 1).render(")
+        );
+
+        compiler.writeStaticConstants();
+
+        Assert.assertTrue(
+                "Should create the include target in a static field",
+                compiler.getSourceCode().contains("CONSTANT_0 = new org.twig4j.core.template.IncludeTarget(\"bar.twig4j\");")
+        );
+    }
+
+    @Test
+    public void loadsDynamicTemplateNamesEveryTime() throws SyntaxErrorException, LoaderException, Twig4jRuntimeException {
+        ClassCompiler compiler = new ClassCompiler(new Environment());
+
+        new Include(new Name("bar", 1), null, false, false, 1, "include").compile(compiler);
+
+        Assert.assertTrue(
+                "Should load the template by name",
+                compiler.getSourceCode().contains("loadTemplate(getContext(context, \"bar\", false, 1), null, 1, null).render(")
+        );
+    }
+
+    @Test
+    public void rendersTheTemplateWithAFrameOnTopOfTheContext() throws SyntaxErrorException, LoaderException, Twig4jRuntimeException {
+        ClassCompiler compiler = new ClassCompiler(new Environment());
+
+        new Include(new StringConstant("bar.twig4j", 1), null, false, false, 1, "include").compile(compiler);
+        new Include(new StringConstant("bar.twig4j", 1), null, true, false, 1, "include").compile(compiler);
+
+        Assert.assertTrue(
+                "Should push a frame instead of copying the context",
+                compiler.getSourceCode().contains(".render(context.pushFrame(), output);")
+        );
+        Assert.assertTrue(
+                "Should render with an empty context with only",
+                compiler.getSourceCode().contains(".render(new org.twig4j.core.template.Context(), output);")
+        );
+        Assert.assertFalse("Should not copy the context", compiler.getSourceCode().contains("clone()"));
+    }
 }
@@ -15,10 +15,11 @@ public class TextTests {
         HashMap<String, Object> data = new HashMap<>();
         data.put("data", "foo");
         Text text = new Text(new ArrayList<>(), data, 1, "");
+        when(compilerStub.getTextConstant("foo")).thenReturn("TEXT_0");
         text.compile(compilerStub);
 
-        verify(compilerStub).write("output.append(");
+        verify(compilerStub).write("output.appendText(");
         verify(compilerStub).writeString("foo");
-        verify(compilerStub).writeRaw(");\n");
+        verify(compilerStub).writeRaw(", TEXT_0);\n");
     }
 }
@@ -6,10 +6,17 @@ import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.ClassCompiler;
 import org.twig4j.core.exception.LoaderException;
 import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.nodevisitor.LoopVariableNodeVisitor;
+import org.twig4j.core.nodevisitor.NodeTraverser;
 import org.twig4j.core.syntax.parser.node.type.Text;
 import org.twig4j.core.syntax.parser.node.type.control.For;
+import org.twig4j.core.syntax.parser.node.type.expression.Array;
 import org.twig4j.core.syntax.parser.node.type.expression.BinaryRange;
 import org.twig4j.core.syntax.parser.node.type.expression.Constant;
+import org.twig4j.core.syntax.parser.node.type.expression.GetAttr;
+import org.twig4j.core.syntax.parser.node.type.expression.Name;
+
+import java.util.Collections;
 
 public class ForTests {
     @Test
@@ -35,4 +42,37 @@ public class ForTests {
                 compiler.getSourceCode().length() > 0
         );
     }
+
+    @Test
+    public void onlyCreatesTheLoopVariableWhenItsUsed() throws LoaderException, Twig4jRuntimeException {
+        For withoutLoop = new For(
+                new For.Settings()
+                        .setValueTarget("val")
+                        .setSeq(new Name("items", 1))
+                        .setBody(new Name("val", 1)),
+                1,
+                "for"
+        );
+        For withLoop = new For(
+                new For.Settings()
+                        .setValueTarget("val")
+                        .setSeq(new Name("items", 1))
+                        .setBody(new GetAttr(new Name("loop", 1), new Constant("index", 1), new Array(1), "any", 1)),
+                1,
+                "for"
+        );
+        Environment environment = new Environment();
+        NodeTraverser traverser = new NodeTraverser(environment, Collections.singletonList(new LoopVariableNodeVisitor()));
+        traverser.traverse(withoutLoop);
+        traverser.traverse(withLoop);
+        ClassCompiler compiler = new ClassCompiler(environment);
+
+        Assert.assertFalse("Should not create a loop context", compiler.compile(withoutLoop).getSourceCode().contains("LoopContext"));
+
+        String sourceCode = compiler.compile(withLoop).getSourceCode();
+
+        Assert.assertTrue("Should create a loop context", sourceCode.contains("LoopContext"));
+        Assert.assertTrue("Should access the loop attribute directly", sourceCode.contains(".getIndex()"));
+        Assert.assertFalse("Should not copy the context", sourceCode.contains("context.clone()"));
+    }
 }
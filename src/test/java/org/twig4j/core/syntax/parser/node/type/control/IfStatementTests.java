@@ -27,11 +27,11 @@ public class IfStatementTests {
         String source = compiler.getSourceCode();
         Assert.assertTrue(
                 "Should contain if statement with true",
-                source.contains("if ((new org.twig4j.core.typesystem.DynamicType(true)).toBoolean()) {")
+                source.contains("if (true) {")
         );
         Assert.assertTrue(
                 "Should contain elseif statement with false",
-                source.contains("} else if ((new org.twig4j.core.typesystem.DynamicType(false)).toBoolean()) {")
+                source.contains("} else if (false) {")
         );
         Assert.assertTrue(
                 "Should contain else statement",
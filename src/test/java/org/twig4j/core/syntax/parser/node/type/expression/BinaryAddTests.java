@@ -21,7 +21,22 @@ public class BinaryAddTests {
 
         Assert.assertEquals(
             "Compiled source should add 2 dynamic types",
-            "((new org.twig4j.core.typesystem.DynamicType(1)).add(new org.twig4j.core.typesystem.DynamicType(1)))",
+            "((java.lang.Number) (1 + 1))",
+            compiler.getSourceCode()
+        );
+    }
+
+    @Test
+    public void compilesUnknownTypesWithOps() throws LoaderException, Twig4jRuntimeException {
+        ClassCompiler compiler = new ClassCompiler(new Environment());
+
+        BinaryAdd addNode = new BinaryAdd(new Name("foo", 1), new Constant(1, 1), 1);
+
+        addNode.compile(compiler);
+
+        Assert.assertEquals(
+            "Compiled source should add with the dynamic operator",
+            "org.twig4j.core.typesystem.Ops.add(getContext(context, \"foo\", false, 1), 1)",
             compiler.getSourceCode()
         );
     }
@@ -20,7 +20,7 @@ public class BinaryFloorDivideTests {
 
         Assert.assertEquals(
                 "Compiled source should be floor divided dynamic types",
-                "((new org.twig4j.core.typesystem.DynamicType(5)).floorDivide(new org.twig4j.core.typesystem.DynamicType(2)))",
+                "org.twig4j.core.typesystem.Ops.floorDivide(5, 2)",
                 compiler.getSourceCode()
         );
     }
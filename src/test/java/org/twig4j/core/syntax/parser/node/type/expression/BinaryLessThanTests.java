@@ -20,7 +20,7 @@ public class BinaryLessThanTests {
 
         Assert.assertEquals(
                 "Complied source should be less than",
-                "((new org.twig4j.core.typesystem.DynamicType(5)).compareTo((new org.twig4j.core.typesystem.DynamicType(2))) < 0)",
+                "(5 < 2)",
                 compiler.getSourceCode()
         );
     }
@@ -22,7 +22,7 @@ public class BinaryMultiplyTests {
 
         Assert.assertEquals(
             "Compiled source should multiply dynamic types",
-            "((new org.twig4j.core.typesystem.DynamicType(5)).multiply(new org.twig4j.core.typesystem.DynamicType(2)))",
+            "((java.lang.Number) (5 * 2))",
             compiler.getSourceCode()
         );
     }
@@ -5,6 +5,10 @@ import org.junit.Test;
 import org.twig4j.core.Environment;
 import org.twig4j.core.compiler.ClassCompiler;
 import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.loader.HashMapLoader;
+import org.twig4j.core.template.Context;
+
+import java.util.HashMap;
 
 public class GetAttrTests {
     @Test
@@ -37,4 +41,87 @@ public class GetAttrTests {
                 compiledSource.contains("Arrays.asList(")
         );
     }
+
+    @Test
+    public void readsAttributesWithoutArgumentsThroughACallSite() throws Twig4jException {
+        GetAttr getAttr = new GetAttr(new Name("foo", 1), new Constant("bar", 1), new Array(1), "any", 1);
+        ClassCompiler compiler = new ClassCompiler(new Environment());
+
+        getAttr.compile(compiler);
+
+        Assert.assertEquals(
+                "Should call getAttribute() with the call site",
+                "getAttribute(CONSTANT_0, getContext(context, \"foo\", false, 1), \"bar\", java.util.Collections.emptyList(), \"any\")",
+                compiler.getSourceCode()
+        );
+
+        compiler.writeStaticConstants();
+
+        Assert.assertTrue(
+                "Should create the call site in a static field",
+                compiler.getSourceCode().contains("CONSTANT_0 = new org.twig4j.core.template.AttributeCallSite(\"bar\", 1);")
+        );
+    }
+
+    @Test
+    public void readsAttributesThroughALinkedMethodHandle() throws Twig4jException {
+        GetAttr getAttr = new GetAttr(new Name("foo", 1), new Constant("bar", 1), new Array(1), "any", 1);
+        ClassCompiler compiler = new ClassCompiler(new Environment().enableAttributeLinking());
+
+        getAttr.compile(compiler);
+
+        Assert.assertEquals(
+                "Should invoke the linked call site",
+                "org.twig4j.core.template.AttributeLinker.invoke(CONSTANT_0, this, getContext(context, \"foo\", false, 1))",
+                compiler.getSourceCode()
+        );
+
+        compiler.writeStaticConstants();
+
+        Assert.assertTrue(
+                "Should link the call site in a static field",
+                compiler.getSourceCode().contains("CONSTANT_0 = org.twig4j.core.template.AttributeLinker.link(\"bar\", \"any\", 1);")
+        );
+    }
+
+    @Test
+    public void readsAttributesOfDeclaredTypesDirectly() throws Twig4jException {
+        GetAttr getAttr = new GetAttr(new Name("foo", 1), new Constant("bar", 1), new Array(1), "any", 1);
+        ClassCompiler compiler = new ClassCompiler(new Environment().declareType("foo", Foo.class));
+
+        getAttr.compile(compiler);
+
+        Assert.assertEquals("Should call the typed method", "method_0(getContext(context, \"foo\", false, 1))", compiler.getSourceCode());
+
+        compiler.writePrivateMethods();
+
+        Assert.assertTrue(
+                "Should call the getter of objects of the declared type",
+                compiler.getSourceCode().contains("if (object != null && object.getClass() == " + Foo.class.getCanonicalName() + ".class) {")
+                    && compiler.getSourceCode().contains("return ((" + Foo.class.getCanonicalName() + ") object).getBar();")
+        );
+        Assert.assertTrue(
+                "Should get the attribute of anything else",
+                compiler.getSourceCode().contains("return getAttribute(object, \"bar\", java.util.Collections.emptyList(), \"any\");")
+        );
+    }
+
+    @Test
+    public void readsAttributesOfTypesInTheUnnamedPackageDynamically() throws Exception {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", "{{ foo.bar }}");
+        Class<?> type = Class.forName("DefaultPackageFoo");
+        Environment environment = new Environment(new HashMapLoader(templates)).declareType("foo", type);
+
+        Context context = new Context();
+        context.put("foo", type.newInstance());
+
+        Assert.assertEquals("Should render the attribute", "bar", environment.loadTemplate("foo.twig").render(context));
+    }
+
+    public static class Foo {
+        public String getBar() {
+            return "bar";
+        }
+    }
 }
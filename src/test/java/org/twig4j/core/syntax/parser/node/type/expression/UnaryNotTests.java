@@ -19,7 +19,7 @@ public class UnaryNotTests {
 
         Assert.assertEquals(
                 "Compiled source should be an not expression",
-                " !(new org.twig4j.core.typesystem.DynamicType(true)).toBoolean()",
+                " !(true)",
                 compiler.getSourceCode()
         );
     }
@@ -0,0 +1,90 @@
+package org.twig4j.core.template;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class AttributeAccessorTests {
+    @Test
+    public void cachesAccessorsPerClass() {
+        Assert.assertSame(
+                "The same accessor should be returned for the same attribute",
+                AttributeAccessor.getMethod(Bean.class, "name", Collections.emptyList()),
+                AttributeAccessor.getMethod(Bean.class, "name", Collections.emptyList())
+        );
+        Assert.assertSame(
+                "Fields should be cached as well",
+                AttributeAccessor.getField(Bean.class, "id"),
+                AttributeAccessor.getField(Bean.class, "id")
+        );
+    }
+
+    @Test
+    public void canReadFieldsAndMethods() throws ReflectiveOperationException {
+        Bean bean = new Bean();
+
+        Assert.assertEquals("Should read the field", 1, AttributeAccessor.getField(Bean.class, "id").invoke(bean, Collections.emptyList()));
+        Assert.assertNull("Should not find missing fields", AttributeAccessor.getField(Bean.class, "name"));
+        Assert.assertEquals("Should call the getter", "foo", AttributeAccessor.getMethod(Bean.class, "name", Collections.emptyList()).invoke(bean, Collections.emptyList()));
+        Assert.assertEquals("Should call the isser", true, AttributeAccessor.getMethod(Bean.class, "active", Collections.emptyList()).invoke(bean, Collections.emptyList()));
+        Assert.assertEquals(
+                "Should call the method with arguments",
+                "foobar",
+                AttributeAccessor.getMethod(Bean.class, "concat", Arrays.asList("bar")).invoke(bean, Arrays.asList("bar"))
+        );
+        Assert.assertEquals(
+                "Should call static methods",
+                "static",
+                AttributeAccessor.getMethod(Bean.class, "create", Collections.emptyList()).invoke(bean, Collections.emptyList())
+        );
+    }
+
+    @Test
+    public void cachesMissingMethods() {
+        AttributeAccessor accessor = AttributeAccessor.getMethod(Bean.class, "missing", Arrays.asList("bar"));
+
+        Assert.assertFalse("The method should not exist", accessor.exists());
+        Assert.assertEquals(
+                "Should tell which method was looked for",
+                Bean.class.getName() + ".missing(java.lang.String)",
+                accessor.getMissingException().getMessage()
+        );
+    }
+
+    @Test
+    public void wrapsExceptionsThrownByMethods() throws IllegalAccessException {
+        try {
+            AttributeAccessor.getMethod(Bean.class, "broken", Collections.emptyList()).invoke(new Bean(), Collections.emptyList());
+            Assert.fail("Should throw an exception");
+        } catch (InvocationTargetException e) {
+            Assert.assertEquals("Should wrap the exception of the method", IllegalStateException.class, e.getCause().getClass());
+        }
+    }
+
+    public static class Bean {
+        public int id = 1;
+
+        public String getName() {
+            return "foo";
+        }
+
+        public boolean isActive() {
+            return true;
+        }
+
+        public String concat(String value) {
+            return "foo" + value;
+        }
+
+        public String getBroken() {
+            throw new IllegalStateException("broken");
+        }
+
+        public static String create() {
+            return "static";
+        }
+    }
+}
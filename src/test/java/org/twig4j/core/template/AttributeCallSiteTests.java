@@ -0,0 +1,66 @@
+package org.twig4j.core.template;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.twig4j.core.Environment;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.loader.HashMapLoader;
+
+import java.util.HashMap;
+import java.util.List;
+
+public class AttributeCallSiteTests {
+    @Test
+    public void cachesAccessorsPerReceiverClass() {
+        AttributeCallSite callSite = new AttributeCallSite("name", 1);
+        AttributeAccessor accessor = AttributeAccessor.getMethod(Foo.class, "name", new java.util.ArrayList<>());
+
+        Assert.assertNull("Nothing should be cached at first", callSite.getAccessor(new Foo()));
+
+        callSite.addAccessor(Foo.class, accessor);
+        callSite.addAccessor(Foo.class, accessor);
+
+        Assert.assertSame("The accessor should be cached", accessor, callSite.getAccessor(new Foo()));
+        Assert.assertNull("Other classes should not be cached", callSite.getAccessor(new Bar()));
+        Assert.assertEquals("Classes should only be cached once", 1, callSite.getReceiverClassCount());
+    }
+
+    @Test
+    public void stopsCachingClassesWhenFull() {
+        AttributeCallSite callSite = new AttributeCallSite("name", 1);
+
+        for (Class<?> type : new Class<?>[] {Foo.class, Bar.class, Object.class, String.class, Integer.class}) {
+            callSite.addAccessor(type, AttributeAccessor.getMethod(Foo.class, "name", new java.util.ArrayList<>()));
+        }
+
+        Assert.assertEquals("Should remember at most 4 classes", AttributeCallSite.MAX_RECEIVER_CLASSES, callSite.getReceiverClassCount());
+        Assert.assertNull("The last class should not be cached", callSite.getAccessor(1));
+    }
+
+    @Test
+    public void countsHitsAndMissesInDebugMode() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", "{% for item in items %}{{ item.name }}{% endfor %}");
+        Environment environment = new Environment(new HashMapLoader(templates)).enableDebug();
+        Context context = new Context();
+        context.put("items", java.util.Arrays.asList(new Foo(), new Bar(), new Foo(), new Foo()));
+
+        Assert.assertEquals("Should render the attributes", "foobarfoofoo", environment.render("foo.twig", context));
+
+        List<AttributeCallSite> callSites = environment.loadTemplate("foo.twig").getAttributeCallSites();
+
+        Assert.assertEquals("There should be 1 call site", 1, callSites.size());
+        Assert.assertEquals("Foo and Bar should miss once", 2, callSites.get(0).getMisses());
+        Assert.assertEquals("The rest should hit", 2, callSites.get(0).getHits());
+    }
+
+    public static class Foo {
+        public String getName() {
+            return "foo";
+        }
+    }
+
+    public static class Bar {
+        public String name = "bar";
+    }
+}
@@ -0,0 +1,101 @@
+package org.twig4j.core.template;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.twig4j.core.Environment;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.loader.HashMapLoader;
+
+import java.lang.invoke.MethodHandle;
+import java.util.HashMap;
+
+public class AttributeLinkerTests {
+    @Test
+    public void linksReceiverClasses() throws Twig4jException {
+        Template template = loadTemplate(new Environment(new HashMapLoader(getTemplates())));
+        MethodHandle callSite = AttributeLinker.link("name", "any", 1);
+
+        Assert.assertEquals("Should read getters", "foo", AttributeLinker.invoke(callSite, template, new Foo()));
+        Assert.assertEquals("Should read fields", "bar", AttributeLinker.invoke(callSite, template, new Bar()));
+        Assert.assertEquals("Should read linked getters again", "foo", AttributeLinker.invoke(callSite, template, new Foo()));
+        Assert.assertEquals("Should read linked fields again", "bar", AttributeLinker.invoke(callSite, template, new Bar()));
+
+        HashMap<String, Object> map = new HashMap<>();
+        map.put("name", "map");
+        Assert.assertEquals("Should read maps through getAttribute()", "map", AttributeLinker.invoke(callSite, template, map));
+        Assert.assertNull("Should read attributes of null through getAttribute()", AttributeLinker.invoke(callSite, template, null));
+    }
+
+    @Test
+    public void failsLikeGetAttributeWhenTheGetterThrows() throws Twig4jException {
+        Template template = loadTemplate(new Environment(new HashMapLoader(getTemplates())));
+        MethodHandle callSite = AttributeLinker.link("name", "any", 1);
+        String expectedMessage = null;
+
+        try {
+            template.getAttribute(new Broken(), "name", new java.util.ArrayList<>(), "any");
+        } catch (Twig4jRuntimeException e) {
+            expectedMessage = e.getMessage();
+        }
+        Assert.assertNotNull("getAttribute() should fail", expectedMessage);
+
+        // Once through getAttribute() and once linked
+        for (int i = 0; i < 2; i++) {
+            try {
+                AttributeLinker.invoke(callSite, template, new Broken());
+                Assert.fail("Should fail when the getter throws");
+            } catch (Twig4jRuntimeException e) {
+                Assert.assertEquals("Should fail with the message of getAttribute()", expectedMessage, e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void rendersLinkedAttributes() throws Twig4jException {
+        for (boolean bytecodeBackend : new boolean[] {true, false}) {
+            Environment environment = new Environment(new HashMapLoader(getTemplates())).enableAttributeLinking();
+            if (bytecodeBackend) {
+                environment.enableBytecodeBackend();
+            }
+
+            for (Object item : new Object[] {new Foo(), new Bar(), new Foo()}) {
+                Context context = new Context();
+                context.put("item", item);
+
+                Assert.assertEquals(
+                        "Should render the attribute (bytecode backend: " + bytecodeBackend + ")",
+                        "Hello " + (item instanceof Foo ? "foo" : "bar") + "!",
+                        environment.render("index", context)
+                );
+            }
+        }
+    }
+
+    private static HashMap<String, String> getTemplates() {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("index", "Hello {{ item.name }}!");
+
+        return templates;
+    }
+
+    private static Template loadTemplate(Environment environment) throws Twig4jException {
+        return environment.loadTemplate("index");
+    }
+
+    public static class Foo {
+        public String getName() {
+            return "foo";
+        }
+    }
+
+    public static class Bar {
+        public String name = "bar";
+    }
+
+    public static class Broken {
+        public String getName() {
+            throw new IllegalStateException("broken");
+        }
+    }
+}
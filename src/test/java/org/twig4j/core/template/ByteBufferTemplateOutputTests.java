@@ -0,0 +1,65 @@
+package org.twig4j.core.template;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.twig4j.core.exception.Twig4jException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+public class ByteBufferTemplateOutputTests {
+    @Test
+    public void sharesLongStaticTexts() throws Twig4jException {
+        byte[] text = new byte[100];
+        Arrays.fill(text, (byte) 'a');
+        ByteBufferTemplateOutput output = new ByteBufferTemplateOutput();
+
+        output.append("foo").appendText(new String(text, StandardCharsets.UTF_8), text).append("bar");
+        output.finish();
+        List<ByteBuffer> segments = output.getSegments();
+
+        Assert.assertEquals("Static text should be a segment between the dynamic ones", 3, segments.size());
+        Assert.assertTrue("Static text should be read-only", segments.get(1).isReadOnly());
+
+        text[0] = 'b';
+        Assert.assertEquals("Static text should not be copied", 'b', segments.get(1).get(0));
+        Assert.assertEquals("Should know the length", 106, output.getLength());
+    }
+
+    @Test
+    public void copiesShortStaticTexts() throws Twig4jException {
+        ByteBufferTemplateOutput output = new ByteBufferTemplateOutput();
+
+        output.append("foo").appendText("<br>", "<br>".getBytes(StandardCharsets.UTF_8)).append("bar");
+        output.finish();
+
+        Assert.assertEquals("Short texts should be written with the dynamic output", 1, output.getSegments().size());
+        Assert.assertEquals("Should render the output", "foo<br>bar", toString(output.getSegments()));
+    }
+
+    @Test
+    public void encodesDynamicOutputIntoNewChunks() throws Twig4jException {
+        ByteBufferTemplateOutput output = new ByteBufferTemplateOutput(StandardCharsets.UTF_8, 16);
+
+        output.append("åäöåäöåäöåäö").append("foo").append(1);
+        output.finish();
+
+        Assert.assertEquals("Should render the output", "åäöåäöåäöåäöfoo1", toString(output.getSegments()));
+        Assert.assertTrue("Should use more than one chunk", output.getSegments().size() > 1);
+    }
+
+    private String toString(List<ByteBuffer> segments) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (ByteBuffer segment : segments) {
+            ByteBuffer copy = segment.duplicate();
+            while (copy.hasRemaining()) {
+                bytes.write(copy.get());
+            }
+        }
+
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,118 @@
+package org.twig4j.core.template;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class ContextTests {
+    @Test
+    public void framesReadThroughToTheParent() {
+        Context context = new Context();
+        context.put("foo", "bar");
+        context.put("null", null);
+
+        Context frame = context.pushFrame();
+
+        Assert.assertEquals("The frame should see the variables of the parent", "bar", frame.get("foo"));
+        Assert.assertTrue("The frame should see null variables of the parent", frame.containsKey("null"));
+        Assert.assertFalse("The frame should not see missing variables", frame.containsKey("missing"));
+        Assert.assertSame("The frame should know its parent", context, frame.getParent());
+    }
+
+    @Test
+    public void framesWriteToThemselves() {
+        Context context = new Context();
+        context.put("foo", "bar");
+        context.put("removed", "baz");
+
+        Context frame = context.pushFrame();
+        frame.put("foo", "changed");
+        frame.put("new", "qux");
+        frame.remove("removed");
+
+        Assert.assertEquals("The frame should see its own variables", "changed", frame.get("foo"));
+        Assert.assertEquals("The frame should see its own new variables", "qux", frame.get("new"));
+        Assert.assertFalse("The frame should not see removed variables", frame.containsKey("removed"));
+        Assert.assertEquals("The parent should not change", "bar", context.get("foo"));
+        Assert.assertFalse("The parent should not get new variables", context.containsKey("new"));
+        Assert.assertEquals("The parent should keep removed variables", "baz", context.get("removed"));
+
+        frame.put("removed", "again");
+
+        Assert.assertEquals("Removed variables can be set again", "again", frame.get("removed"));
+    }
+
+    @Test
+    public void poppingAFrameKeepsItsNewVariables() {
+        Context context = new Context();
+        context.put("foo", "bar");
+
+        Context frame = context.pushFrame();
+        frame.put("foo", "changed");
+        frame.put("new", "qux");
+        frame.put("item", 1);
+
+        Assert.assertSame("Popping should return the parent", context, frame.popFrame("item"));
+        Assert.assertEquals("Variables of the parent should not change", "bar", context.get("foo"));
+        Assert.assertEquals("New variables should be kept", "qux", context.get("new"));
+        Assert.assertFalse("Variables of the frame should not be kept", context.containsKey("item"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cantPopAContextThatIsntAFrame() {
+        new Context().popFrame();
+    }
+
+    @Test
+    public void framesCanBeUsedLikeAnyOtherMap() {
+        Context context = new Context();
+        context.put("foo", "bar");
+        context.put("removed", "baz");
+
+        Context frame = context.pushFrame();
+        frame.put("qux", "quux");
+        frame.remove("removed");
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("foo", "bar");
+        expected.put("qux", "quux");
+
+        Assert.assertEquals("The frame should have the visible variables", expected, frame);
+        Assert.assertEquals("The frame should have the visible variables", expected, new HashMap<>(frame));
+        Assert.assertEquals("The parent should not change", 2, context.size());
+
+        frame.put("foo", "changed");
+
+        Assert.assertEquals("The frame should still write to itself", "bar", context.get("foo"));
+        Assert.assertSame("The frame should still have its parent", context, frame.popFrame());
+    }
+
+    @Test
+    public void clonesArentFrames() {
+        Context context = new Context();
+        context.put("foo", "bar");
+
+        Context clone = (Context) context.pushFrame().clone();
+        clone.put("foo", "changed");
+
+        Assert.assertNull("The clone should not be a frame", clone.getParent());
+        Assert.assertEquals("The parent should not change", "bar", context.get("foo"));
+    }
+
+    @Test
+    public void canCreateFramesWithVariables() {
+        Context context = new Context();
+        context.put("foo", "bar");
+
+        Map<String, Object> variables = new HashMap<>();
+        variables.put("qux", "quux");
+
+        Context frame = context.pushFrame(variables);
+
+        Assert.assertEquals("The frame should see the variables of the parent", "bar", frame.get("foo"));
+        Assert.assertEquals("The frame should have its variables", "quux", frame.get("qux"));
+        Assert.assertEquals("The context should have the variables it starts with", "quux", new Context(variables).get("qux"));
+    }
+}
@@ -0,0 +1,72 @@
+package org.twig4j.core.template;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.twig4j.core.Environment;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.loader.HashMapLoader;
+
+import java.util.HashMap;
+
+public class IncludeTargetTests {
+    @Test
+    public void reusesLoadedTemplates() throws Twig4jException {
+        Environment environment = createEnvironment().disableAutoReload();
+        Template template = environment.loadTemplate("foo.twig");
+        IncludeTarget target = new IncludeTarget("bar.twig");
+
+        Template included = template.loadTemplate(target, 1);
+
+        Assert.assertSame("Should load the template", environment.loadTemplate("bar.twig"), included);
+        Assert.assertSame("Should keep the loaded template", included, target.get(environment));
+        Assert.assertNull("Should not reuse the template in another environment", target.get(createEnvironment().disableAutoReload()));
+    }
+
+    @Test
+    public void loadsTemplatesAgainWhenTheyMightHaveChanged() throws Twig4jException {
+        Environment environment = createEnvironment().disableAutoReload();
+        Template template = environment.loadTemplate("foo.twig");
+        IncludeTarget target = new IncludeTarget("bar.twig");
+
+        template.loadTemplate(target, 1);
+        environment.clearResolvedTemplates();
+        Assert.assertNull("Should not reuse templates after the resolved names are cleared", target.get(environment));
+
+        template.loadTemplate(target, 1);
+        environment.getTemplateCache().invalidateAll();
+        Assert.assertNull("Should not reuse templates removed from the cache", target.get(environment));
+
+        template.loadTemplate(target, 1);
+        environment.enableAutoReload();
+        Assert.assertNull("Should not reuse templates with auto reload", target.get(environment));
+
+        environment.disableAutoReload().getTemplateCache().setMaximumSize(10);
+        template.loadTemplate(target, 1);
+        Assert.assertNull("Should not reuse templates with a bounded cache", target.get(environment));
+    }
+
+    @Test
+    public void rendersIncludesOfChangedTemplates() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", "foo {% include 'bar.twig' %}");
+        templates.put("bar.twig", "bar");
+        Environment environment = new Environment(new HashMapLoader(templates)).disableAutoReload();
+
+        Assert.assertEquals("Should render the include", "foo bar", environment.render("foo.twig"));
+        Assert.assertEquals("Should render the include again", "foo bar", environment.render("foo.twig"));
+
+        templates.put("bar.twig", "baz");
+        environment.getTemplateCache().invalidateAll();
+        environment.clearResolvedTemplates();
+
+        Assert.assertEquals("Should render the changed include", "foo baz", environment.render("foo.twig"));
+    }
+
+    private static Environment createEnvironment() {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", "foo {% include 'bar.twig' %}");
+        templates.put("bar.twig", "bar");
+
+        return new Environment(new HashMapLoader(templates));
+    }
+}
@@ -0,0 +1,168 @@
+package org.twig4j.core.template;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.twig4j.core.Environment;
+import org.twig4j.core.exception.Twig4jException;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+import org.twig4j.core.loader.HashMapLoader;
+import org.twig4j.core.syntax.parser.node.Node;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class InterpretedTemplateTests {
+    @Test
+    public void rendersTheSameAsCompiledTemplates() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("text.twig", "foo bar");
+        templates.put("variables.twig", "{{ foo }}{{ 1 }}{{ 1.5 }}{{ true }}{{ 'bar' }}{{ foo ~ 'baz' }}");
+        templates.put("maths.twig", "{{ 1 + 2 * 3 }} {{ 7 // 2 }} {{ 7 % 4 }} {{ 2 ** 3 }} {{ 5 - 1.5 }}");
+        templates.put("comparisons.twig", "{{ 1 < 2 }}{{ 2 >= 3 }}{{ 1 == 1 }}{{ 1 != 1 }}{{ 'foo' starts with 'f' }}{{ 'foo' ends with 'x' }}");
+        templates.put("logic.twig", "{{ true and false }}{{ true or false }}{{ not foo }}{{ missing ?? 'fallback' }}{{ foo ?? 'fallback' }}");
+        templates.put("if.twig", "{% if number > 2 %}big{% elseif number > 1 %}medium{% else %}small{% endif %}");
+        templates.put("for.twig",
+                "{% for item in items %}{{ loop.index }}{{ loop.index0 }}{{ loop.first }}{{ loop.last }}{{ loop.revindex }}:{{ item }} {% endfor %}"
+                + "{% for key, item in items %}{{ key }}={{ item }}{% endfor %}"
+                + "{% for item in items if item != 'b' %}{{ item }}{{ loop.index }}{% else %}empty{% endfor %}"
+                + "{% for item in [] %}{{ item }}{% else %}empty{% endfor %}"
+                + "{% for a in items %}{% for b in items %}{{ loop.parent.loop.index }}{{ b }}{% endfor %}{% endfor %}");
+        templates.put("set.twig", "{% set foo = 'bar' %}{% set a, b = 'c', 'd' %}{{ foo }}{{ a }}{{ b }}");
+        templates.put("structures.twig", "{{ ['a', 'b']|join(',') }}{{ {'foo': 'bar'}.foo }}{{ items[1] }}{{ 'Foo'|upper }}{{ 'Foo'|lower }}");
+        templates.put("include.twig", "{% include 'text.twig' %}{% include 'variables.twig' with {'foo': 'qux'} only %}{% include 'missing.twig' ignore missing %}");
+        templates.put("layout.twig", "<{% block content %}layout{% endblock %}>{{ block('footer') }}{% block footer %}footer{% endblock %}");
+        templates.put("child.twig", "{% extends 'layout.twig' %}{% block content %}child {{ parent() }}{% endblock %}");
+
+        Context context = new Context();
+        context.put("foo", "bar");
+        context.put("number", 2);
+        context.put("items", Arrays.asList("a", "b", "c"));
+
+        Environment interpreting = new Environment(new HashMapLoader(templates))
+                .enableTieredCompilation()
+                .setPromotionThreshold(0);
+        Environment compiling = new Environment(new HashMapLoader(templates));
+
+        for (String name : templates.keySet()) {
+            Template interpreted = interpreting.loadTemplate(name);
+
+            Assert.assertTrue(name + " should be interpreted", interpreted instanceof InterpretedTemplate);
+            Assert.assertEquals(
+                    name + " should render the same as the compiled template",
+                    compiling.loadTemplate(name).render(context),
+                    interpreted.render(context)
+            );
+        }
+
+        Assert.assertEquals("Should not compile any templates", 0, interpreting.getTemplateCache().getCompileCount());
+    }
+
+    @Test
+    public void reportsErrorsLikeTheCompiledTemplate() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("loop.twig", "\n{% for i in 1..3 if i %}{{ loop.length }}{% endfor %}");
+
+        Environment interpreting = new Environment(new HashMapLoader(templates))
+                .enableTieredCompilation()
+                .setPromotionThreshold(0);
+        Environment compiling = new Environment(new HashMapLoader(templates));
+
+        Template interpreted = interpreting.loadTemplate("loop.twig");
+        Assert.assertTrue("Template should be interpreted", interpreted instanceof InterpretedTemplate);
+
+        String compiledMessage = getErrorMessage(compiling.loadTemplate("loop.twig"));
+        Assert.assertEquals(
+                "Should report the unknown loop length in the template and line",
+                "The loop length is not known as the loop has a condition or the sequence is not a collection in \"loop.twig\" at line 2",
+                compiledMessage
+        );
+        Assert.assertEquals("Should report the same error as the compiled template", compiledMessage, getErrorMessage(interpreted));
+    }
+
+    @Test
+    public void compilesTemplatesTheInterpreterDoesNotSupportRightAway() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", "{{ 'a' in 'abc' }}");
+        Environment environment = new Environment(new HashMapLoader(templates)).enableTieredCompilation();
+
+        Template template = environment.loadTemplate("foo.twig");
+
+        Assert.assertFalse("Should compile the template", template instanceof InterpretedTemplate);
+        Assert.assertEquals("Should render the template", "true", template.render());
+    }
+
+    @Test
+    public void promotesTemplatesRenderedOftenEnough() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", "foo {{ bar }}");
+        Environment environment = new Environment(new HashMapLoader(templates))
+                .enableTieredCompilation()
+                .setPromotionThreshold(2)
+                .setPromotionExecutor(Runnable::run);
+        Context context = new Context();
+        context.put("bar", "baz");
+
+        InterpretedTemplate template = (InterpretedTemplate) environment.loadTemplate("foo.twig");
+
+        Assert.assertEquals("Should render the interpreted template", "foo baz", template.render(context));
+        Assert.assertNull("Should not be promoted after one render", template.getCompiledTemplate());
+
+        Assert.assertEquals("Should render the interpreted template", "foo baz", template.render(context));
+        Assert.assertNotNull("Should be promoted after two renders", template.getCompiledTemplate());
+        Assert.assertNull("Should compile without errors", template.getPromotionException());
+
+        Template compiled = environment.loadTemplate("foo.twig");
+
+        Assert.assertFalse("Should load the compiled template", compiled instanceof InterpretedTemplate);
+        Assert.assertSame("Should replace the template in the cache", template.getCompiledTemplate(), compiled);
+        Assert.assertEquals("Should render the compiled template", "foo baz", template.render(context));
+    }
+
+    @Test
+    public void promotionCompilesATreeOfItsOwn() throws Twig4jException {
+        HashMap<String, String> templates = new HashMap<>();
+        templates.put("foo.twig", "{% for item in items %}{{ loop.index }}{{ item }}{% endfor %}");
+        Environment environment = new Environment(new HashMapLoader(templates))
+                .enableTieredCompilation()
+                .setPromotionThreshold(1)
+                .setPromotionExecutor(Runnable::run);
+        Context context = new Context();
+        context.put("items", Arrays.asList("a", "b"));
+
+        InterpretedTemplate template = (InterpretedTemplate) environment.loadTemplate("foo.twig");
+
+        Assert.assertEquals("Should render the interpreted template", "1a2b", template.render(context));
+        Assert.assertNotNull("Should be promoted", template.getCompiledTemplate());
+        Assert.assertFalse("Compiling should not change the interpreted tree", isCompiled(template.getModule().getBodyNode()));
+    }
+
+    private boolean isCompiled(Node node) throws Twig4jException {
+        if (node == null) {
+            return false;
+        }
+
+        // The compiled loop writes the names of its java variables to the tree
+        if (node.hasAttribute("loop_variable") && !"loop".equals(node.getAttribute("loop_variable"))) {
+            return true;
+        }
+
+        for (Node childNode : node.getNodes()) {
+            if (isCompiled(childNode)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private String getErrorMessage(Template template) throws Twig4jException {
+        try {
+            template.render(new Context());
+            Assert.fail("Rendering should fail");
+        } catch (Twig4jRuntimeException e) {
+            return e.getMessage();
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,61 @@
+package org.twig4j.core.template;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.twig4j.core.exception.Twig4jRuntimeException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+
+public class LoopContextTests {
+    @Test
+    public void calculatesAttributesFromTheIndexAndLength() throws Twig4jRuntimeException {
+        LoopContext loop = new LoopContext(null, Arrays.asList("a", "b", "c"));
+
+        loop.next();
+
+        Assert.assertEquals("Index0 should be 1", 1, loop.getIndex0());
+        Assert.assertEquals("Index should be 2", 2, loop.getIndex());
+        Assert.assertEquals("Revindex0 should be 1", 1, loop.getRevindex0());
+        Assert.assertEquals("Revindex should be 2", 2, loop.getRevindex());
+        Assert.assertFalse("Should not be first", loop.isFirst());
+        Assert.assertFalse("Should not be last", loop.isLast());
+
+        loop.next();
+
+        Assert.assertTrue("Should be last", loop.isLast());
+    }
+
+    @Test
+    public void isAMapOfTheAttributes() {
+        HashMap<String, Object> parent = new HashMap<>();
+        LoopContext loop = new LoopContext(parent, Collections.singletonList("a"));
+
+        Assert.assertEquals("Should get the index", 1, loop.get("index"));
+        Assert.assertEquals("Should get the last attribute", true, loop.get("last"));
+        Assert.assertSame("Should get the parent", parent, loop.get("parent"));
+        Assert.assertFalse("Should not contain other keys", loop.containsKey("foo"));
+        Assert.assertEquals(
+                "Should have all attributes",
+                Arrays.asList("parent", "index0", "index", "first", "revindex0", "revindex", "length", "last"),
+                Arrays.asList(loop.keySet().toArray())
+        );
+    }
+
+    @Test
+    public void onlyHasTheLengthWhenItsKnown() {
+        LoopContext loop = new LoopContext(null);
+
+        Assert.assertTrue("Should have the index", loop.containsKey("index"));
+        Assert.assertFalse("Should not have the length", loop.containsKey("length"));
+        Assert.assertFalse("Should not have last", loop.containsKey("last"));
+
+        try {
+            loop.getRevindex();
+            Assert.fail("Should throw as the length isn't known");
+        } catch (Twig4jRuntimeException e) {
+            // Expected
+        }
+    }
+}
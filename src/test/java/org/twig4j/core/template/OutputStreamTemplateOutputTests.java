@@ -0,0 +1,59 @@
+package org.twig4j.core.template;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.twig4j.core.exception.Twig4jException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+public class OutputStreamTemplateOutputTests {
+    @Test
+    public void writesStaticTextWithoutEncodingIt() throws Twig4jException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TemplateOutput output = new OutputStreamTemplateOutput(bytes);
+
+        // The text doesn't match the bytes to show which one is written
+        output.appendText("foo", "bar".getBytes(StandardCharsets.UTF_8));
+        output.finish();
+
+        Assert.assertEquals("The pre-encoded text should be written", "bar", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void encodesDynamicOutput() throws Twig4jException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TemplateOutput output = new OutputStreamTemplateOutput(bytes);
+
+        output.append("åäö").append(1).append((Object) null);
+        output.finish();
+
+        Assert.assertEquals("Dynamic output should be encoded as UTF-8", "åäö1null", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void encodesStaticTextWithOtherCharsets() throws Twig4jException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TemplateOutput output = new OutputStreamTemplateOutput(bytes, StandardCharsets.ISO_8859_1);
+
+        output.appendText("åäö", "åäö".getBytes(StandardCharsets.UTF_8));
+        output.finish();
+
+        Assert.assertArrayEquals("Static text should be encoded with the charset", "åäö".getBytes(StandardCharsets.ISO_8859_1), bytes.toByteArray());
+    }
+
+    @Test
+    public void writesOutputLargerThanTheBuffer() throws Twig4jException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            text.append("åäö");
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TemplateOutput output = new OutputStreamTemplateOutput(bytes);
+
+        output.append("foo").append(text.toString()).appendText(text.toString(), text.toString().getBytes(StandardCharsets.UTF_8));
+        output.finish();
+
+        Assert.assertEquals("Everything should be written in order", "foo" + text + text, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
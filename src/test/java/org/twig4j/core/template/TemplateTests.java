@@ -8,6 +8,9 @@ import org.twig4j.core.exception.Twig4jRuntimeException;
 
 import static org.mockito.Mockito.*;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Arrays;
 import java.util.Map;
 
@@ -109,10 +112,56 @@ public class TemplateTests {
             template.render()
         );
     }
+
+    @Test
+    public void canRenderToWriter() throws Twig4jException {
+        StringWriter writer = new StringWriter();
+        Template template = new TestStringTemplate();
+
+        template.render(new Context(), writer);
+
+        Assert.assertEquals("Rendered string should be written to the writer", "foo", writer.toString());
+    }
+
+    @Test(expected = Twig4jRuntimeException.class)
+    public void failingToWriteThrowsRuntimeException() throws Twig4jException {
+        Template template = new TestStringTemplate();
+        Writer writer = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        template.render(new Context(), writer);
+    }
+
+    @Test
+    public void estimatesOutputLength() throws Twig4jException {
+        Template template = new TestVariableTemplate();
+        Context context = new Context();
+
+        context.put("foo", "a long value to render");
+        template.render(context);
+        Assert.assertEquals("Estimate should follow larger outputs right away", 22, template.getOutputLengthEstimate());
+
+        context.put("foo", "");
+        template.render(context);
+        Assert.assertEquals("Estimate should follow smaller outputs slowly", 20, template.getOutputLengthEstimate());
+    }
+
     protected class TestStringTemplate extends Template {
         @Override
-        protected String doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks) throws Twig4jException {
-            return "foo";
+        protected void doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws Twig4jException {
+            output.append("foo");
         }
 
         @Override
@@ -123,8 +172,8 @@ public class TemplateTests {
 
     protected class TestVariableTemplate extends Template {
         @Override
-        protected String doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks) throws Twig4jException {
-            return getContext(context, "foo", false, 1).toString();
+        protected void doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws Twig4jException {
+            output.append(getContext(context, "foo", false, 1).toString());
         }
 
         @Override
@@ -135,8 +184,8 @@ public class TemplateTests {
 
     protected class TestMethodCallTemplate extends Template {
         @Override
-        protected String doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks) throws Twig4jException {
-            return String.valueOf(getAttribute(context.get("foo"), "bar", Arrays.asList("some ", "argument"), "method"));
+        protected void doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws Twig4jException {
+            output.append(String.valueOf(getAttribute(context.get("foo"), "bar", Arrays.asList("some ", "argument"), "method")));
         }
 
         @Override
@@ -157,8 +206,8 @@ public class TemplateTests {
         }
 
         @Override
-        protected String doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks) throws Twig4jException {
-            return String.valueOf(getAttribute(getContext(context, "foo", false, 1), "foo", Arrays.asList(), "any"));
+        protected void doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws Twig4jException {
+            output.append(String.valueOf(getAttribute(getContext(context, "foo", false, 1), "foo", Arrays.asList(), "any")));
         }
 
         @Override
@@ -173,8 +222,8 @@ public class TemplateTests {
         }
 
         @Override
-        protected String doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks) throws Twig4jException {
-            return String.valueOf(getAttribute(getContext(context, "foo", false, 1), "bar", Arrays.asList(), "any"));
+        protected void doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws Twig4jException {
+            output.append(String.valueOf(getAttribute(getContext(context, "foo", false, 1), "bar", Arrays.asList(), "any")));
         }
 
         @Override
@@ -189,8 +238,8 @@ public class TemplateTests {
         }
 
         @Override
-        protected String doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks) throws Twig4jException {
-            return String.valueOf(getAttribute(getContext(context, "foo", false, 1), "baz", Arrays.asList(), "any"));
+        protected void doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws Twig4jException {
+            output.append(String.valueOf(getAttribute(getContext(context, "foo", false, 1), "baz", Arrays.asList(), "any")));
         }
 
         @Override
@@ -205,8 +254,8 @@ public class TemplateTests {
         }
 
         @Override
-        protected String doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks) throws Twig4jException {
-            return String.valueOf(getAttribute(getContext(context, "foo", false, 1), "qux", Arrays.asList(), "any"));
+        protected void doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws Twig4jException {
+            output.append(String.valueOf(getAttribute(getContext(context, "foo", false, 1), "qux", Arrays.asList(), "any")));
         }
 
         @Override
@@ -221,8 +270,8 @@ public class TemplateTests {
         }
 
         @Override
-        protected String doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks) throws Twig4jException {
-            return String.valueOf(getAttribute(getContext(context, "foo", false, 1), "quux", Arrays.asList(), "any"));
+        protected void doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws Twig4jException {
+            output.append(String.valueOf(getAttribute(getContext(context, "foo", false, 1), "quux", Arrays.asList(), "any")));
         }
 
         @Override
@@ -253,8 +302,8 @@ public class TemplateTests {
 
     protected class TestLoadTemplateTemplate extends Template {
         @Override
-        protected String doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks) throws Twig4jException {
-            return loadTemplate("bar.twig4j", "bar.twig4j", 1, null).render();
+        protected void doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws Twig4jException {
+            loadTemplate("bar.twig4j", "bar.twig4j", 1, null).render(new Context(), output);
         }
 
         @Override
@@ -266,19 +315,19 @@ public class TemplateTests {
     protected class TestDisplayBlockTemplate extends Template {
         public TestDisplayBlockTemplate(Environment environment) throws Twig4jException {
             try {
-                blocks.put("a", new TemplateBlockMethodSet(this, getClass().getMethod("block_a", Context.class, Map.class)));
+                blocks.put("a", new TemplateBlockMethodSet(this, getClass().getMethod("block_a", Context.class, Map.class, TemplateOutput.class)));
             } catch (NoSuchMethodException e) {
                 throw new Twig4jRuntimeException("Could not find method for block.", getTemplateName(), -1, e);
             }
         }
 
         @Override
-        protected String doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks) throws Twig4jException {
-            return displayBlock("a", context, blocks, true);
+        protected void doDisplay(Context context, Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws Twig4jException {
+            displayBlock("a", context, blocks, true, output);
         }
 
-        public String block_a(Context context, Map<String, TemplateBlockMethodSet> blocks) throws Twig4jException {
-            return "foo";
+        public void block_a(Context context, Map<String, TemplateBlockMethodSet> blocks, TemplateOutput output) throws Twig4jException {
+            output.append("foo");
         }
 
         @Override
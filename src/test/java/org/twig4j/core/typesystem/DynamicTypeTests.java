@@ -3,10 +3,13 @@ package org.twig4j.core.typesystem;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 public class DynamicTypeTests {
     @Test
@@ -78,4 +81,63 @@ public class DynamicTypeTests {
         map.put("foo", new Object());
         Assert.assertTrue("Map with contents should be true", (new DynamicType(map)).toBoolean());
     }
+
+    @Test
+    public void calculatesLikeBigDecimals() {
+        List<Object> values = Arrays.asList(
+                0, 1, -1, 2, 3, 7, -7, 10, 127, 128, 1000, 65536, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                2147483648L, -2147483649L, 9007199254740991L, 9007199254740993L, Long.MAX_VALUE,
+                0.0, -0.0, 0.1, 0.2, 1.5, -2.5, 3.0, 1e20, 1.2f, 4.9e-324, "12", "0.5", "007"
+        );
+
+        for (Object leftValue : values) {
+            for (Object rightValue : values) {
+                DynamicType left = new DynamicType(leftValue);
+                DynamicType right = new DynamicType(rightValue);
+                BigDecimal leftDecimal = BigDecimal.valueOf(left.getValueAsNumber().doubleValue());
+                BigDecimal rightDecimal = BigDecimal.valueOf(right.getValueAsNumber().doubleValue());
+                String operands = leftValue + ", " + rightValue;
+
+                Assert.assertEquals("add " + operands, left.normalizeNumber(leftDecimal.add(rightDecimal)), left.add(right));
+                Assert.assertEquals("subtract " + operands, left.normalizeNumber(leftDecimal.subtract(rightDecimal)), left.subtract(right));
+                Assert.assertEquals("multiply " + operands, left.normalizeNumber(leftDecimal.multiply(rightDecimal)), left.multiply(right));
+                assertSameResult("divide " + operands, () -> left.normalizeNumber(leftDecimal.divide(rightDecimal)), () -> left.divide(right));
+                assertSameResult("floor divide " + operands, () -> (int) Math.floor(leftDecimal.divide(rightDecimal).doubleValue()), () -> left.floorDivide(right));
+                assertSameResult("mod " + operands, () -> left.normalizeNumber(leftDecimal.remainder(rightDecimal)), () -> left.mod(right));
+            }
+        }
+    }
+
+    @Test
+    public void canUseNumericStrings() {
+        Assert.assertEquals("'12' + 1 should be 13", 13, (new DynamicType("12")).add(new DynamicType(1)));
+        Assert.assertEquals("'1.5' + 1 should be 2.5", 2.5, (new DynamicType("1.5")).add(new DynamicType(1)));
+
+        for (String notNumeric : Arrays.asList("", "a", "1.", ".5", "-1", "1e5", "1.2.3", "12\n", " 1", "\u0661")) {
+            try {
+                (new DynamicType(notNumeric)).add(new DynamicType(1));
+                Assert.fail("\"" + notNumeric + "\" should not be a number");
+            } catch (TypeErrorException e) {
+                // Expected
+            }
+        }
+    }
+
+    private void assertSameResult(String message, Supplier<Number> expected, Supplier<Number> actual) {
+        Object expectedResult;
+        try {
+            expectedResult = expected.get();
+        } catch (ArithmeticException e) {
+            expectedResult = e.getClass();
+        }
+
+        Object actualResult;
+        try {
+            actualResult = actual.get();
+        } catch (ArithmeticException e) {
+            actualResult = e.getClass();
+        }
+
+        Assert.assertEquals(message, expectedResult, actualResult);
+    }
 }
@@ -0,0 +1,61 @@
+package org.twig4j.core.typesystem;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class OpsTests {
+    @Test
+    public void canCheckTruthiness() {
+        Assert.assertTrue("true should be true", Ops.truthy(true));
+        Assert.assertFalse("null should be false", Ops.truthy(null));
+        Assert.assertFalse("0 should be false", Ops.truthy(0));
+        Assert.assertFalse("0.0 should be false", Ops.truthy(0.0));
+        Assert.assertFalse("\"0\" should be false", Ops.truthy("0"));
+        Assert.assertFalse("Empty string should be false", Ops.truthy(""));
+        Assert.assertTrue("String should be true", Ops.truthy("foo"));
+        Assert.assertFalse("Empty list should be false", Ops.truthy(new ArrayList<>()));
+        Assert.assertTrue("List with contents should be true", Ops.truthy(Arrays.asList(1)));
+        Assert.assertFalse("Empty map should be false", Ops.truthy(new HashMap<>()));
+        Assert.assertTrue("Object should be true", Ops.truthy(new Object()));
+        Assert.assertFalse("Dynamic type should be unwrapped", Ops.truthy(new DynamicType(false)));
+    }
+
+    @Test
+    public void canEqualDifferentTypes() {
+        Assert.assertTrue("1 should equal 1", Ops.equals(1, 1));
+        Assert.assertFalse("1 should not equal 2", Ops.equals(1, 2));
+        Assert.assertTrue("1.0 should equal 1", Ops.equals(1.0, 1));
+        Assert.assertTrue("\"1\" should equal 1", Ops.equals("1", 1));
+        Assert.assertTrue("Strings should be equal", Ops.equals("foo", "foo"));
+        Assert.assertFalse("Strings should not be equal", Ops.equals("foo", "bar"));
+        Assert.assertTrue("null should equal null", Ops.equals(null, null));
+    }
+
+    @Test
+    public void canCompare() {
+        Assert.assertEquals("1 should be less than 2", -1, Ops.compare(1, 2));
+        Assert.assertEquals("2 should be equal to 2.0", 0, Ops.compare(2, 2.0));
+        Assert.assertEquals("\"3\" should be greater than 2", 1, Ops.compare("3", 2));
+    }
+
+    @Test
+    public void calculatesIntegersLikeOtherNumbers() {
+        for (int left : Arrays.asList(0, 1, -1, 7, -7, 65536, Integer.MAX_VALUE, Integer.MIN_VALUE)) {
+            for (int right : Arrays.asList(1, -1, 2, -3, 65536, Integer.MAX_VALUE, Integer.MIN_VALUE)) {
+                String operands = left + ", " + right;
+
+                // Longs take the general path
+                Assert.assertEquals("add " + operands, Ops.add((long) left, (long) right), Ops.add(left, right));
+                Assert.assertEquals("subtract " + operands, Ops.subtract((long) left, (long) right), Ops.subtract(left, right));
+                Assert.assertEquals("multiply " + operands, Ops.multiply((long) left, (long) right), Ops.multiply(left, right));
+                Assert.assertEquals("mod " + operands, Ops.mod((long) left, (long) right), Ops.mod(left, right));
+                Assert.assertEquals("compare " + operands, Ops.compare((long) left, (long) right), Ops.compare(left, right));
+                Assert.assertEquals("equals " + operands, Ops.equals((long) left, (long) right), Ops.equals(left, right));
+            }
+        }
+    }
+}
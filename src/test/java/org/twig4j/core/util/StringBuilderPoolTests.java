@@ -0,0 +1,40 @@
+package org.twig4j.core.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StringBuilderPoolTests {
+    @Test
+    public void reusesReleasedBuilders() {
+        StringBuilderPool pool = new StringBuilderPool(2, 1024);
+        StringBuilder builder = pool.acquire(100);
+        builder.append("foo");
+
+        pool.release(builder);
+        StringBuilder reused = pool.acquire(200);
+
+        Assert.assertSame("Released builder should be reused", builder, reused);
+        Assert.assertEquals("Reused builder should be empty", 0, reused.length());
+        Assert.assertTrue("Reused builder should have the requested capacity", reused.capacity() >= 200);
+    }
+
+    @Test
+    public void createsBuildersWhenAllAreTaken() {
+        StringBuilderPool pool = new StringBuilderPool(1, 1024);
+        StringBuilder first = pool.acquire(100);
+        pool.release(first);
+
+        Assert.assertSame("Should take the pooled builder", first, pool.acquire(10));
+        Assert.assertNotSame("Should create a new builder when the pool is empty", first, pool.acquire(10));
+    }
+
+    @Test
+    public void doesNotKeepLargeBuilders() {
+        StringBuilderPool pool = new StringBuilderPool(1, 1024);
+        StringBuilder builder = pool.acquire(2048);
+
+        pool.release(builder);
+
+        Assert.assertNotSame("Builders larger than the maximum capacity should be dropped", builder, pool.acquire(10));
+    }
+}